@@ -119,7 +119,9 @@ CREATE TABLE IF NOT EXISTS contracts (
   
   INDEX idx_apartment_id (apartment_id),
   INDEX idx_resident_id (resident_id),
-  INDEX idx_status (status)
+  -- Quét hợp đồng sắp / đã hết hạn theo khoảng end_date (thay cho idx_status)
+  INDEX idx_status_type_end (status, contract_type, end_date),
+  INDEX idx_created_id (created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Table: contract_history
@@ -177,7 +179,9 @@ CREATE TABLE IF NOT EXISTS invoices (
   
   INDEX idx_contract_id (contract_id),
   INDEX idx_month_year (month, year),
-  INDEX idx_status (status)
+  INDEX idx_status (status),
+  INDEX idx_period_created (year, month, created_at, id),
+  INDEX idx_contract_period (contract_id, year, month)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- Table: invoice_details
@@ -203,6 +207,7 @@ CREATE TABLE IF NOT EXISTS service_usage (
   new_index DOUBLE DEFAULT 0,
   actual_usage DOUBLE DEFAULT NULL,
   
+  UNIQUE KEY uk_usage_period (contract_id, service_id, year, month),
   INDEX idx_contract_id (contract_id),
   INDEX idx_service_id (service_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -236,6 +241,35 @@ CREATE TABLE IF NOT EXISTS user_buildings (
   INDEX idx_assigned_by (assigned_by)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Table: revenue_monthly_rollup
+-- Tổng hợp hóa đơn theo tòa nhà × tháng, cập nhật mỗi khi ghi hóa đơn (InvoiceDAO)
+-- Dựng lại toàn bộ: java util.RevenueRollupRebuild
+CREATE TABLE IF NOT EXISTS revenue_monthly_rollup (
+  building_id BIGINT NOT NULL,
+  year INT NOT NULL,
+  month INT NOT NULL,
+  invoice_count INT NOT NULL DEFAULT 0 COMMENT 'Hóa đơn của kỳ (theo month/year, kể cả đã hủy)',
+  paid_count INT NOT NULL DEFAULT 0,
+  paid_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+  unpaid_count INT NOT NULL DEFAULT 0,
+  unpaid_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+  canceled_count INT NOT NULL DEFAULT 0,
+  collected_count INT NOT NULL DEFAULT 0 COMMENT 'Hóa đơn thanh toán trong tháng (theo payment_date)',
+  collected_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  
+  PRIMARY KEY (building_id, year, month),
+  INDEX idx_year_month (year, month)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Table: contract_number_seq
+-- Bộ đếm số hợp đồng theo ngày (seq_key = 'HDyyyyMMdd'), next_value = số kế tiếp chưa cấp
+-- ContractNumberAllocator giữ từng khối số bằng UPDATE ... LAST_INSERT_ID(next_value + n)
+CREATE TABLE IF NOT EXISTS contract_number_seq (
+  seq_key VARCHAR(20) NOT NULL PRIMARY KEY,
+  next_value BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- =========================
 -- FOREIGN KEY CONSTRAINTS
 -- =========================
@@ -315,6 +349,12 @@ ALTER TABLE household_members
   FOREIGN KEY (contract_id) REFERENCES contracts(id)
   ON DELETE CASCADE;
 
+-- Revenue Monthly Rollup
+ALTER TABLE revenue_monthly_rollup
+  ADD CONSTRAINT fk_revenue_rollup_building 
+  FOREIGN KEY (building_id) REFERENCES buildings(id)
+  ON DELETE CASCADE;
+
 -- User Buildings
 ALTER TABLE user_buildings
   ADD CONSTRAINT fk_user_buildings_user 
@@ -0,0 +1,289 @@
+package connection;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool dùng cho toàn bộ DAO.
+ *
+ * - Giữ tối thiểu minSize kết nối nhàn rỗi, tối đa maxSize kết nối mở cùng lúc
+ * - Kiểm tra kết nối (isValid) trước khi cho mượn
+ * - Đóng kết nối nhàn rỗi quá idleTimeout (nhưng không xuống dưới minSize)
+ * - Phát hiện rò rỉ: kết nối mượn quá leakThreshold sẽ bị log kèm stack trace
+ * - Chờ tối đa borrowTimeout khi pool đã hết, sau đó ném SQLTimeoutException
+ * - Mỗi kết nối giữ một LRU cache PreparedStatement (statementCacheSize câu SQL)
+ */
+public class ConnectionPool {
+
+    private static final int WAIT_SAMPLE_SIZE = 1024;
+
+    private final String url;
+    private final Properties props;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+    private final int validationTimeoutSec = 2;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    // --- Metrics ---
+    private final AtomicLong totalBorrows = new AtomicLong();
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalTimeouts = new AtomicLong();
+    private final AtomicLong totalLeaks = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final long[] waitSamplesNanos = new long[WAIT_SAMPLE_SIZE];
+    private int waitSampleCount = 0;
+    private int waitSampleIndex = 0;
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, Properties props, int minSize, int maxSize,
+            long borrowTimeoutMs, long idleTimeoutMs, long leakThresholdMs, int statementCacheSize) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.props = props;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs, 30_000));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mượn một kết nối. Gọi close() trên kết nối trả về sẽ trả nó lại pool.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                totalTimeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMs
+                        + "ms waiting for a database connection (max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pc = takeValidIdle();
+            if (pc == null) {
+                pc = createConnection();
+            }
+            pc.markBorrowed(leakThresholdMs > 0 ? new Exception("Connection borrowed here") : null);
+            borrowed.add(pc);
+            totalBorrows.incrementAndGet();
+            recordWait(System.nanoTime() - start);
+            return pc.getProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) {
+                return null;
+            }
+            if (pc.isUsable(validationTimeoutSec)) {
+                return pc;
+            }
+            pc.closePhysical();
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, props);
+        totalCreated.incrementAndGet();
+        return new PooledConnection(this, raw, statementCacheSize);
+    }
+
+    /**
+     * Được gọi bởi PooledConnection khi DAO đóng kết nối logic.
+     */
+    void release(PooledConnection pc) {
+        if (!borrowed.remove(pc)) {
+            return;
+        }
+        try {
+            if (closed || !pc.resetForReuse()) {
+                pc.closePhysical();
+            } else {
+                synchronized (idle) {
+                    idle.addFirst(pc);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        // 1. Đóng kết nối nhàn rỗi quá lâu (giữ lại minSize)
+        if (idleTimeoutMs > 0) {
+            synchronized (idle) {
+                Iterator<PooledConnection> it = idle.descendingIterator();
+                while (it.hasNext() && idle.size() > minSize) {
+                    PooledConnection pc = it.next();
+                    if (now - pc.getLastReturnedAt() > idleTimeoutMs) {
+                        it.remove();
+                        pc.closePhysical();
+                    }
+                }
+            }
+        }
+
+        // 2. Bù lại cho đủ minSize
+        while (!closed && idleCount() + borrowed.size() < minSize) {
+            try {
+                PooledConnection pc = createConnection();
+                synchronized (idle) {
+                    idle.addLast(pc);
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ Cannot refill connection pool: " + e.getMessage());
+                break;
+            }
+        }
+
+        // 3. Phát hiện rò rỉ kết nối
+        if (leakThresholdMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.isLeakReported() && now - pc.getBorrowedAt() > leakThresholdMs) {
+                    pc.setLeakReported(true);
+                    totalLeaks.incrementAndGet();
+                    System.err.println("⚠️ Possible connection leak: held for "
+                            + (now - pc.getBorrowedAt()) + "ms");
+                    if (pc.getBorrowStack() != null) {
+                        pc.getBorrowStack().printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.incrementAndGet();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.incrementAndGet();
+    }
+
+    private int idleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    private synchronized void recordWait(long nanos) {
+        waitSamplesNanos[waitSampleIndex] = nanos;
+        waitSampleIndex = (waitSampleIndex + 1) % WAIT_SAMPLE_SIZE;
+        if (waitSampleCount < WAIT_SAMPLE_SIZE) {
+            waitSampleCount++;
+        }
+    }
+
+    /**
+     * Ảnh chụp số liệu hiện tại của pool
+     */
+    public PoolMetrics getMetrics() {
+        long[] samples;
+        synchronized (this) {
+            samples = Arrays.copyOf(waitSamplesNanos, waitSampleCount);
+        }
+        Arrays.sort(samples);
+        return new PoolMetrics(
+                borrowed.size(),
+                idleCount(),
+                maxSize,
+                permits.getQueueLength(),
+                totalBorrows.get(),
+                totalCreated.get(),
+                totalTimeouts.get(),
+                totalLeaks.get(),
+                statementCacheHits.get(),
+                statementCacheMisses.get(),
+                percentileMillis(samples, 50),
+                percentileMillis(samples, 95),
+                percentileMillis(samples, 99),
+                samples.length == 0 ? 0 : samples[samples.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentileMillis(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * Đóng toàn bộ kết nối nhàn rỗi. Kết nối đang mượn sẽ bị đóng khi trả về.
+     */
+    public void shutdown() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pc : idle) {
+                pc.closePhysical();
+            }
+            idle.clear();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -1,8 +1,10 @@
 package connection;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Db_connection {
 
@@ -11,6 +13,19 @@ public class Db_connection {
     private static final String USER = "root";
     private static final String PASSWORD = "root";
 
+    // Cấu hình pool
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long BORROW_TIMEOUT_MS = 10_000;
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000;
+    private static final long LEAK_THRESHOLD_MS = 60_000;
+    private static final int STATEMENT_CACHE_SIZE = 100;
+
+    private static volatile ConnectionPool pool;
+
+    // Chạy trước khi đóng pool lúc tắt ứng dụng (vd: ghi nốt dữ liệu còn trong hàng đợi)
+    private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
+
     static {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
@@ -19,11 +34,85 @@ public class Db_connection {
             System.err.println("❌ MySQL Driver not found!");
             e.printStackTrace();
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(Db_connection::shutdown, "db-pool-shutdown"));
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Db_connection.class) {
+                p = pool;
+                if (p == null) {
+                    Properties props = new Properties();
+                    props.setProperty("user", USER);
+                    props.setProperty("password", PASSWORD);
+                    // Server-side prepared statement + cache phía driver
+                    props.setProperty("useServerPrepStmts", "true");
+                    props.setProperty("cachePrepStmts", "true");
+                    props.setProperty("prepStmtCacheSize", "250");
+                    props.setProperty("prepStmtCacheSqlLimit", "2048");
+                    // executeBatch() của INSERT → 1 câu INSERT nhiều dòng (ít round-trip)
+                    props.setProperty("rewriteBatchedStatements", "true");
+
+                    p = new ConnectionPool(URL, props, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                            BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
+                    pool = p;
+                    System.out.println("✅ Connection pool ready (max " + POOL_MAX_SIZE + ")");
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Đăng ký việc cần làm lúc tắt ứng dụng, khi pool vẫn còn dùng được
+     */
+    public static void addShutdownTask(Runnable task) {
+        SHUTDOWN_TASKS.add(task);
     }
 
+    /**
+     * Lấy kết nối từ pool. close() sẽ trả kết nối về pool.
+     *
+     * Thread đang trong UnitOfWork: trả về kết nối dùng chung của unit đó
+     * (close/commit do unit quản lý).
+     */
     public static Connection getConnection() throws SQLException {
-        Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-        System.out.println("✅ Kết nối thành công!");
-        return conn;
+        Connection shared = UnitOfWork.currentConnection();
+        return shared != null ? shared : getPool().borrow();
+    }
+
+    /**
+     * Luôn mượn kết nối mới từ pool, kể cả khi thread đang trong UnitOfWork
+     * (vd: cấp số tự tăng - commit ngay, không giữ khóa đến hết unit)
+     */
+    public static Connection getStandaloneConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    /**
+     * Số liệu hiện tại của pool (active, idle, thời gian chờ, cache statement...)
+     */
+    public static PoolMetrics getPoolMetrics() {
+        return getPool().getMetrics();
+    }
+
+    /**
+     * Đóng pool (gọi khi thoát ứng dụng) - chạy các việc đã addShutdownTask()
+     * trước
+     */
+    public static void shutdown() {
+        for (Runnable task : SHUTDOWN_TASKS) {
+            SHUTDOWN_TASKS.remove(task);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        ConnectionPool p = pool;
+        if (p != null) {
+            p.shutdown();
+        }
     }
 }
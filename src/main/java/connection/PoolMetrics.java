@@ -0,0 +1,113 @@
+package connection;
+
+/**
+ * Ảnh chụp (immutable) số liệu của ConnectionPool tại một thời điểm
+ */
+public final class PoolMetrics {
+
+    private final int active;
+    private final int idle;
+    private final int maxSize;
+    private final int waitingThreads;
+    private final long totalBorrows;
+    private final long totalCreated;
+    private final long totalTimeouts;
+    private final long totalLeaks;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final double waitP50Ms;
+    private final double waitP95Ms;
+    private final double waitP99Ms;
+    private final double waitMaxMs;
+
+    public PoolMetrics(int active, int idle, int maxSize, int waitingThreads,
+            long totalBorrows, long totalCreated, long totalTimeouts, long totalLeaks,
+            long statementCacheHits, long statementCacheMisses,
+            double waitP50Ms, double waitP95Ms, double waitP99Ms, double waitMaxMs) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.waitingThreads = waitingThreads;
+        this.totalBorrows = totalBorrows;
+        this.totalCreated = totalCreated;
+        this.totalTimeouts = totalTimeouts;
+        this.totalLeaks = totalLeaks;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.waitP50Ms = waitP50Ms;
+        this.waitP95Ms = waitP95Ms;
+        this.waitP99Ms = waitP99Ms;
+        this.waitMaxMs = waitMaxMs;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getTotalBorrows() {
+        return totalBorrows;
+    }
+
+    public long getTotalCreated() {
+        return totalCreated;
+    }
+
+    public long getTotalTimeouts() {
+        return totalTimeouts;
+    }
+
+    public long getTotalLeaks() {
+        return totalLeaks;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public double getStatementCacheHitRate() {
+        long total = statementCacheHits + statementCacheMisses;
+        return total == 0 ? 0 : (double) statementCacheHits / total;
+    }
+
+    public double getWaitP50Ms() {
+        return waitP50Ms;
+    }
+
+    public double getWaitP95Ms() {
+        return waitP95Ms;
+    }
+
+    public double getWaitP99Ms() {
+        return waitP99Ms;
+    }
+
+    public double getWaitMaxMs() {
+        return waitMaxMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolMetrics{active=%d, idle=%d, max=%d, waiting=%d, borrows=%d, created=%d, "
+                + "timeouts=%d, leaks=%d, stmtCache hits=%d misses=%d, "
+                + "wait p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms}",
+                active, idle, maxSize, waitingThreads, totalBorrows, totalCreated,
+                totalTimeouts, totalLeaks, statementCacheHits, statementCacheMisses,
+                waitP50Ms, waitP95Ms, waitP99Ms, waitMaxMs);
+    }
+}
@@ -0,0 +1,182 @@
+package connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kết nối vật lý do ConnectionPool quản lý.
+ *
+ * Mỗi lần cho mượn sẽ tạo một proxy mới: close() trên proxy trả kết nối về
+ * pool thay vì đóng socket, và proxy cũ không dùng lại được sau khi đã đóng.
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection raw;
+    private final StatementCache statementCache;
+
+    private volatile long borrowedAt;
+    private volatile long lastReturnedAt = System.currentTimeMillis();
+    private volatile Exception borrowStack;
+    private volatile boolean leakReported;
+    private Connection proxy;
+
+    PooledConnection(ConnectionPool pool, Connection raw, int statementCacheSize) {
+        this.pool = pool;
+        this.raw = raw;
+        this.statementCache = statementCacheSize > 0 ? new StatementCache(pool, statementCacheSize) : null;
+    }
+
+    void markBorrowed(Exception stack) {
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrowStack = stack;
+        this.leakReported = false;
+        this.proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease());
+    }
+
+    Connection getProxy() {
+        return proxy;
+    }
+
+    boolean isUsable(int timeoutSec) {
+        try {
+            return !raw.isClosed() && raw.isValid(timeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Đưa kết nối về trạng thái mặc định trước khi trả lại pool.
+     * DAO nào quên commit/rollback thì transaction dở dang sẽ bị rollback.
+     */
+    boolean resetForReuse() {
+        try {
+            if (raw.isClosed()) {
+                return false;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (raw.isReadOnly()) {
+                raw.setReadOnly(false);
+            }
+            raw.clearWarnings();
+            lastReturnedAt = System.currentTimeMillis();
+            borrowStack = null;
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+        try {
+            raw.close();
+        } catch (SQLException e) {
+            // Kết nối đã hỏng, bỏ qua
+        }
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    Exception getBorrowStack() {
+        return borrowStack;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    /**
+     * Handler cho một lần mượn kết nối
+     */
+    private class Lease implements InvocationHandler {
+
+        private volatile boolean closed = false;
+        // Statement mở trong lần mượn này, đóng hết (hoặc trả về cache) khi trả kết nối
+        private final List<Statement> openStatements = new ArrayList<>();
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        closeOpenStatements();
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || raw.isClosed();
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                case "toString":
+                    return "PooledConnection[" + raw + (closed ? ", closed]" : "]");
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+
+            Object result;
+            if (statementCache != null && StatementCache.isCacheable(method, args)) {
+                Integer autoKeys = args.length == 2 ? (Integer) args[1] : null;
+                result = statementCache.prepare(raw, (Connection) proxyObj, (String) args[0], autoKeys);
+            } else {
+                try {
+                    result = method.invoke(raw, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            if (result instanceof Statement) {
+                synchronized (openStatements) {
+                    openStatements.add((Statement) result);
+                }
+            }
+            return result;
+        }
+
+        private void closeOpenStatements() {
+            synchronized (openStatements) {
+                for (Statement st : openStatements) {
+                    try {
+                        st.close();
+                    } catch (SQLException e) {
+                        // Bỏ qua
+                    }
+                }
+                openStatements.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache PreparedStatement theo câu SQL, gắn với một kết nối vật lý.
+ *
+ * DAO vẫn gọi prepareStatement()/close() như bình thường: close() chỉ trả
+ * statement về cache, lần sau cùng câu SQL sẽ dùng lại mà không phải parse
+ * lại trên MySQL.
+ */
+class StatementCache {
+
+    private final int capacity;
+    private final ConnectionPool pool;
+    private final Map<String, CachedEntry> entries;
+
+    StatementCache(ConnectionPool pool, int capacity) {
+        this.pool = pool;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, CachedEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+                CachedEntry e = eldest.getValue();
+                e.evicted = true;
+                if (!e.inUse) {
+                    e.closePhysical();
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Lấy statement từ cache (hoặc prepare mới) và trả về proxy của nó.
+     *
+     * @param autoGeneratedKeys null nếu gọi prepareStatement(String)
+     */
+    synchronized PreparedStatement prepare(Connection raw, Connection owner, String sql,
+            Integer autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "|" + sql;
+        CachedEntry e = entries.get(key);
+
+        if (e != null && !e.inUse) {
+            pool.recordStatementCacheHit();
+        } else {
+            pool.recordStatementCacheMiss();
+            PreparedStatement ps = autoGeneratedKeys == null
+                    ? raw.prepareStatement(sql)
+                    : raw.prepareStatement(sql, autoGeneratedKeys);
+            CachedEntry created = new CachedEntry(ps);
+            if (e == null) {
+                entries.put(key, created);
+            } else {
+                // Cùng câu SQL đang được dùng lồng nhau: không cache bản thứ hai
+                created.evicted = true;
+            }
+            e = created;
+        }
+
+        e.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Handle(e, owner));
+    }
+
+    private synchronized void giveBack(CachedEntry e) {
+        e.inUse = false;
+        if (e.evicted || !e.reset()) {
+            e.closePhysical();
+            entries.values().remove(e);
+        }
+    }
+
+    synchronized void closeAll() {
+        List<CachedEntry> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (CachedEntry e : all) {
+            e.closePhysical();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static class CachedEntry {
+
+        final PreparedStatement raw;
+        boolean inUse;
+        boolean evicted;
+
+        CachedEntry(PreparedStatement raw) {
+            this.raw = raw;
+        }
+
+        /**
+         * Xóa tham số, result set còn mở... để lần sau dùng lại như mới
+         */
+        boolean reset() {
+            try {
+                ResultSet rs = raw.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                raw.clearParameters();
+                raw.clearBatch();
+                raw.clearWarnings();
+                if (raw.getMaxRows() != 0) {
+                    raw.setMaxRows(0);
+                }
+                if (raw.getQueryTimeout() != 0) {
+                    raw.setQueryTimeout(0);
+                }
+                if (raw.getFetchSize() != 0) {
+                    raw.setFetchSize(0);
+                }
+                return !raw.isClosed();
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            try {
+                raw.close();
+            } catch (SQLException ex) {
+                // Bỏ qua
+            }
+        }
+    }
+
+    /**
+     * Proxy của statement đã cache: close() trả về cache
+     */
+    private class Handle implements InvocationHandler {
+
+        private final CachedEntry entry;
+        private final Connection owner;
+        private boolean closed = false;
+
+        Handle(CachedEntry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                case "toString":
+                    return "CachedStatement[" + entry.raw + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            try {
+                return method.invoke(entry.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    static boolean isCacheable(Method method, Object[] args) {
+        if (!"prepareStatement".equals(method.getName()) || args == null) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1 || (types.length == 2 && types[1] == int.class
+                && ((Integer) args[1] == Statement.RETURN_GENERATED_KEYS
+                || (Integer) args[1] == Statement.NO_GENERATED_KEYS));
+    }
+}
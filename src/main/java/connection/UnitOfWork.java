@@ -0,0 +1,252 @@
+package connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gộp nhiều lần gọi DAO thành 1 transaction trên 1 kết nối.
+ *
+ * Trong lúc unit of work mở, Db_connection.getConnection() trên cùng thread
+ * trả về kết nối dùng chung của nó thay vì mượn kết nối mới từ pool. Các DAO
+ * không cần sửa: close() / commit() / setAutoCommit() của DAO trên kết nối
+ * dùng chung bị bỏ qua, rollback() của DAO đánh dấu cả unit phải rollback.
+ *
+ * Cách dùng:
+ * <pre>
+ * try (UnitOfWork uow = UnitOfWork.begin()) {
+ *     Long id = invoiceDAO.insertInvoiceAndReturnId(invoice);
+ *     if (id == null || !invoiceDAO.insertInvoiceDetails(id, details)) {
+ *         return; // close() không commit → rollback
+ *     }
+ *     uow.commit();
+ * }
+ * </pre>
+ *
+ * - begin() lồng nhau trên cùng thread tham gia unit đang mở; chỉ unit ngoài
+ * cùng thực sự commit/rollback
+ * - Việc phải làm sau khi transaction kết thúc (báo dữ liệu đổi, xóa cache)
+ * đăng ký bằng onCompletion()
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    /**
+     * Gọi 1 lần khi unit ngoài cùng kết thúc
+     */
+    public interface CompletionListener {
+
+        /**
+         * @param committed true = đã commit, false = đã rollback
+         */
+        void afterCompletion(boolean committed);
+    }
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final Scope scope;
+    private final boolean owner;
+    private boolean finished = false;
+
+    private UnitOfWork(Scope scope, boolean owner) {
+        this.scope = scope;
+        this.owner = owner;
+    }
+
+    /**
+     * Mở unit of work (hoặc tham gia unit đang mở trên thread này)
+     */
+    public static UnitOfWork begin() throws SQLException {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            return new UnitOfWork(scope, false);
+        }
+
+        Connection raw = Db_connection.getStandaloneConnection();
+        try {
+            raw.setAutoCommit(false);
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        scope = new Scope(raw);
+        CURRENT.set(scope);
+        return new UnitOfWork(scope, true);
+    }
+
+    /**
+     * Thread hiện tại đang trong unit of work?
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Đăng ký việc chạy sau khi unit đang mở kết thúc. Không có unit nào thì
+     * gọi ngay với committed = true (thao tác đã tự commit).
+     */
+    public static void onCompletion(CompletionListener listener) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            listener.afterCompletion(true);
+        } else {
+            scope.listeners.add(listener);
+        }
+    }
+
+    /**
+     * Kết nối dùng chung của unit đang mở trên thread này (null nếu không có)
+     */
+    static Connection currentConnection() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.shared : null;
+    }
+
+    /**
+     * Commit (unit ngoài cùng). Unit đã bị đánh dấu rollback (có DAO lỗi) thì
+     * rollback và ném SQLException.
+     */
+    public void commit() throws SQLException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!owner) {
+            return; // Unit ngoài cùng sẽ commit
+        }
+
+        if (scope.rollbackOnly) {
+            rollbackScope();
+            throw new SQLException("Unit of work đã bị đánh dấu rollback (có thao tác thất bại)");
+        }
+        try {
+            scope.raw.commit();
+        } catch (SQLException e) {
+            rollbackScope();
+            throw e;
+        }
+        scope.fireCompletion(true);
+    }
+
+    public void rollback() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (owner) {
+            rollbackScope();
+        } else {
+            scope.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Đánh dấu chỉ được rollback (commit() sẽ thất bại)
+     */
+    public void setRollbackOnly() {
+        scope.rollbackOnly = true;
+    }
+
+    /**
+     * Chưa commit thì rollback; unit ngoài cùng trả kết nối về pool
+     */
+    @Override
+    public void close() {
+        if (!finished) {
+            rollback();
+        }
+        if (!owner) {
+            return;
+        }
+        CURRENT.remove();
+        try {
+            scope.raw.setAutoCommit(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        try {
+            scope.raw.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void rollbackScope() {
+        try {
+            scope.raw.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        scope.fireCompletion(false);
+    }
+
+    /**
+     * Trạng thái dùng chung của 1 unit (kể cả các begin() lồng nhau)
+     */
+    private static final class Scope {
+
+        final Connection raw;
+        final Connection shared;
+        final List<CompletionListener> listeners = new ArrayList<>();
+        boolean rollbackOnly = false;
+
+        Scope(Connection raw) {
+            this.raw = raw;
+            this.shared = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new SharedHandler());
+        }
+
+        void fireCompletion(boolean committed) {
+            List<CompletionListener> toRun = new ArrayList<>(listeners);
+            listeners.clear();
+            for (CompletionListener listener : toRun) {
+                try {
+                    listener.afterCompletion(committed);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Kết nối đưa cho DAO: transaction do unit quản lý
+         */
+        private class SharedHandler implements InvocationHandler {
+
+            @Override
+            public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                    case "commit":
+                    case "setAutoCommit":
+                        return null;
+                    case "rollback":
+                        if (args == null || args.length == 0) {
+                            rollbackOnly = true;
+                            return null;
+                        }
+                        break; // rollback(Savepoint) vẫn chạy thật
+                    case "equals":
+                        return proxyObj == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxyObj);
+                    case "toString":
+                        return "UnitOfWork[" + raw + "]";
+                    default:
+                        break;
+                }
+                try {
+                    return method.invoke(raw, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
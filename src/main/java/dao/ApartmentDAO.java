@@ -1,13 +1,19 @@
 package dao;
 
 import model.Apartment;
+import model.ApartmentCardViewModel;
 import model.User;
 import connection.Db_connection;
 import util.SessionManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ApartmentDAO {
 
@@ -71,6 +77,37 @@ public class ApartmentDAO {
         return null;
     }
 
+    /**
+     * Lấy nhiều căn hộ theo danh sách ID (chia nhóm IN (...)), trả về Map id → Apartment
+     */
+    public Map<Long, Apartment> getApartmentsByIds(Collection<Long> ids) {
+        Map<Long, Apartment> result = new HashMap<>();
+        List<List<Long>> chunks = SqlUtils.chunkIds(ids, SqlUtils.IN_CHUNK_SIZE);
+        if (chunks.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : chunks) {
+                String sql = "SELECT * FROM apartments WHERE id IN (" + SqlUtils.placeholders(chunk.size()) + ") AND is_deleted = 0";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Apartment apartment = mapResultSetToApartment(rs);
+                            result.put(apartment.getId(), apartment);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
     public boolean insertApartment(Apartment apartment) {
         String sql = "INSERT INTO apartments (floor_id, room_number, area, status, description, apartment_type, bedroom_count, bathroom_count, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -82,26 +119,85 @@ public class ApartmentDAO {
             pstmt.setString(6, apartment.getApartmentType());
             pstmt.setInt(7, apartment.getBedroomCount());
             pstmt.setInt(8, apartment.getBathroomCount());
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            FloorDAO.invalidateFloorStats(apartment.getFloorId());
+            DataVersion.bump(DataVersion.Domain.APARTMENT);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    /**
+     * Số phòng (chữ hoa) của các căn đang có trong tòa - dùng trong transaction
+     * của FloorDAO.scaffoldFloors
+     */
+    Set<String> getRoomNumbersByBuilding(Connection conn, Long buildingId) throws SQLException {
+        Set<String> rooms = new HashSet<>();
+        String sql = "SELECT a.room_number FROM apartments a "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE f.building_id = ? AND a.is_deleted = 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, buildingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String room = rs.getString("room_number");
+                    if (room != null) {
+                        rooms.add(room.trim().toUpperCase());
+                    }
+                }
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Thêm nhiều căn hộ trong transaction của người gọi (1 batch, driver gộp
+     * thành INSERT nhiều dòng). Người gọi tự xóa cache / bump sau khi commit.
+     */
+    void insertApartmentsBatch(Connection conn, List<Apartment> apartments) throws SQLException {
+        if (apartments.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO apartments (floor_id, room_number, area, status, description, apartment_type, bedroom_count, bathroom_count, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Apartment apartment : apartments) {
+                ps.setLong(1, apartment.getFloorId());
+                ps.setString(2, apartment.getRoomNumber());
+                ps.setDouble(3, apartment.getArea());
+                ps.setString(4, apartment.getStatus());
+                ps.setString(5, apartment.getDescription());
+                ps.setString(6, apartment.getApartmentType());
+                ps.setInt(7, apartment.getBedroomCount());
+                ps.setInt(8, apartment.getBathroomCount());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     public boolean updateApartment(Apartment apartment) {
         String sql = "UPDATE apartments SET floor_id=?, room_number=?, area=?, status=?, description=?, apartment_type=?, bedroom_count=?, bathroom_count=? WHERE id=?";
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, apartment.getFloorId());
-            pstmt.setString(2, apartment.getRoomNumber());
-            pstmt.setDouble(3, apartment.getArea());
-            pstmt.setString(4, apartment.getStatus());
-            pstmt.setString(5, apartment.getDescription());
-            pstmt.setString(6, apartment.getApartmentType());
-            pstmt.setInt(7, apartment.getBedroomCount());
-            pstmt.setInt(8, apartment.getBathroomCount());
-            pstmt.setLong(9, apartment.getId());
-            return pstmt.executeUpdate() > 0;
+        try (Connection conn = Db_connection.getConnection()) {
+            // Tầng cũ (nếu căn hộ được chuyển tầng thì thống kê của cả 2 tầng đều đổi)
+            Long oldFloorId = findFloorId(conn, apartment.getId());
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, apartment.getFloorId());
+                pstmt.setString(2, apartment.getRoomNumber());
+                pstmt.setDouble(3, apartment.getArea());
+                pstmt.setString(4, apartment.getStatus());
+                pstmt.setString(5, apartment.getDescription());
+                pstmt.setString(6, apartment.getApartmentType());
+                pstmt.setInt(7, apartment.getBedroomCount());
+                pstmt.setInt(8, apartment.getBathroomCount());
+                pstmt.setLong(9, apartment.getId());
+                boolean changed = pstmt.executeUpdate() > 0;
+                FloorDAO.invalidateFloorStats(oldFloorId);
+                FloorDAO.invalidateFloorStats(apartment.getFloorId());
+                DataVersion.bump(DataVersion.Domain.APARTMENT);
+                return changed;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -110,15 +206,30 @@ public class ApartmentDAO {
 
     public boolean deleteApartment(Long id) {
         String sql = "UPDATE apartments SET is_deleted = 1 WHERE id = ?";
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+        try (Connection conn = Db_connection.getConnection()) {
+            Long floorId = findFloorId(conn, id);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, id);
+                boolean changed = pstmt.executeUpdate() > 0;
+                FloorDAO.invalidateFloorStats(floorId);
+                DataVersion.bump(DataVersion.Domain.APARTMENT);
+                return changed;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    private Long findFloorId(Connection conn, Long apartmentId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT floor_id FROM apartments WHERE id = ?")) {
+            pstmt.setLong(1, apartmentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong("floor_id") : null;
+            }
+        }
+    }
+
     // --- SUPPORT METHODS ---
     public List<Apartment> getApartmentsByFloorId(Long floorId) {
         List<Apartment> apartments = new ArrayList<>();
@@ -150,6 +261,51 @@ public class ApartmentDAO {
         return apartments;
     }
 
+    /**
+     * Căn hộ cho lưới thẻ kèm hợp đồng đang hiệu lực (id, ngày hết hạn, cư
+     * dân) trong 1 query LEFT JOIN, thay cho 1 query hợp đồng / căn đang thuê.
+     *
+     * @param floorId null = cả tòa nhà
+     */
+    public List<ApartmentCardViewModel> getApartmentCards(Long buildingId, Long floorId) {
+        List<ApartmentCardViewModel> items = new ArrayList<>();
+        if (buildingId == null && floorId == null) {
+            return items;
+        }
+
+        // ac: HĐ đang ở (ACTIVE/EXPIRED chưa thanh lý) mới nhất của mỗi căn hộ
+        String sql = "SELECT a.*, c.id AS contract_id, c.end_date AS contract_end_date, r.full_name AS resident_name "
+                + "FROM apartments a "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "LEFT JOIN (SELECT apartment_id, MAX(id) AS contract_id FROM contracts "
+                + "           WHERE status IN ('ACTIVE', 'EXPIRED') AND is_deleted = 0 GROUP BY apartment_id) ac "
+                + "       ON ac.apartment_id = a.id "
+                + "LEFT JOIN contracts c ON c.id = ac.contract_id "
+                + "LEFT JOIN residents r ON c.resident_id = r.id "
+                + "WHERE a.is_deleted = 0 "
+                + (floorId != null ? "AND a.floor_id = ? " : "AND f.building_id = ? ")
+                + "ORDER BY a.room_number";
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, floorId != null ? floorId : buildingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long contractId = rs.getLong("contract_id");
+                    boolean hasContract = !rs.wasNull();
+                    Date endDate = rs.getDate("contract_end_date");
+                    items.add(new ApartmentCardViewModel(
+                            mapResultSetToApartment(rs),
+                            hasContract ? contractId : null,
+                            endDate != null ? endDate.toLocalDate() : null,
+                            rs.getString("resident_name")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return items;
+    }
+
     // --- STATISTICS ---
     public int countApartments() {
         String sql = "SELECT COUNT(*) FROM apartments WHERE is_deleted = 0";
@@ -0,0 +1,491 @@
+package dao;
+
+import connection.Db_connection;
+import model.Building;
+import model.InvoiceDetail;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BillingRunDAO - Lập hóa đơn hàng loạt cho 1 kỳ (tháng/năm) trên nhiều tòa
+ * nhà, thay cho việc tạo từng hóa đơn bằng InvoiceFormDialog.
+ *
+ * - plan(): tính hóa đơn cho mọi hợp đồng ACTIVE chưa có hóa đơn của kỳ (tiền
+ * thuê + dịch vụ của hợp đồng), không ghi gì → dùng làm bản xem trước
+ * - execute(): ghi bản kế hoạch, mỗi tòa 1 transaction: INSERT nhiều dòng
+ * (multi-row VALUES) cho invoices và invoice_details, cộng 1 lần vào bảng
+ * tổng hợp doanh thu
+ * - Hợp đồng đã có hóa đơn của kỳ (kể cả vừa được tạo sau lúc xem trước) bị
+ * bỏ qua, chạy lại nhiều lần không sinh hóa đơn trùng
+ *
+ * Cách tính giống InvoiceFormDialog: tiền thuê (chỉ hợp đồng thuê) + mỗi dịch
+ * vụ của hợp đồng = đơn giá hiện tại × số lượng (chỉ số tiêu thụ của kỳ trong
+ * service_usage nếu có, mặc định 1), bỏ các khoản bằng 0.
+ */
+public class BillingRunDAO {
+
+    public static final String RENT_LINE_NAME = "Tiền thuê nhà";
+
+    // Số dòng trong 1 câu INSERT nhiều dòng
+    private static final int INSERT_CHUNK_SIZE = 200;
+
+    private final RevenueRollupDAO rollupDAO = new RevenueRollupDAO();
+
+    /**
+     * Tiến độ (gọi từ thread đang chạy, không phải EDT)
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param percent 0..100
+         * @param message bước đang thực hiện
+         */
+        void onProgress(int percent, String message);
+    }
+
+    /**
+     * 1 hóa đơn sẽ được tạo
+     */
+    public static class PlannedInvoice {
+
+        public Long contractId;
+        public String contractNumber;
+        public String apartmentNumber;
+        public BigDecimal rentAmount = BigDecimal.ZERO;
+        public BigDecimal serviceAmount = BigDecimal.ZERO;
+        public BigDecimal totalAmount = BigDecimal.ZERO;
+        public final List<InvoiceDetail> details = new ArrayList<>();
+    }
+
+    /**
+     * Kế hoạch của 1 tòa nhà
+     */
+    public static class BuildingPlan {
+
+        public Long buildingId;
+        public String buildingName;
+        public final List<PlannedInvoice> invoices = new ArrayList<>();
+        public int alreadyBilled = 0;   // bỏ qua: đã có hóa đơn của kỳ
+        public int nothingToBill = 0;   // bỏ qua: không có khoản nào > 0
+
+        public BigDecimal getTotalAmount() {
+            BigDecimal total = BigDecimal.ZERO;
+            for (PlannedInvoice invoice : invoices) {
+                total = total.add(invoice.totalAmount);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Kết quả plan() - bản xem trước, truyền lại cho execute() để ghi
+     */
+    public static class BillingPlan {
+
+        public final int month;
+        public final int year;
+        public final List<BuildingPlan> buildings = new ArrayList<>();
+
+        public BillingPlan(int month, int year) {
+            this.month = month;
+            this.year = year;
+        }
+
+        public int getInvoiceCount() {
+            int count = 0;
+            for (BuildingPlan building : buildings) {
+                count += building.invoices.size();
+            }
+            return count;
+        }
+
+        public int getSkippedCount() {
+            int count = 0;
+            for (BuildingPlan building : buildings) {
+                count += building.alreadyBilled + building.nothingToBill;
+            }
+            return count;
+        }
+
+        public BigDecimal getTotalAmount() {
+            BigDecimal total = BigDecimal.ZERO;
+            for (BuildingPlan building : buildings) {
+                total = total.add(building.getTotalAmount());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Kết quả execute()
+     */
+    public static class BillingRunResult {
+
+        public int created = 0;
+        public int skipped = 0;            // đã có hóa đơn lúc ghi (tạo sau lúc xem trước)
+        public BigDecimal totalAmount = BigDecimal.ZERO;
+        public final List<String> failedBuildings = new ArrayList<>();
+    }
+
+    // =============================================================
+    // PHẦN 1: TÍNH KẾ HOẠCH (XEM TRƯỚC)
+    // =============================================================
+
+    /**
+     * Tính hóa đơn của kỳ cho các tòa nhà, không ghi vào DB
+     *
+     * @return null nếu lỗi đọc dữ liệu
+     */
+    public BillingPlan plan(int month, int year, List<Building> buildings, ProgressListener listener) {
+        BillingPlan plan = new BillingPlan(month, year);
+        LocalDate periodStart = LocalDate.of(year, month, 1);
+        LocalDate periodEnd = periodStart.withDayOfMonth(periodStart.lengthOfMonth());
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (int i = 0; i < buildings.size(); i++) {
+                Building building = buildings.get(i);
+                reportProgress(listener, i * 100 / buildings.size(), "Đang tính: " + building.getName());
+                plan.buildings.add(planBuilding(conn, building, month, year, periodStart, periodEnd));
+            }
+            reportProgress(listener, 100, "Hoàn tất");
+            return plan;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private BuildingPlan planBuilding(Connection conn, Building building, int month, int year,
+            LocalDate periodStart, LocalDate periodEnd) throws SQLException {
+        BuildingPlan buildingPlan = new BuildingPlan();
+        buildingPlan.buildingId = building.getId();
+        buildingPlan.buildingName = building.getName();
+
+        // Hợp đồng còn hiệu lực trong kỳ + cờ đã có hóa đơn của kỳ (1 query cho cả tòa).
+        // EXPIRED vẫn lấy: kỳ chứa ngày kết thúc vẫn phải lập hóa đơn (điều kiện end_date)
+        String sql = "SELECT c.id, c.contract_number, c.contract_type, c.monthly_rent, a.room_number, "
+                + "EXISTS (SELECT 1 FROM invoices i WHERE i.contract_id = c.id "
+                + "AND i.month = ? AND i.year = ? AND i.is_deleted = 0) AS billed "
+                + "FROM contracts c "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE f.building_id = ? AND c.is_deleted = 0 AND c.status IN ('ACTIVE', 'EXPIRED') "
+                + "AND (c.start_date IS NULL OR c.start_date <= ?) "
+                + "AND (c.contract_type <> 'RENTAL' OR c.end_date IS NULL OR c.end_date >= ?) "
+                + "ORDER BY a.room_number";
+
+        Map<Long, PlannedInvoice> byContract = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, month);
+            ps.setInt(2, year);
+            ps.setLong(3, building.getId());
+            ps.setDate(4, Date.valueOf(periodEnd));
+            ps.setDate(5, Date.valueOf(periodStart));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getBoolean("billed")) {
+                        buildingPlan.alreadyBilled++;
+                        continue;
+                    }
+                    PlannedInvoice invoice = new PlannedInvoice();
+                    invoice.contractId = rs.getLong("id");
+                    invoice.contractNumber = rs.getString("contract_number");
+                    invoice.apartmentNumber = rs.getString("room_number");
+
+                    // Hợp đồng sở hữu: monthly_rent là giá mua, không thu hàng tháng
+                    BigDecimal rent = rs.getBigDecimal("monthly_rent");
+                    if ("RENTAL".equals(rs.getString("contract_type")) && rent != null && rent.signum() > 0) {
+                        rent = rent.setScale(0, RoundingMode.DOWN);
+                        invoice.rentAmount = rent;
+                        invoice.details.add(newDetail(RENT_LINE_NAME, rent, 1.0, rent));
+                    }
+                    buildingPlan.invoices.add(invoice);
+                    byContract.put(invoice.contractId, invoice);
+                }
+            }
+        }
+
+        addServiceLines(conn, byContract, month, year);
+
+        for (PlannedInvoice invoice : new ArrayList<>(buildingPlan.invoices)) {
+            invoice.totalAmount = invoice.rentAmount.add(invoice.serviceAmount);
+            if (invoice.details.isEmpty() || invoice.totalAmount.signum() <= 0) {
+                buildingPlan.invoices.remove(invoice);
+                buildingPlan.nothingToBill++;
+            }
+        }
+        return buildingPlan;
+    }
+
+    /**
+     * Dịch vụ của các hợp đồng (thay cho getActiveServicesByContract từng hợp
+     * đồng) kèm chỉ số tiêu thụ của kỳ nếu đã nhập
+     */
+    private void addServiceLines(Connection conn, Map<Long, PlannedInvoice> byContract,
+            int month, int year) throws SQLException {
+        for (List<Long> chunk : SqlUtils.chunkIds(byContract.keySet(), SqlUtils.IN_CHUNK_SIZE)) {
+            String sql = "SELECT cs.contract_id, s.service_name, s.unit_price, "
+                    + "(SELECT su.actual_usage FROM service_usage su "
+                    + " WHERE su.contract_id = cs.contract_id AND su.service_id = cs.service_id "
+                    + " AND su.month = ? AND su.year = ? ORDER BY su.id DESC LIMIT 1) AS usage_qty "
+                    + "FROM contract_services cs "
+                    + "JOIN services s ON cs.service_id = s.id "
+                    + "WHERE s.is_deleted = 0 AND cs.contract_id IN (" + SqlUtils.placeholders(chunk.size()) + ") "
+                    + "ORDER BY cs.contract_id, s.service_name";
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, month);
+                ps.setInt(2, year);
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 3, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        PlannedInvoice invoice = byContract.get(rs.getLong("contract_id"));
+                        BigDecimal unitPrice = rs.getBigDecimal("unit_price");
+                        double quantity = rs.getDouble("usage_qty");
+                        if (rs.wasNull()) {
+                            quantity = 1.0;
+                        }
+                        if (invoice == null || unitPrice == null) {
+                            continue;
+                        }
+
+                        // Làm tròn xuống như InvoiceFormDialog
+                        BigDecimal amount = unitPrice.multiply(BigDecimal.valueOf(quantity))
+                                .setScale(0, RoundingMode.DOWN);
+                        if (amount.signum() <= 0) {
+                            continue;
+                        }
+                        invoice.serviceAmount = invoice.serviceAmount.add(amount);
+                        invoice.details.add(newDetail(rs.getString("service_name"), unitPrice, quantity, amount));
+                    }
+                }
+            }
+        }
+    }
+
+    private InvoiceDetail newDetail(String name, BigDecimal unitPrice, double quantity, BigDecimal amount) {
+        InvoiceDetail detail = new InvoiceDetail();
+        detail.setServiceName(name);
+        detail.setUnitPrice(unitPrice);
+        detail.setQuantity(quantity);
+        detail.setAmount(amount);
+        return detail;
+    }
+
+    // =============================================================
+    // PHẦN 2: GHI HÓA ĐƠN
+    // =============================================================
+
+    /**
+     * Ghi bản kế hoạch, mỗi tòa 1 transaction (tòa lỗi được rollback, các tòa
+     * khác vẫn ghi)
+     */
+    public BillingRunResult execute(BillingPlan plan, ProgressListener listener) {
+        BillingRunResult result = new BillingRunResult();
+        int total = Math.max(1, plan.getInvoiceCount());
+        int done = 0;
+
+        for (BuildingPlan buildingPlan : plan.buildings) {
+            if (buildingPlan.invoices.isEmpty()) {
+                continue;
+            }
+            reportProgress(listener, done * 100 / total, "Đang lập hóa đơn: " + buildingPlan.buildingName);
+
+            Connection conn = null;
+            try {
+                conn = Db_connection.getConnection();
+                conn.setAutoCommit(false);
+
+                int created = writeBuilding(conn, plan, buildingPlan, result);
+                conn.commit();
+                result.created += created;
+            } catch (SQLException e) {
+                e.printStackTrace();
+                rollbackQuietly(conn);
+                result.failedBuildings.add(buildingPlan.buildingName);
+            } finally {
+                closeQuietly(conn);
+            }
+            done += buildingPlan.invoices.size();
+        }
+
+        if (result.created > 0) {
+            DataVersion.bump(DataVersion.Domain.INVOICE);
+        }
+        reportProgress(listener, 100, "Hoàn tất");
+        return result;
+    }
+
+    /**
+     * @return số hóa đơn đã ghi của tòa
+     */
+    private int writeBuilding(Connection conn, BillingPlan plan, BuildingPlan buildingPlan,
+            BillingRunResult result) throws SQLException {
+        // Kiểm tra lại trong transaction: hợp đồng có thể vừa được lập hóa đơn sau lúc xem trước
+        Set<Long> billed = lockBilledContracts(conn, buildingPlan.invoices, plan.month, plan.year);
+        List<PlannedInvoice> pending = new ArrayList<>();
+        for (PlannedInvoice invoice : buildingPlan.invoices) {
+            if (billed.contains(invoice.contractId)) {
+                result.skipped++;
+            } else {
+                pending.add(invoice);
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> invoiceIds = insertInvoices(conn, pending, plan.month, plan.year);
+        insertDetails(conn, pending, invoiceIds);
+
+        // Hóa đơn mới đều UNPAID, cùng tòa + kỳ → cộng 1 lần vào bảng tổng hợp
+        BigDecimal amount = BigDecimal.ZERO;
+        for (PlannedInvoice invoice : pending) {
+            amount = amount.add(invoice.totalAmount);
+        }
+        rollupDAO.addUnpaid(conn, buildingPlan.buildingId, plan.year, plan.month, pending.size(), amount);
+
+        result.totalAmount = result.totalAmount.add(amount);
+        return pending.size();
+    }
+
+    private Set<Long> lockBilledContracts(Connection conn, List<PlannedInvoice> invoices,
+            int month, int year) throws SQLException {
+        List<Long> contractIds = new ArrayList<>();
+        for (PlannedInvoice invoice : invoices) {
+            contractIds.add(invoice.contractId);
+        }
+
+        Set<Long> billed = new HashSet<>();
+        for (List<Long> chunk : SqlUtils.chunkIds(contractIds, SqlUtils.IN_CHUNK_SIZE)) {
+            String sql = "SELECT contract_id FROM invoices "
+                    + "WHERE month = ? AND year = ? AND is_deleted = 0 "
+                    + "AND contract_id IN (" + SqlUtils.placeholders(chunk.size()) + ") FOR UPDATE";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, month);
+                ps.setInt(2, year);
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 3, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        billed.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return billed;
+    }
+
+    /**
+     * INSERT ... VALUES (...), (...), ... theo nhóm INSERT_CHUNK_SIZE dòng
+     *
+     * @return id hóa đơn theo đúng thứ tự của invoices
+     */
+    private List<Long> insertInvoices(Connection conn, List<PlannedInvoice> invoices,
+            int month, int year) throws SQLException {
+        List<Long> ids = new ArrayList<>(invoices.size());
+        for (int from = 0; from < invoices.size(); from += INSERT_CHUNK_SIZE) {
+            List<PlannedInvoice> chunk = invoices.subList(from, Math.min(from + INSERT_CHUNK_SIZE, invoices.size()));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO invoices (contract_id, month, year, total_amount, status, created_at, is_deleted) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append("(?, ?, ?, ?, 'UNPAID', NOW(), 0)");
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                int index = 1;
+                for (PlannedInvoice invoice : chunk) {
+                    ps.setLong(index++, invoice.contractId);
+                    ps.setInt(index++, month);
+                    ps.setInt(index++, year);
+                    ps.setBigDecimal(index++, invoice.totalAmount);
+                }
+                ps.executeUpdate();
+
+                // MySQL trả id của câu INSERT nhiều dòng theo thứ tự các dòng VALUES
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        if (ids.size() != invoices.size()) {
+            throw new SQLException("Số id hóa đơn trả về (" + ids.size() + ") khác số hóa đơn (" + invoices.size() + ")");
+        }
+        return ids;
+    }
+
+    private void insertDetails(Connection conn, List<PlannedInvoice> invoices, List<Long> invoiceIds)
+            throws SQLException {
+        List<InvoiceDetail> rows = new ArrayList<>();
+        for (int i = 0; i < invoices.size(); i++) {
+            for (InvoiceDetail detail : invoices.get(i).details) {
+                detail.setInvoiceId(invoiceIds.get(i));
+                rows.add(detail);
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += INSERT_CHUNK_SIZE) {
+            List<InvoiceDetail> chunk = rows.subList(from, Math.min(from + INSERT_CHUNK_SIZE, rows.size()));
+
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO invoice_details (invoice_id, service_name, unit_price, quantity, amount) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append("(?, ?, ?, ?, ?)");
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (InvoiceDetail detail : chunk) {
+                    ps.setLong(index++, detail.getInvoiceId());
+                    ps.setString(index++, detail.getServiceName());
+                    ps.setBigDecimal(index++, detail.getUnitPrice());
+                    ps.setDouble(index++, detail.getQuantity());
+                    ps.setBigDecimal(index++, detail.getAmount());
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void reportProgress(ProgressListener listener, int percent, String message) {
+        if (listener != null) {
+            listener.onProgress(percent, message);
+        }
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
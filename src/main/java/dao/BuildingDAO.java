@@ -7,7 +7,11 @@ import util.SessionManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * BuildingDAO - UPDATED for Many-to-Many
@@ -15,6 +19,22 @@ import java.util.List;
  */
 public class BuildingDAO {
 
+    // --- CACHE: tòa nhà ít thay đổi nhưng được query ở hầu hết các combo box ---
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000L;
+    private static final EntityCache<String, List<Building>> LIST_CACHE
+            = new EntityCache<>("buildings.list", 100, CACHE_TTL_MS, EntityCache.listCopier(Building::new));
+    private static final EntityCache<Long, Building> BY_ID_CACHE
+            = new EntityCache<>("buildings.byId", 500, CACHE_TTL_MS, Building::new);
+
+    /**
+     * Xóa cache tòa nhà (gọi sau khi ghi vào buildings/user_buildings/users)
+     */
+    public static void invalidateCache() {
+        LIST_CACHE.invalidateAll();
+        BY_ID_CACHE.invalidateAll();
+        DataVersion.bump(DataVersion.Domain.BUILDING);
+    }
+
     private Building mapResultSetToBuilding(ResultSet rs) throws SQLException {
         Building building = new Building();
         building.setId(rs.getLong("id"));
@@ -43,6 +63,17 @@ public class BuildingDAO {
      * ✅ UPDATED: Filter dựa trên user_buildings junction table
      */
     public List<Building> getAllBuildings(User currentUser) {
+        boolean filtered = currentUser != null && !currentUser.isAdmin() && currentUser.hasBuilding();
+        String key = filtered ? "USER:" + currentUser.getId() : "ALL";
+        try {
+            return new ArrayList<>(LIST_CACHE.get(key, () -> queryAllBuildings(currentUser, filtered)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    private List<Building> queryAllBuildings(User currentUser, boolean filtered) throws SQLException {
         List<Building> buildings = new ArrayList<>();
 
         String sql = "SELECT b.*, u.full_name as manager_full_name "
@@ -51,7 +82,7 @@ public class BuildingDAO {
                 + "WHERE b.is_deleted = 0 ";
 
         // MANAGER/STAFF chỉ thấy buildings trong user_buildings
-        if (currentUser != null && !currentUser.isAdmin() && currentUser.hasBuilding()) {
+        if (filtered) {
             sql += "AND b.id IN (SELECT building_id FROM user_buildings WHERE user_id = ?) ";
         }
 
@@ -60,7 +91,7 @@ public class BuildingDAO {
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            if (currentUser != null && !currentUser.isAdmin() && currentUser.hasBuilding()) {
+            if (filtered) {
                 ps.setLong(1, currentUser.getId());
             }
 
@@ -69,15 +100,21 @@ public class BuildingDAO {
             while (rs.next()) {
                 buildings.add(mapResultSetToBuilding(rs));
             }
+        }
+
+        return Collections.unmodifiableList(buildings);
+    }
 
+    public Building getBuildingById(Long id) {
+        try {
+            return BY_ID_CACHE.get(id, () -> queryBuildingById(id));
         } catch (SQLException e) {
             e.printStackTrace();
         }
-
-        return buildings;
+        return null;
     }
 
-    public Building getBuildingById(Long id) {
+    private Building queryBuildingById(Long id) throws SQLException {
         String sql = "SELECT b.*, u.full_name as manager_full_name "
                 + "FROM buildings b "
                 + "LEFT JOIN users u ON b.manager_user_id = u.id "
@@ -90,8 +127,6 @@ public class BuildingDAO {
             if (rs.next()) {
                 return mapResultSetToBuilding(rs);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return null;
     }
@@ -183,6 +218,7 @@ public class BuildingDAO {
             }
 
             conn.commit(); // Hoàn tất
+            invalidateCache();
             return true;
 
         } catch (SQLException e) {
@@ -256,6 +292,7 @@ public class BuildingDAO {
             }
 
             conn.commit();
+            invalidateCache();
             return true;
 
         } catch (SQLException e) {
@@ -283,7 +320,9 @@ public class BuildingDAO {
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            invalidateCache();
+            return deleted;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -342,38 +381,74 @@ public class BuildingDAO {
     }
 
     public BuildingStats getBuildingStatistics(Long buildingId) {
-        BuildingStats stats = new BuildingStats();
-        String sqlFloors = "SELECT COUNT(*) FROM floors WHERE building_id = ? AND is_deleted = 0";
-        String sqlApts = "SELECT COUNT(*) FROM apartments a JOIN floors f ON a.floor_id = f.id "
-                + "WHERE f.building_id = ? AND a.is_deleted = 0";
-        String sqlRented = "SELECT COUNT(DISTINCT c.apartment_id) FROM contracts c "
-                + "JOIN apartments a ON c.apartment_id = a.id "
-                + "JOIN floors f ON a.floor_id = f.id "
-                + "WHERE f.building_id = ? AND c.status = 'ACTIVE' AND c.is_deleted = 0";
+        BuildingStats stats = getBuildingStatistics(Collections.singletonList(buildingId)).get(buildingId);
+        return stats != null ? stats : new BuildingStats();
+    }
 
-        try (Connection conn = Db_connection.getConnection()) {
-            try (PreparedStatement pst1 = conn.prepareStatement(sqlFloors)) {
-                pst1.setLong(1, buildingId);
-                try (ResultSet rs = pst1.executeQuery()) {
-                    if (rs.next()) stats.totalFloors = rs.getInt(1);
-                }
-            }
-            try (PreparedStatement pst2 = conn.prepareStatement(sqlApts)) {
-                pst2.setLong(1, buildingId);
-                try (ResultSet rs = pst2.executeQuery()) {
-                    if (rs.next()) stats.totalApartments = rs.getInt(1);
-                }
+    /**
+     * Thống kê (số tầng, số căn hộ, số căn đang thuê) cho nhiều tòa nhà bằng 1
+     * query GROUP BY mỗi nhóm IN (...), thay vì 3 query COUNT cho từng tòa.
+     *
+     * @return map building id → thống kê, đủ mọi id được truyền vào (tòa không
+     * có dữ liệu trả về thống kê rỗng)
+     */
+    public Map<Long, BuildingStats> getBuildingStatistics(Collection<Long> buildingIds) {
+        Map<Long, BuildingStats> result = new HashMap<>();
+        List<List<Long>> chunks = SqlUtils.chunkIds(buildingIds, SqlUtils.IN_CHUNK_SIZE);
+        for (List<Long> chunk : chunks) {
+            for (Long id : chunk) {
+                result.put(id, new BuildingStats());
             }
-            try (PreparedStatement pst3 = conn.prepareStatement(sqlRented)) {
-                pst3.setLong(1, buildingId);
-                try (ResultSet rs = pst3.executeQuery()) {
-                    if (rs.next()) stats.rentedApartments = rs.getInt(1);
+        }
+        if (chunks.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : chunks) {
+                String in = SqlUtils.placeholders(chunk.size());
+                String sql = "SELECT building_id, 'F' AS kind, COUNT(*) AS cnt FROM floors "
+                        + "WHERE building_id IN (" + in + ") AND is_deleted = 0 GROUP BY building_id "
+                        + "UNION ALL "
+                        + "SELECT f.building_id, 'A', COUNT(*) FROM apartments a JOIN floors f ON a.floor_id = f.id "
+                        + "WHERE f.building_id IN (" + in + ") AND a.is_deleted = 0 GROUP BY f.building_id "
+                        + "UNION ALL "
+                        + "SELECT f.building_id, 'R', COUNT(DISTINCT c.apartment_id) FROM contracts c "
+                        + "JOIN apartments a ON c.apartment_id = a.id "
+                        + "JOIN floors f ON a.floor_id = f.id "
+                        + "WHERE f.building_id IN (" + in + ") AND c.status IN ('ACTIVE', 'EXPIRED') AND c.is_deleted = 0 "
+                        + "GROUP BY f.building_id";
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    int idx = 1;
+                    for (int part = 0; part < 3; part++) {
+                        for (Long id : chunk) {
+                            ps.setLong(idx++, id);
+                        }
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            BuildingStats stats = result.get(rs.getLong("building_id"));
+                            int cnt = rs.getInt("cnt");
+                            switch (rs.getString("kind")) {
+                                case "F":
+                                    stats.totalFloors = cnt;
+                                    break;
+                                case "A":
+                                    stats.totalApartments = cnt;
+                                    break;
+                                default:
+                                    stats.rentedApartments = cnt;
+                                    break;
+                            }
+                        }
+                    }
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return stats;
+        return result;
     }
 
     public int countBuildings() {
@@ -408,7 +483,7 @@ public class BuildingDAO {
                 + "JOIN apartments a ON c.apartment_id = a.id "
                 + "JOIN floors f ON a.floor_id = f.id "
                 + "WHERE f.building_id = ? "
-                + "AND c.status = 'ACTIVE' "
+                + "AND c.status IN ('ACTIVE', 'EXPIRED') " // EXPIRED chưa thanh lý: vẫn có người ở
                 + "AND c.is_deleted = 0";
 
         try (Connection conn = Db_connection.getConnection();
@@ -473,6 +548,10 @@ public class BuildingDAO {
             }
 
             conn.commit();
+            invalidateCache();
+            FloorDAO.invalidateCache(); // Trạng thái tầng đổi theo tòa
+            FloorDAO.invalidateAllFloorStats(); // Trạng thái căn hộ đổi theo tòa
+            DataVersion.bump(DataVersion.Domain.APARTMENT);
             return true;
 
         } catch (SQLException e) {
@@ -8,7 +8,11 @@ import util.SessionManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * ContractDAO - FINAL FULL VERSION Fix: insertContract returns generated ID.
@@ -17,6 +21,7 @@ import java.util.List;
 public class ContractDAO {
 
     private ContractHistoryDAO contractHistoryDAO = new ContractHistoryDAO();
+    private final RevenueRollupDAO rollupDAO = new RevenueRollupDAO();
 
     // --- HELPER: Get current user ID safely ---
     private Long getCurrentUserId() {
@@ -131,6 +136,222 @@ public class ContractDAO {
         return contracts;
     }
 
+    // =====================================================================
+    // DANH SÁCH THEO TRANG (KEYSET) + LỌC TRÊN DB
+    // =====================================================================
+
+    /**
+     * Nhóm trạng thái hiển thị (ACTIVE = còn hạn trên 30 ngày hoặc vô thời hạn)
+     */
+    public static final String CATEGORY_ACTIVE = "ACTIVE";
+    public static final String CATEGORY_EXPIRING = "EXPIRING";
+    public static final String CATEGORY_EXPIRED = "EXPIRED";
+    public static final String CATEGORY_TERMINATED = "TERMINATED";
+
+    public static final int EXPIRING_DAYS = 30;
+
+    /**
+     * Bộ lọc danh sách hợp đồng (null/rỗng = không lọc theo tiêu chí đó)
+     */
+    public static class ContractFilter {
+        public Set<String> categories;   // CATEGORY_*
+        public String contractType;      // RENTAL / OWNERSHIP
+        public Long buildingId;
+        public String keyword;           // số HĐ, số phòng, tên chủ hộ
+    }
+
+    public static class ContractStats {
+        public int total = 0;
+        public int rental = 0;
+        public int ownership = 0;
+        public int active = 0;
+        public int expiring = 0;
+        public int expired = 0;
+        public int terminated = 0;
+    }
+
+    private static final String CATEGORY_ACTIVE_SQL = "(c.status = 'ACTIVE' AND (c.end_date IS NULL "
+            + "OR c.end_date > CURDATE() + INTERVAL " + EXPIRING_DAYS + " DAY))";
+    private static final String CATEGORY_EXPIRING_SQL = "(c.status = 'ACTIVE' AND c.end_date > CURDATE() "
+            + "AND c.end_date <= CURDATE() + INTERVAL " + EXPIRING_DAYS + " DAY)";
+    // EXPIRED: đã được ContractLifecycleService chuyển trạng thái, hoặc quá hạn nhưng job chưa chạy
+    private static final String CATEGORY_EXPIRED_SQL = "(c.status = 'EXPIRED' OR (c.status = 'ACTIVE' AND c.end_date <= CURDATE()))";
+    private static final String CATEGORY_TERMINATED_SQL = "(c.status IN ('TERMINATED', 'CANCELLED'))";
+
+    /**
+     * 1 trang hợp đồng, mới tạo trước (created_at, id giảm dần). Trang sau tìm
+     * bằng khóa của dòng cuối trang trước thay vì OFFSET.
+     *
+     * @param after hợp đồng cuối của trang trước (null = trang đầu)
+     */
+    public List<Contract> getContractPage(ContractFilter filter, Contract after, int limit) {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        List<Contract> contracts = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder("SELECT c.* FROM contracts c "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE c.is_deleted = 0 ");
+        List<Object> params = new ArrayList<>();
+        if (!appendContractFilters(sql, params, currentUser, filter)) {
+            return contracts;
+        }
+
+        if (after != null) {
+            sql.append("AND (c.created_at, c.id) < (?, ?) ");
+            params.add(after.getCreatedAt() != null ? new Timestamp(after.getCreatedAt().getTime()) : new Timestamp(0));
+            params.add(after.getId());
+        }
+
+        sql.append("ORDER BY c.created_at DESC, c.id DESC LIMIT ?");
+        params.add(limit);
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    contracts.add(mapResultSetToContract(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return contracts;
+    }
+
+    /**
+     * Số hợp đồng khớp bộ lọc (cho nhãn "Hiển thị x/y")
+     */
+    public int countContracts(ContractFilter filter) {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM contracts c "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE c.is_deleted = 0 ");
+        List<Object> params = new ArrayList<>();
+        if (!appendContractFilters(sql, params, currentUser, filter)) {
+            return 0;
+        }
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Thống kê theo loại và nhóm trạng thái của mọi hợp đồng user được xem,
+     * bằng 1 query SUM(CASE ...)
+     */
+    public ContractStats getContractStatistics() {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        ContractStats stats = new ContractStats();
+
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) AS total, "
+                + "SUM(CASE WHEN c.contract_type = 'RENTAL' THEN 1 ELSE 0 END) AS rental, "
+                + "SUM(CASE WHEN c.contract_type = 'OWNERSHIP' THEN 1 ELSE 0 END) AS ownership, "
+                + "SUM(CASE WHEN " + CATEGORY_ACTIVE_SQL + " THEN 1 ELSE 0 END) AS active, "
+                + "SUM(CASE WHEN " + CATEGORY_EXPIRING_SQL + " THEN 1 ELSE 0 END) AS expiring, "
+                + "SUM(CASE WHEN " + CATEGORY_EXPIRED_SQL + " THEN 1 ELSE 0 END) AS expired, "
+                + "SUM(CASE WHEN " + CATEGORY_TERMINATED_SQL + " THEN 1 ELSE 0 END) AS terminated "
+                + "FROM contracts c "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE c.is_deleted = 0 ");
+        List<Object> params = new ArrayList<>();
+        if (!appendContractFilters(sql, params, currentUser, null)) {
+            return stats;
+        }
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    stats.total = rs.getInt("total");
+                    stats.rental = rs.getInt("rental");
+                    stats.ownership = rs.getInt("ownership");
+                    stats.active = rs.getInt("active");
+                    stats.expiring = rs.getInt("expiring");
+                    stats.expired = rs.getInt("expired");
+                    stats.terminated = rs.getInt("terminated");
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return stats;
+    }
+
+    /**
+     * Thêm điều kiện lọc + phân quyền tòa nhà vào query đã có "WHERE ... ".
+     *
+     * @return false nếu kết quả chắc chắn rỗng (không chọn nhóm nào, user
+     * không quản lý tòa nào)
+     */
+    private boolean appendContractFilters(StringBuilder sql, List<Object> params, User currentUser, ContractFilter filter) {
+        if (filter != null) {
+            if (filter.categories != null) {
+                List<String> conditions = new ArrayList<>();
+                if (filter.categories.contains(CATEGORY_ACTIVE)) {
+                    conditions.add(CATEGORY_ACTIVE_SQL);
+                }
+                if (filter.categories.contains(CATEGORY_EXPIRING)) {
+                    conditions.add(CATEGORY_EXPIRING_SQL);
+                }
+                if (filter.categories.contains(CATEGORY_EXPIRED)) {
+                    conditions.add(CATEGORY_EXPIRED_SQL);
+                }
+                if (filter.categories.contains(CATEGORY_TERMINATED)) {
+                    conditions.add(CATEGORY_TERMINATED_SQL);
+                }
+                if (conditions.isEmpty()) {
+                    return false;
+                }
+                sql.append("AND (").append(String.join(" OR ", conditions)).append(") ");
+            }
+            if (filter.contractType != null) {
+                sql.append("AND c.contract_type = ? ");
+                params.add(filter.contractType);
+            }
+            if (filter.buildingId != null) {
+                sql.append("AND f.building_id = ? ");
+                params.add(filter.buildingId);
+            }
+            if (filter.keyword != null && !filter.keyword.trim().isEmpty()) {
+                String like = "%" + filter.keyword.trim() + "%";
+                sql.append("AND (c.contract_number LIKE ? OR a.room_number LIKE ? "
+                        + "OR EXISTS (SELECT 1 FROM residents r WHERE r.id = c.resident_id AND r.full_name LIKE ?)) ");
+                params.add(like);
+                params.add(like);
+                params.add(like);
+            }
+        }
+
+        if (currentUser != null && !currentUser.isAdmin()) {
+            List<Long> buildingIds = currentUser.getBuildingIds();
+            if (buildingIds == null || buildingIds.isEmpty()) {
+                return false;
+            }
+            sql.append("AND f.building_id IN (").append(SqlUtils.placeholders(buildingIds.size())).append(") ");
+            params.addAll(buildingIds);
+        }
+        return true;
+    }
+
     // --- GET CONTRACT BY ID ---
     public Contract getContractById(Long id) {
         String sql = "SELECT * FROM contracts WHERE id = ? AND is_deleted = 0";
@@ -149,6 +370,35 @@ public class ContractDAO {
         return null;
     }
 
+    // --- GET CONTRACTS BY IDS (BULK, chia nhóm IN (...)) ---
+    public Map<Long, Contract> getContractsByIds(Collection<Long> ids) {
+        Map<Long, Contract> result = new HashMap<>();
+        List<List<Long>> chunks = SqlUtils.chunkIds(ids, SqlUtils.IN_CHUNK_SIZE);
+        if (chunks.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : chunks) {
+                String sql = "SELECT * FROM contracts WHERE id IN (" + SqlUtils.placeholders(chunk.size()) + ") AND is_deleted = 0";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Contract contract = mapResultSetToContract(rs);
+                            result.put(contract.getId(), contract);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
     // --- GET CONTRACT BY CONTRACT NUMBER ---
     public Contract getContractByNumber(String contractNumber) {
         String sql = "SELECT * FROM contracts WHERE contract_number = ? AND is_deleted = 0";
@@ -195,7 +445,7 @@ public class ContractDAO {
         List<Contract> contracts = new ArrayList<>();
         String sql = "SELECT * FROM contracts "
                 + "WHERE apartment_id = ? "
-                + "AND status = 'ACTIVE' "
+                + "AND status IN ('ACTIVE', 'EXPIRED') " // EXPIRED chưa thanh lý vẫn giữ căn hộ
                 + "AND is_deleted = 0";
 
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -218,7 +468,7 @@ public class ContractDAO {
                 + "FROM contracts c "
                 + "JOIN residents r ON c.resident_id = r.id "
                 + "WHERE c.apartment_id = ? "
-                + "AND c.status = 'ACTIVE' "
+                + "AND c.status IN ('ACTIVE', 'EXPIRED') "
                 + "AND c.is_deleted = 0 "
                 + "ORDER BY c.created_at DESC LIMIT 1";
 
@@ -319,6 +569,9 @@ public class ContractDAO {
                 }
 
                 conn.commit(); // Commit Transaction
+                DataVersion.bump(DataVersion.Domain.CONTRACT, DataVersion.Domain.APARTMENT);
+                FloorDAO.invalidateAllFloorStats(); // Trạng thái căn hộ đã đổi
+                ResidentSearchIndex.invalidateAll(); // Chủ hộ mới - chưa biết thuộc tòa nào
                 return true;
 
             } catch (SQLException e) {
@@ -381,16 +634,14 @@ public class ContractDAO {
             boolean success = pstmt.executeUpdate() > 0;
 
             if (success) {
-                try {
-                    ContractHistory history = new ContractHistory();
-                    history.setContractId(contract.getId());
-                    history.setAction("UPDATED");
-                    history.setReason("Cập nhật thông tin hợp đồng");
-                    history.setCreatedBy(getCurrentUserId());
-                    contractHistoryDAO.insert(history);
-                } catch (Exception e) {
-                    System.err.println("Warning: Failed to log history: " + e.getMessage());
-                }
+                ContractHistory history = new ContractHistory();
+                history.setContractId(contract.getId());
+                history.setAction("UPDATED");
+                history.setReason("Cập nhật thông tin hợp đồng");
+                history.setCreatedBy(getCurrentUserId());
+                ContractHistoryWriter.submit(history);
+                DataVersion.bump(DataVersion.Domain.CONTRACT);
+                ResidentSearchIndex.onContractChanged(contract.getId());
             }
 
             return success;
@@ -433,7 +684,9 @@ public class ContractDAO {
 
         java.util.Date oldEndDate = contract.getEndDate();
 
-        String sql = "UPDATE contracts SET end_date = ? WHERE id = ?";
+        // Hợp đồng đã bị chuyển EXPIRED (quá hạn) → gia hạn thì hiệu lực lại
+        String sql = "UPDATE contracts SET end_date = ?, "
+                + "status = CASE WHEN status = 'EXPIRED' THEN 'ACTIVE' ELSE status END WHERE id = ?";
 
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -443,18 +696,16 @@ public class ContractDAO {
             boolean success = pstmt.executeUpdate() > 0;
 
             if (success) {
-                try {
-                    ContractHistory history = new ContractHistory();
-                    history.setContractId(contractId);
-                    history.setAction("RENEWED");
-                    history.setOldEndDate(oldEndDate);
-                    history.setNewEndDate(newEndDate);
-                    history.setReason("Gia hạn hợp đồng");
-                    history.setCreatedBy(getCurrentUserId());
-                    contractHistoryDAO.insert(history);
-                } catch (Exception e) {
-                    System.err.println("Warning: Failed to log history: " + e.getMessage());
-                }
+                ContractHistory history = new ContractHistory();
+                history.setContractId(contractId);
+                history.setAction("RENEWED");
+                history.setOldEndDate(oldEndDate);
+                history.setNewEndDate(newEndDate);
+                history.setReason("Gia hạn hợp đồng");
+                history.setCreatedBy(getCurrentUserId());
+                ContractHistoryWriter.submit(history);
+                DataVersion.bump(DataVersion.Domain.CONTRACT);
+                ResidentSearchIndex.onContractChanged(contractId); // EXPIRED → ACTIVE
             }
 
             return success;
@@ -500,7 +751,14 @@ public class ContractDAO {
                     pstmt.executeUpdate();
                 }
 
+                ContractHistory history = new ContractHistory(contractId, "TERMINATED", "Chấm dứt hợp đồng");
+                history.setCreatedBy(getCurrentUserId());
+                contractHistoryDAO.insert(conn, history);
+
                 conn.commit();
+                DataVersion.bump(DataVersion.Domain.CONTRACT, DataVersion.Domain.APARTMENT);
+                FloorDAO.invalidateAllFloorStats(); // Trạng thái căn hộ đã đổi
+                ResidentSearchIndex.onContractChanged(contractId);
                 return true;
 
             } catch (SQLException e) {
@@ -534,6 +792,8 @@ public class ContractDAO {
                     }
                 }
 
+                rollupDAO.subtractContract(conn, contractId); // Báo cáo doanh thu không tính hợp đồng đã xóa
+
                 try (PreparedStatement pstD = conn.prepareStatement(sqlDeleteContract)) {
                     pstD.setLong(1, contractId);
                     pstD.executeUpdate();
@@ -551,11 +811,12 @@ public class ContractDAO {
                 history.setAction("DELETED");
                 history.setReason("Xóa hợp đồng");
                 history.setCreatedBy(getCurrentUserId());
-                // Chú ý: Cần đảm bảo contractHistoryDAO.insert hỗ trợ connection nếu muốn cùng transaction
-                // Nếu không, có thể gọi phiên bản thường, rủi ro nhỏ nếu lỗi ở history nhưng contract đã xóa.
-                contractHistoryDAO.insert(history);
+                contractHistoryDAO.insert(conn, history); // Cùng transaction với việc xóa
 
                 conn.commit();
+                DataVersion.bump(DataVersion.Domain.CONTRACT, DataVersion.Domain.APARTMENT, DataVersion.Domain.INVOICE);
+                FloorDAO.invalidateAllFloorStats(); // Trạng thái căn hộ đã đổi
+                ResidentSearchIndex.onContractChanged(contractId);
                 return true;
 
             } catch (SQLException e) {
@@ -622,53 +883,63 @@ public class ContractDAO {
     }
 
     /**
-     * Get expiring contracts with building filter
-     */
-    /**
-     * ✅ FIXED: Lấy hợp đồng sắp hết hạn (Hỗ trợ Manager nhiều tòa nhà)
+     * Hợp đồng thuê ACTIVE hết hạn trong daysThreshold ngày tới (kể cả hôm nay)
+     * trong các tòa nhà user hiện tại được xem
      */
     public List<Contract> getExpiringContracts(int daysThreshold) {
         User currentUser = SessionManager.getInstance().getCurrentUser();
+        boolean filterBuildings = currentUser != null && !currentUser.isAdmin();
+        List<Long> buildingIds = null;
+        if (filterBuildings) {
+            buildingIds = currentUser.getBuildingIds() != null ? currentUser.getBuildingIds() : new ArrayList<>();
+        }
+        return getExpiringContracts(daysThreshold, buildingIds);
+    }
+
+    /**
+     * Hợp đồng thuê ACTIVE hết hạn trong daysThreshold ngày tới (kể cả hôm nay),
+     * hết hạn sớm nhất trước, kèm tên người thuê. Điều kiện là khoảng end_date
+     * trên index (status, contract_type, end_date) - không bọc cột trong hàm;
+     * chỉ JOIN sang tầng khi lọc theo tòa nhà.
+     *
+     * @param buildingIds null = mọi tòa nhà, rỗng = không có kết quả
+     */
+    public List<Contract> getExpiringContracts(int daysThreshold, Collection<Long> buildingIds) {
         List<Contract> contracts = new ArrayList<>();
+        if (buildingIds != null && buildingIds.isEmpty()) {
+            return contracts;
+        }
+        List<Long> ids = buildingIds != null ? new ArrayList<>(buildingIds) : null;
 
-        StringBuilder sql = new StringBuilder("SELECT c.* FROM contracts c "
-                + "JOIN apartments a ON c.apartment_id = a.id "
-                + "JOIN floors f ON a.floor_id = f.id "
-                + "WHERE c.contract_type = 'RENTAL' "
-                + "AND c.end_date IS NOT NULL "
-                + "AND DATEDIFF(c.end_date, CURDATE()) BETWEEN 0 AND ? "
-                + "AND c.status = 'ACTIVE' "
+        StringBuilder sql = new StringBuilder("SELECT c.*, r.full_name AS tenant_name, r.phone AS tenant_phone "
+                + "FROM contracts c "
+                + "LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 ");
+        if (ids != null) {
+            sql.append("JOIN apartments a ON c.apartment_id = a.id "
+                    + "JOIN floors f ON a.floor_id = f.id ");
+        }
+        sql.append("WHERE c.status = 'ACTIVE' AND c.contract_type = 'RENTAL' "
+                + "AND c.end_date >= CURDATE() AND c.end_date <= CURDATE() + INTERVAL ? DAY "
                 + "AND c.is_deleted = 0 ");
-
-        if (currentUser != null && !currentUser.isAdmin()) {
-            List<Long> buildingIds = currentUser.getBuildingIds();
-            if (buildingIds != null && !buildingIds.isEmpty()) {
-                sql.append("AND f.building_id IN (");
-                for (int i = 0; i < buildingIds.size(); i++) {
-                    sql.append(i == 0 ? "?" : ",?");
-                }
-                sql.append(") ");
-            } else {
-                return contracts;
-            }
+        if (ids != null) {
+            sql.append("AND f.building_id IN (").append(SqlUtils.placeholders(ids.size())).append(") ");
         }
-
         sql.append("ORDER BY c.end_date ASC");
 
         try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.toString())) {
-
             ps.setInt(1, daysThreshold);
-
-            if (currentUser != null && !currentUser.isAdmin()) {
-                List<Long> buildingIds = currentUser.getBuildingIds();
-                for (int i = 0; i < buildingIds.size(); i++) {
-                    ps.setLong(i + 2, buildingIds.get(i));
+            if (ids != null) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(i + 2, ids.get(i));
                 }
             }
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    contracts.add(mapResultSetToContract(rs));
+                    Contract c = mapResultSetToContract(rs);
+                    c.setTenantName(rs.getString("tenant_name"));
+                    c.setTenantPhone(rs.getString("tenant_phone"));
+                    contracts.add(c);
                 }
             }
         } catch (SQLException e) {
@@ -677,6 +948,82 @@ public class ContractDAO {
         return contracts;
     }
 
+    /**
+     * Chuyển mọi hợp đồng thuê ACTIVE đã quá ngày kết thúc (end_date < hôm nay)
+     * sang EXPIRED và ghi lịch sử, trong 1 transaction: 1 query khóa các dòng
+     * (khoảng end_date trên index), UPDATE theo nhóm IN (...), lịch sử 1 batch.
+     * Nhiều máy chạy cùng lúc: máy sau chờ khóa rồi không còn dòng nào để đổi.
+     * Trạng thái căn hộ giữ nguyên (trả phòng vẫn qua chấm dứt hợp đồng).
+     *
+     * @return số hợp đồng đã chuyển, -1 nếu lỗi (không đổi gì)
+     */
+    public int expirePastDueContracts() {
+        String sqlSelect = "SELECT id, end_date FROM contracts "
+                + "WHERE status = 'ACTIVE' AND contract_type = 'RENTAL' "
+                + "AND end_date < CURDATE() AND is_deleted = 0 FOR UPDATE";
+
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            List<Long> ids = new ArrayList<>();
+            List<ContractHistory> histories = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sqlSelect);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ContractHistory history = new ContractHistory(rs.getLong("id"), "EXPIRED",
+                            "Tự động: hợp đồng đã quá ngày kết thúc");
+                    history.setOldValue("ACTIVE");
+                    history.setNewValue("EXPIRED");
+                    history.setOldEndDate(rs.getDate("end_date"));
+                    ids.add(history.getContractId());
+                    histories.add(history);
+                }
+            }
+            if (ids.isEmpty()) {
+                conn.commit();
+                return 0;
+            }
+
+            for (List<Long> chunk : SqlUtils.chunkIds(ids, SqlUtils.IN_CHUNK_SIZE)) {
+                String sqlUpdate = "UPDATE contracts SET status = 'EXPIRED' WHERE id IN ("
+                        + SqlUtils.placeholders(chunk.size()) + ")";
+                try (PreparedStatement ps = conn.prepareStatement(sqlUpdate)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setLong(i + 1, chunk.get(i));
+                    }
+                    ps.executeUpdate();
+                }
+            }
+            contractHistoryDAO.insertBatch(conn, histories);
+
+            conn.commit();
+            DataVersion.bump(DataVersion.Domain.CONTRACT);
+            ResidentSearchIndex.invalidateAll(); // Trạng thái hợp đồng của cư dân đã đổi
+            return ids.size();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return -1;
+    }
+
     // --- COUNT INVOICES BY CONTRACT ---
     public int countInvoicesByContract(Long contractId) {
         String sql = "SELECT COUNT(*) FROM invoices WHERE contract_id = ? AND is_deleted = 0";
@@ -696,22 +1043,16 @@ public class ContractDAO {
     }
 
     // --- GENERATE CONTRACT NUMBER ---
-    public String generateContractNumber() {
-        String sql = "SELECT IFNULL(MAX(CAST(SUBSTRING(contract_number, 12, 3) AS UNSIGNED)), 0) + 1 AS next_seq "
-                + "FROM contracts "
-                + "WHERE contract_number LIKE CONCAT('HD', DATE_FORMAT(CURDATE(), '%Y%m%d'), '%')";
 
-        try (Connection conn = Db_connection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-
-            if (rs.next()) {
-                int nextSeq = rs.getInt("next_seq");
-                String dateStr = new java.text.SimpleDateFormat("yyyyMMdd").format(new java.util.Date());
-                return String.format("HD%s%03d", dateStr, nextSeq);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Số hợp đồng mới HDyyyyMMdd### (ContractNumberAllocator). Mỗi lần gọi cấp
+     * 1 số khác nhau - gọi 1 lần cho mỗi hợp đồng.
+     */
+    public String generateContractNumber() {
+        String number = ContractNumberAllocator.nextNumber();
+        if (number != null) {
+            return number;
         }
-
         String dateStr = new java.text.SimpleDateFormat("yyyyMMdd").format(new java.util.Date());
         return String.format("HD%s001", dateStr);
     }
@@ -12,6 +12,8 @@ import java.util.List;
  */
 public class ContractHistoryDAO {
 
+    private static final long FLUSH_WAIT_MS = 2000;
+
     // --- HELPER: Map ResultSet to ContractHistory ---
     private ContractHistory mapResultSetToHistory(ResultSet rs) throws SQLException {
         ContractHistory history = new ContractHistory();
@@ -49,6 +51,7 @@ public class ContractHistoryDAO {
 
     // --- GET HISTORY BY CONTRACT (Original method - kept for compatibility) ---
     public List<ContractHistory> getHistoryByContract(Long contractId) {
+        ContractHistoryWriter.flush(FLUSH_WAIT_MS); // Gồm cả lịch sử còn trong hàng đợi ghi nền
         List<ContractHistory> histories = new ArrayList<>();
         String sql = "SELECT * FROM contract_history "
                 + "WHERE contract_id = ? "
@@ -70,6 +73,7 @@ public class ContractHistoryDAO {
 
     // --- GET HISTORY BY CONTRACT WITH USER INFO (NEW - JOIN users table) ---
     public List<ContractHistory> getHistoryByContractWithUser(Long contractId) {
+        ContractHistoryWriter.flush(FLUSH_WAIT_MS);
         List<ContractHistory> histories = new ArrayList<>();
         String sql = "SELECT ch.*, u.full_name AS created_by_name "
                 + "FROM contract_history ch "
@@ -146,6 +150,51 @@ public class ContractHistoryDAO {
         }
     }
 
+    /**
+     * Thêm nhiều dòng lịch sử trong transaction của người gọi (1 batch, driver
+     * gộp thành INSERT nhiều dòng)
+     */
+    public void insertBatch(Connection conn, List<ContractHistory> histories) throws SQLException {
+        if (histories.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO contract_history "
+                + "(contract_id, action, old_value, new_value, old_end_date, new_end_date, "
+                + "reason, created_by) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (ContractHistory history : histories) {
+                pstmt.setLong(1, history.getContractId());
+                pstmt.setString(2, history.getAction());
+                pstmt.setString(3, history.getOldValue());
+                pstmt.setString(4, history.getNewValue());
+
+                if (history.getOldEndDate() != null) {
+                    pstmt.setDate(5, new java.sql.Date(history.getOldEndDate().getTime()));
+                } else {
+                    pstmt.setNull(5, Types.DATE);
+                }
+
+                if (history.getNewEndDate() != null) {
+                    pstmt.setDate(6, new java.sql.Date(history.getNewEndDate().getTime()));
+                } else {
+                    pstmt.setNull(6, Types.DATE);
+                }
+
+                pstmt.setString(7, history.getReason());
+
+                if (history.getCreatedBy() != null) {
+                    pstmt.setLong(8, history.getCreatedBy());
+                } else {
+                    pstmt.setNull(8, Types.BIGINT);
+                }
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
     public boolean insert(ContractHistory history) {
         String sql = "INSERT INTO contract_history "
                 + "(contract_id, action, old_value, new_value, old_end_date, new_end_date, "
@@ -216,6 +265,7 @@ public class ContractHistoryDAO {
 
     // --- GET RECENT HISTORY (LIMIT N) ---
     public List<ContractHistory> getRecentHistory(int limit) {
+        ContractHistoryWriter.flush(FLUSH_WAIT_MS);
         List<ContractHistory> histories = new ArrayList<>();
         String sql = "SELECT ch.*, u.full_name AS created_by_name "
                 + "FROM contract_history ch "
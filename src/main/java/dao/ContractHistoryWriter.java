@@ -0,0 +1,236 @@
+package dao;
+
+import connection.Db_connection;
+import connection.UnitOfWork;
+import model.ContractHistory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ghi lịch sử hợp đồng không cần nằm trong transaction của thao tác (sửa, gia
+ * hạn...) theo kiểu ghi sau: người gọi chỉ xếp vào hàng đợi, 1 thread nền gom
+ * lại ghi nhiều dòng 1 lần (ContractHistoryDAO.insertBatch).
+ *
+ * - Hàng đợi giới hạn QUEUE_CAPACITY dòng; đầy quá OFFER_TIMEOUT_MS thì người
+ * gọi tự ghi trực tiếp (chậm lại chứ không mất lịch sử)
+ * - Gọi trong UnitOfWork: chỉ xếp hàng khi unit commit
+ * - Tắt ứng dụng: ghi hết hàng đợi trước khi đóng pool kết nối
+ * - Đọc lịch sử (ContractHistoryDAO.getHistory*) chờ hàng đợi ghi xong trước
+ */
+public final class ContractHistoryWriter {
+
+    private static final int QUEUE_CAPACITY = 2000;
+    private static final int BATCH_SIZE = 200;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long OFFER_TIMEOUT_MS = 200;
+    private static final long POLL_INTERVAL_MS = 1000;
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private static final BlockingQueue<ContractHistory> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Đã xếp hàng nhưng chưa ghi xong (kể cả batch đang ghi)
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final ContractHistoryDAO DAO = new ContractHistoryDAO();
+
+    private static volatile boolean closed = false;
+    // Thread nền không kịp ghi hết lúc tắt: dừng lấy thêm dòng, shutdown() ghi phần còn lại
+    private static volatile boolean stopped = false;
+    private static Thread flusher;
+
+    private ContractHistoryWriter() {
+    }
+
+    /**
+     * Xếp 1 dòng lịch sử để ghi nền (id của dòng không được gán lại)
+     */
+    public static void submit(ContractHistory history) {
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.onCompletion(committed -> {
+                if (committed) {
+                    enqueue(history);
+                }
+            });
+            return;
+        }
+        enqueue(history);
+    }
+
+    /**
+     * Chờ mọi dòng đã xếp hàng được ghi xong
+     *
+     * @return false nếu hết thời gian chờ
+     */
+    public static boolean flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (PENDING) {
+            while (PENDING.get() > 0) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                try {
+                    PENDING.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void enqueue(ContractHistory history) {
+        if (!closed) {
+            ensureStarted();
+            PENDING.incrementAndGet();
+            try {
+                if (QUEUE.offer(history, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written(1);
+        }
+        // Hàng đợi đầy hoặc đang tắt ứng dụng: ghi trực tiếp
+        if (!DAO.insert(history)) {
+            logDropped(history);
+        }
+    }
+
+    private static synchronized void ensureStarted() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = new Thread(ContractHistoryWriter::runFlusher, "contract-history-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        Db_connection.addShutdownTask(ContractHistoryWriter::shutdown);
+    }
+
+    private static void runFlusher() {
+        List<ContractHistory> batch = new ArrayList<>(BATCH_SIZE);
+        while (!stopped) {
+            ContractHistory first;
+            try {
+                first = QUEUE.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                if (stopped) {
+                    return;
+                }
+                first = QUEUE.poll();
+            }
+            if (first == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+
+            // Dòng đầu tiên + những gì đã dồn lại trong lúc ghi batch trước
+            batch.add(first);
+            QUEUE.drainTo(batch, BATCH_SIZE - 1);
+            writeBatch(batch);
+            written(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * Ghi 1 batch, thử lại tối đa MAX_ATTEMPTS lần. Vẫn lỗi thì ghi từng dòng
+     * để 1 dòng lỗi không làm mất cả batch - chỉ bỏ những dòng vẫn lỗi.
+     */
+    private static void writeBatch(List<ContractHistory> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Connection conn = null;
+            try {
+                conn = Db_connection.getConnection();
+                conn.setAutoCommit(false);
+                DAO.insertBatch(conn, batch);
+                conn.commit();
+                return;
+            } catch (SQLException e) {
+                e.printStackTrace();
+                if (conn != null) {
+                    try {
+                        conn.rollback();
+                    } catch (SQLException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            } finally {
+                if (conn != null) {
+                    try {
+                        conn.setAutoCommit(true);
+                        conn.close();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            if (attempt < MAX_ATTEMPTS) {
+                try {
+                    Thread.sleep(500L * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Đang tắt: thử lại ngay
+                }
+            }
+        }
+        for (ContractHistory history : batch) {
+            if (!DAO.insert(history)) {
+                logDropped(history);
+            }
+        }
+    }
+
+    private static void written(int count) {
+        PENDING.addAndGet(-count);
+        synchronized (PENDING) {
+            PENDING.notifyAll();
+        }
+    }
+
+    /**
+     * Lúc tắt ứng dụng: không nhận thêm, chờ thread nền ghi hết hàng đợi
+     */
+    private static void shutdown() {
+        closed = true;
+        Thread t;
+        synchronized (ContractHistoryWriter.class) {
+            t = flusher;
+        }
+        if (t != null) {
+            try {
+                t.join(DRAIN_TIMEOUT_MS);
+                if (t.isAlive()) {
+                    // Không kịp (DB chậm): dừng thread nền để không cùng lấy hàng đợi,
+                    // chờ nó ghi xong batch đang dở
+                    stopped = true;
+                    t.interrupt();
+                    t.join(DRAIN_TIMEOUT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Phần còn lại của hàng đợi: ghi ngay tại đây
+        List<ContractHistory> rest = new ArrayList<>();
+        QUEUE.drainTo(rest);
+        if (!rest.isEmpty()) {
+            writeBatch(rest);
+            written(rest.size());
+        }
+    }
+
+    private static void logDropped(ContractHistory history) {
+        System.err.println("❌ Không ghi được lịch sử hợp đồng: contract_id=" + history.getContractId()
+                + ", action=" + history.getAction() + ", reason=" + history.getReason());
+    }
+}
@@ -0,0 +1,109 @@
+package dao;
+
+import connection.Db_connection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Cấp số hợp đồng HDyyyyMMdd### từ bảng contract_number_seq (1 dòng / ngày).
+ *
+ * - Mỗi lần vào DB giữ trước BLOCK_SIZE số bằng 1 câu tăng nguyên tử
+ * (LAST_INSERT_ID(next_value + n)), các số trong khối cấp từ bộ nhớ → O(1),
+ * nhiều máy cùng lúc không trùng số
+ * - Dùng kết nối riêng, tự commit ngay: không giữ khóa dòng sequence đến hết
+ * UnitOfWork của form hợp đồng
+ * - Dòng của ngày chưa có: khởi tạo sau số lớn nhất đã dùng trong ngày (dữ
+ * liệu cấp theo cách cũ MAX(SUBSTRING(...)))
+ * - Số đã giữ nhưng không dùng (đóng ứng dụng, hủy form) bị bỏ qua → dãy số có
+ * thể nhảy cóc, nhưng không bao giờ trùng
+ */
+final class ContractNumberAllocator {
+
+    private static final int BLOCK_SIZE = 5;
+
+    private static final String SQL_RESERVE = "UPDATE contract_number_seq "
+            + "SET next_value = LAST_INSERT_ID(next_value + ?) WHERE seq_key = ?";
+    private static final String SQL_INIT = "INSERT INTO contract_number_seq (seq_key, next_value) "
+            + "VALUES (?, LAST_INSERT_ID(? + ?)) "
+            + "ON DUPLICATE KEY UPDATE next_value = LAST_INSERT_ID(next_value + ?)";
+    // contract_number UNIQUE → LIKE 'HDyyyyMMdd%' là range scan trên index
+    private static final String SQL_LEGACY_MAX = "SELECT IFNULL(MAX(CAST(SUBSTRING(contract_number, 11) AS UNSIGNED)), 0) "
+            + "FROM contracts WHERE contract_number LIKE ?";
+
+    // Khối đang dùng: [next, end) của ngày prefix
+    private static String prefix;
+    private static long next;
+    private static long end;
+
+    private ContractNumberAllocator() {
+    }
+
+    /**
+     * @return số hợp đồng mới, null nếu không kết nối được DB
+     */
+    static synchronized String nextNumber() {
+        String today = "HD" + new SimpleDateFormat("yyyyMMdd").format(new Date());
+        if (!today.equals(prefix) || next >= end) {
+            try {
+                end = reserveBlock(today);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return null;
+            }
+            next = end - BLOCK_SIZE;
+            prefix = today;
+        }
+        return String.format("%s%03d", prefix, next++);
+    }
+
+    /**
+     * Giữ BLOCK_SIZE số tiếp theo của ngày
+     *
+     * @return giới hạn trên (không gồm) của khối
+     */
+    private static long reserveBlock(String seqKey) throws SQLException {
+        try (Connection conn = Db_connection.getStandaloneConnection()) {
+            int updated;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_RESERVE)) {
+                ps.setInt(1, BLOCK_SIZE);
+                ps.setString(2, seqKey);
+                updated = ps.executeUpdate();
+            }
+
+            if (updated == 0) {
+                // Lần đầu trong ngày; 2 máy cùng khởi tạo thì máy sau rơi vào nhánh UPDATE
+                long start = legacyMax(conn, seqKey) + 1;
+                try (PreparedStatement ps = conn.prepareStatement(SQL_INIT)) {
+                    ps.setString(1, seqKey);
+                    ps.setLong(2, start);
+                    ps.setInt(3, BLOCK_SIZE);
+                    ps.setInt(4, BLOCK_SIZE);
+                    ps.executeUpdate();
+                }
+            }
+
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT LAST_INSERT_ID()")) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        throw new SQLException("Không đọc được LAST_INSERT_ID() của contract_number_seq");
+    }
+
+    private static long legacyMax(Connection conn, String seqKey) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_LEGACY_MAX)) {
+            ps.setString(1, seqKey + "%");
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
@@ -143,6 +143,7 @@ public class ContractServiceDAO {
                         contractService.setId(generatedKeys.getLong(1));
                     }
                 }
+                DataVersion.bump(DataVersion.Domain.CONTRACT);
                 return true;
             }
 
@@ -193,6 +194,7 @@ public class ContractServiceDAO {
             }
 
             conn.commit();
+            DataVersion.bump(DataVersion.Domain.CONTRACT);
             return true;
 
         } catch (SQLException e) {
@@ -204,6 +206,15 @@ public class ContractServiceDAO {
                 }
             }
             e.printStackTrace();
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
         }
         return false;
     }
@@ -213,7 +224,9 @@ public class ContractServiceDAO {
         String sql = "DELETE FROM contract_services WHERE contract_id = ?";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, contractId);
-            return ps.executeUpdate() > 0;
+            boolean deleted = ps.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.CONTRACT);
+            return deleted;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -234,7 +247,9 @@ public class ContractServiceDAO {
             pstmt.setBigDecimal(3, contractService.getUnitPrice());
             pstmt.setLong(4, contractService.getId());
 
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.CONTRACT);
+            return changed;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -249,7 +264,9 @@ public class ContractServiceDAO {
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.CONTRACT);
+            return changed;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -0,0 +1,157 @@
+package dao;
+
+import connection.Db_connection;
+import model.DashboardStats;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DashboardStatsDAO - Tính toàn bộ KPI của Dashboard cho 1 tập tòa nhà bằng 1
+ * query aggregate (thay cho ~30 query COUNT/SUM riêng lẻ theo từng tòa)
+ */
+public class DashboardStatsDAO {
+
+    /**
+     * Số tháng doanh thu hiển thị trên biểu đồ (tính cả tháng hiện tại)
+     */
+    public static final int REVENUE_MONTHS = 12;
+
+    /**
+     * Lấy snapshot số liệu Dashboard.
+     *
+     * @param buildingIds null = tất cả tòa nhà (Admin), rỗng = không có tòa
+     * nào (trả về snapshot rỗng)
+     */
+    public DashboardStats getDashboardStats(Collection<Long> buildingIds) {
+        if (buildingIds != null && buildingIds.isEmpty()) {
+            return DashboardStats.empty();
+        }
+
+        List<Long> ids = buildingIds != null ? new ArrayList<>(buildingIds) : null;
+        String buildingFilter = ids != null ? " AND f.building_id IN (" + SqlUtils.placeholders(ids.size()) + ")" : "";
+
+        // Cư dân: toàn hệ thống = mọi cư dân; theo tòa = cư dân đang ở (HĐ ACTIVE/EXPIRED)
+        String residentCountSql = ids == null
+                ? "(SELECT COUNT(*) FROM residents WHERE is_deleted = 0)"
+                : "(SELECT COUNT(DISTINCT r.id) FROM residents r "
+                + "JOIN contracts c ON c.resident_id = r.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE r.is_deleted = 0 AND c.status IN ('ACTIVE', 'EXPIRED')" + buildingFilter + ")";
+
+        String sql = "SELECT bs.building_count, aps.apartment_count, aps.available_count, aps.rented_count, "
+                + residentCountSql + " AS resident_count, "
+                + "cs.active_contract_count, inv.total_revenue, inv.paid_count, inv.unpaid_count "
+                + "FROM (SELECT COUNT(*) AS building_count FROM buildings b "
+                + "      WHERE b.is_deleted = 0" + (ids != null ? " AND b.id IN (" + SqlUtils.placeholders(ids.size()) + ")" : "") + ") bs "
+                + "CROSS JOIN (SELECT COUNT(*) AS apartment_count, "
+                + "      COALESCE(SUM(a.status = 'AVAILABLE'), 0) AS available_count, "
+                + "      COALESCE(SUM(a.status IN ('RENTED', 'OWNED')), 0) AS rented_count "
+                + "      FROM apartments a JOIN floors f ON a.floor_id = f.id "
+                + "      WHERE a.is_deleted = 0" + buildingFilter + ") aps "
+                + "CROSS JOIN (SELECT COUNT(*) AS active_contract_count FROM contracts c "
+                + "      JOIN apartments a ON c.apartment_id = a.id "
+                + "      JOIN floors f ON a.floor_id = f.id "
+                + "      WHERE c.status = 'ACTIVE' AND c.is_deleted = 0" + buildingFilter + ") cs "
+                + "CROSS JOIN (SELECT COALESCE(SUM(CASE WHEN i.status = 'PAID' THEN i.total_amount END), 0) AS total_revenue, "
+                + "      COALESCE(SUM(i.status = 'PAID'), 0) AS paid_count, "
+                + "      COALESCE(SUM(i.status = 'UNPAID'), 0) AS unpaid_count "
+                + "      FROM invoices i "
+                + "      JOIN contracts c ON i.contract_id = c.id "
+                + "      JOIN apartments a ON c.apartment_id = a.id "
+                + "      JOIN floors f ON a.floor_id = f.id "
+                + "      WHERE i.is_deleted = 0" + buildingFilter + ") inv";
+
+        try (Connection conn = Db_connection.getConnection()) {
+            int buildingCount, apartmentCount, availableCount, rentedCount, residentCount, activeContracts;
+            int paidCount, unpaidCount;
+            BigDecimal totalRevenue;
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                if (ids != null) {
+                    // Thứ tự tham số: resident (subquery trong SELECT), buildings, apartments, contracts, invoices
+                    int index = 1;
+                    for (int block = 0; block < 5; block++) {
+                        for (Long id : ids) {
+                            ps.setLong(index++, id);
+                        }
+                    }
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return DashboardStats.empty();
+                    }
+                    buildingCount = rs.getInt("building_count");
+                    apartmentCount = rs.getInt("apartment_count");
+                    availableCount = rs.getInt("available_count");
+                    rentedCount = rs.getInt("rented_count");
+                    residentCount = rs.getInt("resident_count");
+                    activeContracts = rs.getInt("active_contract_count");
+                    totalRevenue = rs.getBigDecimal("total_revenue");
+                    paidCount = rs.getInt("paid_count");
+                    unpaidCount = rs.getInt("unpaid_count");
+                }
+            }
+
+            Map<YearMonth, BigDecimal> monthlyRevenue = getMonthlyRevenue(conn, ids);
+
+            return new DashboardStats(buildingCount, apartmentCount, availableCount, rentedCount,
+                    residentCount, activeContracts, totalRevenue, paidCount, unpaidCount, monthlyRevenue);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return DashboardStats.empty();
+    }
+
+    /**
+     * Doanh thu đã thu của REVENUE_MONTHS tháng gần nhất, GROUP BY tháng trong
+     * 1 query (điều kiện payment_date >= ? dùng được index)
+     */
+    private Map<YearMonth, BigDecimal> getMonthlyRevenue(Connection conn, List<Long> ids) throws SQLException {
+        YearMonth current = YearMonth.now();
+        YearMonth first = current.minusMonths(REVENUE_MONTHS - 1);
+
+        Map<YearMonth, BigDecimal> result = new LinkedHashMap<>();
+        for (YearMonth m = first; !m.isAfter(current); m = m.plusMonths(1)) {
+            result.put(m, BigDecimal.ZERO);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT YEAR(i.payment_date) AS y, MONTH(i.payment_date) AS m, "
+                + "SUM(i.total_amount) AS revenue FROM invoices i ");
+        if (ids != null) {
+            sql.append("JOIN contracts c ON i.contract_id = c.id ")
+                    .append("JOIN apartments a ON c.apartment_id = a.id ")
+                    .append("JOIN floors f ON a.floor_id = f.id ");
+        }
+        sql.append("WHERE i.status = 'PAID' AND i.is_deleted = 0 AND i.payment_date >= ? ");
+        if (ids != null) {
+            sql.append("AND f.building_id IN (").append(SqlUtils.placeholders(ids.size())).append(") ");
+        }
+        sql.append("GROUP BY YEAR(i.payment_date), MONTH(i.payment_date)");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            ps.setDate(1, java.sql.Date.valueOf(first.atDay(1)));
+            if (ids != null) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(i + 2, ids.get(i));
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    YearMonth month = YearMonth.of(rs.getInt("y"), rs.getInt("m"));
+                    if (result.containsKey(month) && rs.getBigDecimal("revenue") != null) {
+                        result.put(month, rs.getBigDecimal("revenue"));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package dao;
+
+import connection.UnitOfWork;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đếm phiên bản dữ liệu theo nhóm bảng.
+ *
+ * DAO gọi bump() sau mỗi lần ghi thành công; màn hình giữ lại stamp() của lần
+ * tải gần nhất và chỉ tải lại khi stamp hiện tại khác đi (dữ liệu đã đổi).
+ */
+public final class DataVersion {
+
+    /**
+     * Nhóm dữ liệu (mỗi nhóm ~ 1 hoặc vài bảng liên quan)
+     */
+    public enum Domain {
+        BUILDING, FLOOR, APARTMENT, RESIDENT, CONTRACT, INVOICE, SERVICE, USER
+    }
+
+    private static final Map<Domain, AtomicLong> VERSIONS = new EnumMap<>(Domain.class);
+
+    static {
+        for (Domain d : Domain.values()) {
+            VERSIONS.put(d, new AtomicLong());
+        }
+    }
+
+    private DataVersion() {
+    }
+
+    /**
+     * Đánh dấu dữ liệu của các nhóm đã thay đổi. Trong UnitOfWork: chỉ đánh
+     * dấu khi unit commit (rollback thì dữ liệu không đổi).
+     */
+    public static void bump(Domain... domains) {
+        if (UnitOfWork.isActive()) {
+            Domain[] pending = domains.clone();
+            UnitOfWork.onCompletion(committed -> {
+                if (committed) {
+                    increment(pending);
+                }
+            });
+            return;
+        }
+        increment(domains);
+    }
+
+    private static void increment(Domain[] domains) {
+        for (Domain d : domains) {
+            VERSIONS.get(d).incrementAndGet();
+        }
+    }
+
+    public static long get(Domain domain) {
+        return VERSIONS.get(domain).get();
+    }
+
+    /**
+     * Tổng phiên bản của các nhóm - các bộ đếm chỉ tăng nên tổng thay đổi khi
+     * và chỉ khi có ít nhất 1 nhóm thay đổi
+     */
+    public static long stamp(Domain... domains) {
+        long sum = 0;
+        for (Domain d : domains) {
+            sum += VERSIONS.get(d).get();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,343 @@
+package dao;
+
+import connection.UnitOfWork;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache đọc-xuyên (read-through) trong bộ nhớ cho dữ liệu tham chiếu ít thay
+ * đổi (tòa nhà, tầng, dịch vụ).
+ *
+ * - Giới hạn số phần tử (LRU) và thời gian sống (TTL)
+ * - DAO gọi invalidate()/invalidateAll() sau mỗi lần insert/update/delete
+ * - Lỗi DB không được cache (loader ném SQLException)
+ * - Giá trị là object sửa được (Building, Floor...): truyền copier để cache
+ * giữ bản sao riêng và mỗi lần get() trả bản sao mới - form sửa dở / lưu lỗi
+ * không làm bẩn dữ liệu người khác đọc
+ * - Đếm hit/miss để theo dõi hiệu quả cache
+ */
+public final class EntityCache<K, V> {
+
+    /**
+     * Loader chạy query khi cache miss
+     */
+    public interface Loader<V> {
+
+        V load() throws SQLException;
+    }
+
+    /**
+     * Loader chạy 1 query cho nhiều key bị miss cùng lúc
+     */
+    public interface BulkLoader<K, V> {
+
+        /**
+         * @return map key → giá trị; key không có trong map thì không được cache
+         */
+        Map<K, V> loadAll(Collection<K> keys) throws SQLException;
+    }
+
+    private static final List<EntityCache<?, ?>> REGISTRY = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+    // Tăng mỗi lần invalidate: kết quả query bắt đầu trước đó sẽ không được cache
+    private long generation = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+    private long invalidations = 0;
+
+    public EntityCache(String name, int maxSize, long ttlMillis) {
+        this(name, maxSize, ttlMillis, UnaryOperator.identity());
+    }
+
+    /**
+     * @param copier tạo bản sao độc lập của 1 giá trị (lúc lưu và lúc trả ra)
+     */
+    public EntityCache(String name, int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        REGISTRY.add(this);
+    }
+
+    /**
+     * Lấy từ cache, nếu không có (hoặc hết hạn) thì gọi loader và lưu lại.
+     * Kết quả null không được cache.
+     */
+    public V get(K key, Loader<V> loader) throws SQLException {
+        long loadGeneration;
+        synchronized (this) {
+            CacheEntry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.isExpired()) {
+                    hits++;
+                    return copier.apply(entry.value);
+                }
+                entries.remove(key);
+                expirations++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        // Query ngoài lock để không chặn các thread khác
+        V value = loader.load();
+
+        if (value != null) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    entries.put(key, new CacheEntry<>(copier.apply(value), System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Như get() nhưng cho nhiều key: các key bị miss (hoặc hết hạn) được nạp
+     * chung bằng 1 lần gọi loader thay vì từng key một.
+     *
+     * @return map key → giá trị (không có key mà loader không trả về)
+     */
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader) throws SQLException {
+        Map<K, V> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (K key : keys) {
+                CacheEntry<V> entry = entries.get(key);
+                if (entry != null && !entry.isExpired()) {
+                    hits++;
+                    result.put(key, copier.apply(entry.value));
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(key);
+                    expirations++;
+                }
+                misses++;
+                missing.add(key);
+            }
+            loadGeneration = generation;
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        // Query ngoài lock để không chặn các thread khác
+        Map<K, V> loaded = loader.loadAll(missing);
+
+        synchronized (this) {
+            boolean cacheable = loadGeneration == generation;
+            long expiresAt = System.currentTimeMillis() + ttlMillis;
+            for (K key : missing) {
+                V value = loaded.get(key);
+                if (value == null) {
+                    continue;
+                }
+                result.put(key, value);
+                if (cacheable) {
+                    entries.put(key, new CacheEntry<>(copier.apply(value), expiresAt));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Trong UnitOfWork: xóa ngay và xóa lần nữa khi unit kết thúc (giá trị
+     * đọc lại giữa chừng trên kết nối của unit có thể là dữ liệu chưa commit)
+     */
+    public void invalidate(K key) {
+        remove(key);
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.onCompletion(committed -> remove(key));
+        }
+    }
+
+    public void invalidateAll() {
+        clear();
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.onCompletion(committed -> clear());
+        }
+    }
+
+    private synchronized void remove(K key) {
+        generation++;
+        invalidations++;
+        entries.remove(key);
+    }
+
+    private synchronized void clear() {
+        generation++;
+        invalidations++;
+        entries.clear();
+    }
+
+    /**
+     * Dọn các phần tử đã hết hạn
+     */
+    public synchronized void purgeExpired() {
+        Iterator<CacheEntry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired()) {
+                it.remove();
+                expirations++;
+            }
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+    }
+
+    /**
+     * Copier cho giá trị là danh sách: sao chép từng phần tử
+     */
+    public static <T> UnaryOperator<List<T>> listCopier(UnaryOperator<T> elementCopier) {
+        return list -> {
+            List<T> copy = new ArrayList<>(list.size());
+            for (T item : list) {
+                copy.add(elementCopier.apply(item));
+            }
+            return Collections.unmodifiableList(copy);
+        };
+    }
+
+    /**
+     * Số liệu của tất cả cache đang có trong ứng dụng
+     */
+    public static List<CacheStats> getAllStats() {
+        List<CacheStats> all = new ArrayList<>();
+        for (EntityCache<?, ?> cache : REGISTRY) {
+            all.add(cache.getStats());
+        }
+        return all;
+    }
+
+    /**
+     * Xóa toàn bộ cache (vd: khi đăng xuất / đổi user)
+     */
+    public static void invalidateAllCaches() {
+        for (EntityCache<?, ?> cache : REGISTRY) {
+            cache.invalidateAll();
+        }
+    }
+
+    private static final class CacheEntry<V> {
+
+        final V value;
+        final long expiresAt;
+
+        CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    /**
+     * Ảnh chụp (immutable) số liệu của 1 cache
+     */
+    public static final class CacheStats {
+
+        private final String name;
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        CacheStats(String name, int size, int maxSize, long hits, long misses,
+                long evictions, long expirations, long invalidations) {
+            this.name = name;
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getExpirations() {
+            return expirations;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CacheStats{%s: size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, "
+                    + "evictions=%d, expirations=%d, invalidations=%d}",
+                    name, size, maxSize, hits, misses, getHitRate() * 100,
+                    evictions, expirations, invalidations);
+        }
+    }
+}
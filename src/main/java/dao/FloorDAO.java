@@ -1,10 +1,17 @@
 package dao;
 
+import model.Apartment;
 import model.Floor;
 import connection.Db_connection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * DAO class for Floor operations FINAL VERSION: Smart Insert + Full Validation
@@ -12,6 +19,44 @@ import java.util.List;
  */
 public class FloorDAO {
 
+    // --- CACHE: tầng ít thay đổi, được query cho từng căn hộ / combo box ---
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000L;
+    private static final EntityCache<Long, Floor> BY_ID_CACHE
+            = new EntityCache<>("floors.byId", 2000, CACHE_TTL_MS, Floor::new);
+    private static final EntityCache<Long, List<Floor>> BY_BUILDING_CACHE
+            = new EntityCache<>("floors.byBuilding", 200, CACHE_TTL_MS, EntityCache.listCopier(Floor::new));
+
+    // Thống kê căn hộ theo tầng - ApartmentDAO/ContractDAO xóa khi ghi vào apartments
+    private static final EntityCache<Long, FloorStats> STATS_CACHE
+            = new EntityCache<>("floors.stats", 5000, CACHE_TTL_MS);
+
+    private final ApartmentDAO apartmentDAO = new ApartmentDAO();
+
+    /**
+     * Xóa cache tầng (gọi sau khi ghi vào bảng floors)
+     */
+    public static void invalidateCache() {
+        BY_ID_CACHE.invalidateAll();
+        BY_BUILDING_CACHE.invalidateAll();
+        DataVersion.bump(DataVersion.Domain.FLOOR);
+    }
+
+    /**
+     * Xóa thống kê của 1 tầng (gọi sau khi thêm/sửa/xóa căn hộ trên tầng đó)
+     */
+    public static void invalidateFloorStats(Long floorId) {
+        if (floorId != null) {
+            STATS_CACHE.invalidate(floorId);
+        }
+    }
+
+    /**
+     * Xóa thống kê mọi tầng (khi đổi trạng thái căn hộ mà không biết tầng)
+     */
+    public static void invalidateAllFloorStats() {
+        STATS_CACHE.invalidateAll();
+    }
+
     // --- MAPPER ---
     private Floor mapResultSetToFloor(ResultSet rs) throws SQLException {
         Floor floor = new Floor();
@@ -25,46 +70,91 @@ public class FloorDAO {
     }
 
     // --- 1. LẤY DANH SÁCH & THỐNG KÊ ---
+    /**
+     * Danh sách tầng của tòa kèm thống kê căn hộ từng tầng.
+     *
+     * Tầng lấy từ cache theo tòa, thống kê lấy từ cache theo tầng; chỉ các tầng
+     * chưa có trong cache mới được đếm lại bằng 1 query trên đúng các tầng đó
+     * (apartments.floor_id IN ..., dùng idx_floor_id) - không quét toàn bảng.
+     */
     public List<FloorWithStats> getFloorsWithStatsByBuildingId(Long buildingId) {
         List<FloorWithStats> results = new ArrayList<>();
-        String sql
-                = "SELECT f.id, f.building_id, f.floor_number, f.name, f.status, f.is_deleted, "
-                + "       COALESCE(apt_stats.total_apts, 0)  AS total_apts, "
-                + "       COALESCE(apt_stats.rented_apts, 0) AS rented_apts, "
-                + "       COALESCE(apt_stats.owned_apts, 0)  AS owned_apts "
-                + "FROM floors f "
-                + "LEFT JOIN ( "
-                + "    SELECT a.floor_id, "
-                + "           COUNT(a.id) AS total_apts, "
-                + "           SUM(CASE WHEN a.status IN ('RENTED', 'Đã thuê', 'OCCUPIED') THEN 1 ELSE 0 END) AS rented_apts, "
-                + "           SUM(CASE WHEN a.status = 'OWNED' THEN 1 ELSE 0 END) AS owned_apts "
-                + "    FROM apartments a "
-                + "    WHERE a.is_deleted = 0 "
-                + "    GROUP BY a.floor_id "
-                + ") apt_stats ON f.id = apt_stats.floor_id "
-                + "WHERE f.building_id = ? AND (f.is_deleted = 0 OR f.is_deleted IS NULL) "
-                + "ORDER BY f.floor_number ASC";
+        List<Floor> floors = getFloorsByBuildingId(buildingId);
+        if (floors.isEmpty()) {
+            return results;
+        }
 
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, buildingId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Floor floor = mapResultSetToFloor(rs);
-                    FloorStats stats = new FloorStats();
-                    stats.totalApartments = rs.getInt("total_apts");
-                    stats.rentedApartments = rs.getInt("rented_apts");
-                    stats.ownedApartments = rs.getInt("owned_apts");
-                    results.add(new FloorWithStats(floor, stats));
-                }
-            }
+        List<Long> floorIds = new ArrayList<>(floors.size());
+        for (Floor floor : floors) {
+            floorIds.add(floor.getId());
+        }
+
+        Map<Long, FloorStats> statsById;
+        try {
+            statsById = STATS_CACHE.getAll(floorIds, this::queryFloorStats);
         } catch (SQLException e) {
             e.printStackTrace();
+            statsById = Collections.emptyMap();
+        }
+
+        for (Floor floor : floors) {
+            FloorStats stats = statsById.get(floor.getId());
+            results.add(new FloorWithStats(floor, stats != null ? stats : new FloorStats()));
         }
         return results;
     }
 
+    /**
+     * Đếm căn hộ theo trạng thái cho các tầng được chỉ định. Tầng không có căn
+     * hộ nào vẫn có thống kê rỗng (để được cache).
+     */
+    private Map<Long, FloorStats> queryFloorStats(Collection<Long> floorIds) throws SQLException {
+        Map<Long, FloorStats> result = new HashMap<>();
+        List<List<Long>> chunks = SqlUtils.chunkIds(floorIds, SqlUtils.IN_CHUNK_SIZE);
+        for (List<Long> chunk : chunks) {
+            for (Long id : chunk) {
+                result.put(id, new FloorStats());
+            }
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : chunks) {
+                String sql = "SELECT a.floor_id, "
+                        + "       COUNT(a.id) AS total_apts, "
+                        + "       SUM(CASE WHEN a.status IN ('RENTED', 'Đã thuê', 'OCCUPIED') THEN 1 ELSE 0 END) AS rented_apts, "
+                        + "       SUM(CASE WHEN a.status = 'OWNED' THEN 1 ELSE 0 END) AS owned_apts "
+                        + "FROM apartments a "
+                        + "WHERE a.floor_id IN (" + SqlUtils.placeholders(chunk.size()) + ") AND a.is_deleted = 0 "
+                        + "GROUP BY a.floor_id";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            FloorStats stats = result.get(rs.getLong("floor_id"));
+                            stats.totalApartments = rs.getInt("total_apts");
+                            stats.rentedApartments = rs.getInt("rented_apts");
+                            stats.ownedApartments = rs.getInt("owned_apts");
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     // --- 2. CÁC HÀM GET CƠ BẢN ---
     public Floor getFloorById(Long id) {
+        try {
+            return BY_ID_CACHE.get(id, () -> queryFloorById(id));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private Floor queryFloorById(Long id) throws SQLException {
         String sql = "SELECT * FROM floors WHERE id = ? AND is_deleted = 0";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
@@ -73,13 +163,20 @@ public class FloorDAO {
                     return mapResultSetToFloor(rs);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return null;
     }
 
     public List<Floor> getFloorsByBuildingId(Long buildingId) {
+        try {
+            return new ArrayList<>(BY_BUILDING_CACHE.get(buildingId, () -> queryFloorsByBuildingId(buildingId)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    private List<Floor> queryFloorsByBuildingId(Long buildingId) throws SQLException {
         List<Floor> floors = new ArrayList<>();
         String sql = "SELECT * FROM floors WHERE building_id = ? AND is_deleted = 0 ORDER BY floor_number";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -89,14 +186,12 @@ public class FloorDAO {
                     floors.add(mapResultSetToFloor(rs));
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        return floors;
+        return Collections.unmodifiableList(floors);
     }
 
     // --- 3. CHECK VALIDATION (ĐÃ KHÔI PHỤC ĐẦY ĐỦ) ---
-    // ✅ Kiểm tra trùng Tên (BatchAddFloorDialog cần cái này)
+    // ✅ Kiểm tra trùng Tên
     public boolean isFloorNameExists(Long buildingId, String name) {
         return isFloorNameExists(buildingId, name, null);
     }
@@ -144,6 +239,14 @@ public class FloorDAO {
 
     // --- 4. CRUD OPERATIONS (SMART INSERT) ---
     public boolean insertFloor(Floor floor) {
+        boolean inserted = insertOrRestoreFloor(floor);
+        if (inserted) {
+            invalidateCache();
+        }
+        return inserted;
+    }
+
+    private boolean insertOrRestoreFloor(Floor floor) {
         // Kiểm tra xem có tầng đã xóa trùng số không
         Long deletedId = getDeletedFloorId(floor.getBuildingId(), floor.getFloorNumber());
 
@@ -202,7 +305,9 @@ public class FloorDAO {
             pstmt.setString(2, floor.getName());
             pstmt.setString(3, floor.getStatus());
             pstmt.setLong(4, floor.getId());
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            invalidateCache();
+            return updated;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -213,7 +318,9 @@ public class FloorDAO {
         String sql = "UPDATE floors SET is_deleted = 1 WHERE id = ?";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            invalidateCache();
+            return deleted;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -247,6 +354,9 @@ public class FloorDAO {
                 pstApts.executeUpdate();
             }
             conn.commit();
+            invalidateCache();
+            invalidateFloorStats(floorId);
+            DataVersion.bump(DataVersion.Domain.APARTMENT);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -292,7 +402,7 @@ public class FloorDAO {
     public boolean hasActiveContracts(Long floorId) {
         String sql = "SELECT COUNT(*) FROM contracts c "
                 + "JOIN apartments a ON c.apartment_id = a.id "
-                + "WHERE a.floor_id = ? AND c.status = 'ACTIVE' AND c.is_deleted = 0";
+                + "WHERE a.floor_id = ? AND c.status IN ('ACTIVE', 'EXPIRED') AND c.is_deleted = 0";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, floorId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -306,7 +416,193 @@ public class FloorDAO {
         return false;
     }
 
-    // --- 6. INNER CLASSES ---
+    // --- 6. TẠO HÀNG LOẠT (TẦNG + CĂN HỘ) ---
+
+    /**
+     * Tạo các tầng template.fromFloor..toFloor của tòa (kèm căn hộ mỗi tầng nếu
+     * apartmentsPerFloor > 0) trong 1 transaction:
+     * - 1 query đọc mọi tầng của tòa (khóa lại đến khi commit) để bỏ qua tên đã
+     * có / khôi phục tầng đã xóa cùng số - thay cho 1 query mỗi tầng
+     * - Tầng mới, tầng khôi phục, căn hộ: mỗi loại 1 batch (driver gộp thành
+     * INSERT nhiều dòng nhờ rewriteBatchedStatements)
+     * - Căn hộ trùng số phòng với căn đang có trong tòa được bỏ qua
+     *
+     * @return null nếu lỗi (không tạo gì)
+     */
+    public ScaffoldResult scaffoldFloors(Long buildingId, ScaffoldTemplate template) {
+        ScaffoldResult result = new ScaffoldResult();
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            // 1. Tầng hiện có của tòa (kể cả đã xóa)
+            Set<String> activeNames = new HashSet<>();
+            Map<Integer, Long> deletedByNumber = new HashMap<>();
+            String sqlExisting = "SELECT id, floor_number, name, is_deleted FROM floors WHERE building_id = ? FOR UPDATE";
+            try (PreparedStatement ps = conn.prepareStatement(sqlExisting)) {
+                ps.setLong(1, buildingId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getBoolean("is_deleted")) {
+                            deletedByNumber.putIfAbsent(rs.getInt("floor_number"), rs.getLong("id"));
+                        } else if (rs.getString("name") != null) {
+                            activeNames.add(rs.getString("name"));
+                        }
+                    }
+                }
+            }
+
+            List<Floor> toInsert = new ArrayList<>();
+            List<Floor> toRestore = new ArrayList<>();
+            for (int number = template.fromFloor; number <= template.toFloor; number++) {
+                String name = template.floorName(number);
+                if (activeNames.contains(name)) {
+                    result.floorsSkipped++;
+                    continue;
+                }
+                Floor floor = new Floor(buildingId, number, name);
+                Long deletedId = deletedByNumber.get(number);
+                if (deletedId != null) {
+                    floor.setId(deletedId);
+                    toRestore.add(floor);
+                } else {
+                    toInsert.add(floor);
+                }
+            }
+
+            // 2. Khôi phục tầng đã xóa cùng số
+            if (!toRestore.isEmpty()) {
+                String sqlRestore = "UPDATE floors SET is_deleted = 0, name = ?, status = ? WHERE id = ?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlRestore)) {
+                    for (Floor floor : toRestore) {
+                        ps.setString(1, floor.getName());
+                        ps.setString(2, floor.getStatus());
+                        ps.setLong(3, floor.getId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+
+            // 3. Tầng mới (id sinh ra theo đúng thứ tự batch)
+            if (!toInsert.isEmpty()) {
+                String sqlInsert = "INSERT INTO floors (building_id, floor_number, name, status, is_deleted) VALUES (?, ?, ?, ?, 0)";
+                try (PreparedStatement ps = conn.prepareStatement(sqlInsert, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Floor floor : toInsert) {
+                        ps.setLong(1, buildingId);
+                        ps.setInt(2, floor.getFloorNumber());
+                        ps.setString(3, floor.getName());
+                        ps.setString(4, floor.getStatus());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Floor floor : toInsert) {
+                            if (!keys.next()) {
+                                throw new SQLException("Thiếu id sinh ra cho tầng " + floor.getName());
+                            }
+                            floor.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            result.floorsCreated = toInsert.size();
+            result.floorsRestored = toRestore.size();
+
+            // 4. Căn hộ của các tầng vừa tạo / khôi phục
+            if (template.apartmentsPerFloor > 0 && (!toInsert.isEmpty() || !toRestore.isEmpty())) {
+                Set<String> existingRooms = apartmentDAO.getRoomNumbersByBuilding(conn, buildingId);
+                List<Apartment> apartments = new ArrayList<>();
+                List<Floor> targets = new ArrayList<>(toRestore);
+                targets.addAll(toInsert);
+                for (Floor floor : targets) {
+                    for (int index = 1; index <= template.apartmentsPerFloor; index++) {
+                        String room = template.roomNumber(floor.getFloorNumber(), index);
+                        if (!existingRooms.add(room.toUpperCase())) {
+                            result.apartmentsSkipped++;
+                            continue;
+                        }
+                        Apartment apartment = new Apartment(floor.getId(), room, template.area, "AVAILABLE");
+                        apartment.setApartmentType(template.apartmentType);
+                        apartment.setBedroomCount(template.bedroomCount);
+                        apartment.setBathroomCount(template.bathroomCount);
+                        apartments.add(apartment);
+                    }
+                }
+                apartmentDAO.insertApartmentsBatch(conn, apartments);
+                result.apartmentsCreated = apartments.size();
+            }
+
+            conn.commit();
+            invalidateCache();
+            if (result.apartmentsCreated > 0) {
+                invalidateAllFloorStats();
+                DataVersion.bump(DataVersion.Domain.APARTMENT);
+            }
+            return result;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return null;
+    }
+
+    // --- 7. INNER CLASSES ---
+
+    /**
+     * Mẫu tạo tầng hàng loạt. Số phòng theo roomPattern: {F} = số tầng, {N} =
+     * thứ tự căn, {NN} = thứ tự căn 2 chữ số (VD "{F}{NN}" → 101, 102...)
+     */
+    public static class ScaffoldTemplate {
+
+        public int fromFloor;
+        public int toFloor;
+        public String namePrefix = "Tầng";
+        public int apartmentsPerFloor = 0;
+        public String roomPattern = "{F}{NN}";
+        public String apartmentType = "Standard";
+        public double area = 50;
+        public int bedroomCount = 1;
+        public int bathroomCount = 1;
+
+        public String floorName(int floorNumber) {
+            return namePrefix + " " + floorNumber; // VD: "Tầng 1"
+        }
+
+        public String roomNumber(int floorNumber, int index) {
+            return roomPattern
+                    .replace("{F}", String.valueOf(floorNumber))
+                    .replace("{NN}", String.format("%02d", index))
+                    .replace("{N}", String.valueOf(index))
+                    .trim();
+        }
+    }
+
+    public static class ScaffoldResult {
+
+        public int floorsCreated = 0;
+        public int floorsRestored = 0;
+        public int floorsSkipped = 0;
+        public int apartmentsCreated = 0;
+        public int apartmentsSkipped = 0;
+    }
+
     public static class FloorStats {
 
         public int totalApartments = 0;
@@ -148,7 +148,12 @@ public class HouseholdMemberDAO {
             pstmt.setString(8, member.getPhone());
             pstmt.setBoolean(9, member.isActive());
 
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.RESIDENT);
+            if (changed) {
+                ResidentSearchIndex.onContractChanged(member.getContractId());
+            }
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -181,7 +186,12 @@ public class HouseholdMemberDAO {
             pstmt.setBoolean(8, member.isActive());
             pstmt.setLong(9, member.getId());
 
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.RESIDENT);
+            if (changed) {
+                ResidentSearchIndex.onMemberUpdated(member);
+            }
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -197,7 +207,9 @@ public class HouseholdMemberDAO {
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.RESIDENT);
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -213,7 +225,12 @@ public class HouseholdMemberDAO {
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.RESIDENT);
+            if (changed) {
+                ResidentSearchIndex.onMemberRemoved(id);
+            }
+            return changed;
         } catch (SQLException e) {
             e.printStackTrace();
         }
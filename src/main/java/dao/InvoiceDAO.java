@@ -2,6 +2,7 @@ package dao;
 
 import model.Invoice;
 import model.InvoiceDetail;
+import model.InvoiceListViewModel;
 import connection.Db_connection;
 import util.SessionManager;
 import model.User;
@@ -9,11 +10,37 @@ import model.User;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class InvoiceDAO {
 
+    private final RevenueRollupDAO rollupDAO = new RevenueRollupDAO();
+
+    // Cột của InvoiceListViewModel (hóa đơn + số HĐ, căn hộ, tầng, tòa, cư dân).
+    // Hợp đồng đã xóa: vẫn join để lọc theo tòa/phân quyền nhưng các cột hiển
+    // thị trả NULL (bảng hiện "N/A" như khi tra getContractById từng dòng)
+    private static final String INVOICE_LIST_SELECT = "SELECT i.id, i.contract_id, i.month, i.year, i.total_amount, "
+            + "i.status, i.created_at, i.payment_date, "
+            + "CASE WHEN c.is_deleted = 0 THEN c.contract_number END AS contract_number, "
+            + "CASE WHEN c.is_deleted = 0 THEN a.id END AS apartment_id, "
+            + "CASE WHEN c.is_deleted = 0 THEN a.room_number END AS room_number, "
+            + "CASE WHEN c.is_deleted = 0 THEN f.name END AS floor_name, "
+            + "CASE WHEN c.is_deleted = 0 THEN b.id END AS building_id, "
+            + "CASE WHEN c.is_deleted = 0 THEN b.name END AS building_name, "
+            + "r.id AS resident_id, r.full_name AS resident_name "
+            + "FROM invoices i "
+            + "JOIN contracts c ON i.contract_id = c.id "
+            + "JOIN apartments a ON c.apartment_id = a.id "
+            + "JOIN floors f ON a.floor_id = f.id "
+            + "JOIN buildings b ON f.building_id = b.id "
+            + "LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 AND c.is_deleted = 0 "
+            + "WHERE i.is_deleted = 0 ";
+
     // =============================================================
     // PHẦN 1: CÁC HÀM CRUD CƠ BẢN
     // =============================================================
@@ -138,56 +165,144 @@ public class InvoiceDAO {
     public Long insertInvoiceAndReturnId(Invoice invoice) {
         String sql = "INSERT INTO invoices (contract_id, month, year, total_amount, status, created_at, is_deleted) "
                 + "VALUES (?, ?, ?, ?, ?, NOW(), 0)";
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setLong(1, invoice.getContractId());
-            ps.setInt(2, invoice.getMonth());
-            ps.setInt(3, invoice.getYear());
-            ps.setBigDecimal(4, invoice.getTotalAmount());
-            ps.setString(5, invoice.getStatus());
-
-            int affected = ps.executeUpdate();
-            if (affected > 0) {
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) return rs.getLong(1);
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            Long id = null;
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setLong(1, invoice.getContractId());
+                ps.setInt(2, invoice.getMonth());
+                ps.setInt(3, invoice.getYear());
+                ps.setBigDecimal(4, invoice.getTotalAmount());
+                ps.setString(5, invoice.getStatus());
+
+                if (ps.executeUpdate() > 0) {
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) id = rs.getLong(1);
+                    }
                 }
             }
+            if (id == null) {
+                conn.rollback();
+                return null;
+            }
+
+            // Cộng hóa đơn mới vào bảng tổng hợp doanh thu
+            rollupDAO.apply(conn, rollupDAO.loadFacts(conn, id), 1);
+
+            conn.commit();
+            DataVersion.bump(DataVersion.Domain.INVOICE);
+            return id;
         } catch (SQLException e) {
             e.printStackTrace();
+            rollbackQuietly(conn);
+        } finally {
+            closeQuietly(conn);
         }
         return null;
     }
 
     public boolean updateInvoice(Invoice invoice) {
         String sql = "UPDATE invoices SET total_amount = ?, status = ?, payment_date = ? WHERE id = ?";
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setBigDecimal(1, invoice.getTotalAmount());
-            ps.setString(2, invoice.getStatus());
-            
-            if (invoice.getPaymentDate() != null) {
-                ps.setTimestamp(3, new Timestamp(invoice.getPaymentDate().getTime()));
-            } else {
-                ps.setNull(3, Types.TIMESTAMP);
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            // Số liệu cũ (khóa dòng) để trừ khỏi bảng tổng hợp
+            RevenueRollupDAO.InvoiceFacts before = rollupDAO.loadFacts(conn, invoice.getId());
+
+            int affected;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setBigDecimal(1, invoice.getTotalAmount());
+                ps.setString(2, invoice.getStatus());
+
+                if (invoice.getPaymentDate() != null) {
+                    ps.setTimestamp(3, new Timestamp(invoice.getPaymentDate().getTime()));
+                } else {
+                    ps.setNull(3, Types.TIMESTAMP);
+                }
+
+                ps.setLong(4, invoice.getId());
+                affected = ps.executeUpdate();
             }
-            
-            ps.setLong(4, invoice.getId());
-            return ps.executeUpdate() > 0;
+            if (affected == 0) {
+                conn.rollback();
+                return false;
+            }
+
+            rollupDAO.apply(conn, before, -1);
+            rollupDAO.apply(conn, rollupDAO.loadFacts(conn, invoice.getId()), 1);
+
+            conn.commit();
+            DataVersion.bump(DataVersion.Domain.INVOICE);
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
+            rollbackQuietly(conn);
+        } finally {
+            closeQuietly(conn);
         }
         return false;
     }
 
     public boolean deleteInvoice(Long id) {
         String sql = "UPDATE invoices SET is_deleted = 1 WHERE id = ?";
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            RevenueRollupDAO.InvoiceFacts before = rollupDAO.loadFacts(conn, id);
+
+            int affected;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, id);
+                affected = ps.executeUpdate();
+            }
+            if (affected == 0) {
+                conn.rollback();
+                return false;
+            }
+
+            // Hóa đơn đã xóa không còn được tính → trừ khỏi bảng tổng hợp
+            rollupDAO.apply(conn, before, -1);
+
+            conn.commit();
+            DataVersion.bump(DataVersion.Domain.INVOICE);
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
+            rollbackQuietly(conn);
+        } finally {
+            closeQuietly(conn);
         }
         return false;
     }
 
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     // =============================================================
     // PHẦN 2: INVOICE DETAILS
     // =============================================================
@@ -223,6 +338,7 @@ public class InvoiceDAO {
                 ps.addBatch();
             }
             ps.executeBatch();
+            DataVersion.bump(DataVersion.Domain.INVOICE);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -280,6 +396,7 @@ public class InvoiceDAO {
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, invoiceId);
             ps.executeUpdate();
+            DataVersion.bump(DataVersion.Domain.INVOICE);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -368,30 +485,396 @@ public class InvoiceDAO {
         return 0;
     }
 
+    /**
+     * Doanh thu đã thu trong tháng (theo ngày thanh toán), đọc từ bảng tổng hợp
+     */
     public BigDecimal getMonthlyRevenue(int month, int year, Long buildingId) {
-        String sql = "SELECT SUM(i.total_amount) FROM invoices i "
+        return rollupDAO.getCollectedRevenue(month, year, buildingId);
+    }
+    
+    public BigDecimal getMonthlyRevenue(int month, int year) { 
+        return getMonthlyRevenue(month, year, null); 
+    }
+
+    // =============================================================
+    // PHẦN 4: DANH SÁCH HÓA ĐƠN CHO BẢNG (1 QUERY JOIN)
+    // =============================================================
+
+    /**
+     * Lấy danh sách hóa đơn kèm số HĐ, căn hộ, tầng, tòa nhà, cư dân trong 1 query.
+     *
+     * @param month  null = tất cả các tháng
+     * @param year   null = tất cả các năm
+     * @param status null = tất cả trạng thái (PAID / UNPAID / CANCELED)
+     */
+    public List<InvoiceListViewModel> getInvoiceListRows(Integer month, Integer year, String status) {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        List<InvoiceListViewModel> rows = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder(INVOICE_LIST_SELECT);
+
+        List<Object> params = new ArrayList<>();
+        if (month != null) {
+            sql.append("AND i.month = ? ");
+            params.add(month);
+        }
+        if (year != null) {
+            sql.append("AND i.year = ? ");
+            params.add(year);
+        }
+        if (status != null) {
+            sql.append("AND i.status = ? ");
+            params.add(status);
+        }
+
+        boolean needsFilter = currentUser != null && !currentUser.isAdmin() && currentUser.hasBuilding();
+        if (needsFilter) {
+            List<Long> bIds = currentUser.getBuildingIds();
+            String placeholders = bIds.stream().map(id -> "?").collect(Collectors.joining(","));
+            sql.append("AND f.building_id IN (").append(placeholders).append(") ");
+            params.addAll(bIds);
+        }
+
+        sql.append("ORDER BY i.year DESC, i.month DESC, i.created_at DESC");
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapRowToInvoiceListViewModel(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return rows;
+    }
+
+    /**
+     * 1 trang danh sách hóa đơn (keyset pagination), thứ tự năm, tháng, ngày
+     * tạo, id giảm dần. Trang sau tìm bằng khóa của dòng cuối trang trước
+     * (row constructor, dùng được index idx_period_created) thay vì OFFSET.
+     *
+     * @param month      null = tất cả các tháng
+     * @param year       null = tất cả các năm
+     * @param status     null = tất cả trạng thái
+     * @param buildingId null = mọi tòa được phân quyền
+     * @param keyword    null/rỗng = không lọc; khớp số HĐ, căn hộ, tên cư dân
+     * @param after      dòng cuối của trang trước (null = trang đầu)
+     */
+    public List<InvoiceListViewModel> getInvoiceListPage(Integer month, Integer year, String status,
+            Long buildingId, String keyword, InvoiceListViewModel after, int limit) {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        List<InvoiceListViewModel> rows = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder(INVOICE_LIST_SELECT);
+        List<Object> params = new ArrayList<>();
+        if (!appendInvoiceFilters(sql, params, currentUser, month, year, status, buildingId, keyword)) {
+            return rows;
+        }
+
+        if (after != null) {
+            sql.append("AND (i.year, i.month, i.created_at, i.id) < (?, ?, ?, ?) ");
+            params.add(after.getYear());
+            params.add(after.getMonth());
+            params.add(after.getCreatedAt() != null ? new Timestamp(after.getCreatedAt().getTime()) : new Timestamp(0));
+            params.add(after.getInvoiceId());
+        }
+
+        sql.append("ORDER BY i.year DESC, i.month DESC, i.created_at DESC, i.id DESC LIMIT ?");
+        params.add(limit);
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapRowToInvoiceListViewModel(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return rows;
+    }
+
+    /**
+     * Tổng hợp cho các thẻ thống kê bằng 1 query SUM/COUNT thay vì tải toàn
+     * bộ hóa đơn về đếm
+     *
+     * @param buildingId null = mọi tòa được phân quyền
+     */
+    public InvoiceTotals getInvoiceTotals(Long buildingId) {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        InvoiceTotals totals = new InvoiceTotals();
+
+        StringBuilder sql = new StringBuilder("SELECT "
+                + "SUM(CASE WHEN i.status <> 'CANCELED' THEN 1 ELSE 0 END) AS active_count, "
+                + "SUM(CASE WHEN i.status = 'UNPAID' THEN 1 ELSE 0 END) AS unpaid_count, "
+                + "SUM(CASE WHEN i.status = 'PAID' THEN i.total_amount ELSE 0 END) AS paid_amount "
+                + "FROM invoices i "
                 + "JOIN contracts c ON i.contract_id = c.id "
                 + "JOIN apartments a ON c.apartment_id = a.id "
                 + "JOIN floors f ON a.floor_id = f.id "
-                + "WHERE i.status = 'PAID' AND i.is_deleted = 0 "
-                + "AND MONTH(i.payment_date) = ? AND YEAR(i.payment_date) = ?";
+                + "WHERE i.is_deleted = 0 ");
+        List<Object> params = new ArrayList<>();
+        if (!appendInvoiceFilters(sql, params, currentUser, null, null, null, buildingId, null)) {
+            return totals;
+        }
 
-        if (buildingId != null) sql += " AND f.building_id = ?";
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
 
-        try (Connection conn = Db_connection.getConnection(); 
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, month);
-            ps.setInt(2, year);
-            if (buildingId != null) ps.setLong(3, buildingId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getBigDecimal(1) != null ? rs.getBigDecimal(1) : BigDecimal.ZERO;
+                if (rs.next()) {
+                    totals.totalCount = rs.getLong("active_count");
+                    totals.unpaidCount = rs.getLong("unpaid_count");
+                    BigDecimal paid = rs.getBigDecimal("paid_amount");
+                    totals.paidAmount = paid != null ? paid : BigDecimal.ZERO;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return totals;
+    }
+
+    public static class InvoiceTotals {
+        public long totalCount = 0;      // không tính hóa đơn đã hủy
+        public long unpaidCount = 0;
+        public BigDecimal paidAmount = BigDecimal.ZERO;
+    }
+
+    /**
+     * Thêm điều kiện lọc (tháng, năm, trạng thái, tòa nhà, từ khóa, phân
+     * quyền) vào câu query đã có "WHERE ... ".
+     *
+     * @return false nếu user không được xem tòa nào (kết quả chắc chắn rỗng)
+     */
+    private boolean appendInvoiceFilters(StringBuilder sql, List<Object> params, User currentUser,
+            Integer month, Integer year, String status, Long buildingId, String keyword) {
+        if (month != null) {
+            sql.append("AND i.month = ? ");
+            params.add(month);
+        }
+        if (year != null) {
+            sql.append("AND i.year = ? ");
+            params.add(year);
+        }
+        if (status != null) {
+            sql.append("AND i.status = ? ");
+            params.add(status);
+        }
+        if (buildingId != null) {
+            sql.append("AND f.building_id = ? ");
+            params.add(buildingId);
+        }
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            String like = "%" + keyword.trim() + "%";
+            sql.append("AND c.is_deleted = 0 AND (c.contract_number LIKE ? OR a.room_number LIKE ? "
+                    + "OR EXISTS (SELECT 1 FROM residents rk WHERE rk.id = c.resident_id AND rk.full_name LIKE ?)) ");
+            params.add(like);
+            params.add(like);
+            params.add(like);
+        }
+
+        boolean needsFilter = currentUser != null && !currentUser.isAdmin() && currentUser.hasBuilding();
+        if (needsFilter) {
+            List<Long> bIds = currentUser.getBuildingIds();
+            if (bIds.isEmpty()) {
+                return false;
+            }
+            sql.append("AND f.building_id IN (").append(SqlUtils.placeholders(bIds.size())).append(") ");
+            params.addAll(bIds);
+        }
+        return true;
+    }
+
+    // =============================================================
+    // PHẦN 5: XUẤT BÁO CÁO (STREAMING)
+    // =============================================================
+
+    /**
+     * Đếm hóa đơn của 1 khoảng tháng trong năm (dùng làm tổng cho thanh tiến độ)
+     *
+     * @param buildingIds null = tất cả tòa nhà, rỗng = không có tòa nào
+     */
+    public int countInvoicesInPeriod(int year, int fromMonth, int toMonth, Collection<Long> buildingIds) {
+        if (buildingIds != null && buildingIds.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM invoices i ");
+        List<Object> params = new ArrayList<>();
+        if (buildingIds != null) {
+            sql.append("JOIN contracts c ON i.contract_id = c.id ")
+                    .append("JOIN apartments a ON c.apartment_id = a.id ")
+                    .append("JOIN floors f ON a.floor_id = f.id ");
+        }
+        sql.append("WHERE i.is_deleted = 0 AND i.year = ? AND i.month BETWEEN ? AND ? ");
+        params.add(year);
+        params.add(fromMonth);
+        params.add(toMonth);
+        appendBuildingScope(sql, params, buildingIds);
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
             }
         } catch (SQLException e) { e.printStackTrace(); }
-        return BigDecimal.ZERO;
+        return 0;
     }
-    
-    public BigDecimal getMonthlyRevenue(int month, int year) { 
-        return getMonthlyRevenue(month, year, null); 
+
+    /**
+     * Duyệt hóa đơn (kèm số HĐ, căn hộ, cư dân) của 1 khoảng tháng bằng con
+     * trỏ forward-only: driver MySQL trả từng dòng thay vì nạp cả kết quả vào
+     * bộ nhớ, nên dùng được cho báo cáo rất lớn.
+     *
+     * Lưu ý: handler KHÔNG được dùng DB trên cùng kết nối trong lúc đang duyệt.
+     *
+     * @param buildingIds null = tất cả tòa nhà, rỗng = không có tòa nào
+     * @return số dòng đã duyệt, -1 nếu lỗi DB
+     */
+    public int streamInvoiceRowsForExport(int year, int fromMonth, int toMonth, Collection<Long> buildingIds,
+            Consumer<InvoiceListViewModel> handler) {
+        if (buildingIds != null && buildingIds.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("SELECT i.id, i.contract_id, i.month, i.year, i.total_amount, "
+                + "i.status, i.created_at, i.payment_date, "
+                + "c.contract_number, a.id AS apartment_id, a.room_number, "
+                + "f.name AS floor_name, b.id AS building_id, b.name AS building_name, "
+                + "r.id AS resident_id, r.full_name AS resident_name "
+                + "FROM invoices i "
+                + "JOIN contracts c ON i.contract_id = c.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "JOIN buildings b ON f.building_id = b.id "
+                + "LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 "
+                + "WHERE i.is_deleted = 0 AND i.year = ? AND i.month BETWEEN ? AND ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(year);
+        params.add(fromMonth);
+        params.add(toMonth);
+        appendBuildingScope(sql, params, buildingIds);
+        sql.append("ORDER BY i.month, i.id");
+
+        int count = 0;
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Integer.MIN_VALUE = chế độ streaming của MySQL Connector/J
+            ps.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.accept(mapRowToInvoiceListViewModel(rs));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Doanh thu theo dịch vụ của các hóa đơn đã thanh toán trong năm (GROUP BY
+     * trên DB thay vì đọc chi tiết từng hóa đơn), sắp xếp giảm dần
+     *
+     * @param buildingIds null = tất cả tòa nhà, rỗng = không có tòa nào
+     */
+    public Map<String, BigDecimal> getPaidServiceRevenue(int year, Collection<Long> buildingIds) {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        if (buildingIds != null && buildingIds.isEmpty()) {
+            return result;
+        }
+        StringBuilder sql = new StringBuilder("SELECT d.service_name, SUM(d.amount) AS revenue "
+                + "FROM invoice_details d "
+                + "JOIN invoices i ON d.invoice_id = i.id ");
+        if (buildingIds != null) {
+            sql.append("JOIN contracts c ON i.contract_id = c.id ")
+                    .append("JOIN apartments a ON c.apartment_id = a.id ")
+                    .append("JOIN floors f ON a.floor_id = f.id ");
+        }
+        sql.append("WHERE i.is_deleted = 0 AND i.status = 'PAID' AND i.year = ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(year);
+        appendBuildingScope(sql, params, buildingIds);
+        sql.append("GROUP BY d.service_name ORDER BY revenue DESC");
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal revenue = rs.getBigDecimal("revenue");
+                    result.put(rs.getString("service_name"), revenue != null ? revenue : BigDecimal.ZERO);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Lọc theo danh sách tòa nhà (query phải có alias f = floors), null = không lọc
+     */
+    private void appendBuildingScope(StringBuilder sql, List<Object> params, Collection<Long> buildingIds) {
+        if (buildingIds != null) {
+            sql.append("AND f.building_id IN (").append(SqlUtils.placeholders(buildingIds.size())).append(") ");
+            params.addAll(buildingIds);
+        }
+    }
+
+    private InvoiceListViewModel mapRowToInvoiceListViewModel(ResultSet rs) throws SQLException {
+        InvoiceListViewModel row = new InvoiceListViewModel();
+        row.setInvoiceId(rs.getLong("id"));
+        row.setContractId(rs.getLong("contract_id"));
+        row.setMonth(rs.getInt("month"));
+        row.setYear(rs.getInt("year"));
+        row.setTotalAmount(rs.getBigDecimal("total_amount"));
+        row.setStatus(rs.getString("status"));
+
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        if (createdAt != null) {
+            row.setCreatedAt(new java.util.Date(createdAt.getTime()));
+        }
+
+        Timestamp paymentDate = rs.getTimestamp("payment_date");
+        if (paymentDate != null) {
+            row.setPaymentDate(new java.util.Date(paymentDate.getTime()));
+        }
+
+        row.setContractNumber(rs.getString("contract_number"));
+        row.setApartmentId(rs.getLong("apartment_id"));
+        row.setRoomNumber(rs.getString("room_number"));
+        row.setFloorName(rs.getString("floor_name"));
+        row.setBuildingId(rs.getLong("building_id"));
+        row.setBuildingName(rs.getString("building_name"));
+
+        long residentId = rs.getLong("resident_id");
+        if (!rs.wasNull()) {
+            row.setResidentId(residentId);
+        }
+        row.setResidentName(rs.getString("resident_name"));
+        return row;
     }
 
     // =============================================================
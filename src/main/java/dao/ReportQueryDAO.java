@@ -0,0 +1,206 @@
+package dao;
+
+import connection.Db_connection;
+import model.CustomerSummaryRow;
+import model.MonthlyRevenueSummary;
+import model.ReportFilter;
+import model.ServiceRevenueRow;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReportQueryDAO - Các query báo cáo theo ReportFilter (tòa nhà, khoảng tháng,
+ * trạng thái). Lọc và GROUP BY trên DB, trả về dòng đã tổng hợp thay vì đọc
+ * từng hóa đơn / chi tiết hóa đơn rồi lọc trong Java.
+ */
+public class ReportQueryDAO {
+
+    private final RevenueRollupDAO rollupDAO = new RevenueRollupDAO();
+
+    // =============================================================
+    // PHẦN 1: DOANH THU THEO THÁNG
+    // =============================================================
+
+    /**
+     * Số liệu từng tháng trong khoảng lọc (đọc từ bảng tổng hợp, đã tách sẵn
+     * theo trạng thái nên bỏ qua filter.status)
+     *
+     * @return map tháng → số liệu, đủ mọi tháng từ fromMonth đến toMonth
+     */
+    public Map<Integer, MonthlyRevenueSummary> getMonthlySummary(ReportFilter filter) {
+        Map<Integer, MonthlyRevenueSummary> year = rollupDAO.getYearSummary(filter.getYear(), filter.getBuildingIds());
+        Map<Integer, MonthlyRevenueSummary> result = new LinkedHashMap<>();
+        for (int m = filter.getFromMonth(); m <= filter.getToMonth(); m++) {
+            result.put(m, year.get(m));
+        }
+        return result;
+    }
+
+    // =============================================================
+    // PHẦN 2: HÓA ĐƠN THEO TRẠNG THÁI
+    // =============================================================
+
+    /**
+     * Số hóa đơn theo trạng thái trong kỳ
+     *
+     * @return map status → số hóa đơn (không có status nào thì không có key)
+     */
+    public Map<String, Integer> getInvoiceStatusCounts(ReportFilter filter) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        if (filter.isEmptyScope()) {
+            return result;
+        }
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT i.status, COUNT(*) AS cnt FROM invoices i ");
+        appendScope(sql, params, filter);
+        sql.append("GROUP BY i.status");
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getString("status"), rs.getInt("cnt"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    // =============================================================
+    // PHẦN 3: DOANH THU THEO DỊCH VỤ
+    // =============================================================
+
+    /**
+     * Tổng tiền theo dịch vụ (từ invoice_details), sắp xếp giảm dần
+     */
+    public List<ServiceRevenueRow> getServiceBreakdown(ReportFilter filter) {
+        if (filter.isEmptyScope()) {
+            return Collections.emptyList();
+        }
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT d.service_name, COUNT(DISTINCT d.invoice_id) AS invoice_count, "
+                + "COALESCE(SUM(d.quantity), 0) AS total_quantity, COALESCE(SUM(d.amount), 0) AS total_amount "
+                + "FROM invoice_details d "
+                + "JOIN invoices i ON d.invoice_id = i.id ");
+        appendScope(sql, params, filter);
+        sql.append("GROUP BY d.service_name ORDER BY total_amount DESC");
+
+        List<ServiceRevenueRow> rows = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new ServiceRevenueRow(
+                            rs.getString("service_name"),
+                            rs.getInt("invoice_count"),
+                            rs.getDouble("total_quantity"),
+                            rs.getBigDecimal("total_amount")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return rows;
+    }
+
+    // =============================================================
+    // PHẦN 4: TỔNG HỢP THEO KHÁCH HÀNG
+    // =============================================================
+
+    /**
+     * Số hóa đơn và tổng tiền theo hợp đồng (vd: status = UNPAID → bảng công
+     * nợ), sắp xếp theo tổng tiền giảm dần
+     */
+    public List<CustomerSummaryRow> getCustomerSummary(ReportFilter filter) {
+        if (filter.isEmptyScope()) {
+            return Collections.emptyList();
+        }
+
+        // Gom trên invoices trước rồi mới JOIN thông tin hiển thị (1 dòng / hợp đồng)
+        List<Object> params = new ArrayList<>();
+        StringBuilder inner = new StringBuilder("SELECT i.contract_id, COUNT(*) AS invoice_count, "
+                + "COALESCE(SUM(i.total_amount), 0) AS total_amount FROM invoices i ");
+        appendScope(inner, params, filter);
+        inner.append("GROUP BY i.contract_id");
+
+        String sql = "SELECT s.contract_id, s.invoice_count, s.total_amount, "
+                + "c.contract_number, a.room_number, b.name AS building_name, r.full_name AS resident_name "
+                + "FROM (" + inner + ") s "
+                + "JOIN contracts c ON s.contract_id = c.id AND c.is_deleted = 0 "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "JOIN buildings b ON f.building_id = b.id "
+                + "LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 "
+                + "ORDER BY s.total_amount DESC";
+
+        List<CustomerSummaryRow> rows = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new CustomerSummaryRow(
+                            rs.getLong("contract_id"),
+                            rs.getString("contract_number"),
+                            rs.getString("room_number"),
+                            rs.getString("building_name"),
+                            rs.getString("resident_name"),
+                            rs.getInt("invoice_count"),
+                            rs.getBigDecimal("total_amount")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return rows;
+    }
+
+    // =============================================================
+    // HELPER
+    // =============================================================
+
+    /**
+     * JOIN tới hợp đồng (+ tòa nhà nếu cần) + điều kiện WHERE chung cho alias i
+     * (invoices). Hóa đơn của hợp đồng đã xóa không được tính. Điều kiện
+     * năm/tháng dùng được index idx_month_year.
+     */
+    private void appendScope(StringBuilder sql, List<Object> params, ReportFilter filter) {
+        List<Long> ids = filter.getBuildingIds() != null ? new ArrayList<>(filter.getBuildingIds()) : null;
+        sql.append("JOIN contracts fc ON i.contract_id = fc.id AND fc.is_deleted = 0 ");
+        if (ids != null) {
+            sql.append("JOIN apartments fa ON fc.apartment_id = fa.id ")
+                    .append("JOIN floors ff ON fa.floor_id = ff.id ");
+        }
+
+        sql.append("WHERE i.is_deleted = 0 AND i.year = ? AND i.month BETWEEN ? AND ? ");
+        params.add(filter.getYear());
+        params.add(filter.getFromMonth());
+        params.add(filter.getToMonth());
+
+        if (filter.getStatus() != null) {
+            sql.append("AND i.status = ? ");
+            params.add(filter.getStatus());
+        }
+        if (ids != null) {
+            sql.append("AND ff.building_id IN (").append(SqlUtils.placeholders(ids.size())).append(") ");
+            params.addAll(ids);
+        }
+    }
+
+    private void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+}
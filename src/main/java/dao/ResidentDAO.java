@@ -4,7 +4,10 @@ import model.Resident;
 import connection.Db_connection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ResidentDAO {
 
@@ -26,7 +29,7 @@ public class ResidentDAO {
                    + "JOIN contracts c ON c.resident_id = r.id "
                    + "JOIN apartments a ON c.apartment_id = a.id "
                    + "JOIN floors f ON a.floor_id = f.id "
-                   + "WHERE f.building_id = ? AND r.is_deleted = 0 AND c.status = 'ACTIVE'";
+                   + "WHERE f.building_id = ? AND r.is_deleted = 0 AND c.status IN ('ACTIVE', 'EXPIRED')";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, buildingId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -81,6 +84,37 @@ public class ResidentDAO {
         return null;
     }
 
+    /**
+     * Lấy nhiều cư dân theo danh sách ID (chia nhóm IN (...)), trả về Map id → Resident
+     */
+    public Map<Long, Resident> getResidentsByIds(Collection<Long> ids) {
+        Map<Long, Resident> result = new HashMap<>();
+        List<List<Long>> chunks = SqlUtils.chunkIds(ids, SqlUtils.IN_CHUNK_SIZE);
+        if (chunks.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : chunks) {
+                String sql = "SELECT * FROM residents WHERE id IN (" + SqlUtils.placeholders(chunk.size()) + ") AND is_deleted = 0";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Resident resident = mapRowToResident(rs);
+                            result.put(resident.getId(), resident);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
     public boolean insertResident(Resident r) {
         String sql = "INSERT INTO residents (full_name, phone, email, identity_card, gender, dob, hometown, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -98,6 +132,7 @@ public class ResidentDAO {
                         r.setId(rs.getLong(1));
                     }
                 }
+                DataVersion.bump(DataVersion.Domain.RESIDENT);
                 return true;
             }
         } catch (SQLException e) {
@@ -117,7 +152,12 @@ public class ResidentDAO {
             pstmt.setDate(6, r.getDob() != null ? new java.sql.Date(r.getDob().getTime()) : null);
             pstmt.setString(7, r.getHometown());
             pstmt.setLong(8, r.getId());
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.RESIDENT);
+            if (updated) {
+                ResidentSearchIndex.onResidentUpdated(r);
+            }
+            return updated;
         } catch (SQLException e) {
             e.printStackTrace();
         }
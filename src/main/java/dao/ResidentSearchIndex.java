@@ -0,0 +1,375 @@
+package dao;
+
+import connection.UnitOfWork;
+import model.HouseholdMember;
+import model.Resident;
+import model.ResidentViewModel;
+import util.TextNormalizer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục tìm kiếm cư dân (chủ hộ + thành viên) trong bộ nhớ, theo từng tòa
+ * nhà - thay cho 2 query LIKE '%kw%' (không dùng được index) mỗi lần tìm.
+ *
+ * - Tên, SĐT, CCCD được bỏ dấu (TextNormalizer) rồi tách trigram: "nguyen"
+ * tìm được "Nguyễn", từ khóa ≥ 3 ký tự chỉ cần kiểm tra các cư dân có đủ mọi
+ * trigram của nó
+ * - Tạo 1 lần cho mỗi tòa (lần tìm đầu tiên), sống tối đa MAX_AGE_MILLIS
+ * - ResidentDAO / HouseholdMemberDAO / ContractDAO cập nhật chỉ mục sau mỗi
+ * lần ghi thành công
+ * - Xếp hạng: khớp cả chuỗi > khớp đầu chuỗi > khớp đầu 1 từ > chứa; tên
+ * được ưu tiên hơn SĐT/CCCD
+ */
+final class ResidentSearchIndex {
+
+    private static final long MAX_AGE_MILLIS = 10 * 60 * 1000L;
+    private static final int GRAM = 3;
+
+    private static final String CHU_HO = "CHU_HO";
+    private static final String THANH_VIEN = "THANH_VIEN";
+
+    private static final Map<Long, BuildingIndex> INDEXES = new ConcurrentHashMap<>();
+
+    // Tăng mỗi lần dữ liệu đổi: chỉ mục đang tạo dở (đọc DB trước đó) sẽ không được lưu
+    private static long generation = 0;
+
+    private ResidentSearchIndex() {
+    }
+
+    /**
+     * Tìm cư dân của tòa theo tên / SĐT / CCCD (không phân biệt dấu, hoa
+     * thường), đã xếp hạng. Từ khóa rỗng → tất cả.
+     *
+     * @param loader đọc toàn bộ cư dân của tòa (chỉ gọi khi chưa có chỉ mục)
+     */
+    static List<ResidentViewModel> search(Long buildingId, String keyword,
+            EntityCache.Loader<List<ResidentViewModel>> loader) throws SQLException {
+        BuildingIndex index = INDEXES.get(buildingId);
+        if (index == null || index.isExpired()) {
+            long startGeneration;
+            synchronized (INDEXES) {
+                startGeneration = generation;
+            }
+            index = new BuildingIndex(loader.load());
+            synchronized (INDEXES) {
+                if (startGeneration == generation) {
+                    INDEXES.put(buildingId, index);
+                }
+            }
+        }
+        return index.search(TextNormalizer.fold(keyword));
+    }
+
+    /**
+     * Chủ hộ đã sửa thông tin → cập nhật tại chỗ mọi dòng của cư dân đó
+     */
+    static void onResidentUpdated(Resident resident) {
+        discardOnRollback();
+        synchronized (INDEXES) {
+            generation++;
+            for (BuildingIndex index : INDEXES.values()) {
+                index.update(CHU_HO, resident.getId(), vm -> {
+                    vm.setFullName(resident.getFullName());
+                    vm.setGender(resident.getGender());
+                    vm.setDob(resident.getDob());
+                    vm.setIdentityCard(resident.getIdentityCard());
+                    vm.setPhone(resident.getPhone());
+                    vm.setEmail(resident.getEmail());
+                    vm.setHometown(resident.getHometown());
+                });
+            }
+        }
+    }
+
+    /**
+     * Thành viên đã sửa thông tin → cập nhật tại chỗ
+     */
+    static void onMemberUpdated(HouseholdMember member) {
+        discardOnRollback();
+        synchronized (INDEXES) {
+            generation++;
+            for (BuildingIndex index : INDEXES.values()) {
+                index.update(THANH_VIEN, member.getId(), vm -> {
+                    vm.setFullName(member.getFullName());
+                    vm.setGender(member.getGender());
+                    vm.setDob(member.getDob());
+                    vm.setIdentityCard(member.getIdentityCard());
+                    vm.setPhone(member.getPhone());
+                    vm.setRelationship(member.getRelationship());
+                });
+            }
+        }
+    }
+
+    static void onMemberRemoved(Long memberId) {
+        discardOnRollback();
+        synchronized (INDEXES) {
+            generation++;
+            for (BuildingIndex index : INDEXES.values()) {
+                index.update(THANH_VIEN, memberId, null);
+            }
+        }
+    }
+
+    /**
+     * Hợp đồng (hoặc danh sách thành viên của nó) đã đổi → bỏ chỉ mục của tòa
+     * chứa hợp đồng, tạo lại ở lần tìm sau
+     */
+    static void onContractChanged(Long contractId) {
+        discardOnRollback();
+        synchronized (INDEXES) {
+            generation++;
+            INDEXES.values().removeIf(index -> index.containsContract(contractId));
+        }
+    }
+
+    /**
+     * Bỏ toàn bộ chỉ mục (vd: thêm hợp đồng mới - chưa biết thuộc tòa nào)
+     */
+    static void invalidateAll() {
+        synchronized (INDEXES) {
+            generation++;
+            INDEXES.clear();
+        }
+    }
+
+    /**
+     * Ghi trong UnitOfWork: chỉ mục đã nhận thay đổi chưa commit, unit rollback
+     * thì bỏ toàn bộ chỉ mục
+     */
+    private static void discardOnRollback() {
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.onCompletion(committed -> {
+                if (!committed) {
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    /**
+     * 1 người có thể có nhiều dòng (chủ hộ của nhiều hợp đồng) → khóa gồm cả
+     * hợp đồng
+     */
+    private static String key(ResidentViewModel vm) {
+        return vm.getSourceType() + ":" + vm.getId() + "@" + vm.getContractId();
+    }
+
+    /**
+     * Các trigram (liền nhau) của chuỗi đã chuẩn hóa
+     */
+    private static void addGrams(String text, Set<String> grams) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+    }
+
+    // =====================================================================
+    // CHỈ MỤC CỦA 1 TÒA
+    // =====================================================================
+
+    private interface Mutator {
+
+        void apply(ResidentViewModel vm);
+    }
+
+    private static final class Doc {
+
+        final ResidentViewModel vm;
+        final String name;
+        final String phone;
+        final String identityCard;
+        final Set<String> grams = new HashSet<>();
+
+        Doc(ResidentViewModel vm) {
+            this.vm = vm;
+            this.name = TextNormalizer.fold(vm.getFullName());
+            this.phone = TextNormalizer.fold(vm.getPhone());
+            this.identityCard = TextNormalizer.fold(vm.getIdentityCard());
+            addGrams(name, grams);
+            addGrams(phone, grams);
+            addGrams(identityCard, grams);
+        }
+
+        /**
+         * 0 = không khớp
+         */
+        int score(String query) {
+            return Math.max(fieldScore(name, query, 100),
+                    Math.max(fieldScore(phone, query, 90), fieldScore(identityCard, query, 90)));
+        }
+
+        private static int fieldScore(String field, String query, int base) {
+            if (field.isEmpty()) {
+                return 0;
+            }
+            if (field.equals(query)) {
+                return base;
+            }
+            if (field.startsWith(query)) {
+                return base - 20;
+            }
+            if (field.contains(" " + query)) {
+                return base - 40; // đầu 1 từ (vd: tên "van an" khi gõ "an")
+            }
+            return field.contains(query) ? base - 60 : 0;
+        }
+    }
+
+    private static final class BuildingIndex {
+
+        private final long createdAt = System.currentTimeMillis();
+        // Giữ thứ tự của query gốc (kết quả khi từ khóa rỗng)
+        private final Map<String, Doc> docs = new LinkedHashMap<>();
+        private final Map<String, Set<Doc>> postings = new HashMap<>();
+        private final Map<Long, Integer> contractRefs = new HashMap<>();
+
+        BuildingIndex(List<ResidentViewModel> rows) {
+            for (ResidentViewModel vm : rows) {
+                add(vm);
+            }
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > MAX_AGE_MILLIS;
+        }
+
+        synchronized boolean containsContract(Long contractId) {
+            return contractRefs.containsKey(contractId);
+        }
+
+        private void add(ResidentViewModel vm) {
+            Doc doc = new Doc(vm);
+            Doc previous = docs.put(key(vm), doc);
+            if (previous != null) {
+                unindex(previous);
+            }
+            for (String gram : doc.grams) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(doc);
+            }
+            contractRefs.merge(vm.getContractId(), 1, Integer::sum);
+        }
+
+        private void unindex(Doc doc) {
+            for (String gram : doc.grams) {
+                Set<Doc> list = postings.get(gram);
+                if (list != null) {
+                    list.remove(doc);
+                    if (list.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+            contractRefs.computeIfPresent(doc.vm.getContractId(), (id, count) -> count > 1 ? count - 1 : null);
+        }
+
+        /**
+         * Sửa bản sao các dòng của 1 người rồi đánh chỉ mục lại - đối tượng đã
+         * trả cho màn hình trước đó không bị đổi ngầm.
+         *
+         * @param mutator null = xóa các dòng đó khỏi chỉ mục
+         */
+        synchronized void update(String sourceType, Long id, Mutator mutator) {
+            List<Doc> affected = new ArrayList<>();
+            for (Doc doc : docs.values()) {
+                if (sourceType.equals(doc.vm.getSourceType()) && id.equals(doc.vm.getId())) {
+                    affected.add(doc);
+                }
+            }
+            for (Doc doc : affected) {
+                if (mutator == null) {
+                    docs.remove(key(doc.vm));
+                    unindex(doc);
+                } else {
+                    ResidentViewModel copy = copyOf(doc.vm);
+                    mutator.apply(copy);
+                    add(copy);
+                }
+            }
+        }
+
+        synchronized List<ResidentViewModel> search(String query) {
+            List<ResidentViewModel> result = new ArrayList<>();
+            if (query.isEmpty()) {
+                for (Doc doc : docs.values()) {
+                    result.add(doc.vm);
+                }
+                return result;
+            }
+
+            Iterable<Doc> candidates = query.length() >= GRAM ? candidatesFor(query) : docs.values();
+            List<Doc> matched = new ArrayList<>();
+            Map<Doc, Integer> scores = new HashMap<>();
+            for (Doc doc : candidates) {
+                int score = doc.score(query);
+                if (score > 0) {
+                    matched.add(doc);
+                    scores.put(doc, score);
+                }
+            }
+            matched.sort(Comparator.<Doc>comparingInt(scores::get).reversed()
+                    .thenComparing(doc -> doc.name));
+            for (Doc doc : matched) {
+                result.add(doc.vm);
+            }
+            return result;
+        }
+
+        /**
+         * Giao các posting list của mọi trigram trong từ khóa (bắt đầu từ list
+         * ngắn nhất)
+         */
+        private Set<Doc> candidatesFor(String query) {
+            Set<String> grams = new HashSet<>();
+            addGrams(query, grams);
+            List<Set<Doc>> lists = new ArrayList<>();
+            for (String gram : grams) {
+                Set<Doc> list = postings.get(gram);
+                if (list == null) {
+                    return new HashSet<>();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Doc> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+    }
+
+    private static ResidentViewModel copyOf(ResidentViewModel source) {
+        ResidentViewModel vm = new ResidentViewModel();
+        vm.setId(source.getId());
+        vm.setSourceType(source.getSourceType());
+        vm.setFullName(source.getFullName());
+        vm.setGender(source.getGender());
+        vm.setDob(source.getDob());
+        vm.setIdentityCard(source.getIdentityCard());
+        vm.setPhone(source.getPhone());
+        vm.setRole(source.getRole());
+        vm.setRelationship(source.getRelationship());
+        vm.setContractId(source.getContractId());
+        vm.setApartmentId(source.getApartmentId());
+        vm.setApartmentNumber(source.getApartmentNumber());
+        vm.setFloorName(source.getFloorName());
+        vm.setBuildingName(source.getBuildingName());
+        vm.setBuildingId(source.getBuildingId());
+        vm.setResidencyStatus(source.getResidencyStatus());
+        vm.setContractStatus(source.getContractStatus());
+        vm.setEmail(source.getEmail());
+        vm.setHometown(source.getHometown());
+        return vm;
+    }
+}
@@ -17,11 +17,20 @@ public class ResidentViewDAO {
      * Lấy TẤT CẢ cư dân (Chủ hộ + Thành viên) theo Building ID
      *
      * Query logic: 1. JOIN: contracts → apartments → floors → buildings 2.
-     * UNION: - Chủ hộ: residents + contracts (WHERE contracts.status =
-     * 'ACTIVE') - Thành viên: household_members + contracts (WHERE is_active =
+     * UNION: - Chủ hộ: residents + contracts (đang ở: contracts.status IN
+     * ('ACTIVE', 'EXPIRED')) - Thành viên: household_members + contracts (WHERE is_active =
      * 1)
      */
     public List<ResidentViewModel> getResidentsByBuilding(Long buildingId) {
+        try {
+            return queryResidentsByBuilding(buildingId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    private List<ResidentViewModel> queryResidentsByBuilding(Long buildingId) throws SQLException {
         List<ResidentViewModel> result = new ArrayList<>();
 
         // Query Chủ hộ
@@ -78,87 +87,23 @@ public class ResidentViewDAO {
                     result.add(mapToViewModel(rs));
                 }
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
 
         return result;
     }
 
     /**
-     * Tìm kiếm cư dân theo keyword (Name, Phone, ID Card)
+     * Tìm kiếm cư dân theo keyword (Name, Phone, ID Card) - không phân biệt
+     * dấu, kết quả đã xếp hạng. Tra trên chỉ mục trong bộ nhớ của tòa
+     * (ResidentSearchIndex), chỉ query DB khi tòa chưa có chỉ mục.
      */
     public List<ResidentViewModel> searchResidents(Long buildingId, String keyword) {
-        List<ResidentViewModel> result = new ArrayList<>();
-        String likePattern = "%" + keyword + "%";
-
-        String sqlResidents
-                = "SELECT "
-                + "  'CHU_HO' as source_type, "
-                + "  r.id, r.full_name, r.gender, r.dob, r.identity_card, r.phone, r.email, r.hometown, "
-                + "  'Chủ hộ' as role, 'Chủ hộ' as relationship, "
-                + "  c.id as contract_id, c.status as contract_status, "
-                + "  a.id as apartment_id, a.room_number, "
-                + "  f.name as floor_name, b.name as building_name, b.id as building_id "
-                + "FROM residents r "
-                + "INNER JOIN contracts c ON r.id = c.resident_id "
-                + "INNER JOIN apartments a ON c.apartment_id = a.id "
-                + "INNER JOIN floors f ON a.floor_id = f.id "
-                + "INNER JOIN buildings b ON f.building_id = b.id "
-                + "WHERE b.id = ? AND r.is_deleted = 0 AND c.is_deleted = 0 "
-                + "  AND (r.full_name LIKE ? OR r.phone LIKE ? OR r.identity_card LIKE ?)";
-
-        String sqlMembers
-                = "SELECT "
-                + "  'THANH_VIEN' as source_type, "
-                + "  hm.id, hm.full_name, hm.gender, hm.dob, hm.identity_card, hm.phone, "
-                + "  NULL as email, NULL as hometown, "
-                + "  'Thành viên' as role, hm.relationship, "
-                + "  c.id as contract_id, c.status as contract_status, "
-                + "  a.id as apartment_id, a.room_number, "
-                + "  f.name as floor_name, b.name as building_name, b.id as building_id "
-                + "FROM household_members hm "
-                + "INNER JOIN contracts c ON hm.contract_id = c.id "
-                + "INNER JOIN apartments a ON c.apartment_id = a.id "
-                + "INNER JOIN floors f ON a.floor_id = f.id "
-                + "INNER JOIN buildings b ON f.building_id = b.id "
-                + "WHERE b.id = ? AND c.is_deleted = 0 "
-                + "  AND (hm.full_name LIKE ? OR hm.phone LIKE ? OR hm.identity_card LIKE ?)";
-
-        try (Connection conn = Db_connection.getConnection()) {
-
-            // Search Chủ hộ
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlResidents)) {
-                pstmt.setLong(1, buildingId);
-                pstmt.setString(2, likePattern);
-                pstmt.setString(3, likePattern);
-                pstmt.setString(4, likePattern);
-                ResultSet rs = pstmt.executeQuery();
-
-                while (rs.next()) {
-                    result.add(mapToViewModel(rs));
-                }
-            }
-
-            // Search Thành viên
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlMembers)) {
-                pstmt.setLong(1, buildingId);
-                pstmt.setString(2, likePattern);
-                pstmt.setString(3, likePattern);
-                pstmt.setString(4, likePattern);
-                ResultSet rs = pstmt.executeQuery();
-
-                while (rs.next()) {
-                    result.add(mapToViewModel(rs));
-                }
-            }
-
+        try {
+            return ResidentSearchIndex.search(buildingId, keyword, () -> queryResidentsByBuilding(buildingId));
         } catch (SQLException e) {
             e.printStackTrace();
         }
-
-        return result;
+        return new ArrayList<>();
     }
 
     /**
@@ -201,11 +146,11 @@ public class ResidentViewDAO {
 
         if ("CHU_HO".equals(vm.getSourceType())) {
             // Chủ hộ: status = contract status
-            vm.setResidencyStatus("ACTIVE".equals(contractStatus) ? "Đang ở" : "Đã chuyển đi");
+            vm.setResidencyStatus(Contract.isOccupyingStatus(contractStatus) ? "Đang ở" : "Đã chuyển đi");
         } else {
             // Thành viên: Cần check thêm is_active (nhưng đã filter trong query rồi)
             // Nếu vào được đây nghĩa là member đang active
-            vm.setResidencyStatus("ACTIVE".equals(contractStatus) ? "Đang ở" : "Đã chuyển đi");
+            vm.setResidencyStatus(Contract.isOccupyingStatus(contractStatus) ? "Đang ở" : "Đã chuyển đi");
         }
 
         return vm;
@@ -0,0 +1,390 @@
+package dao;
+
+import connection.Db_connection;
+import connection.UnitOfWork;
+import model.MonthlyRevenueSummary;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RevenueRollupDAO - Bảng tổng hợp doanh thu theo tòa nhà × tháng
+ * (revenue_monthly_rollup).
+ *
+ * - InvoiceDAO (và BillingRunDAO) cập nhật bảng trong cùng transaction với mỗi lần
+ * insert/update/delete hóa đơn (trừ số liệu cũ, cộng số liệu mới)
+ * - Biểu đồ/báo cáo theo năm chỉ đọc 12 dòng thay vì quét bảng invoices 12 lần
+ * - ContractDAO.deleteContract trừ hóa đơn của hợp đồng bị xóa
+ * - rebuild() dựng lại toàn bộ từ bảng invoices (dùng khi dữ liệu bị lệch)
+ * - Lần đọc đầu tiên: bảng rỗng nhưng đã có hóa đơn (DB cũ, trước khi có bảng
+ * tổng hợp) thì tự dựng lại 1 lần
+ *
+ * Hai cách tính tháng:
+ * - invoice/paid/unpaid/canceled: theo kỳ hóa đơn (invoices.month/year)
+ * - collected: theo ngày thanh toán (invoices.payment_date)
+ */
+public class RevenueRollupDAO {
+
+    private static final String UPSERT_SQL = "INSERT INTO revenue_monthly_rollup "
+            + "(building_id, year, month, invoice_count, paid_count, paid_amount, unpaid_count, unpaid_amount, "
+            + "canceled_count, collected_count, collected_amount) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE "
+            + "invoice_count = invoice_count + VALUES(invoice_count), "
+            + "paid_count = paid_count + VALUES(paid_count), "
+            + "paid_amount = paid_amount + VALUES(paid_amount), "
+            + "unpaid_count = unpaid_count + VALUES(unpaid_count), "
+            + "unpaid_amount = unpaid_amount + VALUES(unpaid_amount), "
+            + "canceled_count = canceled_count + VALUES(canceled_count), "
+            + "collected_count = collected_count + VALUES(collected_count), "
+            + "collected_amount = collected_amount + VALUES(collected_amount)";
+
+    // =============================================================
+    // PHẦN 1: CẬP NHẬT TĂNG DẦN (GỌI TỪ InvoiceDAO)
+    // =============================================================
+
+    /**
+     * Các trường của 1 hóa đơn ảnh hưởng tới bảng tổng hợp
+     */
+    static final class InvoiceFacts {
+
+        final long buildingId;
+        final int month;
+        final int year;
+        final String status;
+        final BigDecimal totalAmount;
+        final LocalDate paymentDate;
+        final boolean deleted;
+
+        InvoiceFacts(long buildingId, int month, int year, String status,
+                BigDecimal totalAmount, LocalDate paymentDate, boolean deleted) {
+            this.buildingId = buildingId;
+            this.month = month;
+            this.year = year;
+            this.status = status;
+            this.totalAmount = totalAmount != null ? totalAmount : BigDecimal.ZERO;
+            this.paymentDate = paymentDate;
+            this.deleted = deleted;
+        }
+    }
+
+    /**
+     * Đọc (và khóa dòng) hóa đơn cùng tòa nhà của nó, dùng trong transaction
+     * của InvoiceDAO.
+     *
+     * @return null nếu không tìm thấy hóa đơn
+     */
+    InvoiceFacts loadFacts(Connection conn, long invoiceId) throws SQLException {
+        // Hóa đơn của hợp đồng đã xóa coi như đã xóa (báo cáo không tính)
+        String sql = "SELECT i.month, i.year, i.status, i.total_amount, i.payment_date, "
+                + "(i.is_deleted = 1 OR c.is_deleted = 1) AS is_deleted, f.building_id "
+                + "FROM invoices i "
+                + "JOIN contracts c ON i.contract_id = c.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE i.id = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Timestamp paid = rs.getTimestamp("payment_date");
+                return new InvoiceFacts(
+                        rs.getLong("building_id"),
+                        rs.getInt("month"),
+                        rs.getInt("year"),
+                        rs.getString("status"),
+                        rs.getBigDecimal("total_amount"),
+                        paid != null ? paid.toLocalDateTime().toLocalDate() : null,
+                        rs.getBoolean("is_deleted"));
+            }
+        }
+    }
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) 1 hóa đơn vào bảng tổng hợp
+     */
+    void apply(Connection conn, InvoiceFacts facts, int sign) throws SQLException {
+        if (facts == null || facts.deleted) {
+            return; // Hóa đơn đã xóa không được tính
+        }
+        BigDecimal amount = facts.totalAmount.multiply(BigDecimal.valueOf(sign));
+        boolean paid = "PAID".equals(facts.status);
+        boolean canceled = "CANCELED".equals(facts.status);
+
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            // Dòng theo kỳ hóa đơn
+            bindRow(ps, facts.buildingId, facts.year, facts.month,
+                    sign,
+                    paid ? sign : 0, paid ? amount : BigDecimal.ZERO,
+                    !paid && !canceled ? sign : 0, !paid && !canceled ? amount : BigDecimal.ZERO,
+                    canceled ? sign : 0,
+                    0, BigDecimal.ZERO);
+            ps.addBatch();
+
+            // Dòng theo tháng thanh toán
+            if (paid && facts.paymentDate != null) {
+                bindRow(ps, facts.buildingId, facts.paymentDate.getYear(), facts.paymentDate.getMonthValue(),
+                        0, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0,
+                        sign, amount);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Trừ mọi hóa đơn của 1 hợp đồng khỏi bảng tổng hợp. ContractDAO gọi trong
+     * transaction xóa hợp đồng, TRƯỚC khi đặt contracts.is_deleted = 1.
+     */
+    void subtractContract(Connection conn, long contractId) throws SQLException {
+        List<Long> invoiceIds = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id FROM invoices WHERE contract_id = ? AND is_deleted = 0")) {
+            ps.setLong(1, contractId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    invoiceIds.add(rs.getLong(1));
+                }
+            }
+        }
+        for (Long invoiceId : invoiceIds) {
+            apply(conn, loadFacts(conn, invoiceId), -1);
+        }
+    }
+
+    /**
+     * Cộng 1 lô hóa đơn UNPAID mới cùng tòa + kỳ (lập hóa đơn hàng loạt) bằng
+     * 1 câu upsert thay vì apply() cho từng hóa đơn
+     */
+    void addUnpaid(Connection conn, long buildingId, int year, int month, int count, BigDecimal amount)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            bindRow(ps, buildingId, year, month,
+                    count, 0, BigDecimal.ZERO, count, amount, 0, 0, BigDecimal.ZERO);
+            ps.executeUpdate();
+        }
+    }
+
+    private void bindRow(PreparedStatement ps, long buildingId, int year, int month,
+            int invoiceCount, int paidCount, BigDecimal paidAmount, int unpaidCount, BigDecimal unpaidAmount,
+            int canceledCount, int collectedCount, BigDecimal collectedAmount) throws SQLException {
+        ps.setLong(1, buildingId);
+        ps.setInt(2, year);
+        ps.setInt(3, month);
+        ps.setInt(4, invoiceCount);
+        ps.setInt(5, paidCount);
+        ps.setBigDecimal(6, paidAmount);
+        ps.setInt(7, unpaidCount);
+        ps.setBigDecimal(8, unpaidAmount);
+        ps.setInt(9, canceledCount);
+        ps.setInt(10, collectedCount);
+        ps.setBigDecimal(11, collectedAmount);
+    }
+
+    // =============================================================
+    // PHẦN 2: DỰNG LẠI TOÀN BỘ
+    // =============================================================
+
+    /**
+     * Xóa và tính lại toàn bộ bảng tổng hợp từ invoices (1 transaction)
+     *
+     * @return số dòng tổng hợp sau khi dựng lại, -1 nếu lỗi
+     */
+    public int rebuild() {
+        String billingSql = "INSERT INTO revenue_monthly_rollup "
+                + "(building_id, year, month, invoice_count, paid_count, paid_amount, unpaid_count, unpaid_amount, canceled_count) "
+                + "SELECT f.building_id, i.year, i.month, COUNT(*), "
+                + "SUM(i.status = 'PAID'), COALESCE(SUM(CASE WHEN i.status = 'PAID' THEN i.total_amount END), 0), "
+                + "SUM(i.status <> 'PAID' AND i.status <> 'CANCELED'), "
+                + "COALESCE(SUM(CASE WHEN i.status <> 'PAID' AND i.status <> 'CANCELED' THEN i.total_amount END), 0), "
+                + "SUM(i.status = 'CANCELED') "
+                + "FROM invoices i "
+                + "JOIN contracts c ON i.contract_id = c.id AND c.is_deleted = 0 "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE i.is_deleted = 0 "
+                + "GROUP BY f.building_id, i.year, i.month";
+
+        String collectedSql = "INSERT INTO revenue_monthly_rollup (building_id, year, month, collected_count, collected_amount) "
+                + "SELECT f.building_id, YEAR(i.payment_date), MONTH(i.payment_date), COUNT(*), COALESCE(SUM(i.total_amount), 0) "
+                + "FROM invoices i "
+                + "JOIN contracts c ON i.contract_id = c.id AND c.is_deleted = 0 "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE i.is_deleted = 0 AND i.status = 'PAID' AND i.payment_date IS NOT NULL "
+                + "GROUP BY f.building_id, YEAR(i.payment_date), MONTH(i.payment_date) "
+                + "ON DUPLICATE KEY UPDATE collected_count = VALUES(collected_count), "
+                + "collected_amount = VALUES(collected_amount)";
+
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("DELETE FROM revenue_monthly_rollup");
+                st.executeUpdate(billingSql);
+                st.executeUpdate(collectedSql);
+            }
+
+            int rows = 0;
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM revenue_monthly_rollup")) {
+                if (rs.next()) {
+                    rows = rs.getInt(1);
+                }
+            }
+
+            conn.commit();
+            return rows;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Đã kiểm tra bảng tổng hợp rỗng trong phiên chạy này chưa
+    private static volatile boolean populatedChecked = false;
+
+    /**
+     * Bảng tổng hợp chỉ được cập nhật bởi các lần ghi hóa đơn từ ứng dụng. Với
+     * DB có sẵn hóa đơn từ trước, bảng rỗng → dựng lại từ invoices (chỉ kiểm
+     * tra 1 lần mỗi phiên chạy, lỗi thì thử lại ở lần đọc sau).
+     */
+    private static synchronized void ensurePopulated(RevenueRollupDAO dao) {
+        // rebuild() tự commit: không chạy giữa transaction của UnitOfWork
+        if (populatedChecked || UnitOfWork.isActive()) {
+            return;
+        }
+        String sql = "SELECT EXISTS(SELECT 1 FROM revenue_monthly_rollup), "
+                + "EXISTS(SELECT 1 FROM invoices WHERE is_deleted = 0)";
+        boolean needRebuild;
+        try (Connection conn = Db_connection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            needRebuild = rs.next() && !rs.getBoolean(1) && rs.getBoolean(2);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (needRebuild) {
+            System.out.println("⚙️ revenue_monthly_rollup rỗng - đang dựng lại từ bảng invoices...");
+            if (dao.rebuild() < 0) {
+                return;
+            }
+        }
+        populatedChecked = true;
+    }
+
+    // =============================================================
+    // PHẦN 3: ĐỌC SỐ LIỆU
+    // =============================================================
+
+    /**
+     * Số liệu 12 tháng của 1 năm, cộng dồn trên các tòa nhà.
+     *
+     * @param buildingIds null = tất cả tòa nhà, rỗng = không có tòa nào
+     * @return map tháng (1..12) → số liệu, luôn đủ 12 tháng
+     */
+    public Map<Integer, MonthlyRevenueSummary> getYearSummary(int year, Collection<Long> buildingIds) {
+        Map<Integer, MonthlyRevenueSummary> result = new LinkedHashMap<>();
+        for (int m = 1; m <= 12; m++) {
+            result.put(m, MonthlyRevenueSummary.empty(year, m));
+        }
+        if (buildingIds != null && buildingIds.isEmpty()) {
+            return result;
+        }
+        ensurePopulated(this);
+
+        List<Long> ids = buildingIds != null ? new ArrayList<>(buildingIds) : null;
+        String sql = "SELECT month, SUM(invoice_count) AS invoice_count, "
+                + "SUM(paid_count) AS paid_count, SUM(paid_amount) AS paid_amount, "
+                + "SUM(unpaid_count) AS unpaid_count, SUM(unpaid_amount) AS unpaid_amount, "
+                + "SUM(canceled_count) AS canceled_count, "
+                + "SUM(collected_count) AS collected_count, SUM(collected_amount) AS collected_amount "
+                + "FROM revenue_monthly_rollup WHERE year = ?"
+                + (ids != null ? " AND building_id IN (" + SqlUtils.placeholders(ids.size()) + ")" : "")
+                + " GROUP BY month";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, year);
+            if (ids != null) {
+                for (int i = 0; i < ids.size(); i++) {
+                    ps.setLong(i + 2, ids.get(i));
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int month = rs.getInt("month");
+                    result.put(month, new MonthlyRevenueSummary(year, month,
+                            rs.getInt("invoice_count"),
+                            rs.getInt("paid_count"),
+                            rs.getBigDecimal("paid_amount"),
+                            rs.getInt("unpaid_count"),
+                            rs.getBigDecimal("unpaid_amount"),
+                            rs.getInt("canceled_count"),
+                            rs.getInt("collected_count"),
+                            rs.getBigDecimal("collected_amount")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Doanh thu đã thu (theo ngày thanh toán) của 1 tháng
+     *
+     * @param buildingId null = tất cả tòa nhà
+     */
+    public BigDecimal getCollectedRevenue(int month, int year, Long buildingId) {
+        ensurePopulated(this);
+        String sql = "SELECT SUM(collected_amount) FROM revenue_monthly_rollup WHERE year = ? AND month = ?";
+        if (buildingId != null) {
+            sql += " AND building_id = ?";
+        }
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, year);
+            ps.setInt(2, month);
+            if (buildingId != null) {
+                ps.setLong(3, buildingId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getBigDecimal(1) != null) {
+                    return rs.getBigDecimal(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return BigDecimal.ZERO;
+    }
+}
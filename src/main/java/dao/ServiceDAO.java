@@ -4,6 +4,7 @@ import model.Service;
 import connection.Db_connection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -11,6 +12,22 @@ import java.util.List;
  */
 public class ServiceDAO {
 
+    // --- CACHE: bảng giá dịch vụ ít thay đổi, được đọc cho từng dòng hóa đơn ---
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000L;
+    private static final EntityCache<String, List<Service>> LIST_CACHE
+            = new EntityCache<>("services.list", 10, CACHE_TTL_MS, EntityCache.listCopier(Service::new));
+    private static final EntityCache<Long, Service> BY_ID_CACHE
+            = new EntityCache<>("services.byId", 500, CACHE_TTL_MS, Service::new);
+
+    /**
+     * Xóa cache dịch vụ (gọi sau khi ghi vào bảng services)
+     */
+    public static void invalidateCache() {
+        LIST_CACHE.invalidateAll();
+        BY_ID_CACHE.invalidateAll();
+        DataVersion.bump(DataVersion.Domain.SERVICE);
+    }
+
     // --- HELPER: Map ResultSet to Service ---
     private Service mapResultSetToService(ResultSet rs) throws SQLException {
         Service service = new Service();
@@ -23,56 +40,63 @@ public class ServiceDAO {
         return service;
     }
 
+    private static final String SQL_ALL = "SELECT * FROM services WHERE is_deleted = 0 ORDER BY service_name";
+    private static final String SQL_MANDATORY = "SELECT * FROM services WHERE is_mandatory = 1 AND is_deleted = 0 ORDER BY service_name";
+    private static final String SQL_OPTIONAL = "SELECT * FROM services WHERE is_mandatory = 0 AND is_deleted = 0 ORDER BY service_name";
+
     // --- GET ALL SERVICES ---
     public List<Service> getAllServices() {
-        List<Service> services = new ArrayList<>();
-        String sql = "SELECT * FROM services WHERE is_deleted = 0 ORDER BY service_name";
-
-        try (Connection conn = Db_connection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                services.add(mapResultSetToService(rs));
-            }
+        try {
+            return new ArrayList<>(LIST_CACHE.get("ALL", () -> queryServices(SQL_ALL)));
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return services;
+        return new ArrayList<>();
     }
 
     // --- GET MANDATORY SERVICES ---
     public List<Service> getMandatoryServices() {
-        List<Service> services = new ArrayList<>();
-        String sql = "SELECT * FROM services WHERE is_mandatory = 1 AND is_deleted = 0 ORDER BY service_name";
-
-        try (Connection conn = Db_connection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                services.add(mapResultSetToService(rs));
-            }
+        try {
+            return new ArrayList<>(LIST_CACHE.get("MANDATORY", () -> queryServices(SQL_MANDATORY)));
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return services;
+        return new ArrayList<>();
     }
 
     // --- GET OPTIONAL SERVICES ---
     public List<Service> getOptionalServices() {
+        try {
+            return new ArrayList<>(LIST_CACHE.get("OPTIONAL", () -> queryServices(SQL_OPTIONAL)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    private List<Service> queryServices(String sql) throws SQLException {
         List<Service> services = new ArrayList<>();
-        String sql = "SELECT * FROM services WHERE is_mandatory = 0 AND is_deleted = 0 ORDER BY service_name";
 
         try (Connection conn = Db_connection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
                 services.add(mapResultSetToService(rs));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        return services;
+        return Collections.unmodifiableList(services);
     }
 
     // --- GET SERVICE BY ID ---
     public Service getServiceById(Long id) {
+        try {
+            return BY_ID_CACHE.get(id, () -> queryServiceById(id));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private Service queryServiceById(Long id) throws SQLException {
         String sql = "SELECT * FROM services WHERE id = ? AND is_deleted = 0";
 
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -83,8 +107,6 @@ public class ServiceDAO {
                     return mapResultSetToService(rs);
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return null;
     }
@@ -128,6 +150,7 @@ public class ServiceDAO {
                         service.setId(generatedKeys.getLong(1));
                     }
                 }
+                invalidateCache();
                 return true;
             }
 
@@ -151,7 +174,9 @@ public class ServiceDAO {
             pstmt.setBoolean(4, service.isMandatory());
             pstmt.setLong(5, service.getId());
 
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            invalidateCache();
+            return updated;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -166,7 +191,9 @@ public class ServiceDAO {
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            invalidateCache();
+            return deleted;
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -0,0 +1,313 @@
+package dao;
+
+import connection.Db_connection;
+import model.ServiceUsage;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ServiceUsageDAO - Chỉ số tiêu thụ dịch vụ (điện, nước...) theo hợp đồng ×
+ * dịch vụ × kỳ (service_usage, unique contract_id + service_id + year + month).
+ *
+ * - upsertBatch(): ghi nhiều chỉ số trong 1 transaction bằng INSERT nhiều dòng
+ * ... ON DUPLICATE KEY UPDATE (nhập lại cùng kỳ = sửa, không sinh dòng trùng)
+ * - getPreviousIndexes(): chỉ số cuối của kỳ trước cho cả tòa nhà trong 1 query
+ * (làm chỉ số cũ khi nhập kỳ mới)
+ * - BillingRunDAO dùng actual_usage của kỳ làm số lượng khi lập hóa đơn
+ */
+public class ServiceUsageDAO {
+
+    /**
+     * Số dòng trong 1 câu INSERT nhiều dòng
+     */
+    public static final int UPSERT_CHUNK_SIZE = 500;
+
+    private static final String UPSERT_PREFIX = "INSERT INTO service_usage "
+            + "(contract_id, service_id, month, year, old_index, new_index, actual_usage) VALUES ";
+    private static final String UPSERT_SUFFIX = " ON DUPLICATE KEY UPDATE "
+            + "old_index = VALUES(old_index), new_index = VALUES(new_index), actual_usage = VALUES(actual_usage)";
+
+    /**
+     * Khóa của 1 đồng hồ (hợp đồng × dịch vụ) trong các map trả về
+     */
+    public static String meterKey(Long contractId, Long serviceId) {
+        return contractId + ":" + serviceId;
+    }
+
+    // =============================================================
+    // PHẦN 1: ĐỌC
+    // =============================================================
+
+    public List<ServiceUsage> getUsageByContract(Long contractId) {
+        List<ServiceUsage> usages = new ArrayList<>();
+        String sql = "SELECT su.*, s.service_name FROM service_usage su "
+                + "JOIN services s ON su.service_id = s.id "
+                + "WHERE su.contract_id = ? "
+                + "ORDER BY su.year DESC, su.month DESC, s.service_name";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, contractId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ServiceUsage usage = mapRow(rs);
+                    usage.setServiceName(rs.getString("service_name"));
+                    usages.add(usage);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return usages;
+    }
+
+    /**
+     * @return null nếu kỳ đó chưa có chỉ số
+     */
+    public ServiceUsage getUsage(Long contractId, Long serviceId, int month, int year) {
+        String sql = "SELECT * FROM service_usage "
+                + "WHERE contract_id = ? AND service_id = ? AND year = ? AND month = ?";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, contractId);
+            ps.setLong(2, serviceId);
+            ps.setInt(3, year);
+            ps.setInt(4, month);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapRow(rs);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Chỉ số mới (new_index) của kỳ gần nhất trước kỳ month/year, cho mọi đồng
+     * hồ của tòa nhà - 1 query thay vì 1 query cho mỗi hợp đồng × dịch vụ
+     *
+     * @return meterKey → chỉ số
+     */
+    public Map<String, Double> getPreviousIndexes(Long buildingId, int month, int year) {
+        Map<String, Double> result = new HashMap<>();
+        String sql = "SELECT contract_id, service_id, new_index FROM ("
+                + "SELECT su.contract_id, su.service_id, su.new_index, "
+                + "ROW_NUMBER() OVER (PARTITION BY su.contract_id, su.service_id "
+                + "ORDER BY su.year DESC, su.month DESC) AS rn "
+                + "FROM service_usage su "
+                + "JOIN contracts c ON su.contract_id = c.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE f.building_id = ? AND (su.year < ? OR (su.year = ? AND su.month < ?))"
+                + ") t WHERE rn = 1";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, buildingId);
+            ps.setInt(2, year);
+            ps.setInt(3, year);
+            ps.setInt(4, month);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    double index = rs.getDouble("new_index");
+                    if (!rs.wasNull()) {
+                        result.put(meterKey(rs.getLong("contract_id"), rs.getLong("service_id")), index);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Hợp đồng ACTIVE của từng căn hộ trong tòa (để nhập chỉ số theo số phòng)
+     *
+     * @return số phòng (chữ hoa) → id hợp đồng
+     */
+    public Map<String, Long> getActiveContractsByRoom(Long buildingId) {
+        Map<String, Long> result = new HashMap<>();
+        // Hợp đồng đang ở (ACTIVE/EXPIRED chưa thanh lý). Căn hộ có nhiều hợp
+        // đồng (dữ liệu lệch): lấy hợp đồng mới nhất
+        String sql = "SELECT a.room_number, c.id FROM contracts c "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE f.building_id = ? AND c.is_deleted = 0 AND c.status IN ('ACTIVE', 'EXPIRED') "
+                + "ORDER BY c.created_at, c.id";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, buildingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String room = rs.getString("room_number");
+                    if (room != null) {
+                        result.put(room.trim().toUpperCase(), rs.getLong("id"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Các dịch vụ đã đăng ký của mọi hợp đồng trong tòa
+     *
+     * @return tập meterKey
+     */
+    public Set<String> getContractServiceKeys(Long buildingId) {
+        Set<String> result = new HashSet<>();
+        String sql = "SELECT cs.contract_id, cs.service_id FROM contract_services cs "
+                + "JOIN contracts c ON cs.contract_id = c.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE f.building_id = ? AND c.is_deleted = 0";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, buildingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(meterKey(rs.getLong("contract_id"), rs.getLong("service_id")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    // =============================================================
+    // PHẦN 2: GHI
+    // =============================================================
+
+    /**
+     * Thêm hoặc sửa (cùng hợp đồng + dịch vụ + kỳ) nhiều chỉ số trong 1
+     * transaction. actualUsage null → tính = newIndex - oldIndex.
+     *
+     * @return số chỉ số đã ghi, -1 nếu lỗi (không ghi dòng nào)
+     */
+    public int upsertBatch(List<ServiceUsage> usages) {
+        if (usages.isEmpty()) {
+            return 0;
+        }
+
+        Connection conn = null;
+        try {
+            conn = Db_connection.getConnection();
+            conn.setAutoCommit(false);
+
+            for (int from = 0; from < usages.size(); from += UPSERT_CHUNK_SIZE) {
+                List<ServiceUsage> chunk = usages.subList(from, Math.min(from + UPSERT_CHUNK_SIZE, usages.size()));
+
+                StringBuilder sql = new StringBuilder(UPSERT_PREFIX);
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i > 0 ? ", " : "").append("(?, ?, ?, ?, ?, ?, ?)");
+                }
+                sql.append(UPSERT_SUFFIX);
+
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    for (ServiceUsage usage : chunk) {
+                        ps.setLong(index++, usage.getContractId());
+                        ps.setLong(index++, usage.getServiceId());
+                        ps.setInt(index++, usage.getMonth());
+                        ps.setInt(index++, usage.getYear());
+                        setDouble(ps, index++, usage.getOldIndex());
+                        setDouble(ps, index++, usage.getNewIndex());
+                        setDouble(ps, index++, computeActualUsage(usage));
+                    }
+                    ps.executeUpdate();
+                }
+            }
+
+            conn.commit();
+            return usages.size();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean upsert(ServiceUsage usage) {
+        List<ServiceUsage> single = new ArrayList<>();
+        single.add(usage);
+        return upsertBatch(single) == 1;
+    }
+
+    public boolean deleteUsage(Long id) {
+        String sql = "DELETE FROM service_usage WHERE id = ?";
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static Double computeActualUsage(ServiceUsage usage) {
+        if (usage.getActualUsage() != null) {
+            return usage.getActualUsage();
+        }
+        if (usage.getNewIndex() != null && usage.getOldIndex() != null) {
+            return usage.getNewIndex() - usage.getOldIndex();
+        }
+        return null;
+    }
+
+    private void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    private ServiceUsage mapRow(ResultSet rs) throws SQLException {
+        ServiceUsage usage = new ServiceUsage();
+        usage.setId(rs.getLong("id"));
+        usage.setContractId(rs.getLong("contract_id"));
+        usage.setServiceId(rs.getLong("service_id"));
+        usage.setMonth(rs.getInt("month"));
+        usage.setYear(rs.getInt("year"));
+        usage.setOldIndex(getNullableDouble(rs, "old_index"));
+        usage.setNewIndex(getNullableDouble(rs, "new_index"));
+        usage.setActualUsage(getNullableDouble(rs, "actual_usage"));
+        return usage;
+    }
+
+    private Double getNullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,60 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Helper dùng chung cho các DAO khi cần query theo danh sách ID (IN clause)
+ */
+final class SqlUtils {
+
+    /**
+     * Số phần tử tối đa trong 1 IN (...) để câu SQL không quá dài
+     */
+    static final int IN_CHUNK_SIZE = 500;
+
+    private SqlUtils() {
+    }
+
+    /**
+     * Tạo chuỗi "?,?,?" với n dấu hỏi
+     */
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Bỏ null/trùng lặp rồi chia danh sách ID thành các nhóm tối đa chunkSize
+     */
+    static List<List<Long>> chunkIds(Collection<Long> ids, int chunkSize) {
+        List<List<Long>> chunks = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return chunks;
+        }
+
+        List<Long> current = new ArrayList<>(Math.min(chunkSize, ids.size()));
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (id == null) {
+                continue;
+            }
+            current.add(id);
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+}
@@ -202,6 +202,8 @@ public class UserDAO {
             }
 
             conn.commit();
+            BuildingDAO.invalidateCache(); // user_buildings đã đổi
+            DataVersion.bump(DataVersion.Domain.USER);
             return true;
 
         } catch (SQLException e) {
@@ -266,6 +268,8 @@ public class UserDAO {
             }
 
             conn.commit();
+            BuildingDAO.invalidateCache(); // tên manager / user_buildings đã đổi
+            DataVersion.bump(DataVersion.Domain.USER);
             return true;
 
         } catch (SQLException e) {
@@ -281,7 +285,9 @@ public class UserDAO {
         String sql = "UPDATE users SET is_deleted = 1, is_active = 0 WHERE id = ?";
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, userId);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.USER);
+            return deleted;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -334,6 +340,8 @@ public class UserDAO {
             }
 
             conn.commit();
+            BuildingDAO.invalidateCache(); // user_buildings đã đổi
+            DataVersion.bump(DataVersion.Domain.USER);
             return true;
 
         } catch (SQLException e) {
@@ -535,7 +543,9 @@ public class UserDAO {
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, userId);
-            return pstmt.executeUpdate() > 0;
+            boolean deleted = pstmt.executeUpdate() > 0;
+            DataVersion.bump(DataVersion.Domain.USER);
+            return deleted;
         } catch (SQLException e) {
             e.printStackTrace();
         }
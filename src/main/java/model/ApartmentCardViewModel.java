@@ -0,0 +1,45 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * ViewModel cho lưới thẻ Căn Hộ - 1 item = 1 căn hộ kèm hợp đồng đang hiệu
+ * lực (id, ngày hết hạn, tên cư dân) lấy bằng 1 query LEFT JOIN
+ */
+public class ApartmentCardViewModel {
+
+    private final Apartment apartment;
+
+    // Active contract info (null nếu căn hộ không có HĐ hiệu lực)
+    private final Long activeContractId;
+    private final LocalDate contractEndDate;
+    private final String residentName;
+
+    public ApartmentCardViewModel(Apartment apartment, Long activeContractId,
+            LocalDate contractEndDate, String residentName) {
+        this.apartment = apartment;
+        this.activeContractId = activeContractId;
+        this.contractEndDate = contractEndDate;
+        this.residentName = residentName;
+    }
+
+    public Apartment getApartment() {
+        return apartment;
+    }
+
+    public Long getActiveContractId() {
+        return activeContractId;
+    }
+
+    public LocalDate getContractEndDate() {
+        return contractEndDate;
+    }
+
+    public String getResidentName() {
+        return residentName;
+    }
+
+    public boolean hasActiveContract() {
+        return activeContractId != null;
+    }
+}
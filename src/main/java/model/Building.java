@@ -29,6 +29,18 @@ public class Building {
         this.isDeleted = isDeleted;
     }
 
+    // Bản sao (cache của BuildingDAO trả bản sao để form sửa không đụng bản dùng chung)
+    public Building(Building other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.address = other.address;
+        this.description = other.description;
+        this.managerUserId = other.managerUserId;
+        this.managerName = other.managerName;
+        this.status = other.status;
+        this.isDeleted = other.isDeleted;
+    }
+
     // Getters & Setters
     public Long getId() {
         return id;
@@ -271,10 +271,23 @@ public class Contract {
     }
 
     /**
-     * Check if contract can be terminated
+     * Hợp đồng còn giữ căn hộ (người thuê vẫn đang ở): ACTIVE, hoặc EXPIRED do
+     * ContractLifecycleService chuyển khi quá ngày kết thúc nhưng chưa thanh lý
+     * (căn hộ vẫn RENTED). SQL tương ứng: c.status IN ('ACTIVE', 'EXPIRED')
+     */
+    public static boolean isOccupyingStatus(String status) {
+        return "ACTIVE".equals(status) || "EXPIRED".equals(status);
+    }
+
+    public boolean isOccupying() {
+        return isOccupyingStatus(status) && !isDeleted;
+    }
+
+    /**
+     * Check if contract can be terminated (kể cả đã hết hạn: thanh lý để trả căn hộ)
      */
     public boolean canBeTerminated() {
-        return "ACTIVE".equals(status) && !isDeleted;
+        return isOccupying();
     }
 
     /**
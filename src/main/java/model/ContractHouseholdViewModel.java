@@ -194,7 +194,7 @@ public class ContractHouseholdViewModel {
 
     // Helper methods
     public String getResidencyStatus() {
-        if ("ACTIVE".equalsIgnoreCase(contractStatus)) {
+        if (contractStatus != null && Contract.isOccupyingStatus(contractStatus.toUpperCase())) {
             return "Đang ở";
         }
         return "Đã chuyển đi";
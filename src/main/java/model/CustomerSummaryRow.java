@@ -0,0 +1,63 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * 1 dòng báo cáo theo khách hàng (hợp đồng): số hóa đơn và tổng tiền trong kỳ,
+ * kèm căn hộ, tòa nhà, cư dân (đã GROUP BY trên DB)
+ */
+public class CustomerSummaryRow {
+
+    private final Long contractId;
+    private final String contractNumber;
+    private final String roomNumber;
+    private final String buildingName;
+    private final String residentName;
+    private final int invoiceCount;
+    private final BigDecimal totalAmount;
+
+    public CustomerSummaryRow(Long contractId, String contractNumber, String roomNumber, String buildingName,
+            String residentName, int invoiceCount, BigDecimal totalAmount) {
+        this.contractId = contractId;
+        this.contractNumber = contractNumber;
+        this.roomNumber = roomNumber;
+        this.buildingName = buildingName;
+        this.residentName = residentName;
+        this.invoiceCount = invoiceCount;
+        this.totalAmount = totalAmount != null ? totalAmount : BigDecimal.ZERO;
+    }
+
+    public Long getContractId() {
+        return contractId;
+    }
+
+    public String getContractNumber() {
+        return contractNumber;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public String getBuildingName() {
+        return buildingName;
+    }
+
+    public String getResidentName() {
+        return residentName;
+    }
+
+    public int getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSummaryRow{" + contractNumber + ", " + roomNumber + ", " + residentName
+                + ", invoices=" + invoiceCount + ", amount=" + totalAmount + '}';
+    }
+}
@@ -0,0 +1,112 @@
+package model;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Snapshot (bất biến) toàn bộ số liệu Dashboard cho 1 tập tòa nhà - lấy từ
+ * DashboardStatsDAO, panel chỉ việc render
+ */
+public final class DashboardStats {
+
+    private final int buildingCount;
+    private final int apartmentCount;
+    private final int availableApartmentCount;
+    private final int rentedApartmentCount;
+    private final int residentCount;
+    private final int activeContractCount;
+    private final BigDecimal totalRevenue;
+    private final int paidInvoiceCount;
+    private final int unpaidInvoiceCount;
+    private final Map<YearMonth, BigDecimal> monthlyRevenue;
+
+    public DashboardStats(int buildingCount, int apartmentCount, int availableApartmentCount,
+            int rentedApartmentCount, int residentCount, int activeContractCount,
+            BigDecimal totalRevenue, int paidInvoiceCount, int unpaidInvoiceCount,
+            Map<YearMonth, BigDecimal> monthlyRevenue) {
+        this.buildingCount = buildingCount;
+        this.apartmentCount = apartmentCount;
+        this.availableApartmentCount = availableApartmentCount;
+        this.rentedApartmentCount = rentedApartmentCount;
+        this.residentCount = residentCount;
+        this.activeContractCount = activeContractCount;
+        this.totalRevenue = totalRevenue != null ? totalRevenue : BigDecimal.ZERO;
+        this.paidInvoiceCount = paidInvoiceCount;
+        this.unpaidInvoiceCount = unpaidInvoiceCount;
+        this.monthlyRevenue = monthlyRevenue != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<>(monthlyRevenue))
+                : Collections.emptyMap();
+    }
+
+    /**
+     * Snapshot rỗng (user không quản lý tòa nào hoặc lỗi DB)
+     */
+    public static DashboardStats empty() {
+        return new DashboardStats(0, 0, 0, 0, 0, 0, BigDecimal.ZERO, 0, 0, null);
+    }
+
+    public int getBuildingCount() {
+        return buildingCount;
+    }
+
+    public int getApartmentCount() {
+        return apartmentCount;
+    }
+
+    public int getAvailableApartmentCount() {
+        return availableApartmentCount;
+    }
+
+    public int getRentedApartmentCount() {
+        return rentedApartmentCount;
+    }
+
+    public int getResidentCount() {
+        return residentCount;
+    }
+
+    public int getActiveContractCount() {
+        return activeContractCount;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public int getPaidInvoiceCount() {
+        return paidInvoiceCount;
+    }
+
+    public int getUnpaidInvoiceCount() {
+        return unpaidInvoiceCount;
+    }
+
+    /**
+     * Doanh thu đã thu theo tháng (tháng không có doanh thu → 0)
+     */
+    public BigDecimal getMonthlyRevenue(YearMonth month) {
+        return monthlyRevenue.getOrDefault(month, BigDecimal.ZERO);
+    }
+
+    public Map<YearMonth, BigDecimal> getMonthlyRevenue() {
+        return monthlyRevenue;
+    }
+
+    @Override
+    public String toString() {
+        return "DashboardStats{"
+                + "buildings=" + buildingCount
+                + ", apartments=" + apartmentCount
+                + ", available=" + availableApartmentCount
+                + ", rented=" + rentedApartmentCount
+                + ", residents=" + residentCount
+                + ", activeContracts=" + activeContractCount
+                + ", revenue=" + totalRevenue
+                + ", paid=" + paidInvoiceCount
+                + ", unpaid=" + unpaidInvoiceCount
+                + '}';
+    }
+}
@@ -45,6 +45,18 @@ public class Floor {
         this.isDeleted = false;
     }
 
+    // Bản sao (cache của FloorDAO trả bản sao để form sửa không đụng bản dùng chung)
+    public Floor(Floor other) {
+        this.id = other.id;
+        this.buildingId = other.buildingId;
+        this.floorNumber = other.floorNumber;
+        this.name = other.name;
+        this.description = other.description;
+        this.status = other.status;
+        this.isDeleted = other.isDeleted;
+        this.buildingName = other.buildingName;
+    }
+
     // --- Getters and Setters MỚI ---
     public String getStatus() {
         return status;
@@ -0,0 +1,99 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * Số liệu hóa đơn/doanh thu của 1 tháng (cộng dồn trên các tòa nhà được chọn),
+ * đọc từ bảng revenue_monthly_rollup
+ *
+ * - invoice/paid/unpaid/canceled: theo kỳ hóa đơn (invoices.month/year)
+ * - collected: theo ngày thanh toán (invoices.payment_date)
+ */
+public class MonthlyRevenueSummary {
+
+    private final int year;
+    private final int month;
+    private final int invoiceCount;
+    private final int paidCount;
+    private final BigDecimal paidAmount;
+    private final int unpaidCount;
+    private final BigDecimal unpaidAmount;
+    private final int canceledCount;
+    private final int collectedCount;
+    private final BigDecimal collectedAmount;
+
+    public MonthlyRevenueSummary(int year, int month, int invoiceCount,
+            int paidCount, BigDecimal paidAmount, int unpaidCount, BigDecimal unpaidAmount,
+            int canceledCount, int collectedCount, BigDecimal collectedAmount) {
+        this.year = year;
+        this.month = month;
+        this.invoiceCount = invoiceCount;
+        this.paidCount = paidCount;
+        this.paidAmount = paidAmount != null ? paidAmount : BigDecimal.ZERO;
+        this.unpaidCount = unpaidCount;
+        this.unpaidAmount = unpaidAmount != null ? unpaidAmount : BigDecimal.ZERO;
+        this.canceledCount = canceledCount;
+        this.collectedCount = collectedCount;
+        this.collectedAmount = collectedAmount != null ? collectedAmount : BigDecimal.ZERO;
+    }
+
+    /**
+     * Tháng không có hóa đơn nào
+     */
+    public static MonthlyRevenueSummary empty(int year, int month) {
+        return new MonthlyRevenueSummary(year, month, 0, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO,
+                0, 0, BigDecimal.ZERO);
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public int getPaidCount() {
+        return paidCount;
+    }
+
+    public BigDecimal getPaidAmount() {
+        return paidAmount;
+    }
+
+    public int getUnpaidCount() {
+        return unpaidCount;
+    }
+
+    public BigDecimal getUnpaidAmount() {
+        return unpaidAmount;
+    }
+
+    public int getCanceledCount() {
+        return canceledCount;
+    }
+
+    public int getCollectedCount() {
+        return collectedCount;
+    }
+
+    public BigDecimal getCollectedAmount() {
+        return collectedAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "MonthlyRevenueSummary{"
+                + month + "/" + year
+                + ", invoices=" + invoiceCount
+                + ", paid=" + paidCount + " (" + paidAmount + ")"
+                + ", unpaid=" + unpaidCount + " (" + unpaidAmount + ")"
+                + ", canceled=" + canceledCount
+                + ", collected=" + collectedAmount
+                + '}';
+    }
+}
@@ -0,0 +1,82 @@
+package model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Bộ lọc cho các query báo cáo: tập tòa nhà, khoảng tháng trong năm, trạng
+ * thái hóa đơn
+ */
+public final class ReportFilter {
+
+    private final Set<Long> buildingIds;
+    private final int year;
+    private final int fromMonth;
+    private final int toMonth;
+    private final String status;
+
+    /**
+     * @param buildingIds null = tất cả tòa nhà, rỗng = không có tòa nào
+     * @param status null = mọi trạng thái (PAID / UNPAID / CANCELED)
+     */
+    public ReportFilter(Collection<Long> buildingIds, int year, int fromMonth, int toMonth, String status) {
+        this.buildingIds = buildingIds != null
+                ? Collections.unmodifiableSet(new LinkedHashSet<>(buildingIds)) : null;
+        this.year = year;
+        this.fromMonth = Math.min(fromMonth, toMonth);
+        this.toMonth = Math.max(fromMonth, toMonth);
+        this.status = status;
+    }
+
+    /**
+     * Cùng bộ lọc nhưng đổi trạng thái
+     */
+    public ReportFilter withStatus(String status) {
+        return new ReportFilter(buildingIds, year, fromMonth, toMonth, status);
+    }
+
+    /**
+     * Cùng bộ lọc nhưng đổi khoảng tháng
+     */
+    public ReportFilter withMonths(int fromMonth, int toMonth) {
+        return new ReportFilter(buildingIds, year, fromMonth, toMonth, status);
+    }
+
+    /**
+     * Không có tòa nhà nào được chọn → mọi query trả về rỗng
+     */
+    public boolean isEmptyScope() {
+        return buildingIds != null && buildingIds.isEmpty();
+    }
+
+    public Set<Long> getBuildingIds() {
+        return buildingIds;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getFromMonth() {
+        return fromMonth;
+    }
+
+    public int getToMonth() {
+        return toMonth;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportFilter{"
+                + "buildings=" + (buildingIds != null ? buildingIds : "ALL")
+                + ", " + fromMonth + "-" + toMonth + "/" + year
+                + ", status=" + (status != null ? status : "ALL")
+                + '}';
+    }
+}
@@ -71,7 +71,7 @@ public class ResidentViewModel {
         if (contract != null) {
             vm.setContractId(contract.getId());
             vm.setContractStatus(contract.getStatus());
-            vm.setResidencyStatus("ACTIVE".equals(contract.getStatus()) ? "Đang ở" : "Đã chuyển đi");
+            vm.setResidencyStatus(Contract.isOccupyingStatus(contract.getStatus()) ? "Đang ở" : "Đã chuyển đi");
         }
 
         if (apartment != null) {
@@ -118,8 +118,8 @@ public class ResidentViewModel {
             vm.setContractId(contract.getId());
             vm.setContractStatus(contract.getStatus());
 
-            // Trạng thái cư trú = Contract ACTIVE && Member is_active
-            boolean isLiving = "ACTIVE".equals(contract.getStatus()) && member.isActive();
+            // Trạng thái cư trú = Contract đang ở (ACTIVE/EXPIRED) && Member is_active
+            boolean isLiving = Contract.isOccupyingStatus(contract.getStatus()) && member.isActive();
             vm.setResidencyStatus(isLiving ? "Đang ở" : "Đã chuyển đi");
         }
 
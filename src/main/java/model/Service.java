@@ -38,6 +38,17 @@ public class Service {
         this.isDeleted = false;
     }
 
+    // Bản sao (cache của ServiceDAO trả bản sao để form sửa không đụng bản dùng chung)
+    public Service(Service other) {
+        this.id = other.id;
+        this.serviceName = other.serviceName;
+        this.unitPrice = other.unitPrice;
+        this.unitType = other.unitType;
+        this.description = other.description;
+        this.isMandatory = other.isMandatory;
+        this.isDeleted = other.isDeleted;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,45 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * 1 dòng báo cáo doanh thu theo dịch vụ (đã GROUP BY trên DB)
+ */
+public class ServiceRevenueRow {
+
+    private final String serviceName;
+    private final int invoiceCount;
+    private final double totalQuantity;
+    private final BigDecimal totalAmount;
+
+    public ServiceRevenueRow(String serviceName, int invoiceCount, double totalQuantity, BigDecimal totalAmount) {
+        this.serviceName = serviceName;
+        this.invoiceCount = invoiceCount;
+        this.totalQuantity = totalQuantity;
+        this.totalAmount = totalAmount != null ? totalAmount : BigDecimal.ZERO;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Số hóa đơn có dịch vụ này
+     */
+    public int getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public double getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceRevenueRow{" + serviceName + ", invoices=" + invoiceCount + ", amount=" + totalAmount + '}';
+    }
+}
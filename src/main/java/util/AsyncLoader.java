@@ -0,0 +1,166 @@
+package util;
+
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Tải dữ liệu cho panel ngoài EDT.
+ *
+ * - Mọi panel dùng chung 1 executor giới hạn (không tạo thread tràn lan)
+ * - Mỗi panel giữ 1 AsyncLoader: mỗi lần load() tăng "generation", kết quả của
+ * request cũ (user đổi tòa nhà/bộ lọc nhanh) bị bỏ qua
+ * - Request cũ còn trong hàng đợi bị hủy, không chiếm thread
+ * - Hiện LoadingOverlay trên panel trong lúc chờ
+ *
+ * Cách dùng (gọi từ thread khác sẽ tự chuyển về EDT):
+ * <pre>
+ * loader.load(() -&gt; dao.getAll(), list -&gt; render(list));
+ * </pre>
+ */
+public class AsyncLoader {
+
+    private static final int WORKER_THREADS = 4;
+    private static final int QUEUE_CAPACITY = 100;
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private final LoadingOverlay overlay;
+
+    // Chỉ truy cập trên EDT (mọi method public đều chạy trên EDT)
+    private long generation = 0;
+    private Future<?> current;
+
+    /**
+     * @param owner panel hiển thị overlay khi đang tải (null = không overlay,
+     * dùng cho các phần tải phụ như thống kê)
+     */
+    public AsyncLoader(JComponent owner) {
+        this.overlay = owner != null ? new LoadingOverlay(owner) : null;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "panel-loader-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Chạy task ngoài EDT rồi gọi onSuccess trên EDT (lỗi: in log + báo lỗi
+     * chung)
+     */
+    public <T> void load(Callable<T> task, Consumer<T> onSuccess) {
+        load(task, onSuccess, null);
+    }
+
+    /**
+     * Chạy task ngoài EDT. onSuccess/onError chỉ được gọi (trên EDT) nếu đây
+     * vẫn là request mới nhất của panel.
+     */
+    public <T> void load(Callable<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> load(task, onSuccess, onError));
+            return;
+        }
+        cancelCurrent();
+        final long requestGeneration = ++generation;
+        if (overlay != null) {
+            overlay.showOverlay();
+        }
+
+        try {
+            current = EXECUTOR.submit(() -> {
+                try {
+                    T result = task.call();
+                    SwingUtilities.invokeLater(() -> {
+                        if (finish(requestGeneration)) {
+                            onSuccess.accept(result);
+                        }
+                    });
+                } catch (Exception e) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (finish(requestGeneration)) {
+                            handleError(e, onError);
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finish(requestGeneration);
+            handleError(e, onError);
+        }
+    }
+
+    /**
+     * Hủy request đang chạy (kết quả của nó sẽ bị bỏ qua) và ẩn overlay
+     */
+    public void cancel() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::cancel);
+            return;
+        }
+        cancelCurrent();
+        generation++;
+        if (overlay != null) {
+            overlay.hideOverlay();
+        }
+    }
+
+    /**
+     * Panel đang chờ dữ liệu?
+     */
+    public boolean isLoading() {
+        return current != null && !current.isDone();
+    }
+
+    public void setLoadingMessage(String message) {
+        if (overlay != null) {
+            overlay.setMessage(message);
+        }
+    }
+
+    private void cancelCurrent() {
+        if (current != null) {
+            // Không interrupt: ngắt giữa chừng 1 lệnh JDBC sẽ làm hỏng kết nối trong pool
+            current.cancel(false);
+            current = null;
+        }
+    }
+
+    /**
+     * @return true nếu requestGeneration vẫn là request mới nhất
+     */
+    private boolean finish(long requestGeneration) {
+        if (requestGeneration != generation) {
+            return false; // Kết quả cũ → bỏ qua
+        }
+        current = null;
+        if (overlay != null) {
+            overlay.hideOverlay();
+        }
+        return true;
+    }
+
+    private void handleError(Exception e, Consumer<Exception> onError) {
+        e.printStackTrace();
+        if (onError != null) {
+            onError.accept(e);
+        } else {
+            System.err.println("❌ Lỗi tải dữ liệu: " + e.getMessage());
+        }
+    }
+}
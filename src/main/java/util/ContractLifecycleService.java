@@ -0,0 +1,159 @@
+package util;
+
+import dao.ContractDAO;
+import dao.DataVersion;
+import model.Contract;
+import model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Việc định kỳ theo vòng đời hợp đồng, chạy nền sau khi đăng nhập.
+ *
+ * - Mỗi ngày 1 lần (kiểm tra mỗi giờ, ngày đã chạy thì bỏ qua): chuyển hợp
+ * đồng thuê đã quá hạn sang EXPIRED + ghi lịch sử
+ * (ContractDAO.expirePastDueContracts - 1 transaction)
+ * - Giữ sẵn danh sách hợp đồng sắp hết hạn trong EXPIRING_DAYS ngày cho
+ * DashboardPanel (getExpiringContracts): chỉ query lại khi hợp đồng thay đổi
+ * (DataVersion), sang ngày mới, đổi user hoặc đổi phạm vi tòa nhà
+ */
+public final class ContractLifecycleService {
+
+    private static final long CHECK_INTERVAL_MINUTES = 60;
+
+    private static final ContractLifecycleService INSTANCE = new ContractLifecycleService();
+
+    private final ContractDAO contractDAO = new ContractDAO();
+
+    private ScheduledExecutorService scheduler;
+    private LocalDate lastRunDate;
+    private int lastExpiredCount = 0;
+
+    // Danh sách sắp hết hạn đã tính: hợp lệ khi cả 4 khóa còn khớp
+    private List<Contract> expiring = Collections.emptyList();
+    private long expiringStamp = -1;
+    private LocalDate expiringDate;
+    private Long expiringUserId;
+    private List<Long> expiringScope;
+
+    private ContractLifecycleService() {
+    }
+
+    public static ContractLifecycleService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Bắt đầu chạy nền (gọi lại khi đang chạy: không làm gì)
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "contract-lifecycle");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runIfDue, 0, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Dừng chạy nền (đăng xuất)
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        expiring = Collections.emptyList();
+        expiringStamp = -1;
+    }
+
+    private void runIfDue() {
+        try {
+            if (!LocalDate.now().equals(getLastRunDate())) {
+                runNow();
+            }
+        } catch (RuntimeException e) {
+            // Lỗi không được làm dừng lịch chạy
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Chạy ngay (ngoài EDT)
+     *
+     * @return số hợp đồng vừa chuyển sang EXPIRED, -1 nếu lỗi
+     */
+    public int runNow() {
+        int expired = contractDAO.expirePastDueContracts();
+        if (expired >= 0) {
+            synchronized (this) {
+                lastRunDate = LocalDate.now();
+                lastExpiredCount = expired;
+            }
+            getExpiringContracts(null); // Tính sẵn cho dashboard (mọi tòa được xem)
+        }
+        return expired;
+    }
+
+    /**
+     * Hợp đồng thuê sắp hết hạn (ContractDAO.EXPIRING_DAYS ngày tới), hết hạn
+     * sớm nhất trước. Có thể query DB - gọi ngoài EDT.
+     *
+     * @param buildingIds null = mọi tòa nhà user hiện tại được xem
+     */
+    public List<Contract> getExpiringContracts(Collection<Long> buildingIds) {
+        User user = SessionManager.getInstance().getCurrentUser();
+        Long userId = user != null ? user.getId() : null;
+        List<Long> scope = resolveScope(user, buildingIds);
+        LocalDate today = LocalDate.now();
+        long stamp = DataVersion.stamp(DataVersion.Domain.CONTRACT);
+
+        synchronized (this) {
+            if (stamp == expiringStamp && today.equals(expiringDate) && Objects.equals(userId, expiringUserId)
+                    && Objects.equals(scope, expiringScope)) {
+                return expiring;
+            }
+        }
+
+        List<Contract> fresh = Collections.unmodifiableList(
+                contractDAO.getExpiringContracts(ContractDAO.EXPIRING_DAYS, scope));
+        synchronized (this) {
+            expiring = fresh;
+            expiringStamp = stamp;
+            expiringDate = today;
+            expiringUserId = userId;
+            expiringScope = scope;
+        }
+        return fresh;
+    }
+
+    // Phạm vi tòa nhà thực tế (null = tất cả) - cùng phạm vi thì dùng chung cache
+    private List<Long> resolveScope(User user, Collection<Long> buildingIds) {
+        if (buildingIds != null) {
+            return new ArrayList<>(buildingIds);
+        }
+        if (user == null || user.isAdmin()) {
+            return null;
+        }
+        return user.getBuildingIds() != null ? new ArrayList<>(user.getBuildingIds()) : new ArrayList<>();
+    }
+
+    public synchronized LocalDate getLastRunDate() {
+        return lastRunDate;
+    }
+
+    public synchronized int getLastExpiredCount() {
+        return lastExpiredCount;
+    }
+}
@@ -18,6 +18,13 @@ import java.util.Date;
 public class ExcelExporter {
 
     public static void exportTable(JTable table, String sheetName, String title, Component parent) {
+        exportModel(table.getModel(), sheetName, title, parent);
+    }
+
+    /**
+     * Xuất từ TableModel (vd: dữ liệu đọc đủ từ DB, không chỉ phần bảng đang hiển thị)
+     */
+    public static void exportModel(TableModel model, String sheetName, String title, Component parent) {
         // 1. Chọn nơi lưu file
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Lưu file Excel");
@@ -37,7 +44,7 @@ public class ExcelExporter {
             }
 
             try {
-                writeExcel(table, sheetName, title, fileToSave);
+                writeExcel(model, sheetName, title, fileToSave);
 
                 int open = JOptionPane.showConfirmDialog(parent,
                         "Xuất file thành công!\nĐường dẫn: " + fileToSave.getAbsolutePath() + "\n\nBạn có muốn mở file ngay không?",
@@ -60,7 +67,7 @@ public class ExcelExporter {
         }
     }
 
-    private static void writeExcel(JTable table, String sheetName, String title, File file) throws IOException {
+    private static void writeExcel(TableModel model, String sheetName, String title, File file) throws IOException {
         Workbook workbook = new XSSFWorkbook();
         Sheet sheet = workbook.createSheet(sheetName);
 
@@ -98,7 +105,6 @@ public class ExcelExporter {
         dataStyle.setBorderRight(BorderStyle.THIN);
         dataStyle.setVerticalAlignment(VerticalAlignment.CENTER);
 
-        TableModel model = table.getModel();
         int colCount = model.getColumnCount();
 
         // Bỏ cột cuối cùng nếu là "Thao tác" hoặc "Action" (thường là nút bấm)
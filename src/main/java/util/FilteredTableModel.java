@@ -0,0 +1,141 @@
+package util;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TableModel hiển thị 1 tập con (theo bộ lọc) của danh sách nguồn cố định.
+ *
+ * Đổi bộ lọc chỉ truyền vào tập chỉ số dòng nguồn còn khớp; model so với tập
+ * đang hiển thị và chỉ bắn sự kiện xóa/chèn cho các đoạn dòng thay đổi -
+ * không setRowCount(0) rồi addRow lại toàn bộ, bảng giữ nguyên các dòng không
+ * đổi (vị trí cuộn, renderer không phải vẽ lại cả bảng).
+ *
+ * Mọi method chạy trên EDT.
+ *
+ * @param <T> kiểu dữ liệu của 1 dòng
+ */
+public class FilteredTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Giá trị ô (item, cột)
+     */
+    public interface RowMapper<T> {
+
+        Object getValueAt(T item, int column);
+    }
+
+    private final String[] columns;
+    private final RowMapper<T> mapper;
+
+    private List<T> source = Collections.emptyList();
+    // Chỉ số (trong source) của các dòng đang hiển thị, tăng dần
+    private final List<Integer> visible = new ArrayList<>();
+
+    public FilteredTableModel(String[] columns, RowMapper<T> mapper) {
+        this.columns = columns;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Thay danh sách nguồn (vd: đổi tòa nhà / tải lại)
+     *
+     * @param visibleRows chỉ số các dòng hiển thị ban đầu
+     */
+    public void setSource(List<T> newSource, BitSet visibleRows) {
+        source = newSource != null ? newSource : Collections.emptyList();
+        visible.clear();
+        for (int i = visibleRows.nextSetBit(0); i >= 0 && i < source.size(); i = visibleRows.nextSetBit(i + 1)) {
+            visible.add(i);
+        }
+        fireTableDataChanged();
+    }
+
+    public void clear() {
+        setSource(Collections.emptyList(), new BitSet());
+    }
+
+    /**
+     * Đổi tập dòng hiển thị (cùng danh sách nguồn), chỉ bắn sự kiện cho các
+     * đoạn dòng bị bỏ ra / thêm vào
+     */
+    public void setVisibleRows(BitSet rows) {
+        if (visible.isEmpty() || rows.isEmpty()) {
+            setSource(source, rows);
+            return;
+        }
+
+        // 1. Bỏ các dòng không còn khớp - đi từ dưới lên để chỉ số phía trên không đổi
+        int i = visible.size() - 1;
+        while (i >= 0) {
+            if (rows.get(visible.get(i))) {
+                i--;
+                continue;
+            }
+            int end = i;
+            while (i >= 0 && !rows.get(visible.get(i))) {
+                i--;
+            }
+            visible.subList(i + 1, end + 1).clear();
+            fireTableRowsDeleted(i + 1, end);
+        }
+
+        // 2. Chèn các dòng mới khớp, giữ thứ tự nguồn (visible giờ là tập con của rows)
+        int pos = 0;
+        int src = rows.nextSetBit(0);
+        while (src >= 0 && src < source.size()) {
+            if (pos < visible.size() && visible.get(pos) == src) {
+                pos++;
+                src = rows.nextSetBit(src + 1);
+                continue;
+            }
+            int start = pos;
+            while (src >= 0 && src < source.size() && (pos >= visible.size() || visible.get(pos) != src)) {
+                visible.add(pos, src);
+                pos++;
+                src = rows.nextSetBit(src + 1);
+            }
+            fireTableRowsInserted(start, pos - 1);
+        }
+    }
+
+    /**
+     * Dòng đang hiển thị tại vị trí row
+     */
+    public T getItem(int row) {
+        return row >= 0 && row < visible.size() ? source.get(visible.get(row)) : null;
+    }
+
+    public int getSourceSize() {
+        return source.size();
+    }
+
+    public List<T> getSource() {
+        return Collections.unmodifiableList(source);
+    }
+
+    // ===== TABLE MODEL =====
+
+    @Override
+    public int getRowCount() {
+        return visible.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return mapper.getValueAt(source.get(visible.get(row)), column);
+    }
+}
@@ -0,0 +1,192 @@
+package util;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TableModel tải dữ liệu theo trang (keyset pagination): chỉ giữ các dòng đã
+ * cuộn tới, khi thanh cuộn gần chạm đáy thì tải tiếp trang sau dòng cuối
+ * cùng. DAO tìm trang kế tiếp bằng khóa sắp xếp của dòng cuối (WHERE khóa
+ * &lt; ...) thay vì OFFSET, nên trang thứ N nhanh như trang đầu.
+ *
+ * Cách dùng:
+ * <pre>
+ * model.reset((after, limit) -&gt; dao.getPage(filter, after, limit));
+ * </pre>
+ *
+ * Mọi method public chạy trên EDT.
+ *
+ * @param <T> kiểu dữ liệu của 1 dòng
+ */
+public class KeysetTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Lấy tối đa limit dòng đứng sau dòng after (after = null: trang đầu).
+     * Chạy ngoài EDT.
+     */
+    public interface PageFetcher<T> {
+
+        List<T> fetch(T after, int limit) throws Exception;
+    }
+
+    /**
+     * Giá trị ô (item, cột)
+     */
+    public interface RowMapper<T> {
+
+        Object getValueAt(T item, int column);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final String[] columns;
+    private final Class<?>[] columnClasses;
+    private final RowMapper<T> mapper;
+    private final int pageSize;
+    // Không overlay: tải trang kế tiếp không được che bảng khi đang cuộn
+    private final AsyncLoader loader = new AsyncLoader(null);
+
+    private final List<T> items = new ArrayList<>();
+    private PageFetcher<T> fetcher;
+    private boolean hasMore = false;
+    private boolean loading = false;
+    private Runnable pageListener;
+    private JScrollPane scrollPane;
+
+    /**
+     * @param columnClasses kiểu của từng cột (null = Object cho mọi cột)
+     */
+    public KeysetTableModel(String[] columns, Class<?>[] columnClasses, RowMapper<T> mapper, int pageSize) {
+        this.columns = columns;
+        this.columnClasses = columnClasses;
+        this.mapper = mapper;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    public KeysetTableModel(String[] columns, Class<?>[] columnClasses, RowMapper<T> mapper) {
+        this(columns, columnClasses, mapper, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Tự tải trang kế tiếp khi cuộn gần đáy scrollPane
+     */
+    public void attachTo(JScrollPane scrollPane) {
+        this.scrollPane = scrollPane;
+        scrollPane.getVerticalScrollBar().getModel().addChangeListener(e -> fetchIfNearEnd());
+    }
+
+    /**
+     * Gọi (trên EDT) sau mỗi trang tải xong - cập nhật nhãn đếm, thông báo rỗng...
+     */
+    public void setPageListener(Runnable pageListener) {
+        this.pageListener = pageListener;
+    }
+
+    /**
+     * Xóa dữ liệu và tải lại từ trang đầu với bộ lọc mới. Trang cũ đang tải dở
+     * (bộ lọc trước) bị bỏ qua.
+     */
+    public void reset(PageFetcher<T> fetcher) {
+        this.fetcher = fetcher;
+        loader.cancel();
+        items.clear();
+        hasMore = true;
+        loading = false;
+        fireTableDataChanged();
+        fetchNextPage();
+    }
+
+    /**
+     * Tải trang kế tiếp (bỏ qua nếu đang tải hoặc đã hết dữ liệu)
+     */
+    public void fetchNextPage() {
+        if (loading || !hasMore || fetcher == null) {
+            return;
+        }
+        loading = true;
+        final PageFetcher<T> pageFetcher = fetcher;
+        final T after = items.isEmpty() ? null : items.get(items.size() - 1);
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        loader.load(() -> pageFetcher.fetch(after, pageSize + 1), page -> {
+            loading = false;
+            hasMore = page.size() > pageSize;
+            List<T> rows = hasMore ? page.subList(0, pageSize) : page;
+            if (!rows.isEmpty()) {
+                int first = items.size();
+                items.addAll(rows);
+                fireTableRowsInserted(first, items.size() - 1);
+            }
+            if (pageListener != null) {
+                pageListener.run();
+            }
+            // Trang chưa lấp đầy khung nhìn → thanh cuộn không đổi, tự tải tiếp
+            SwingUtilities.invokeLater(this::fetchIfNearEnd);
+        }, e -> {
+            loading = false;
+            hasMore = false;
+            if (pageListener != null) {
+                pageListener.run();
+            }
+        });
+    }
+
+    private void fetchIfNearEnd() {
+        if (scrollPane == null || loading || !hasMore) {
+            return;
+        }
+        BoundedRangeModel bar = scrollPane.getVerticalScrollBar().getModel();
+        // Còn dưới 1 khung nhìn nữa là chạm đáy
+        if (bar.getValue() + bar.getExtent() * 2 >= bar.getMaximum()) {
+            fetchNextPage();
+        }
+    }
+
+    /**
+     * Dòng đã tải tại vị trí row (chỉ số model)
+     */
+    public T getItem(int row) {
+        return row >= 0 && row < items.size() ? items.get(row) : null;
+    }
+
+    public List<T> getLoadedItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    // ===== TABLE MODEL =====
+
+    @Override
+    public int getRowCount() {
+        return items.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columnClasses != null && columnClasses[column] != null ? columnClasses[column] : Object.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return mapper.getValueAt(items.get(row), column);
+    }
+}
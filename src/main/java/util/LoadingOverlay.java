@@ -0,0 +1,131 @@
+package util;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+
+/**
+ * Lớp phủ "Đang tải..." đặt trên JLayeredPane của cửa sổ, căn đúng vùng của
+ * panel chủ - không cần đổi layout của panel. Chặn click trong lúc tải.
+ */
+public class LoadingOverlay extends JComponent {
+
+    /**
+     * Chỉ hiện overlay nếu tải lâu hơn ngưỡng này (tránh nhấp nháy)
+     */
+    private static final int SHOW_DELAY_MS = 150;
+
+    private final JComponent owner;
+    private final Timer showTimer;
+    private JLayeredPane attachedTo;
+    private String message = "Đang tải dữ liệu...";
+
+    private final ComponentAdapter ownerListener = new ComponentAdapter() {
+        @Override
+        public void componentResized(ComponentEvent e) {
+            updateBounds();
+        }
+
+        @Override
+        public void componentMoved(ComponentEvent e) {
+            updateBounds();
+        }
+
+        @Override
+        public void componentHidden(ComponentEvent e) {
+            hideOverlay();
+        }
+    };
+
+    public LoadingOverlay(JComponent owner) {
+        this.owner = owner;
+        setOpaque(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        // Listener rỗng để overlay "nuốt" sự kiện chuột
+        addMouseListener(new MouseAdapter() {
+        });
+
+        showTimer = new Timer(SHOW_DELAY_MS, e -> attach());
+        showTimer.setRepeats(false);
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+        repaint();
+    }
+
+    /**
+     * Hiện overlay (sau SHOW_DELAY_MS). Gọi trên EDT.
+     */
+    public void showOverlay() {
+        if (attachedTo == null && !showTimer.isRunning()) {
+            showTimer.restart();
+        }
+    }
+
+    /**
+     * Ẩn overlay. Gọi trên EDT.
+     */
+    public void hideOverlay() {
+        showTimer.stop();
+        if (attachedTo != null) {
+            owner.removeComponentListener(ownerListener);
+            attachedTo.remove(this);
+            attachedTo.repaint(getX(), getY(), getWidth(), getHeight());
+            attachedTo = null;
+        }
+    }
+
+    public boolean isOverlayVisible() {
+        return attachedTo != null;
+    }
+
+    private void attach() {
+        JRootPane rootPane = SwingUtilities.getRootPane(owner);
+        if (rootPane == null || !owner.isShowing()) {
+            return; // Panel chưa hiển thị → không cần overlay
+        }
+        attachedTo = rootPane.getLayeredPane();
+        attachedTo.add(this, JLayeredPane.MODAL_LAYER);
+        owner.addComponentListener(ownerListener);
+        updateBounds();
+    }
+
+    private void updateBounds() {
+        if (attachedTo == null || owner.getParent() == null) {
+            return;
+        }
+        setBounds(SwingUtilities.convertRectangle(owner.getParent(), owner.getBounds(), attachedTo));
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        g2.setColor(new Color(255, 255, 255, 170));
+        g2.fillRect(0, 0, getWidth(), getHeight());
+
+        g2.setFont(new Font("Segoe UI", Font.BOLD, 15));
+        FontMetrics fm = g2.getFontMetrics();
+        int textWidth = fm.stringWidth(message);
+        int boxW = textWidth + 48;
+        int boxH = fm.getHeight() + 24;
+        int boxX = (getWidth() - boxW) / 2;
+        int boxY = (getHeight() - boxH) / 2;
+
+        g2.setColor(Color.WHITE);
+        g2.fillRoundRect(boxX, boxY, boxW, boxH, 16, 16);
+        g2.setColor(new Color(220, 220, 220));
+        g2.drawRoundRect(boxX, boxY, boxW, boxH, 16, 16);
+
+        g2.setColor(UIConstants.TEXT_PRIMARY);
+        g2.drawString(message, boxX + 24, boxY + 12 + fm.getAscent());
+        g2.dispose();
+    }
+}
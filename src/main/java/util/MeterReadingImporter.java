@@ -0,0 +1,265 @@
+package util;
+
+import dao.ServiceDAO;
+import dao.ServiceUsageDAO;
+import model.Service;
+import model.ServiceUsage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nhập chỉ số đồng hồ (điện, nước...) của 1 tòa nhà cho 1 kỳ từ file CSV.
+ *
+ * Mỗi dòng: số phòng, tên dịch vụ, chỉ số mới[, chỉ số cũ]. Dòng tiêu đề (cột
+ * chỉ số không phải số) được bỏ qua; phân cách bằng dấu phẩy hoặc chấm phẩy
+ * (Excel tiếng Việt).
+ *
+ * - Đọc từng dòng (không nạp cả file), hợp lệ thì gom lại, đủ
+ * ServiceUsageDAO.UPSERT_CHUNK_SIZE dòng thì ghi 1 lần
+ * - Tra cứu hợp đồng / dịch vụ / chỉ số kỳ trước: mỗi loại 1 query cho cả tòa,
+ * làm trước khi đọc file
+ * - Thiếu chỉ số cũ → lấy chỉ số mới của kỳ gần nhất trước đó (không có: 0);
+ * lượng tiêu thụ = mới - cũ
+ */
+public class MeterReadingImporter {
+
+    // Giữ tối đa ngần này thông báo lỗi (file lỗi hàng loạt không làm đầy bộ nhớ)
+    private static final int MAX_ERRORS = 200;
+
+    private final ServiceUsageDAO serviceUsageDAO = new ServiceUsageDAO();
+    private final ServiceDAO serviceDAO = new ServiceDAO();
+
+    public interface ProgressListener {
+
+        /**
+         * @param rowsRead số dòng đã đọc
+         * @param message bước đang thực hiện
+         */
+        void onProgress(int rowsRead, String message);
+    }
+
+    public static class ImportResult {
+
+        public int imported = 0;
+        public int rejected = 0;
+        public int totalErrors = 0;
+        public final List<String> errors = new ArrayList<>();
+        public long elapsedMillis = 0;
+
+        void addError(String message) {
+            totalErrors++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+
+    /**
+     * Chạy ngoài EDT. Không đóng reader.
+     */
+    public ImportResult importCsv(Reader reader, Long buildingId, int month, int year,
+            ProgressListener listener) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+
+        reportProgress(listener, 0, "Đang tải dữ liệu tòa nhà...");
+        Map<String, Long> contractsByRoom = serviceUsageDAO.getActiveContractsByRoom(buildingId);
+        Set<String> registered = serviceUsageDAO.getContractServiceKeys(buildingId);
+        Map<String, Double> previousIndexes = serviceUsageDAO.getPreviousIndexes(buildingId, month, year);
+        Map<String, Long> servicesByName = new HashMap<>();
+        for (Service service : serviceDAO.getAllServices()) {
+            servicesByName.put(TextNormalizer.fold(service.getName()), service.getId());
+        }
+
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        List<ServiceUsage> pending = new ArrayList<>(ServiceUsageDAO.UPSERT_CHUNK_SIZE);
+        int firstPendingLine = 0;
+        char delimiter = 0;
+        boolean firstDataLine = true;
+        int lineNumber = 0;
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1); // BOM của file UTF-8 từ Excel
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (delimiter == 0) {
+                delimiter = line.indexOf(';') >= 0 && line.indexOf(',') < 0 ? ';' : ',';
+            }
+
+            List<String> cols = parseLine(line, delimiter);
+            if (firstDataLine) {
+                firstDataLine = false;
+                // Dòng tiêu đề: cột chỉ số không phải số và cột phòng không phải phòng
+                // có thật (dòng dữ liệu đầu gõ sai chỉ số vẫn được báo lỗi)
+                if (cols.size() >= 3 && parseNumber(cols.get(2), delimiter) == null
+                        && !contractsByRoom.containsKey(cols.get(0).trim().toUpperCase())) {
+                    continue;
+                }
+            }
+
+            ServiceUsage usage = toUsage(cols, lineNumber, delimiter, month, year,
+                    contractsByRoom, servicesByName, registered, previousIndexes, result);
+            if (usage == null) {
+                result.rejected++;
+                continue;
+            }
+            if (pending.isEmpty()) {
+                firstPendingLine = lineNumber;
+            }
+            pending.add(usage);
+
+            if (pending.size() >= ServiceUsageDAO.UPSERT_CHUNK_SIZE) {
+                flush(pending, firstPendingLine, lineNumber, result);
+                reportProgress(listener, lineNumber, "Đã ghi " + result.imported + " chỉ số...");
+            }
+        }
+        flush(pending, firstPendingLine, lineNumber, result);
+
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        reportProgress(listener, lineNumber, "Hoàn tất");
+        return result;
+    }
+
+    /**
+     * Kiểm tra 1 dòng
+     *
+     * @return null nếu dòng không hợp lệ (đã ghi lỗi vào result)
+     */
+    private ServiceUsage toUsage(List<String> cols, int lineNumber, char delimiter, int month, int year,
+            Map<String, Long> contractsByRoom, Map<String, Long> servicesByName,
+            Set<String> registered, Map<String, Double> previousIndexes, ImportResult result) {
+        if (cols.size() < 3) {
+            result.addError("Dòng " + lineNumber + ": thiếu cột (cần: phòng, dịch vụ, chỉ số mới)");
+            return null;
+        }
+
+        String room = cols.get(0).trim();
+        Long contractId = contractsByRoom.get(room.toUpperCase());
+        if (contractId == null) {
+            result.addError("Dòng " + lineNumber + ": phòng '" + room + "' không có hợp đồng đang hiệu lực");
+            return null;
+        }
+
+        String serviceName = cols.get(1).trim();
+        Long serviceId = servicesByName.get(TextNormalizer.fold(serviceName));
+        if (serviceId == null) {
+            result.addError("Dòng " + lineNumber + ": không có dịch vụ '" + serviceName + "'");
+            return null;
+        }
+        String key = ServiceUsageDAO.meterKey(contractId, serviceId);
+        if (!registered.contains(key)) {
+            result.addError("Dòng " + lineNumber + ": phòng '" + room + "' chưa đăng ký dịch vụ '" + serviceName + "'");
+            return null;
+        }
+
+        Double newIndex = parseNumber(cols.get(2), delimiter);
+        if (newIndex == null || newIndex < 0) {
+            result.addError("Dòng " + lineNumber + ": chỉ số mới không hợp lệ '" + cols.get(2).trim() + "'");
+            return null;
+        }
+
+        Double oldIndex;
+        if (cols.size() >= 4 && !cols.get(3).trim().isEmpty()) {
+            oldIndex = parseNumber(cols.get(3), delimiter);
+            if (oldIndex == null || oldIndex < 0) {
+                result.addError("Dòng " + lineNumber + ": chỉ số cũ không hợp lệ '" + cols.get(3).trim() + "'");
+                return null;
+            }
+        } else {
+            oldIndex = previousIndexes.getOrDefault(key, 0.0);
+        }
+
+        if (newIndex < oldIndex) {
+            result.addError("Dòng " + lineNumber + ": chỉ số mới (" + newIndex + ") nhỏ hơn chỉ số cũ (" + oldIndex + ")");
+            return null;
+        }
+
+        ServiceUsage usage = new ServiceUsage(null, contractId, serviceId, month, year,
+                oldIndex, newIndex, newIndex - oldIndex);
+        usage.setApartmentNumber(room);
+        usage.setServiceName(serviceName);
+        return usage;
+    }
+
+    private void flush(List<ServiceUsage> pending, int fromLine, int toLine, ImportResult result) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int written = serviceUsageDAO.upsertBatch(pending);
+        if (written < 0) {
+            result.rejected += pending.size();
+            result.addError("Dòng " + fromLine + "-" + toLine + ": lỗi ghi CSDL, " + pending.size() + " chỉ số chưa được lưu");
+        } else {
+            result.imported += written;
+        }
+        pending.clear();
+    }
+
+    /**
+     * Tách 1 dòng CSV (hỗ trợ "..." và "" bên trong dấu nháy)
+     */
+    static List<String> parseLine(String line, char delimiter) {
+        List<String> cols = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == delimiter) {
+                cols.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        cols.add(current.toString());
+        return cols;
+    }
+
+    /**
+     * File phân cách bằng ';' thường dùng ',' làm dấu thập phân
+     */
+    private static Double parseNumber(String text, char delimiter) {
+        String value = text.trim().replace(" ", "");
+        if (delimiter == ';') {
+            value = value.replace(',', '.');
+        }
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void reportProgress(ProgressListener listener, int rowsRead, String message) {
+        if (listener != null) {
+            listener.onProgress(rowsRead, message);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import model.*;
 
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.*;
+import org.apache.poi.xssf.streaming.*;
 import org.apache.poi.ss.util.*;
 
 // iText PDF
@@ -32,6 +33,7 @@ public class ReportExportService {
     private ContractDAO contractDAO;
     private ResidentDAO residentDAO;
     private BuildingDAO buildingDAO;
+    private RevenueRollupDAO rollupDAO;
 
     // Formatters
     private DecimalFormat moneyFormat;
@@ -52,6 +54,7 @@ public class ReportExportService {
         this.contractDAO = new ContractDAO();
         this.residentDAO = new ResidentDAO();
         this.buildingDAO = new BuildingDAO();
+        this.rollupDAO = new RevenueRollupDAO();
     }
 
     private void initializeFormatters() {
@@ -61,15 +64,18 @@ public class ReportExportService {
 
     /**
      * ===== EXCEL EXPORT =====
+     *
+     * @param buildingIds tòa nhà được xem (null = tất cả)
      */
-    public boolean exportToExcel(String filepath, int year, int fromMonth, int toMonth) {
+    public boolean exportToExcel(String filepath, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds) {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
 
             // Create sheets
-            createOverviewSheet(workbook, year, fromMonth, toMonth);
-            createRevenueSheet(workbook, year, fromMonth, toMonth);
+            createOverviewSheet(workbook, year, fromMonth, toMonth, buildingIds);
+            createRevenueSheet(workbook, year, fromMonth, toMonth, buildingIds);
             createInvoiceSheet(workbook, year, fromMonth, toMonth);
-            createServiceSheet(workbook, year);
+            createServiceSheet(workbook, year, buildingIds);
             createApartmentSheet(workbook);
 
             // Write to file
@@ -85,11 +91,160 @@ public class ReportExportService {
         }
     }
 
+    /**
+     * Tiến độ xuất báo cáo (gọi từ thread đang xuất, không phải EDT)
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param percent 0..100
+         * @param message bước đang thực hiện
+         */
+        void onProgress(int percent, String message);
+    }
+
+    /**
+     * Số dòng giữ trong bộ nhớ cho mỗi sheet khi xuất streaming, các dòng cũ
+     * hơn được ghi ra file tạm
+     */
+    private static final int STREAMING_ROW_WINDOW = 200;
+
+    /**
+     * Báo tiến độ mỗi N hóa đơn
+     */
+    private static final int PROGRESS_STEP_ROWS = 500;
+
+    /**
+     * ===== EXCEL EXPORT (STREAMING) =====
+     *
+     * Giống exportToExcel nhưng dùng SXSSFWorkbook + con trỏ JDBC streaming:
+     * bộ nhớ dùng không phụ thuộc số hóa đơn, dùng cho báo cáo lớn.
+     *
+     * @param buildingIds tòa nhà được xem (null = tất cả)
+     * @param listener có thể null
+     */
+    public boolean exportToExcelStreaming(String filepath, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds, ProgressListener listener) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            reportProgress(listener, 0, "Tổng quan...");
+            createOverviewSheet(workbook, year, fromMonth, toMonth, buildingIds);
+
+            reportProgress(listener, 5, "Doanh thu...");
+            createRevenueSheet(workbook, year, fromMonth, toMonth, buildingIds);
+
+            reportProgress(listener, 10, "Hóa đơn...");
+            if (!createInvoiceSheetStreaming(workbook, year, fromMonth, toMonth, buildingIds, listener)) {
+                return false;
+            }
+
+            reportProgress(listener, 85, "Dịch vụ...");
+            createServiceSheet(workbook, year, buildingIds);
+
+            reportProgress(listener, 90, "Căn hộ...");
+            createApartmentSheet(workbook);
+
+            reportProgress(listener, 95, "Đang ghi file...");
+            try (FileOutputStream out = new FileOutputStream(filepath)) {
+                workbook.write(out);
+            }
+
+            reportProgress(listener, 100, "Hoàn tất");
+            return true;
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            // Xóa file tạm của SXSSF
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * SHEET 3 (streaming): mỗi hóa đơn đọc từ con trỏ được ghi thẳng vào sheet,
+     * không giữ danh sách trong bộ nhớ
+     */
+    private boolean createInvoiceSheetStreaming(SXSSFWorkbook workbook, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds, ProgressListener listener) {
+        SXSSFSheet sheet = workbook.createSheet("💰 Hóa Đơn");
+
+        CellStyle headerStyle = createHeaderStyle(workbook);
+        CellStyle moneyStyle = createMoneyStyle(workbook);
+
+        Row headerRow = sheet.createRow(0);
+        String[] headers = {"Số HĐ", "Căn Hộ", "Cư Dân", "Tháng/Năm", "Tổng Tiền (VNĐ)", "Trạng Thái", "Ngày TT"};
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+        }
+
+        // Không auto-size được khi các dòng đã ghi ra đĩa → độ rộng cố định
+        int[] widths = {5000, 3500, 7000, 3500, 5000, 5000, 3500};
+        for (int i = 0; i < widths.length; i++) {
+            sheet.setColumnWidth(i, widths[i]);
+        }
+
+        final int total = Math.max(1, invoiceDAO.countInvoicesInPeriod(year, fromMonth, toMonth, buildingIds));
+        final int[] rowNum = {1};
+
+        int streamed = invoiceDAO.streamInvoiceRowsForExport(year, fromMonth, toMonth, buildingIds, invoice -> {
+            Row row = sheet.createRow(rowNum[0]++);
+
+            row.createCell(0).setCellValue(invoice.getContractNumber() != null ? invoice.getContractNumber() : "N/A");
+            row.createCell(1).setCellValue(invoice.getRoomNumber() != null ? invoice.getRoomNumber() : "N/A");
+            row.createCell(2).setCellValue(invoice.getResidentName() != null ? invoice.getResidentName() : "N/A");
+            row.createCell(3).setCellValue(String.format("%d/%d", invoice.getMonth(), invoice.getYear()));
+
+            Cell amountCell = row.createCell(4);
+            amountCell.setCellValue(invoice.getTotalAmount() != null ? invoice.getTotalAmount().doubleValue() : 0);
+            amountCell.setCellStyle(moneyStyle);
+
+            row.createCell(5).setCellValue("PAID".equals(invoice.getStatus()) ? "Đã thanh toán" : "Chưa thanh toán");
+            row.createCell(6).setCellValue(invoice.getPaymentDate() != null
+                    ? dateFormat.format(invoice.getPaymentDate()) : "");
+
+            int done = rowNum[0] - 1;
+            if (done % PROGRESS_STEP_ROWS == 0) {
+                reportProgress(listener, 10 + (int) (75L * Math.min(done, total) / total),
+                        "Hóa đơn " + done + "/" + total + "...");
+            }
+        });
+
+        return streamed >= 0;
+    }
+
+    private void reportProgress(ProgressListener listener, int percent, String message) {
+        if (listener != null) {
+            listener.onProgress(percent, message);
+        }
+    }
+
+    /**
+     * Tạo sheet; với SXSSF phải bật theo dõi cột trước khi autoSizeColumn
+     * (các sheet tổng hợp nhỏ, nằm gọn trong cửa sổ dòng)
+     */
+    private Sheet createSheet(Workbook workbook, String name) {
+        Sheet sheet = workbook.createSheet(name);
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+        }
+        return sheet;
+    }
+
     /**
      * SHEET 1: Overview (Tổng quan)
      */
-    private void createOverviewSheet(XSSFWorkbook workbook, int year, int fromMonth, int toMonth) {
-        Sheet sheet = workbook.createSheet("📊 Tổng Quan");
+    private void createOverviewSheet(Workbook workbook, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds) {
+        Sheet sheet = createSheet(workbook, "📊 Tổng Quan");
 
         // Styles
         CellStyle titleStyle = createTitleStyle(workbook);
@@ -143,10 +298,10 @@ public class ReportExportService {
         sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 2));
 
         // Revenue data
+        Map<Integer, MonthlyRevenueSummary> summaries = rollupDAO.getYearSummary(year, buildingIds);
         BigDecimal totalRevenue = BigDecimal.ZERO;
         for (int month = fromMonth; month <= toMonth; month++) {
-            BigDecimal monthRevenue = invoiceDAO.getMonthlyRevenue(month, year);
-            totalRevenue = totalRevenue.add(monthRevenue);
+            totalRevenue = totalRevenue.add(summaries.get(month).getCollectedAmount());
         }
 
         Row totalRevenueRow = sheet.createRow(rowNum++);
@@ -165,8 +320,9 @@ public class ReportExportService {
     /**
      * SHEET 2: Revenue Report (Báo cáo doanh thu)
      */
-    private void createRevenueSheet(XSSFWorkbook workbook, int year, int fromMonth, int toMonth) {
-        Sheet sheet = workbook.createSheet("📈 Doanh Thu");
+    private void createRevenueSheet(Workbook workbook, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds) {
+        Sheet sheet = createSheet(workbook, "📈 Doanh Thu");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle normalStyle = createNormalStyle(workbook);
@@ -190,14 +346,17 @@ public class ReportExportService {
         int totalPaid = 0;
         int totalUnpaid = 0;
 
+        // Đọc 12 dòng tổng hợp thay vì quét hóa đơn từng tháng
+        Map<Integer, MonthlyRevenueSummary> summaries = rollupDAO.getYearSummary(year, buildingIds);
+
         for (int month = fromMonth; month <= toMonth; month++) {
             Row row = sheet.createRow(rowNum++);
 
-            List<Invoice> invoices = invoiceDAO.getInvoicesByMonth(month, year);
-            int monthInvoices = invoices.size();
-            long paidCount = invoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-            long unpaidCount = monthInvoices - paidCount;
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
+            MonthlyRevenueSummary summary = summaries.get(month);
+            int monthInvoices = summary.getInvoiceCount();
+            int paidCount = summary.getPaidCount();
+            int unpaidCount = monthInvoices - paidCount;
+            BigDecimal revenue = summary.getCollectedAmount();
 
             totalInvoices += monthInvoices;
             totalPaid += paidCount;
@@ -246,8 +405,8 @@ public class ReportExportService {
     /**
      * SHEET 3: Invoice Report (Báo cáo hóa đơn)
      */
-    private void createInvoiceSheet(XSSFWorkbook workbook, int year, int fromMonth, int toMonth) {
-        Sheet sheet = workbook.createSheet("💰 Hóa Đơn");
+    private void createInvoiceSheet(Workbook workbook, int year, int fromMonth, int toMonth) {
+        Sheet sheet = createSheet(workbook, "💰 Hóa Đơn");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle moneyStyle = createMoneyStyle(workbook);
@@ -316,8 +475,8 @@ public class ReportExportService {
     /**
      * SHEET 4: Service Report (Báo cáo dịch vụ)
      */
-    private void createServiceSheet(XSSFWorkbook workbook, int year) {
-        Sheet sheet = workbook.createSheet("🔧 Dịch Vụ");
+    private void createServiceSheet(Workbook workbook, int year, Collection<Long> buildingIds) {
+        Sheet sheet = createSheet(workbook, "🔧 Dịch Vụ");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle moneyStyle = createMoneyStyle(workbook);
@@ -335,7 +494,7 @@ public class ReportExportService {
         }
 
         // Get service revenue data
-        Map<String, BigDecimal> serviceRevenue = getServiceRevenue(year);
+        Map<String, BigDecimal> serviceRevenue = getServiceRevenue(year, buildingIds);
         BigDecimal totalRevenue = serviceRevenue.values().stream()
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
@@ -375,8 +534,8 @@ public class ReportExportService {
     /**
      * SHEET 5: Apartment Report (Báo cáo căn hộ)
      */
-    private void createApartmentSheet(XSSFWorkbook workbook) {
-        Sheet sheet = workbook.createSheet("🏢 Căn Hộ");
+    private void createApartmentSheet(Workbook workbook) {
+        Sheet sheet = createSheet(workbook, "🏢 Căn Hộ");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle normalStyle = createNormalStyle(workbook);
@@ -419,8 +578,11 @@ public class ReportExportService {
 
     /**
      * ===== PDF EXPORT =====
+     *
+     * @param buildingIds tòa nhà được xem (null = tất cả)
      */
-    public boolean exportToPDF(String filepath, int year, int fromMonth, int toMonth) {
+    public boolean exportToPDF(String filepath, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds) {
         try {
             Document document = new Document(PageSize.A4);
             PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(filepath));
@@ -431,10 +593,10 @@ public class ReportExportService {
             addPDFCoverPage(document, year, fromMonth, toMonth);
             document.newPage();
 
-            addPDFRevenueReport(document, year, fromMonth, toMonth);
+            addPDFRevenueReport(document, year, fromMonth, toMonth, buildingIds);
             document.newPage();
 
-            addPDFInvoiceReport(document, year, fromMonth, toMonth);
+            addPDFInvoiceReport(document, year, fromMonth, toMonth, buildingIds);
             document.newPage();
 
             addPDFApartmentReport(document);
@@ -513,7 +675,8 @@ public class ReportExportService {
         document.add(statsTable);
     }
 
-    private void addPDFRevenueReport(Document document, int year, int fromMonth, int toMonth) throws DocumentException {
+    private void addPDFRevenueReport(Document document, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds) throws DocumentException {
         // Section title
         com.itextpdf.text.Font sectionFont
                 = new com.itextpdf.text.Font(
@@ -544,14 +707,15 @@ public class ReportExportService {
         }
 
         // Data
+        Map<Integer, MonthlyRevenueSummary> summaries = rollupDAO.getYearSummary(year, buildingIds);
         BigDecimal totalRevenue = BigDecimal.ZERO;
         for (int month = fromMonth; month <= toMonth; month++) {
-            List<Invoice> invoices = invoiceDAO.getInvoicesByMonth(month, year);
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
+            MonthlyRevenueSummary summary = summaries.get(month);
+            BigDecimal revenue = summary.getCollectedAmount();
             totalRevenue = totalRevenue.add(revenue);
 
-            int totalInv = invoices.size();
-            long paid = invoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
+            int totalInv = summary.getInvoiceCount();
+            int paid = summary.getPaidCount();
 
             table.addCell(String.format("T%d/%d", month, year));
             table.addCell(String.valueOf(totalInv));
@@ -574,7 +738,8 @@ public class ReportExportService {
         document.add(total);
     }
 
-    private void addPDFInvoiceReport(Document document, int year, int fromMonth, int toMonth) throws DocumentException {
+    private void addPDFInvoiceReport(Document document, int year, int fromMonth, int toMonth,
+            Collection<Long> buildingIds) throws DocumentException {
         com.itextpdf.text.Font sectionFont
                 = new com.itextpdf.text.Font(
                         com.itextpdf.text.Font.FontFamily.TIMES_ROMAN,
@@ -587,17 +752,18 @@ public class ReportExportService {
         document.add(sectionTitle);
 
         // Summary
-        List<Invoice> allInvoices = new ArrayList<>();
+        Map<Integer, MonthlyRevenueSummary> summaries = rollupDAO.getYearSummary(year, buildingIds);
+        int totalInvoices = 0;
+        int paid = 0;
         for (int month = fromMonth; month <= toMonth; month++) {
-            allInvoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
+            totalInvoices += summaries.get(month).getInvoiceCount();
+            paid += summaries.get(month).getPaidCount();
         }
-
-        long paid = allInvoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-        long unpaid = allInvoices.size() - paid;
+        int unpaid = totalInvoices - paid;
 
         Paragraph summary = new Paragraph(
                 String.format("Tổng hóa đơn: %d | Đã thanh toán: %d | Chưa thanh toán: %d",
-                        allInvoices.size(), paid, unpaid),
+                        totalInvoices, paid, unpaid),
                 new com.itextpdf.text.Font(
                         com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 12
                 )
@@ -651,28 +817,8 @@ public class ReportExportService {
     /**
      * ===== HELPER METHODS =====
      */
-    private Map<String, BigDecimal> getServiceRevenue(int year) {
-        Map<String, BigDecimal> result = new HashMap<>();
-
-        List<Invoice> invoices = new ArrayList<>();
-        for (int month = 1; month <= 12; month++) {
-            invoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
-        }
-
-        for (Invoice invoice : invoices) {
-            if (!"PAID".equals(invoice.getStatus())) {
-                continue;
-            }
-
-            List<InvoiceDetail> details = invoiceDAO.getInvoiceDetails(invoice.getId());
-            for (InvoiceDetail detail : details) {
-                String serviceName = detail.getServiceName();
-                BigDecimal amount = detail.getAmount();
-                result.merge(serviceName, amount, BigDecimal::add);
-            }
-        }
-
-        return result;
+    private Map<String, BigDecimal> getServiceRevenue(int year, Collection<Long> buildingIds) {
+        return invoiceDAO.getPaidServiceRevenue(year, buildingIds);
     }
 
     private void addStatRow(Sheet sheet, int rowNum, String label, int value, CellStyle style) {
@@ -704,7 +850,7 @@ public class ReportExportService {
     /**
      * ===== EXCEL STYLES =====
      */
-    private CellStyle createTitleStyle(XSSFWorkbook workbook) {
+    private CellStyle createTitleStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
 
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();
@@ -716,7 +862,7 @@ public class ReportExportService {
         return style;
     }
 
-    private CellStyle createHeaderStyle(XSSFWorkbook workbook) {
+    private CellStyle createHeaderStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();;
         font.setBold(true);
@@ -733,13 +879,13 @@ public class ReportExportService {
         return style;
     }
 
-    private CellStyle createNormalStyle(XSSFWorkbook workbook) {
+    private CellStyle createNormalStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         style.setAlignment(HorizontalAlignment.LEFT);
         return style;
     }
 
-    private CellStyle createMoneyStyle(XSSFWorkbook workbook) {
+    private CellStyle createMoneyStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         DataFormat format = workbook.createDataFormat();
         style.setDataFormat(format.getFormat("#,##0"));
@@ -747,7 +893,7 @@ public class ReportExportService {
         return style;
     }
 
-    private CellStyle createTotalStyle(XSSFWorkbook workbook) {
+    private CellStyle createTotalStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();
         font.setBold(true);
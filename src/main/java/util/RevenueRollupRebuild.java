@@ -0,0 +1,29 @@
+package util;
+
+import dao.RevenueRollupDAO;
+
+/**
+ * Dựng lại bảng revenue_monthly_rollup từ bảng invoices. Chạy sau khi import
+ * dữ liệu trực tiếp vào DB hoặc khi số liệu tổng hợp bị lệch.
+ */
+public class RevenueRollupRebuild {
+
+    public static void main(String[] args) {
+        System.out.println("==============================================");
+        System.out.println("  REBUILD REVENUE MONTHLY ROLLUP");
+        System.out.println("==============================================");
+        System.out.println();
+
+        long start = System.currentTimeMillis();
+        int rows = new RevenueRollupDAO().rebuild();
+        long elapsed = System.currentTimeMillis() - start;
+
+        System.out.println();
+        if (rows >= 0) {
+            System.out.println("✓ SUCCESS: " + rows + " rollup rows rebuilt in " + elapsed + " ms");
+        } else {
+            System.out.println("✗ FAILED: Rollup rebuild rolled back (see error above)");
+        }
+        System.out.println("==============================================");
+    }
+}
@@ -0,0 +1,31 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa chuỗi tiếng Việt để so khớp tìm kiếm: bỏ dấu (kể cả đ/Đ → d),
+ * chữ thường, gộp khoảng trắng. "Nguyễn  Văn Đức" → "nguyen van duc".
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * @return chuỗi đã bỏ dấu, chữ thường ("" nếu null)
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        // NFD tách dấu khỏi chữ cái; đ/Đ không có dạng tách nên thay tay
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd').replace('Đ', 'D');
+        return WHITESPACE.matcher(stripped.toLowerCase().trim()).replaceAll(" ");
+    }
+}
@@ -0,0 +1,274 @@
+package util;
+
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Lưới thẻ "ảo" đặt trong JScrollPane: chỉ tạo/vẽ các thẻ nằm trong vùng
+ * đang nhìn thấy (cộng 1 hàng đệm), thẻ cuộn ra ngoài được đưa vào pool và
+ * dùng lại cho item khác bằng binder - không removeAll()/tạo lại component
+ * mỗi lần đổi dữ liệu.
+ *
+ * Số component sống ≈ (số hàng nhìn thấy + 2) × số cột, không phụ thuộc số item.
+ *
+ * @param <T> kiểu dữ liệu của 1 thẻ
+ * @param <C> kiểu thẻ
+ */
+public class VirtualCardGrid<T, C extends JComponent> extends JPanel implements Scrollable {
+
+    /**
+     * Số hàng tạo thêm phía trên/dưới vùng nhìn thấy để cuộn mượt
+     */
+    private static final int OVERSCAN_ROWS = 1;
+
+    private final int columns;
+    private final int hgap;
+    private final int vgap;
+    private final int cardHeight;
+    private final Supplier<C> cardFactory;
+    private final BiConsumer<C, T> binder;
+
+    private List<T> items = Collections.emptyList();
+    // index item → thẻ đang hiển thị item đó
+    private final Map<Integer, C> activeCards = new HashMap<>();
+    private final Deque<C> pool = new ArrayDeque<>();
+    private JComponent placeholder;
+
+    private JViewport viewport;
+    private final ChangeListener viewportListener = e -> layoutVisibleCards();
+
+    /**
+     * @param cardFactory tạo thẻ rỗng (chỉ gọi khi pool hết thẻ)
+     * @param binder gắn dữ liệu item vào thẻ
+     */
+    public VirtualCardGrid(int columns, int hgap, int vgap, int cardHeight,
+            Supplier<C> cardFactory, BiConsumer<C, T> binder) {
+        super(null);
+        this.columns = Math.max(1, columns);
+        this.hgap = hgap;
+        this.vgap = vgap;
+        this.cardHeight = cardHeight;
+        this.cardFactory = cardFactory;
+        this.binder = binder;
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu. Các thẻ đang hiển thị được gắn lại dữ liệu mới.
+     */
+    public void setItems(List<T> newItems) {
+        removePlaceholder();
+        recycleAll();
+        this.items = newItems != null ? new ArrayList<>(newItems) : Collections.emptyList();
+        revalidate();
+        layoutVisibleCards();
+        repaint();
+    }
+
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Xóa dữ liệu và hiện 1 component thay thế (vd: thông báo "không có dữ
+     * liệu"), chiếm toàn bộ chiều ngang lưới
+     */
+    public void showPlaceholder(JComponent component) {
+        recycleAll();
+        this.items = Collections.emptyList();
+        removePlaceholder();
+        placeholder = component;
+        if (placeholder != null) {
+            add(placeholder);
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Xóa dữ liệu, không hiện gì
+     */
+    public void clear() {
+        showPlaceholder(null);
+    }
+
+    /**
+     * Gắn lại dữ liệu cho các thẻ đang hiển thị (khi item thay đổi tại chỗ)
+     */
+    public void refreshVisible() {
+        for (Map.Entry<Integer, C> entry : activeCards.entrySet()) {
+            binder.accept(entry.getValue(), items.get(entry.getKey()));
+        }
+        repaint();
+    }
+
+    /**
+     * Số thẻ đang được tạo (hiển thị + trong pool) - để theo dõi
+     */
+    public int getCardInstanceCount() {
+        return activeCards.size() + pool.size();
+    }
+
+    // ===== LAYOUT =====
+
+    private int rowCount() {
+        return (items.size() + columns - 1) / columns;
+    }
+
+    private int rowHeight() {
+        return cardHeight + vgap;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Insets in = getInsets();
+        int width = viewport != null ? viewport.getExtentSize().width : columns * 300 + (columns - 1) * hgap;
+        if (placeholder != null) {
+            Dimension p = placeholder.getPreferredSize();
+            return new Dimension(width, p.height + in.top + in.bottom);
+        }
+        int rows = rowCount();
+        int height = rows == 0 ? 0 : rows * rowHeight() - vgap;
+        return new Dimension(width, height + in.top + in.bottom);
+    }
+
+    @Override
+    public void doLayout() {
+        if (placeholder != null) {
+            Insets in = getInsets();
+            int height = Math.max(placeholder.getPreferredSize().height, getHeight() - in.top - in.bottom);
+            placeholder.setBounds(in.left, in.top, getWidth() - in.left - in.right, height);
+            placeholder.validate();
+            return;
+        }
+        layoutVisibleCards();
+    }
+
+    /**
+     * Đặt thẻ cho các item giao với vùng nhìn thấy, trả thẻ ngoài vùng về pool
+     */
+    private void layoutVisibleCards() {
+        if (placeholder != null) {
+            return;
+        }
+        Insets in = getInsets();
+        int innerWidth = getWidth() - in.left - in.right;
+        if (innerWidth <= 0 || items.isEmpty()) {
+            recycleAll();
+            return;
+        }
+        int cardWidth = Math.max(1, (innerWidth - (columns - 1) * hgap) / columns);
+
+        Rectangle visible = getVisibleRect();
+        int firstRow = Math.max(0, (visible.y - in.top) / rowHeight() - OVERSCAN_ROWS);
+        int lastRow = Math.min(rowCount() - 1, (visible.y + visible.height - in.top) / rowHeight() + OVERSCAN_ROWS);
+        int firstIndex = firstRow * columns;
+        int lastIndex = Math.min(items.size() - 1, (lastRow + 1) * columns - 1);
+
+        // 1. Trả về pool các thẻ đã ra khỏi vùng
+        Iterator<Map.Entry<Integer, C>> it = activeCards.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, C> entry = it.next();
+            int index = entry.getKey();
+            if (index < firstIndex || index > lastIndex) {
+                C card = entry.getValue();
+                card.setVisible(false);
+                pool.push(card);
+                it.remove();
+            }
+        }
+
+        // 2. Gắn thẻ cho các item trong vùng
+        for (int index = firstIndex; index <= lastIndex; index++) {
+            C card = activeCards.get(index);
+            if (card == null) {
+                card = pool.poll();
+                if (card == null) {
+                    card = cardFactory.get();
+                    add(card);
+                }
+                binder.accept(card, items.get(index));
+                card.setVisible(true);
+                activeCards.put(index, card);
+            }
+            int row = index / columns;
+            int col = index % columns;
+            card.setBounds(in.left + col * (cardWidth + hgap), in.top + row * rowHeight(), cardWidth, cardHeight);
+            card.validate();
+        }
+    }
+
+    private void recycleAll() {
+        for (C card : activeCards.values()) {
+            card.setVisible(false);
+            pool.push(card);
+        }
+        activeCards.clear();
+    }
+
+    private void removePlaceholder() {
+        if (placeholder != null) {
+            remove(placeholder);
+            placeholder = null;
+        }
+    }
+
+    // ===== VIEWPORT =====
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            viewport.addChangeListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    // ===== SCROLLABLE =====
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? Math.max(rowHeight(), visibleRect.height - rowHeight())
+                : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        // Ít dữ liệu → kéo giãn theo viewport (placeholder căn giữa được)
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+}
@@ -16,6 +16,16 @@ import java.util.function.Consumer;
 
 public class ApartmentCard extends JPanel {
 
+    // Font/màu dùng chung cho mọi thẻ (không tạo mới mỗi lần dựng thẻ)
+    private static final Font FONT_ROOM = new Font("Segoe UI", Font.BOLD, 19);
+    private static final Font FONT_TYPE = new Font("Segoe UI", Font.PLAIN, 11);
+    private static final Font FONT_SPEC = new Font("Segoe UI", Font.PLAIN, 12);
+    private static final Font FONT_ALERT = new Font("Segoe UI", Font.BOLD, 12);
+    private static final Font FONT_OWNED = new Font("Segoe UI", Font.BOLD, 11);
+    private static final Font FONT_DESC = new Font("Segoe UI", Font.ITALIC, 11);
+    private static final Font FONT_BADGE = new Font("Segoe UI", Font.BOLD, 10);
+    private static final Color HOVER_COLOR = new Color(252, 252, 252);
+
     private Apartment apartment;
     private LocalDate contractEndDate;
 
@@ -23,13 +33,30 @@ public class ApartmentCard extends JPanel {
     private Consumer<Apartment> onEdit;
     private Consumer<Apartment> onDelete;
 
+    // Component tạo 1 lần, bind() chỉ cập nhật nội dung
+    private JLabel lblRoom;
+    private JLabel lblType;
+    private StatusBadge badge;
+    private JLabel lblArea;
+    private JLabel lblBed;
+    private JLabel lblBath;
+    private JLabel lblFooter;
+
     public ApartmentCard(Apartment apartment, LocalDate contractEndDate,
             Consumer<Apartment> onSelect,
             Consumer<Apartment> onEdit,
             Consumer<Apartment> onDelete) {
-        this.apartment = apartment;
-        this.contractEndDate = contractEndDate;
+        this(onSelect, onEdit, onDelete);
+        bind(apartment, contractEndDate);
+    }
 
+    /**
+     * Thẻ rỗng để tái sử dụng trong lưới ảo (VirtualCardGrid): gọi bind() để
+     * hiển thị căn hộ
+     */
+    public ApartmentCard(Consumer<Apartment> onSelect,
+            Consumer<Apartment> onEdit,
+            Consumer<Apartment> onDelete) {
         this.onSelect = onSelect;
         this.onEdit = onEdit;
         this.onDelete = onDelete;
@@ -41,14 +68,14 @@ public class ApartmentCard extends JPanel {
         this.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (onSelect != null) {
+                if (onSelect != null && apartment != null) {
                     onSelect.accept(apartment);
                 }
             }
 
             @Override
             public void mouseEntered(MouseEvent e) {
-                setBackground(new Color(252, 252, 252));
+                setBackground(HOVER_COLOR);
                 repaint();
             }
 
@@ -62,6 +89,30 @@ public class ApartmentCard extends JPanel {
         initUI();
     }
 
+    /**
+     * Gắn dữ liệu căn hộ vào thẻ (dùng lại thẻ thay vì tạo mới)
+     */
+    public void bind(Apartment apartment, LocalDate contractEndDate) {
+        this.apartment = apartment;
+        this.contractEndDate = contractEndDate;
+        setBackground(null);
+
+        lblRoom.setText("P. " + apartment.getRoomNumber());
+        lblType.setText(apartment.getApartmentType() != null ? apartment.getApartmentType() : "Std");
+        applyStatusBadge(apartment.getStatus());
+        lblArea.setText(" " + apartment.getArea() + " m²");
+        lblBed.setText(" " + apartment.getBedroomCount() + " PN");
+        lblBath.setText(" " + apartment.getBathroomCount() + " PT");
+        updateFooterInfo();
+
+        revalidate();
+        repaint();
+    }
+
+    public Apartment getApartment() {
+        return apartment;
+    }
+
     private void initUI() {
         setLayout(new BorderLayout());
         setBorder(new EmptyBorder(12, 18, 12, 18));
@@ -73,13 +124,12 @@ public class ApartmentCard extends JPanel {
         JPanel titleGroup = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
         titleGroup.setOpaque(false);
 
-        JLabel lblRoom = new JLabel("P. " + apartment.getRoomNumber());
-        lblRoom.setFont(new Font("Segoe UI", Font.BOLD, 19));
+        lblRoom = new JLabel();
+        lblRoom.setFont(FONT_ROOM);
         lblRoom.setForeground(new Color(33, 33, 33));
 
-        String type = apartment.getApartmentType() != null ? apartment.getApartmentType() : "Std";
-        JLabel lblType = new JLabel(type);
-        lblType.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+        lblType = new JLabel();
+        lblType.setFont(FONT_TYPE);
         lblType.setForeground(Color.GRAY);
         lblType.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createLineBorder(new Color(220, 220, 220)), new EmptyBorder(1, 5, 1, 5)
@@ -88,7 +138,9 @@ public class ApartmentCard extends JPanel {
         titleGroup.add(lblRoom);
         titleGroup.add(lblType);
         headerPanel.add(titleGroup, BorderLayout.WEST);
-        headerPanel.add(createStatusBadge(apartment.getStatus()), BorderLayout.EAST);
+
+        badge = new StatusBadge();
+        headerPanel.add(badge, BorderLayout.EAST);
 
         // BODY
         JPanel bodyPanel = new JPanel();
@@ -98,11 +150,14 @@ public class ApartmentCard extends JPanel {
 
         JPanel specRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
         specRow.setOpaque(false);
-        specRow.add(createIconLabel("AREA", apartment.getArea() + " m²"));
+        lblArea = createIconLabel("AREA");
+        lblBed = createIconLabel("BED");
+        lblBath = createIconLabel("BATH");
+        specRow.add(lblArea);
         specRow.add(Box.createHorizontalStrut(12));
-        specRow.add(createIconLabel("BED", apartment.getBedroomCount() + " PN"));
+        specRow.add(lblBed);
         specRow.add(Box.createHorizontalStrut(12));
-        specRow.add(createIconLabel("BATH", apartment.getBathroomCount() + " PT"));
+        specRow.add(lblBath);
 
         bodyPanel.add(specRow);
         bodyPanel.add(Box.createVerticalStrut(5));
@@ -112,7 +167,8 @@ public class ApartmentCard extends JPanel {
         footerPanel.setOpaque(false);
         footerPanel.setBorder(new EmptyBorder(8, 0, 0, 0));
 
-        footerPanel.add(createFooterInfo(), BorderLayout.WEST);
+        lblFooter = new JLabel();
+        footerPanel.add(lblFooter, BorderLayout.WEST);
 
         JPanel btnGroup = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
         btnGroup.setOpaque(false);
@@ -149,32 +205,21 @@ public class ApartmentCard extends JPanel {
         add(footerPanel, BorderLayout.SOUTH);
     }
 
-    // ... (Giữ nguyên các hàm helper và Inner Class từ file gốc) ...
-    // --- Copy phần dưới để file chạy được ---
-    private JComponent createFooterInfo() {
+    private void updateFooterInfo() {
         String s = apartment.getStatus() == null ? "" : apartment.getStatus().trim();
         if (s.equalsIgnoreCase("OWNED")) {
-            JLabel lblOwned = new JLabel(" ĐÃ BÁN - Không cho thuê");
-            lblOwned.setFont(new Font("Segoe UI", Font.BOLD, 11));
-            lblOwned.setForeground(new Color(194, 24, 91));
-            lblOwned.setIcon(new CardIcon("CHECK", 14, new Color(194, 24, 91)));
-            return lblOwned;
+            setFooter(" ĐÃ BÁN - Không cho thuê", FONT_OWNED, new Color(194, 24, 91), "CHECK");
+            return;
         }
         boolean isRented = s.equalsIgnoreCase("RENTED") || s.equalsIgnoreCase("OCCUPIED") || s.equalsIgnoreCase("Đã thuê") || s.equalsIgnoreCase("Đang thuê");
         if (contractEndDate != null && isRented) {
             long days = ChronoUnit.DAYS.between(LocalDate.now(), contractEndDate);
-            JLabel lblAlert = new JLabel();
-            lblAlert.setFont(new Font("Segoe UI", Font.BOLD, 12));
             if (days < 0) {
-                lblAlert.setText(" QUÁ HẠN " + Math.abs(days) + " NGÀY");
-                lblAlert.setForeground(new Color(211, 47, 47));
-                lblAlert.setIcon(new CardIcon("WARNING", 14, new Color(211, 47, 47)));
-                return lblAlert;
+                setFooter(" QUÁ HẠN " + Math.abs(days) + " NGÀY", FONT_ALERT, new Color(211, 47, 47), "WARNING");
+                return;
             } else if (days <= 30) {
-                lblAlert.setText(" Hết hạn: " + days + " ngày");
-                lblAlert.setForeground(new Color(230, 81, 0));
-                lblAlert.setIcon(new CardIcon("TIME", 14, new Color(230, 81, 0)));
-                return lblAlert;
+                setFooter(" Hết hạn: " + days + " ngày", FONT_ALERT, new Color(230, 81, 0), "TIME");
+                return;
             }
         }
         String desc = apartment.getDescription();
@@ -184,10 +229,14 @@ public class ApartmentCard extends JPanel {
         if (desc.length() > 18) {
             desc = desc.substring(0, 16) + "...";
         }
-        JLabel lblDesc = new JLabel(desc);
-        lblDesc.setFont(new Font("Segoe UI", Font.ITALIC, 11));
-        lblDesc.setForeground(new Color(150, 150, 150));
-        return lblDesc;
+        setFooter(desc, FONT_DESC, new Color(150, 150, 150), null);
+    }
+
+    private void setFooter(String text, Font font, Color color, String iconType) {
+        lblFooter.setText(text);
+        lblFooter.setFont(font);
+        lblFooter.setForeground(color);
+        lblFooter.setIcon(iconType != null ? new CardIcon(iconType, 14, color) : null);
     }
 
     @Override
@@ -196,6 +245,10 @@ public class ApartmentCard extends JPanel {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
         g2.fill(new RoundRectangle2D.Float(0, 0, getWidth() - 1, getHeight() - 1, 20, 20));
+        if (apartment == null) {
+            g2.dispose();
+            return;
+        }
         String s = apartment.getStatus() == null ? "" : apartment.getStatus().trim();
         if (s.equalsIgnoreCase("OWNED")) {
             g2.setColor(new Color(233, 30, 99));
@@ -223,34 +276,23 @@ public class ApartmentCard extends JPanel {
         g2.dispose();
     }
 
-    private StatusBadge createStatusBadge(String status) {
+    private void applyStatusBadge(String status) {
         String s = (status == null) ? "AVAILABLE" : status.trim();
-        Color bg, fg;
-        String text;
         if (s.equalsIgnoreCase("OWNED")) {
-            bg = new Color(255, 235, 238);
-            fg = new Color(194, 24, 91);
-            text = "ĐÃ BÁN";
+            badge.setStyle("ĐÃ BÁN", new Color(255, 235, 238), new Color(194, 24, 91));
         } else if (s.equalsIgnoreCase("RENTED") || s.equalsIgnoreCase("OCCUPIED") || s.equalsIgnoreCase("Đã thuê") || s.equalsIgnoreCase("Đang thuê")) {
-            bg = new Color(232, 245, 233);
-            fg = new Color(46, 125, 50);
-            text = "ĐÃ THUÊ";
+            badge.setStyle("ĐÃ THUÊ", new Color(232, 245, 233), new Color(46, 125, 50));
         } else if (s.equalsIgnoreCase("MAINTENANCE") || s.equalsIgnoreCase("Bảo trì")) {
-            bg = new Color(255, 243, 224);
-            fg = new Color(239, 108, 0);
-            text = "BẢO TRÌ";
+            badge.setStyle("BẢO TRÌ", new Color(255, 243, 224), new Color(239, 108, 0));
         } else {
-            bg = new Color(227, 242, 253);
-            fg = new Color(25, 118, 210);
-            text = "TRỐNG";
+            badge.setStyle("TRỐNG", new Color(227, 242, 253), new Color(25, 118, 210));
         }
-        return new StatusBadge(text, bg, fg);
     }
 
-    private JLabel createIconLabel(String icon, String text) {
-        JLabel l = new JLabel(" " + text);
+    private JLabel createIconLabel(String icon) {
+        JLabel l = new JLabel();
         l.setIcon(new CardIcon(icon, 14, new Color(100, 100, 100)));
-        l.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        l.setFont(FONT_SPEC);
         l.setForeground(new Color(70, 70, 70));
         return l;
     }
@@ -267,17 +309,20 @@ public class ApartmentCard extends JPanel {
 
     private static class StatusBadge extends JLabel {
 
-        private Color bgColor, textColor;
+        private Color bgColor = Color.WHITE;
 
-        public StatusBadge(String text, Color bg, Color txt) {
-            super(text);
-            this.bgColor = bg;
-            this.textColor = txt;
-            setFont(new Font("Segoe UI", Font.BOLD, 10));
-            setForeground(textColor);
+        public StatusBadge() {
+            setFont(FONT_BADGE);
             setBorder(new EmptyBorder(3, 10, 3, 10));
         }
 
+        void setStyle(String text, Color bg, Color txt) {
+            setText(text);
+            this.bgColor = bg;
+            setForeground(txt);
+            repaint();
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             Graphics2D g2 = (Graphics2D) g.create();
@@ -2,14 +2,16 @@ package view;
 
 import dao.ApartmentDAO;
 import dao.BuildingDAO;
-import dao.ContractDAO;
+import dao.DataVersion;
 import dao.FloorDAO;
 import model.Apartment;
 import model.Building;
-import model.Contract;
+import model.ApartmentCardViewModel;
 import model.Floor;
+import util.AsyncLoader;
 import util.PermissionManager; // Import mới
 import util.UIConstants;
+import util.VirtualCardGrid;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -18,30 +20,30 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Path2D;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 
-public class ApartmentManagementPanel extends JPanel {
+public class ApartmentManagementPanel extends JPanel implements RefreshablePanel {
 
     private ApartmentDAO apartmentDAO;
     private BuildingDAO buildingDAO;
     private FloorDAO floorDAO;
-    private ContractDAO contractDAO;
     private PermissionManager permissionManager; // Khai báo
 
     private JComboBox<Building> cbbBuilding;
     private JComboBox<Floor> cbbFloor;
     private JComboBox<String> cbbStatusFilter;
-    private JPanel cardsContainer;
+    private VirtualCardGrid<ApartmentCardViewModel, ApartmentCard> cardsContainer;
 
     private Building currentBuilding;
     private Floor currentFloor;
 
+    // Tải dữ liệu nền (ngoài EDT)
+    private final AsyncLoader loader = new AsyncLoader(this);
+
     public ApartmentManagementPanel() {
         this.apartmentDAO = new ApartmentDAO();
         this.buildingDAO = new BuildingDAO();
         this.floorDAO = new FloorDAO();
-        this.contractDAO = new ContractDAO();
         this.permissionManager = PermissionManager.getInstance(); // Init
 
         initUI();
@@ -72,6 +74,16 @@ public class ApartmentManagementPanel extends JPanel {
         });
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.APARTMENT, DataVersion.Domain.CONTRACT, DataVersion.Domain.RESIDENT};
+    }
+
+    @Override
+    public void refreshData() {
+        loadApartments();
+    }
+
     private void initUI() {
         setLayout(new BorderLayout(20, 20));
         setBackground(UIConstants.BACKGROUND_COLOR);
@@ -200,14 +212,11 @@ public class ApartmentManagementPanel extends JPanel {
         add(headerPanel, BorderLayout.NORTH);
 
         // === CONTENT ===
-        cardsContainer = new JPanel(new GridLayout(0, 3, 20, 20));
+        // Lưới ảo: chỉ tạo thẻ cho vùng đang nhìn thấy, thẻ được dùng lại khi cuộn/đổi bộ lọc
+        cardsContainer = new VirtualCardGrid<>(3, 20, 20, 185, this::createApartmentCard, this::bindApartmentCard);
         cardsContainer.setBackground(UIConstants.BACKGROUND_COLOR);
 
-        JPanel contentWrapper = new JPanel(new BorderLayout());
-        contentWrapper.setBackground(UIConstants.BACKGROUND_COLOR);
-        contentWrapper.add(cardsContainer, BorderLayout.NORTH);
-
-        JScrollPane scrollPane = new JScrollPane(contentWrapper);
+        JScrollPane scrollPane = new JScrollPane(cardsContainer);
         scrollPane.setBorder(null);
         scrollPane.setBackground(UIConstants.BACKGROUND_COLOR);
         scrollPane.getViewport().setBackground(UIConstants.BACKGROUND_COLOR);
@@ -248,33 +257,38 @@ public class ApartmentManagementPanel extends JPanel {
     }
 
     private void loadApartments() {
-        cardsContainer.removeAll();
         if (currentBuilding == null) {
-            cardsContainer.revalidate();
-            cardsContainer.repaint();
+            loader.cancel();
+            cardsContainer.clear();
             return;
         }
 
-        List<Apartment> list;
+        // Đọc trạng thái bộ lọc trên EDT, query chạy nền
+        final Long buildingId = currentBuilding.getId();
         Floor selectedFloor = (Floor) cbbFloor.getSelectedItem();
+        final Long floorId;
         if (selectedFloor != null && selectedFloor.getId() != null) {
-            list = apartmentDAO.getApartmentsByFloorId(selectedFloor.getId());
+            floorId = selectedFloor.getId();
             currentFloor = selectedFloor;
         } else {
-            list = apartmentDAO.getApartmentsByBuildingId(currentBuilding.getId());
+            floorId = null;
             currentFloor = null;
         }
+        final String statusFilter = (String) cbbStatusFilter.getSelectedItem();
 
-        String statusFilter = (String) cbbStatusFilter.getSelectedItem();
-        if (statusFilter != null && !statusFilter.equals("Tất cả trạng thái")) {
-            list = filterByStatus(list, statusFilter);
-        }
+        loader.load(() -> {
+            // 1 query: căn hộ + HĐ hiệu lực (ngày hết hạn, cư dân)
+            List<ApartmentCardViewModel> items = apartmentDAO.getApartmentCards(buildingId, floorId);
 
-        // Chuẩn bị quyền Edit/Delete
-        boolean canEdit = permissionManager.canEdit(PermissionManager.MODULE_APARTMENTS);
-        boolean canDelete = permissionManager.canDelete(PermissionManager.MODULE_APARTMENTS);
+            if (statusFilter != null && !statusFilter.equals("Tất cả trạng thái")) {
+                items.removeIf(item -> !matchesStatus(item.getApartment(), statusFilter));
+            }
+            return items;
+        }, this::renderApartments);
+    }
 
-        if (list.isEmpty()) {
+    private void renderApartments(List<ApartmentCardViewModel> items) {
+        if (items.isEmpty()) {
             JLabel emptyLabel = new JLabel("Không có căn hộ nào");
             emptyLabel.setFont(new Font("Segoe UI", Font.ITALIC, 16));
             emptyLabel.setForeground(Color.GRAY);
@@ -283,33 +297,33 @@ public class ApartmentManagementPanel extends JPanel {
             JPanel emptyPanel = new JPanel(new BorderLayout());
             emptyPanel.setBackground(UIConstants.BACKGROUND_COLOR);
             emptyPanel.add(emptyLabel, BorderLayout.CENTER);
-            cardsContainer.add(emptyPanel);
+            cardsContainer.showPlaceholder(emptyPanel);
         } else {
-            for (Apartment apt : list) {
-                LocalDate realEndDate = null;
+            cardsContainer.setItems(items);
+        }
+    }
 
-                String st = (apt.getStatus() == null) ? "" : apt.getStatus();
+    private ApartmentCard createApartmentCard() {
+        // Chuẩn bị quyền Edit/Delete
+        boolean canEdit = permissionManager.canEdit(PermissionManager.MODULE_APARTMENTS);
+        boolean canDelete = permissionManager.canDelete(PermissionManager.MODULE_APARTMENTS);
 
-                if ("RENTED".equalsIgnoreCase(st)) {
-                    Contract c = contractDAO.getActiveContractByApartmentId(apt.getId());
-                    if (c != null && c.getEndDate() != null) {
-                        realEndDate = new java.sql.Date(c.getEndDate().getTime()).toLocalDate();
-                    }
-                }
+        // --- TRUYỀN CALLBACK (Nếu không có quyền thì truyền NULL) ---
+        return new ApartmentCard(
+                this::showQuickView,
+                canEdit ? this::editApartment : null,
+                canDelete ? this::deleteApartment : null
+        );
+    }
 
-                // --- TRUYỀN CALLBACK (Nếu không có quyền thì truyền NULL) ---
-                cardsContainer.add(new ApartmentCard(
-                        apt,
-                        realEndDate,
-                        this::showQuickView,
-                        canEdit ? this::editApartment : null,
-                        canDelete ? this::deleteApartment : null
-                ));
-            }
-        }
+    private void bindApartmentCard(ApartmentCard card, ApartmentCardViewModel item) {
+        Apartment apt = item.getApartment();
+        String st = (apt.getStatus() == null) ? "" : apt.getStatus();
+        // Chỉ căn đang thuê mới hiện cảnh báo hết hạn HĐ
+        LocalDate endDate = "RENTED".equalsIgnoreCase(st) ? item.getContractEndDate() : null;
 
-        cardsContainer.revalidate();
-        cardsContainer.repaint();
+        card.bind(apt, endDate);
+        card.setToolTipText(item.getResidentName() != null ? "Cư dân: " + item.getResidentName() : null);
     }
 
     private void showQuickView(Apartment apt) {
@@ -332,37 +346,25 @@ public class ApartmentManagementPanel extends JPanel {
         dialog.setVisible(true);
     }
 
-    // ... (Giữ nguyên filterByStatus, showAddDialog, editApartment, deleteApartment, isRoomNumberExists, createBackArrowButton, RoundedButton, HeaderIcon) ...
+    // ... (Giữ nguyên matchesStatus, showAddDialog, editApartment, deleteApartment, isRoomNumberExists, createBackArrowButton, RoundedButton, HeaderIcon) ...
     // --- Copy phần dưới ---
-    private List<Apartment> filterByStatus(List<Apartment> apartments, String statusFilter) {
-        List<Apartment> filtered = new ArrayList<>();
-        for (Apartment apt : apartments) {
-            String aptStatus = apt.getStatus();
-            if (aptStatus == null) {
-                aptStatus = "AVAILABLE";
-            }
-            boolean match = false;
-            switch (statusFilter) {
-                case "Trống":
-                    match = "AVAILABLE".equalsIgnoreCase(aptStatus);
-                    break;
-                case "Đã thuê":
-                    match = "RENTED".equalsIgnoreCase(aptStatus);
-                    break;
-                case "Đã bán":
-                    match = "OWNED".equalsIgnoreCase(aptStatus);
-                    break;
-                case "Bảo trì":
-                    match = "MAINTENANCE".equalsIgnoreCase(aptStatus);
-                    break;
-                default:
-                    match = true;
-            }
-            if (match) {
-                filtered.add(apt);
-            }
+    private boolean matchesStatus(Apartment apt, String statusFilter) {
+        String aptStatus = apt.getStatus();
+        if (aptStatus == null) {
+            aptStatus = "AVAILABLE";
+        }
+        switch (statusFilter) {
+            case "Trống":
+                return "AVAILABLE".equalsIgnoreCase(aptStatus);
+            case "Đã thuê":
+                return "RENTED".equalsIgnoreCase(aptStatus);
+            case "Đã bán":
+                return "OWNED".equalsIgnoreCase(aptStatus);
+            case "Bảo trì":
+                return "MAINTENANCE".equalsIgnoreCase(aptStatus);
+            default:
+                return true;
         }
-        return filtered;
     }
 
     private void showAddDialog() {
@@ -1,7 +1,6 @@
 package view;
 
 import dao.FloorDAO;
-import model.Floor;
 import util.UIConstants;
 
 import javax.swing.*;
@@ -12,6 +11,8 @@ import java.awt.*;
 public class BatchAddFloorDialog extends JDialog {
 
     private JTextField txtFrom, txtTo, txtPrefix;
+    private JTextField txtAptPerFloor, txtRoomPattern, txtArea;
+    private JComboBox<String> cbbType;
     private JLabel lblPreview;
     private Long buildingId;
     private FloorDAO floorDAO;
@@ -23,7 +24,7 @@ public class BatchAddFloorDialog extends JDialog {
         this.floorDAO = new FloorDAO();
 
         initUI();
-        setSize(450, 480);
+        setSize(480, 640);
         setLocationRelativeTo(owner);
         setResizable(false);
     }
@@ -66,9 +67,35 @@ public class BatchAddFloorDialog extends JDialog {
         contentPanel.add(Box.createVerticalStrut(20));
 
         contentPanel.add(createFieldGroup("Tên Hiển Thị (Tiền tố)", txtPrefix));
+        contentPanel.add(Box.createVerticalStrut(20));
+
+        // Căn hộ tạo kèm mỗi tầng (0 = chỉ tạo tầng)
+        txtAptPerFloor = createRoundedField();
+        txtAptPerFloor.setText("0");
+        txtRoomPattern = createRoundedField();
+        txtRoomPattern.setText("{F}{NN}");
+
+        JPanel rowApartments = new JPanel(new GridLayout(1, 2, 20, 0));
+        rowApartments.setBackground(Color.WHITE);
+        rowApartments.add(createFieldGroup("Số Căn Mỗi Tầng", txtAptPerFloor));
+        rowApartments.add(createFieldGroup("Số Phòng ({F}=tầng, {NN}=căn)", txtRoomPattern));
+        contentPanel.add(rowApartments);
+        contentPanel.add(Box.createVerticalStrut(20));
+
+        txtArea = createRoundedField();
+        txtArea.setText("50");
+        cbbType = new JComboBox<>(new String[]{"Standard", "Studio", "Mini", "Duplex", "Penthouse", "Shophouse"});
+        cbbType.setFont(UIConstants.FONT_REGULAR);
+        cbbType.setBackground(Color.WHITE);
+
+        JPanel rowApartmentInfo = new JPanel(new GridLayout(1, 2, 20, 0));
+        rowApartmentInfo.setBackground(Color.WHITE);
+        rowApartmentInfo.add(createFieldGroup("Diện Tích (m²)", txtArea));
+        rowApartmentInfo.add(createFieldGroup("Loại Căn Hộ", cbbType));
+        contentPanel.add(rowApartmentInfo);
         contentPanel.add(Box.createVerticalStrut(10));
 
-        lblPreview = new JLabel("Hệ thống sẽ tự động bỏ qua nếu tên tầng đã tồn tại.");
+        lblPreview = new JLabel("Hệ thống sẽ tự động bỏ qua nếu tên tầng / số phòng đã tồn tại.");
         lblPreview.setFont(new Font("Segoe UI", Font.ITALIC, 12));
         lblPreview.setForeground(new Color(255, 152, 0)); // Màu cam cảnh báo
         contentPanel.add(lblPreview);
@@ -110,6 +137,9 @@ public class BatchAddFloorDialog extends JDialog {
         try {
             int from = Integer.parseInt(fromStr);
             int to = Integer.parseInt(toStr);
+            int aptPerFloor = Integer.parseInt(txtAptPerFloor.getText().trim());
+            double area = Double.parseDouble(txtArea.getText().trim().replace(',', '.'));
+            String roomPattern = txtRoomPattern.getText().trim();
 
             if (from > to) {
                 JOptionPane.showMessageDialog(this, "Số bắt đầu phải nhỏ hơn số kết thúc!", "Lỗi logic", JOptionPane.ERROR_MESSAGE);
@@ -121,40 +151,64 @@ public class BatchAddFloorDialog extends JDialog {
                 return;
             }
 
+            if (aptPerFloor < 0 || aptPerFloor > 50) {
+                JOptionPane.showMessageDialog(this, "Số căn mỗi tầng phải từ 0 đến 50!", "Giới hạn", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            if (aptPerFloor > 0 && (area <= 0 || !roomPattern.contains("{N"))) {
+                JOptionPane.showMessageDialog(this, "Diện tích phải lớn hơn 0 và mẫu số phòng phải chứa {N} hoặc {NN}!",
+                        "Lỗi nhập liệu", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
             // HỎI XÁC NHẬN TRƯỚC KHI CHẠY BATCH
-            int choice = JOptionPane.showConfirmDialog(this,
-                    "Bạn có chắc chắn muốn tạo " + (to - from + 1) + " tầng không?",
+            String question = "Bạn có chắc chắn muốn tạo " + (to - from + 1) + " tầng";
+            if (aptPerFloor > 0) {
+                question += " (mỗi tầng " + aptPerFloor + " căn hộ)";
+            }
+            int choice = JOptionPane.showConfirmDialog(this, question + " không?",
                     "Xác nhận", JOptionPane.YES_NO_OPTION);
 
             if (choice != JOptionPane.YES_OPTION) {
                 return;
             }
 
-            int successCount = 0;
-            int skipCount = 0;
-
-            for (int i = from; i <= to; i++) {
-                String floorName = prefix + " " + i; // VD: "Tầng 1"
-
-                // Kiểm tra trùng tên từ DAO
-                if (floorDAO.isFloorNameExists(buildingId, floorName)) {
-                    skipCount++;
-                    continue;
-                }
-
-                Floor f = new Floor();
-                f.setBuildingId(buildingId);
-                f.setFloorNumber(i);
-                f.setName(floorName);
+            FloorDAO.ScaffoldTemplate template = new FloorDAO.ScaffoldTemplate();
+            template.fromFloor = from;
+            template.toFloor = to;
+            template.namePrefix = prefix;
+            template.apartmentsPerFloor = aptPerFloor;
+            template.roomPattern = roomPattern;
+            template.area = area;
+            template.apartmentType = (String) cbbType.getSelectedItem();
+
+            // 1 transaction cho cả tầng lẫn căn hộ
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            FloorDAO.ScaffoldResult result;
+            try {
+                result = floorDAO.scaffoldFloors(buildingId, template);
+            } finally {
+                setCursor(Cursor.getDefaultCursor());
+            }
 
-                if (floorDAO.insertFloor(f)) {
-                    successCount++;
-                }
+            if (result == null) {
+                JOptionPane.showMessageDialog(this, "Lỗi tạo tầng, chưa có dữ liệu nào được lưu!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+                return;
             }
 
-            String msg = "Đã thêm thành công: " + successCount + " tầng.";
-            if (skipCount > 0) {
-                msg += "\nĐã bỏ qua " + skipCount + " tầng do trùng tên.";
+            String msg = "Đã thêm thành công: " + (result.floorsCreated + result.floorsRestored) + " tầng.";
+            if (result.floorsRestored > 0) {
+                msg += "\n(Khôi phục " + result.floorsRestored + " tầng đã xóa trước đó.)";
+            }
+            if (result.floorsSkipped > 0) {
+                msg += "\nĐã bỏ qua " + result.floorsSkipped + " tầng do trùng tên.";
+            }
+            if (result.apartmentsCreated > 0) {
+                msg += "\nĐã tạo " + result.apartmentsCreated + " căn hộ.";
+            }
+            if (result.apartmentsSkipped > 0) {
+                msg += "\nĐã bỏ qua " + result.apartmentsSkipped + " căn hộ do trùng số phòng.";
             }
 
             JOptionPane.showMessageDialog(this, msg, "Hoàn tất", JOptionPane.INFORMATION_MESSAGE);
@@ -162,7 +216,7 @@ public class BatchAddFloorDialog extends JDialog {
             dispose();
 
         } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Số tầng phải là số nguyên!", "Lỗi nhập liệu", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(this, "Số tầng, số căn và diện tích phải là số!", "Lỗi nhập liệu", JOptionPane.ERROR_MESSAGE);
         }
     }
 
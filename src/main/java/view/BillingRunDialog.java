@@ -0,0 +1,366 @@
+package view;
+
+import dao.BillingRunDAO;
+import dao.BuildingDAO;
+import model.Building;
+import util.ModernButton;
+import util.UIConstants;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Lập hóa đơn hàng loạt cho 1 kỳ trên các tòa nhà được chọn: xem trước (không
+ * ghi gì) rồi mới lập. Hợp đồng đã có hóa đơn của kỳ được bỏ qua.
+ */
+public class BillingRunDialog extends JDialog {
+
+    private final BillingRunDAO billingRunDAO = new BillingRunDAO();
+    private final BuildingDAO buildingDAO = new BuildingDAO();
+
+    private JComboBox<Integer> monthCombo;
+    private JComboBox<Integer> yearCombo;
+    private final List<JCheckBox> buildingChecks = new ArrayList<>();
+    private final List<Building> buildings = new ArrayList<>();
+
+    private DefaultTableModel previewModel;
+    private JLabel summaryLabel;
+    private JProgressBar progressBar;
+    private ModernButton btnPreview;
+    private ModernButton btnRun;
+
+    // Bản xem trước hiện tại (null = chưa xem hoặc bộ lọc đã đổi)
+    private BillingRunDAO.BillingPlan plan;
+    private boolean running = false;
+    private boolean confirmed = false;
+
+    private final DecimalFormat moneyFormat = new DecimalFormat("#,##0");
+
+    public BillingRunDialog(JFrame parent, int month, int year) {
+        super(parent, "Lập Hóa Đơn Hàng Loạt", true);
+
+        setSize(900, 650);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                closeIfIdle();
+            }
+        });
+        getContentPane().setBackground(UIConstants.BACKGROUND_COLOR);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(0, 15));
+        mainPanel.setBackground(UIConstants.BACKGROUND_COLOR);
+        mainPanel.setBorder(new EmptyBorder(20, 25, 20, 25));
+        mainPanel.add(createFilterPanel(month, year), BorderLayout.NORTH);
+        mainPanel.add(createPreviewPanel(), BorderLayout.CENTER);
+        mainPanel.add(createFooter(), BorderLayout.SOUTH);
+        setContentPane(mainPanel);
+
+        setLocationRelativeTo(parent);
+    }
+
+    private JPanel createFilterPanel(int month, int year) {
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        JLabel title = new JLabel("🧾 Lập Hóa Đơn Hàng Loạt");
+        title.setFont(new Font("Segoe UI", Font.BOLD, 22));
+        title.setForeground(UIConstants.TEXT_PRIMARY);
+        panel.add(title, BorderLayout.NORTH);
+
+        JPanel periodPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        periodPanel.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        monthCombo = new JComboBox<>();
+        for (int m = 1; m <= 12; m++) {
+            monthCombo.addItem(m);
+        }
+        monthCombo.setSelectedItem(month);
+
+        yearCombo = new JComboBox<>();
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int y = currentYear - 2; y <= currentYear + 1; y++) {
+            yearCombo.addItem(y);
+        }
+        yearCombo.setSelectedItem(year);
+
+        monthCombo.addActionListener(e -> invalidatePlan());
+        yearCombo.addActionListener(e -> invalidatePlan());
+
+        periodPanel.add(new JLabel("Tháng:"));
+        periodPanel.add(monthCombo);
+        periodPanel.add(new JLabel("Năm:"));
+        periodPanel.add(yearCombo);
+        periodPanel.add(Box.createHorizontalStrut(20));
+
+        JCheckBox chkAll = new JCheckBox("Chọn tất cả tòa nhà", true);
+        chkAll.setBackground(UIConstants.BACKGROUND_COLOR);
+        chkAll.addActionListener(e -> {
+            for (JCheckBox check : buildingChecks) {
+                check.setSelected(chkAll.isSelected());
+            }
+            invalidatePlan();
+        });
+        periodPanel.add(chkAll);
+
+        JPanel buildingPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        buildingPanel.setBackground(Color.WHITE);
+        for (Building building : buildingDAO.getAllBuildings()) {
+            JCheckBox check = new JCheckBox(building.getName(), true);
+            check.setBackground(Color.WHITE);
+            check.addActionListener(e -> invalidatePlan());
+            buildings.add(building);
+            buildingChecks.add(check);
+            buildingPanel.add(check);
+        }
+        JScrollPane buildingScroll = new JScrollPane(buildingPanel);
+        buildingScroll.setPreferredSize(new Dimension(0, 70));
+        buildingScroll.setBorder(BorderFactory.createTitledBorder("Tòa nhà"));
+
+        JPanel center = new JPanel(new BorderLayout(0, 8));
+        center.setBackground(UIConstants.BACKGROUND_COLOR);
+        center.add(periodPanel, BorderLayout.NORTH);
+        center.add(buildingScroll, BorderLayout.CENTER);
+        panel.add(center, BorderLayout.CENTER);
+
+        return panel;
+    }
+
+    private JPanel createPreviewPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        String[] columns = {"Tòa nhà", "Căn hộ", "Số HĐ", "Tiền thuê", "Dịch vụ", "Tổng tiền"};
+        previewModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(previewModel);
+        table.setRowHeight(28);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 13));
+
+        JScrollPane scroll = new JScrollPane(table);
+        scroll.setBorder(BorderFactory.createLineBorder(UIConstants.BORDER_COLOR));
+        panel.add(scroll, BorderLayout.CENTER);
+
+        summaryLabel = new JLabel("Chọn kỳ và tòa nhà rồi bấm \"Xem trước\"");
+        summaryLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        summaryLabel.setForeground(UIConstants.TEXT_SECONDARY);
+        panel.add(summaryLabel, BorderLayout.SOUTH);
+
+        return panel;
+    }
+
+    private JPanel createFooter() {
+        JPanel panel = new JPanel(new BorderLayout(15, 0));
+        panel.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        panel.add(progressBar, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttons.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        btnPreview = new ModernButton("👁️ Xem trước", UIConstants.INFO_COLOR);
+        btnPreview.addActionListener(e -> previewPlan());
+
+        btnRun = new ModernButton("✅ Lập hóa đơn", new Color(46, 125, 50));
+        btnRun.setEnabled(false);
+        btnRun.addActionListener(e -> runPlan());
+
+        ModernButton btnClose = new ModernButton("Đóng", new Color(158, 158, 158));
+        btnClose.addActionListener(e -> closeIfIdle());
+
+        buttons.add(btnPreview);
+        buttons.add(btnRun);
+        buttons.add(btnClose);
+        panel.add(buttons, BorderLayout.EAST);
+
+        return panel;
+    }
+
+    // ===== XEM TRƯỚC / LẬP HÓA ĐƠN =====
+
+    private void invalidatePlan() {
+        plan = null;
+        btnRun.setEnabled(false);
+    }
+
+    private List<Building> getSelectedBuildings() {
+        List<Building> selected = new ArrayList<>();
+        for (int i = 0; i < buildingChecks.size(); i++) {
+            if (buildingChecks.get(i).isSelected()) {
+                selected.add(buildings.get(i));
+            }
+        }
+        return selected;
+    }
+
+    private void previewPlan() {
+        List<Building> selected = getSelectedBuildings();
+        if (selected.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Vui lòng chọn ít nhất 1 tòa nhà!",
+                    "Cảnh báo", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        final int month = (Integer) monthCombo.getSelectedItem();
+        final int year = (Integer) yearCombo.getSelectedItem();
+
+        setRunning(true);
+        SwingWorker<BillingRunDAO.BillingPlan, Void> worker = new SwingWorker<BillingRunDAO.BillingPlan, Void>() {
+            @Override
+            protected BillingRunDAO.BillingPlan doInBackground() {
+                return billingRunDAO.plan(month, year, selected, BillingRunDialog.this::showProgress);
+            }
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                try {
+                    showPlan(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    showPlan(null);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showPlan(BillingRunDAO.BillingPlan result) {
+        plan = result;
+        previewModel.setRowCount(0);
+        if (result == null) {
+            summaryLabel.setText("❌ Không thể tính hóa đơn, vui lòng thử lại");
+            btnRun.setEnabled(false);
+            return;
+        }
+
+        for (BillingRunDAO.BuildingPlan building : result.buildings) {
+            for (BillingRunDAO.PlannedInvoice invoice : building.invoices) {
+                previewModel.addRow(new Object[]{
+                    building.buildingName,
+                    invoice.apartmentNumber,
+                    invoice.contractNumber,
+                    moneyFormat.format(invoice.rentAmount),
+                    moneyFormat.format(invoice.serviceAmount),
+                    moneyFormat.format(invoice.totalAmount)
+                });
+            }
+        }
+
+        summaryLabel.setText(String.format("📋 Kỳ %02d/%d: %d hóa đơn - Tổng %s VNĐ - Bỏ qua %d hợp đồng "
+                + "(đã có hóa đơn hoặc không có khoản thu)",
+                result.month, result.year, result.getInvoiceCount(),
+                moneyFormat.format(result.getTotalAmount()), result.getSkippedCount()));
+        btnRun.setEnabled(result.getInvoiceCount() > 0);
+    }
+
+    private void runPlan() {
+        if (plan == null || plan.getInvoiceCount() == 0) {
+            return;
+        }
+        int choice = JOptionPane.showConfirmDialog(this,
+                String.format("Lập %d hóa đơn cho kỳ %02d/%d?\n\nTổng tiền: %s VNĐ",
+                        plan.getInvoiceCount(), plan.month, plan.year, moneyFormat.format(plan.getTotalAmount())),
+                "Xác nhận", JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        final BillingRunDAO.BillingPlan runPlan = plan;
+        setRunning(true);
+        SwingWorker<BillingRunDAO.BillingRunResult, Void> worker = new SwingWorker<BillingRunDAO.BillingRunResult, Void>() {
+            @Override
+            protected BillingRunDAO.BillingRunResult doInBackground() {
+                return billingRunDAO.execute(runPlan, BillingRunDialog.this::showProgress);
+            }
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                invalidatePlan();
+                previewModel.setRowCount(0);
+                try {
+                    showRunResult(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(BillingRunDialog.this, "Lập hóa đơn thất bại!",
+                            "Lỗi", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showRunResult(BillingRunDAO.BillingRunResult result) {
+        if (result.created > 0) {
+            confirmed = true;
+        }
+        summaryLabel.setText(String.format("✅ Đã lập %d hóa đơn - Tổng %s VNĐ",
+                result.created, moneyFormat.format(result.totalAmount)));
+
+        StringBuilder message = new StringBuilder();
+        message.append("Đã lập ").append(result.created).append(" hóa đơn.");
+        if (result.skipped > 0) {
+            message.append("\nBỏ qua ").append(result.skipped).append(" hợp đồng vừa có hóa đơn của kỳ.");
+        }
+        if (!result.failedBuildings.isEmpty()) {
+            message.append("\n\nLỗi (không ghi hóa đơn nào) ở tòa: ")
+                    .append(String.join(", ", result.failedBuildings));
+        }
+        JOptionPane.showMessageDialog(this, message.toString(),
+                result.failedBuildings.isEmpty() ? "Thành công" : "Hoàn tất (có lỗi)",
+                result.failedBuildings.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Gọi từ thread nền của DAO
+     */
+    private void showProgress(int percent, String message) {
+        SwingUtilities.invokeLater(() -> {
+            progressBar.setValue(percent);
+            progressBar.setString(percent + "% - " + message);
+        });
+    }
+
+    private void setRunning(boolean running) {
+        this.running = running;
+        btnPreview.setEnabled(!running);
+        btnRun.setEnabled(!running && plan != null && plan.getInvoiceCount() > 0);
+        monthCombo.setEnabled(!running);
+        yearCombo.setEnabled(!running);
+        for (JCheckBox check : buildingChecks) {
+            check.setEnabled(!running);
+        }
+        setCursor(running ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    /**
+     * Không đóng khi đang ghi dở (transaction của tòa đang chạy vẫn hoàn tất)
+     */
+    private void closeIfIdle() {
+        if (running) {
+            JOptionPane.showMessageDialog(this, "Đang xử lý, vui lòng chờ hoàn tất!",
+                    "Thông báo", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        dispose();
+    }
+
+    public boolean isConfirmed() {
+        return confirmed;
+    }
+}
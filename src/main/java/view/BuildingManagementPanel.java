@@ -1,8 +1,10 @@
 package view;
 
 import dao.BuildingDAO;
+import dao.DataVersion;
 import dao.BuildingDAO.BuildingStats;
 import model.Building;
+import util.AsyncLoader;
 import util.BuildingContext;
 import util.PermissionManager;
 import util.UIConstants;
@@ -10,13 +12,17 @@ import util.UIConstants;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
-public class BuildingManagementPanel extends JPanel {
+public class BuildingManagementPanel extends JPanel implements RefreshablePanel {
 
     private final BuildingDAO buildingDAO = new BuildingDAO();
     private final PermissionManager permissionManager = PermissionManager.getInstance();
+    private final AsyncLoader loader = new AsyncLoader(this);
 
     private JPanel cardsContainer;
     private JButton btnAdd;
@@ -34,6 +40,16 @@ public class BuildingManagementPanel extends JPanel {
         loadBuildings();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.BUILDING, DataVersion.Domain.FLOOR, DataVersion.Domain.APARTMENT};
+    }
+
+    @Override
+    public void refreshData() {
+        loadBuildings();
+    }
+
     // =====================================================
     // UI
     // =====================================================
@@ -85,14 +101,29 @@ public class BuildingManagementPanel extends JPanel {
     // LOAD DATA (ĐÃ FIX: Hiển thị toàn bộ danh sách được phân quyền)
     // =====================================================
     private void loadBuildings() {
-        cardsContainer.removeAll();
-
         // ✅ FIX: Lấy trực tiếp danh sách từ DAO
         // BuildingDAO đã tự động lọc theo bảng user_buildings (Manager thấy list tòa mình quản lý)
         // Admin thấy toàn bộ.
-        List<Building> displayBuildings = buildingDAO.getAllBuildings();
+        // Query chạy nền, render lại trên EDT
+        loader.load(() -> {
+            List<Building> buildings = buildingDAO.getAllBuildings();
+            List<Long> ids = new ArrayList<>(buildings.size());
+            for (Building b : buildings) {
+                ids.add(b.getId());
+            }
+            // Thống kê mọi tòa bằng 1 query thay vì 3 query / tòa
+            Map<Long, BuildingStats> statsById = buildingDAO.getBuildingStatistics(ids);
+
+            Map<Building, BuildingStats> result = new LinkedHashMap<>();
+            for (Building b : buildings) {
+                result.put(b, statsById.get(b.getId()));
+            }
+            return result;
+        }, this::renderBuildings);
+    }
 
-        // Không còn đoạn code tự filter bằng getBuildingFilter() ở đây nữa
+    private void renderBuildings(Map<Building, BuildingStats> displayBuildings) {
+        cardsContainer.removeAll();
 
         if (displayBuildings.isEmpty()) {
             cardsContainer.setLayout(new BorderLayout());
@@ -110,14 +141,12 @@ public class BuildingManagementPanel extends JPanel {
             cardsContainer.add(emptyLabel, BorderLayout.CENTER);
         } else {
             cardsContainer.setLayout(new GridLayout(0, 2, 25, 25)); // Reset layout
-            for (Building b : displayBuildings) {
-                BuildingStats stats = buildingDAO.getBuildingStatistics(b.getId());
-
+            for (Map.Entry<Building, BuildingStats> entry : displayBuildings.entrySet()) {
                 // Tạo Card hiển thị thông tin
                 // Chỉ truyền callback edit/delete nếu là Admin
                 cardsContainer.add(new BuildingCard(
-                        b,
-                        stats,
+                        entry.getKey(),
+                        entry.getValue(),
                         onBuildingSelect,
                         permissionManager.isAdmin() ? this::editBuilding : null,
                         permissionManager.isAdmin() ? this::deleteBuilding : null
@@ -1,5 +1,6 @@
 package view;
 
+import connection.UnitOfWork;
 import dao.*;
 import model.*;
 import util.UIConstants;
@@ -745,7 +746,11 @@ public class ContractFormDialog extends JDialog {
         if (!validateForm()) {
             return;
         }
-        try {
+        try (UnitOfWork uow = UnitOfWork.begin()) {
+            // Cư dân + hợp đồng + dịch vụ + trạng thái căn hộ: 1 kết nối, 1
+            // transaction (bước nào lỗi → không lưu gì, không còn cư dân / hợp
+            // đồng "mồ côi")
+
             // 1. Resident
             Resident resident = new Resident();
             if (isEditMode) {
@@ -760,9 +765,14 @@ public class ContractFormDialog extends JDialog {
             resident.setEmail(txtResidentEmail.getText().trim());
 
             if (isEditMode) {
-                residentDAO.updateResident(resident);
+                if (!residentDAO.updateResident(resident)) {
+                    uow.rollback();
+                    JOptionPane.showMessageDialog(this, "Lỗi cập nhật cư dân!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
             } else {
                 if (!residentDAO.insertResident(resident)) {
+                    uow.rollback();
                     JOptionPane.showMessageDialog(this, "Lỗi tạo cư dân!", "Lỗi", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
@@ -773,7 +783,9 @@ public class ContractFormDialog extends JDialog {
             if (!isEditMode) {
                 ApartmentDisplay ad = (ApartmentDisplay) cmbApartment.getSelectedItem();
                 contract.setApartmentId(ad.apartment.getId());
-                contract.setContractNumber(contractDAO.generateContractNumber());
+                // Dùng số đã cấp lúc mở form (mỗi lần gọi generate là 1 số mới)
+                String number = txtContractNumber.getText().trim();
+                contract.setContractNumber(number.isEmpty() ? contractDAO.generateContractNumber() : number);
             }
 
             contract.setContractType("Thuê".equals(cmbContractType.getSelectedItem()) ? "RENTAL" : "OWNERSHIP");
@@ -791,41 +803,52 @@ public class ContractFormDialog extends JDialog {
             contract.setStatus("ACTIVE");
 
             boolean success = isEditMode ? contractDAO.updateContract(contract) : contractDAO.insertContract(contract);
-            if (success) {
-                // ✅ FIX: LOGIC UPDATE DỊCH VỤ (XÓA CŨ -> THÊM MỚI)
-                if (contract.getId() != null) {
-                    contractServiceDAO.deleteServicesByContract(contract.getId()); // Clean old
-
-                    List<Long> sIds = new ArrayList<>();
-                    for (JCheckBox cb : serviceCheckboxes) {
-                        if (cb.isSelected()) {
-                            sIds.add(((Service) cb.getClientProperty("service")).getId());
-                        }
-                    }
-                    if (!sIds.isEmpty()) {
-                        contractServiceDAO.insertServicesForContract(contract.getId(), sIds,
-                                contract.getStartDate() != null ? contract.getStartDate() : new Date());
+            if (!success) {
+                uow.rollback();
+                JOptionPane.showMessageDialog(this, "Lỗi lưu hợp đồng!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            // 3. Dịch vụ (xóa cũ -> thêm mới)
+            if (contract.getId() != null) {
+                contractServiceDAO.deleteServicesByContract(contract.getId());
+
+                List<Long> sIds = new ArrayList<>();
+                for (JCheckBox cb : serviceCheckboxes) {
+                    if (cb.isSelected()) {
+                        sIds.add(((Service) cb.getClientProperty("service")).getId());
                     }
                 }
-
-                // Update Apartment Status if new
-                if (!isEditMode) {
-                    ApartmentDisplay ad = (ApartmentDisplay) cmbApartment.getSelectedItem();
-                    Apartment apt = ad.apartment;
-                    apt.setStatus(contract.isRental() ? "RENTED" : "OWNED");
-                    apartmentDAO.updateApartment(apt);
+                if (!sIds.isEmpty() && !contractServiceDAO.insertServicesForContract(contract.getId(), sIds,
+                        contract.getStartDate() != null ? contract.getStartDate() : new Date())) {
+                    uow.rollback();
+                    JOptionPane.showMessageDialog(this, "Lỗi lưu dịch vụ của hợp đồng!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+            }
 
-                isConfirmed = true;
-                JOptionPane.showMessageDialog(this, "Thành công!");
-                dispose();
-            } else {
-                JOptionPane.showMessageDialog(this, "Lỗi lưu hợp đồng!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+            // 4. Update Apartment Status if new
+            if (!isEditMode) {
+                ApartmentDisplay ad = (ApartmentDisplay) cmbApartment.getSelectedItem();
+                Apartment apt = ad.apartment;
+                apt.setStatus(contract.isRental() ? "RENTED" : "OWNED");
+                if (!apartmentDAO.updateApartment(apt)) {
+                    uow.rollback();
+                    JOptionPane.showMessageDialog(this, "Lỗi cập nhật trạng thái căn hộ!", "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
             }
+
+            uow.commit();
+            isConfirmed = true;
         } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, "Lỗi: " + e.getMessage());
         }
+
+        if (isConfirmed) {
+            JOptionPane.showMessageDialog(this, "Thành công!");
+            dispose();
+        }
     }
 
     private boolean validateForm() {
@@ -4,11 +4,14 @@ import dao.ContractDAO;
 import dao.BuildingDAO;
 import dao.ApartmentDAO;
 import dao.ResidentDAO;
+import dao.DataVersion;
 import model.Contract;
 import model.Building;
 import model.Apartment;
 import model.Resident;
+import util.AsyncLoader;
 import util.ExcelExporter;
+import util.KeysetTableModel;
 import util.PermissionManager;
 import util.UIConstants;
 
@@ -22,7 +25,12 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -30,7 +38,7 @@ import java.util.stream.Collectors;
  * (TERMINATED, ACTIVE...) thay vì text hiển thị. Update: Mặc định chỉ hiển thị
  * Hợp đồng Đang hiệu lực và Sắp hết hạn.
  */
-public class ContractManagementPanel extends JPanel {
+public class ContractManagementPanel extends JPanel implements RefreshablePanel {
 
     private ContractDAO contractDAO;
     private BuildingDAO buildingDAO;
@@ -41,7 +49,8 @@ public class ContractManagementPanel extends JPanel {
     private JLabel contextLabel;
     private JLabel countLabel;
     private JTable contractTable;
-    private DefaultTableModel tableModel;
+    // Tải theo trang khi cuộn, lọc trên DB
+    private KeysetTableModel<Contract> tableModel;
     private JTextField searchField;
 
     // Filter components
@@ -56,10 +65,21 @@ public class ContractManagementPanel extends JPanel {
 
     private JPanel contentPanel;
 
-    // Cache data
-    private List<Contract> allContracts;
+    // Căn hộ + cư dân của các trang đã tải (ghi ở thread tải trang, đọc trên EDT)
+    private final Map<Long, Apartment> apartmentById = new ConcurrentHashMap<>();
+    private final Map<Long, Resident> residentById = new ConcurrentHashMap<>();
+    private int matchingCount = 0;
+
+    // Tải dữ liệu nền (ngoài EDT)
+    private final AsyncLoader loader = new AsyncLoader(this);
+    private final AsyncLoader countLoader = new AsyncLoader(null);
+    private final AsyncLoader statsLoader = new AsyncLoader(null);
+    private final AsyncLoader exportLoader = new AsyncLoader(this);
     private List<Building> buildings;
 
+    // Số dòng mỗi lần đọc khi xuất Excel toàn bộ kết quả lọc
+    private static final int EXPORT_PAGE_SIZE = 500;
+
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
     private boolean isUpdatingCombos = false;
 
@@ -78,6 +98,18 @@ public class ContractManagementPanel extends JPanel {
         loadInitialData();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{
+            DataVersion.Domain.CONTRACT, DataVersion.Domain.RESIDENT, DataVersion.Domain.APARTMENT, DataVersion.Domain.BUILDING
+        };
+    }
+
+    @Override
+    public void refreshData() {
+        reloadData();
+    }
+
     private void createUI() {
         contentPanel = new JPanel(new BorderLayout(0, 20));
         contentPanel.setBackground(UIConstants.BACKGROUND_COLOR);
@@ -332,12 +364,14 @@ public class ContractManagementPanel extends JPanel {
         String[] columns = {
             "Số HĐ", "Căn hộ", "Chủ hộ", "Loại", "Ngày ký/BĐ", "Kết thúc", "Trạng thái", "Thao tác"
         };
-        tableModel = new DefaultTableModel(columns, 0) {
+        // Thứ tự (ngày tạo, id giảm dần) do DB sắp
+        tableModel = new KeysetTableModel<Contract>(columns, null, this::getContractCell) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return column == 7;
             }
         };
+        tableModel.setPageListener(this::updateCountLabel);
 
         contractTable = new JTable(tableModel);
         contractTable.setFont(new Font("Segoe UI", Font.PLAIN, 13));
@@ -433,6 +467,7 @@ public class ContractManagementPanel extends JPanel {
         JScrollPane scrollPane = new JScrollPane(contractTable);
         scrollPane.setBorder(null);
         scrollPane.getViewport().setBackground(Color.WHITE);
+        tableModel.attachTo(scrollPane);
         tablePanel.add(scrollPane, BorderLayout.CENTER);
 
         return tablePanel;
@@ -443,6 +478,9 @@ public class ContractManagementPanel extends JPanel {
         if ("TERMINATED".equalsIgnoreCase(c.getStatus()) || "CANCELLED".equalsIgnoreCase(c.getStatus())) {
             return "TERMINATED";
         }
+        if ("EXPIRED".equalsIgnoreCase(c.getStatus())) {
+            return "EXPIRED"; // Đã được ContractLifecycleService chuyển trạng thái
+        }
         if ("ACTIVE".equalsIgnoreCase(c.getStatus())) {
             if (c.getEndDate() == null) {
                 return "ACTIVE"; // Vô thời hạn
@@ -476,137 +514,128 @@ public class ContractManagementPanel extends JPanel {
         }
     }
 
-    // ✅ FIXED: Apply Filters using robust logic
-    private void applyFilters() {
-        if (allContracts == null) {
+    /**
+     * Lấy căn hộ + cư dân của 1 trang hợp đồng bằng 2 query IN (...) thay vì
+     * gọi getApartmentById/getResidentById cho từng dòng. Chạy ngoài EDT.
+     */
+    private void loadRelatedEntities(List<Contract> contracts) {
+        if (contracts.isEmpty()) {
             return;
         }
-        String searchText = searchField.getText().trim().toLowerCase();
-        final String keyword = searchText.equals("tìm số hđ, chủ hộ, căn hộ...") ? "" : searchText;
-        final BuildingDisplay selectedBuilding = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-        final String selectedType = (String) typeFilterCombo.getSelectedItem();
-
-        List<Contract> filtered = allContracts.stream().filter(contract -> {
-            // 1. Status Filter (Using Logic, not Text)
-            String category = getContractCategory(contract);
-            boolean showThis = false;
-
-            if (chkShowActive.isSelected() && "ACTIVE".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpiring.isSelected() && "EXPIRING".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpired.isSelected() && "EXPIRED".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowTerminated.isSelected() && "TERMINATED".equals(category)) {
-                showThis = true;
-            }
+        List<Long> apartmentIds = contracts.stream().map(Contract::getApartmentId)
+                .filter(id -> !apartmentById.containsKey(id)).distinct().collect(Collectors.toList());
+        List<Long> residentIds = contracts.stream().map(Contract::getResidentId)
+                .filter(id -> !residentById.containsKey(id)).distinct().collect(Collectors.toList());
+        if (!apartmentIds.isEmpty()) {
+            apartmentById.putAll(apartmentDAO.getApartmentsByIds(apartmentIds));
+        }
+        if (!residentIds.isEmpty()) {
+            residentById.putAll(residentDAO.getResidentsByIds(residentIds));
+        }
+    }
 
-            if (!showThis) {
-                return false;
-            }
+    /**
+     * Bộ lọc hiện tại trên UI → điều kiện lọc cho DB
+     */
+    private ContractDAO.ContractFilter buildFilter() {
+        ContractDAO.ContractFilter filter = new ContractDAO.ContractFilter();
 
-            // 2. Keyword Filter
-            if (!keyword.isEmpty()) {
-                String contractNumber = contract.getContractNumber() != null ? contract.getContractNumber().toLowerCase() : "";
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                String apartmentNumber = apt != null ? apt.getRoomNumber().toLowerCase() : "";
-                Resident resident = residentDAO.getResidentById(contract.getResidentId());
-                String residentName = resident != null ? resident.getFullName().toLowerCase() : "";
-                if (!contractNumber.contains(keyword) && !apartmentNumber.contains(keyword) && !residentName.contains(keyword)) {
-                    return false;
-                }
-            }
-
-            // 3. Building Filter
-            if (selectedBuilding != null && selectedBuilding.building.getId() != null) {
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                if (apt == null) {
-                    return false;
-                }
-                List<Apartment> buildingApts = apartmentDAO.getApartmentsByBuildingId(selectedBuilding.building.getId());
-                boolean inBuilding = buildingApts.stream().anyMatch(a -> a.getId().equals(apt.getId()));
-                if (!inBuilding) {
-                    return false;
-                }
-            }
+        Set<String> categories = new HashSet<>();
+        if (chkShowActive.isSelected()) {
+            categories.add(ContractDAO.CATEGORY_ACTIVE);
+        }
+        if (chkShowExpiring.isSelected()) {
+            categories.add(ContractDAO.CATEGORY_EXPIRING);
+        }
+        if (chkShowExpired.isSelected()) {
+            categories.add(ContractDAO.CATEGORY_EXPIRED);
+        }
+        if (chkShowTerminated.isSelected()) {
+            categories.add(ContractDAO.CATEGORY_TERMINATED);
+        }
+        filter.categories = categories;
 
-            // 4. Type Filter
-            if (!"Tất cả".equals(selectedType)) {
-                if (!selectedType.equals(contract.getContractTypeDisplay())) {
-                    return false;
-                }
-            }
-            return true;
-        }).collect(Collectors.toList());
-
-        displayContracts(filtered);
-    }
-
-    private void displayContracts(List<Contract> contracts) {
-        tableModel.setRowCount(0);
-        for (Contract contract : contracts) {
-            Apartment apartment = apartmentDAO.getApartmentById(contract.getApartmentId());
-            String apartmentNumber = apartment != null ? apartment.getRoomNumber() : "N/A";
-            Resident resident = residentDAO.getResidentById(contract.getResidentId());
-            String residentName = resident != null ? resident.getFullName() : "N/A";
-
-            String startDateStr = "";
-            String endDateStr = "";
-            if (contract.isRental()) {
-                startDateStr = contract.getStartDate() != null ? dateFormat.format(contract.getStartDate()) : "";
-                endDateStr = contract.getEndDate() != null ? dateFormat.format(contract.getEndDate()) : "Vô thời hạn";
-            } else {
-                startDateStr = contract.getSignedDate() != null ? "Ký: " + dateFormat.format(contract.getSignedDate()) : "N/A";
-                endDateStr = "—";
-            }
+        String selectedType = (String) typeFilterCombo.getSelectedItem();
+        if ("Thuê".equals(selectedType)) {
+            filter.contractType = "RENTAL";
+        } else if ("Sở hữu".equals(selectedType)) {
+            filter.contractType = "OWNERSHIP";
+        }
 
-            // ✅ Use standardized status string
-            String statusStr = getStatusDisplayString(contract);
+        BuildingDisplay selectedBuilding = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
+        if (selectedBuilding != null) {
+            filter.buildingId = selectedBuilding.building.getId();
+        }
 
-            Object[] row = {
-                contract.getContractNumber(), apartmentNumber, residentName, contract.getContractTypeDisplay(),
-                startDateStr, endDateStr, statusStr, "👁️ Chi tiết"
-            };
-            tableModel.addRow(row);
+        String searchText = searchField.getText().trim();
+        if (!searchText.equalsIgnoreCase("Tìm số HĐ, chủ hộ, căn hộ...")) {
+            filter.keyword = searchText;
         }
-        countLabel.setText(contracts.size() == allContracts.size()
-                ? "📋 Tổng số: " + contracts.size() + " hợp đồng"
-                : "🔍 Hiển thị: " + contracts.size() + "/" + allContracts.size() + " hợp đồng");
+        return filter;
     }
 
-    // ✅ FIXED: Statistics using robust logic
-    private void showStatistics() {
-        if (allContracts == null) {
+    // ✅ Lọc trên DB: tải lại từ trang đầu + đếm số dòng khớp
+    private void applyFilters() {
+        if (buildings == null) {
             return;
         }
-        int totalContracts = allContracts.size();
-
-        int activeCount = 0, expiringCount = 0, expiredCount = 0, terminatedCount = 0;
-
-        for (Contract c : allContracts) {
-            String cat = getContractCategory(c);
-            switch (cat) {
-                case "ACTIVE":
-                    activeCount++;
-                    break;
-                case "EXPIRING":
-                    expiringCount++;
-                    break;
-                case "EXPIRED":
-                    expiredCount++;
-                    break;
-                case "TERMINATED":
-                    terminatedCount++;
-                    break;
-            }
+        final ContractDAO.ContractFilter filter = buildFilter();
+        tableModel.reset((after, limit) -> {
+            List<Contract> page = contractDAO.getContractPage(filter, after, limit);
+            loadRelatedEntities(page);
+            return page;
+        });
+        countLoader.load(() -> contractDAO.countContracts(filter), count -> {
+            matchingCount = count;
+            updateCountLabel();
+        });
+    }
+
+    private Object getContractCell(Contract contract, int column) {
+        switch (column) {
+            case 0:
+                return contract.getContractNumber();
+            case 1:
+                Apartment apartment = apartmentById.get(contract.getApartmentId());
+                return apartment != null ? apartment.getRoomNumber() : "N/A";
+            case 2:
+                Resident resident = residentById.get(contract.getResidentId());
+                return resident != null ? resident.getFullName() : "N/A";
+            case 3:
+                return contract.getContractTypeDisplay();
+            case 4:
+                if (contract.isRental()) {
+                    return contract.getStartDate() != null ? dateFormat.format(contract.getStartDate()) : "";
+                }
+                return contract.getSignedDate() != null ? "Ký: " + dateFormat.format(contract.getSignedDate()) : "N/A";
+            case 5:
+                if (contract.isRental()) {
+                    return contract.getEndDate() != null ? dateFormat.format(contract.getEndDate()) : "Vô thời hạn";
+                }
+                return "—";
+            case 6:
+                // ✅ Use standardized status string
+                return getStatusDisplayString(contract);
+            case 7:
+                return "👁️ Chi tiết";
+            default:
+                return null;
         }
+    }
 
-        int rentalCount = (int) allContracts.stream().filter(c -> "RENTAL".equals(c.getContractType())).count();
-        int ownershipCount = (int) allContracts.stream().filter(c -> "OWNERSHIP".equals(c.getContractType())).count();
+    private void updateCountLabel() {
+        int loaded = tableModel.getRowCount();
+        countLabel.setText(loaded >= matchingCount
+                ? "📋 Tổng số: " + loaded + " hợp đồng"
+                : "🔍 Hiển thị: " + loaded + "/" + matchingCount + " hợp đồng");
+    }
 
+    // ✅ Statistics: đếm trên DB (SUM CASE) thay vì duyệt danh sách đã tải
+    private void showStatistics() {
+        statsLoader.load(() -> contractDAO.getContractStatistics(), this::showStatisticsDialog);
+    }
+
+    private void showStatisticsDialog(ContractDAO.ContractStats s) {
         String stats = String.format("<html><body style='width: 400px; padding: 20px; font-family: Segoe UI;'>"
                 + "<h2 style='color: #1976d2; text-align: center;'>📊 Thống Kê Hợp Đồng</h2>"
                 + "<hr style='border: 1px solid #e0e0e0; margin: 20px 0;'>"
@@ -622,7 +651,7 @@ public class ContractManagementPanel extends JPanel {
                 + "<tr><td style='padding-left: 25px;'><span style='color: #d32f2f;'>✕ Đã hết hạn:</span></td><td align='right'><b>%d</b></td></tr>"
                 + "<tr><td style='padding-left: 25px;'><span style='color: #757575;'>○ Đã thanh lý:</span></td><td align='right'>%d</td></tr>"
                 + "</table></body></html>",
-                totalContracts, rentalCount, ownershipCount, activeCount, expiringCount, expiredCount, terminatedCount);
+                s.total, s.rental, s.ownership, s.active, s.expiring, s.expired, s.terminated);
         JOptionPane.showMessageDialog(this, stats, "Thống kê hợp đồng", JOptionPane.PLAIN_MESSAGE);
     }
 
@@ -777,9 +806,18 @@ public class ContractManagementPanel extends JPanel {
     }
 
     private void loadInitialData() {
+        // Query chạy nền, đổ dữ liệu lên combo/bảng trên EDT
+        // Hợp đồng tải theo trang trong applyFilters()
+        loader.load(() -> buildingDAO.getAllBuildings(), this::applyLoadedData);
+    }
+
+    private void applyLoadedData(List<Building> loadedBuildings) {
         isUpdatingCombos = true;
         try {
-            buildings = buildingDAO.getAllBuildings();
+            buildings = loadedBuildings;
+            // Giữ lại tòa đang chọn khi tải lại (refreshData)
+            BuildingDisplay previous = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
+            Long previousId = previous != null ? previous.building.getId() : null;
             buildingFilterCombo.removeAllItems();
             List<Long> buildingIds = permissionManager.getBuildingIds();
 
@@ -807,7 +845,18 @@ public class ContractManagementPanel extends JPanel {
                 }
             }
             
-            allContracts = contractDAO.getAllContracts();
+            if (previousId != null) {
+                for (int i = 0; i < buildingFilterCombo.getItemCount(); i++) {
+                    if (previousId.equals(buildingFilterCombo.getItemAt(i).building.getId())) {
+                        buildingFilterCombo.setSelectedIndex(i);
+                        break;
+                    }
+                }
+            }
+
+            // Căn hộ/cư dân có thể đã đổi → tải lại cùng các trang
+            apartmentById.clear();
+            residentById.clear();
         } finally {
             isUpdatingCombos = false;
         }
@@ -834,11 +883,10 @@ public class ContractManagementPanel extends JPanel {
     }
 
     private void showContractDetail(int row) {
-        List<Contract> filteredContracts = getFilteredContracts();
-        if (row < 0 || filteredContracts == null || row >= filteredContracts.size()) {
+        Contract selectedContract = tableModel.getItem(row);
+        if (selectedContract == null) {
             return;
         }
-        Contract selectedContract = filteredContracts.get(row);
         JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
         ContractDetailDialog dialog = new ContractDetailDialog(parentFrame, selectedContract.getId());
         dialog.setVisible(true);
@@ -846,13 +894,11 @@ public class ContractManagementPanel extends JPanel {
     }
 
     private void performEditContract(int row) {
-        List<Contract> filteredContracts = getFilteredContracts();
-        if (row < 0 || filteredContracts == null || row >= filteredContracts.size()) {
+        Contract selectedContract = tableModel.getItem(row);
+        if (selectedContract == null) {
             return;
         }
 
-        Contract selectedContract = filteredContracts.get(row);
-
         if ("TERMINATED".equals(selectedContract.getStatus()) || "CANCELLED".equals(selectedContract.getStatus())) {
             JOptionPane.showMessageDialog(this,
                     "Không thể chỉnh sửa hợp đồng đã kết thúc hoặc đã hủy!",
@@ -869,63 +915,6 @@ public class ContractManagementPanel extends JPanel {
         }
     }
 
-    private List<Contract> getFilteredContracts() {
-        if (allContracts == null) {
-            return null;
-        }
-        String searchText = searchField.getText().trim().toLowerCase();
-        final String keyword = searchText.equals("tìm số hđ, chủ hộ, căn hộ...") ? "" : searchText;
-        final BuildingDisplay selectedBuilding = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-        final String selectedType = (String) typeFilterCombo.getSelectedItem();
-
-        return allContracts.stream().filter(contract -> {
-            String category = getContractCategory(contract);
-            boolean showThis = false;
-            if (chkShowActive.isSelected() && "ACTIVE".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpiring.isSelected() && "EXPIRING".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpired.isSelected() && "EXPIRED".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowTerminated.isSelected() && "TERMINATED".equals(category)) {
-                showThis = true;
-            }
-            if (!showThis) {
-                return false;
-            }
-
-            if (!keyword.isEmpty()) {
-                String contractNumber = contract.getContractNumber() != null ? contract.getContractNumber().toLowerCase() : "";
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                String apartmentNumber = apt != null ? apt.getRoomNumber().toLowerCase() : "";
-                Resident resident = residentDAO.getResidentById(contract.getResidentId());
-                String residentName = resident != null ? resident.getFullName().toLowerCase() : "";
-                if (!contractNumber.contains(keyword) && !apartmentNumber.contains(keyword) && !residentName.contains(keyword)) {
-                    return false;
-                }
-            }
-            if (selectedBuilding != null && selectedBuilding.building.getId() != null) {
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                if (apt == null) {
-                    return false;
-                }
-                List<Apartment> buildingApts = apartmentDAO.getApartmentsByBuildingId(selectedBuilding.building.getId());
-                if (buildingApts.stream().noneMatch(a -> a.getId().equals(apt.getId()))) {
-                    return false;
-                }
-            }
-            if (!"Tất cả".equals(selectedType)) {
-                if (!selectedType.equals(contract.getContractTypeDisplay())) {
-                    return false;
-                }
-            }
-            return true;
-        }).collect(Collectors.toList());
-    }
-
     private void showCreateContractDialog() {
         JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
         ContractFormDialog dialog = new ContractFormDialog(parentFrame, null);
@@ -935,8 +924,45 @@ public class ContractManagementPanel extends JPanel {
         }
     }
 
+    // ✅ Xuất mọi hợp đồng khớp bộ lọc (không chỉ các trang đã cuộn tới)
     private void exportToExcel() {
-        ExcelExporter.exportTable(contractTable, "HopDong", "DANH SÁCH HỢP ĐỒNG", this);
+        if (buildings == null) {
+            return;
+        }
+        final ContractDAO.ContractFilter filter = buildFilter();
+        exportLoader.load(() -> loadAllContracts(filter), contracts -> {
+            int colCount = tableModel.getColumnCount();
+            String[] columns = new String[colCount];
+            for (int i = 0; i < colCount; i++) {
+                columns[i] = tableModel.getColumnName(i);
+            }
+            DefaultTableModel exportModel = new DefaultTableModel(columns, 0);
+            for (Contract contract : contracts) {
+                Object[] row = new Object[colCount];
+                for (int i = 0; i < colCount; i++) {
+                    row[i] = getContractCell(contract, i);
+                }
+                exportModel.addRow(row);
+            }
+            ExcelExporter.exportModel(exportModel, "HopDong", "DANH SÁCH HỢP ĐỒNG", this);
+        });
+    }
+
+    /**
+     * Đọc hết các trang keyset của bộ lọc (kèm căn hộ + cư dân). Chạy ngoài EDT.
+     */
+    private List<Contract> loadAllContracts(ContractDAO.ContractFilter filter) {
+        List<Contract> all = new ArrayList<>();
+        Contract after = null;
+        while (true) {
+            List<Contract> page = contractDAO.getContractPage(filter, after, EXPORT_PAGE_SIZE);
+            loadRelatedEntities(page);
+            all.addAll(page);
+            if (page.size() < EXPORT_PAGE_SIZE) {
+                return all;
+            }
+            after = page.get(page.size() - 1);
+        }
     }
 
     public void reloadData() {
@@ -2,7 +2,11 @@ package view;
 
 import dao.*;
 import model.Building;
+import model.Contract;
+import model.DashboardStats;
 import model.User;
+import util.AsyncLoader;
+import util.ContractLifecycleService;
 import util.SessionManager;
 import javax.swing.*;
 import java.awt.*;
@@ -10,13 +14,15 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.List;
 
 /**
  * Dashboard Panel - Updated with Embedded Building Selector
  */
-public class DashboardPanel extends JPanel {
+public class DashboardPanel extends JPanel implements RefreshablePanel {
 
     private final Color CARD_BG = Color.WHITE;
     private final Color PRIMARY_COLOR = new Color(76, 132, 255);
@@ -33,14 +39,19 @@ public class DashboardPanel extends JPanel {
     private Long selectedBuildingId = null;
 
     private BuildingDAO buildingDAO;
-    private ApartmentDAO apartmentDAO;
-    private ResidentDAO residentDAO;
-    private ContractDAO contractDAO;
-    private InvoiceDAO invoiceDAO;
+    private DashboardStatsDAO dashboardStatsDAO;
+
+    // Snapshot số liệu của lần refresh gần nhất
+    private DashboardStats stats = DashboardStats.empty();
 
     // ✅ NEW: Container để reload dữ liệu
     private JPanel bodyPanel;
 
+    // Hợp đồng sắp hết hạn: tải nền từ ContractLifecycleService (đã tính sẵn)
+    private static final int EXPIRING_ROWS = 8;
+    private final AsyncLoader expiringLoader = new AsyncLoader(null);
+    private JPanel expiringList;
+
     public DashboardPanel(DashboardNavigator navigator) {
         this.navigator = navigator;
         this.currentUser = SessionManager.getInstance().getCurrentUser();
@@ -50,10 +61,7 @@ public class DashboardPanel extends JPanel {
         setBackground(new Color(245, 247, 250));
 
         buildingDAO = new BuildingDAO();
-        apartmentDAO = new ApartmentDAO();
-        residentDAO = new ResidentDAO();
-        contractDAO = new ContractDAO();
-        invoiceDAO = new InvoiceDAO();
+        dashboardStatsDAO = new DashboardStatsDAO();
 
         initUI();
     }
@@ -127,16 +135,37 @@ public class DashboardPanel extends JPanel {
         return header;
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{
+            DataVersion.Domain.BUILDING, DataVersion.Domain.FLOOR, DataVersion.Domain.APARTMENT,
+            DataVersion.Domain.RESIDENT, DataVersion.Domain.CONTRACT, DataVersion.Domain.INVOICE
+        };
+    }
+
+    @Override
+    public void refreshData() {
+        refreshBodyData();
+    }
+
     // ✅ NEW: Hàm làm mới dữ liệu
     private void refreshBodyData() {
+        stats = dashboardStatsDAO.getDashboardStats(getScopeBuildingIds());
+
         bodyPanel.removeAll();
 
         bodyPanel.add(createKPISection());
         bodyPanel.add(Box.createVerticalStrut(20));
         bodyPanel.add(createChartsSection());
+        bodyPanel.add(Box.createVerticalStrut(20));
+        bodyPanel.add(createExpiringSection());
 
         bodyPanel.revalidate();
         bodyPanel.repaint();
+
+        List<Long> scope = getScopeBuildingIds();
+        expiringLoader.load(() -> ContractLifecycleService.getInstance().getExpiringContracts(scope),
+                this::showExpiringContracts);
     }
 
     // Helper Class cho ComboBox
@@ -156,119 +185,19 @@ public class DashboardPanel extends JPanel {
         }
     }
 
-    // ================= LOGIC TÍNH TOÁN (Giữ nguyên như cũ) =================
-    private int getBuildingCount() {
-        if (selectedBuildingId != null) {
-            return 1;
-        }
-        if (currentUser.isAdmin()) {
-            return buildingDAO.countBuildings();
-        }
-        return currentUser.getBuildingIds().size();
-    }
-
-    private int getApartmentCount() {
-        if (selectedBuildingId != null) {
-            return apartmentDAO.countApartmentsByBuilding(selectedBuildingId);
-        }
-        int sum = 0;
-        if (currentUser.isAdmin()) {
-            return apartmentDAO.countApartments();
-        }
-        for (Long id : currentUser.getBuildingIds()) {
-            sum += apartmentDAO.countApartmentsByBuilding(id);
-        }
-        return sum;
-    }
-
-    private int getAvailableApartmentCount() {
-        if (selectedBuildingId != null) {
-            return apartmentDAO.countAvailableApartmentsByBuilding(selectedBuildingId);
-        }
-        int sum = 0;
-        if (currentUser.isAdmin()) {
-            return apartmentDAO.countAvailableApartments();
-        }
-        for (Long id : currentUser.getBuildingIds()) {
-            sum += apartmentDAO.countAvailableApartmentsByBuilding(id);
-        }
-        return sum;
-    }
-
-    private int getRentedApartmentCount() {
-        if (selectedBuildingId != null) {
-            return apartmentDAO.countRentedApartmentsByBuilding(selectedBuildingId);
-        }
-        int sum = 0;
-        if (currentUser.isAdmin()) {
-            return apartmentDAO.countRentedApartments();
-        }
-        for (Long id : currentUser.getBuildingIds()) {
-            sum += apartmentDAO.countRentedApartmentsByBuilding(id);
-        }
-        return sum;
-    }
-
-    private int getResidentCount() {
-        if (selectedBuildingId != null) {
-            return residentDAO.countResidentsByBuilding(selectedBuildingId);
-        }
-        if (currentUser.isAdmin()) {
-            return residentDAO.countResidents();
-        }
-
-        int sum = 0;
-        for (Long id : currentUser.getBuildingIds()) {
-            sum += residentDAO.countResidentsByBuilding(id);
-        }
-        return sum;
-    }
-
-    private BigDecimal getTotalRevenue() {
-        if (selectedBuildingId != null) {
-            return invoiceDAO.getTotalRevenueByBuilding(selectedBuildingId);
-        }
-        if (currentUser.isAdmin()) {
-            return invoiceDAO.getTotalRevenue();
-        }
-
-        BigDecimal sum = BigDecimal.ZERO;
-        for (Long id : currentUser.getBuildingIds()) {
-            sum = sum.add(invoiceDAO.getTotalRevenueByBuilding(id));
-        }
-        return sum;
-    }
-
-    private int getUnpaidInvoicesCount() {
-        if (selectedBuildingId != null) {
-            return invoiceDAO.countUnpaidInvoicesByBuilding(selectedBuildingId);
-        }
-        if (currentUser.isAdmin()) {
-            return invoiceDAO.countUnpaidInvoices();
-        }
-
-        int sum = 0;
-        for (Long id : currentUser.getBuildingIds()) {
-            sum += invoiceDAO.countUnpaidInvoicesByBuilding(id);
-        }
-        return sum;
-    }
-
-    private int getActiveContractsCount() {
+    // ================= LOGIC TÍNH TOÁN =================
+    /**
+     * Tập tòa nhà cần thống kê: tòa đang chọn, null = tất cả (Admin), hoặc các
+     * tòa được gán (Manager)
+     */
+    private List<Long> getScopeBuildingIds() {
         if (selectedBuildingId != null) {
-            return (int) contractDAO.getContractsByBuilding(selectedBuildingId).stream()
-                    .filter(c -> "ACTIVE".equals(c.getStatus())).count();
+            return Collections.singletonList(selectedBuildingId);
         }
         if (currentUser.isAdmin()) {
-            return contractDAO.countActiveContracts();
+            return null;
         }
-
-        int sum = 0;
-        for (Long id : currentUser.getBuildingIds()) {
-            sum += (int) contractDAO.getContractsByBuilding(id).stream()
-                    .filter(c -> "ACTIVE".equals(c.getStatus())).count();
-        }
-        return sum;
+        return currentUser.getBuildingIds() != null ? currentUser.getBuildingIds() : Collections.emptyList();
     }
 
     // ================= UI SECTIONS (Giữ nguyên style cũ) =================
@@ -279,15 +208,15 @@ public class DashboardPanel extends JPanel {
 
         JPanel row1 = new JPanel(new GridLayout(1, 3, 15, 0));
         row1.setBackground(new Color(245, 247, 250));
-        row1.add(createStatCard("Tòa Nhà", String.valueOf(getBuildingCount()), "🏢", PRIMARY_COLOR, navigator::goToBuildings));
-        row1.add(createStatCard("Tổng Căn Hộ", String.valueOf(getApartmentCount()), "🏠", INFO_COLOR, navigator::goToApartments));
-        row1.add(createStatCard("Đang Trống", String.valueOf(getAvailableApartmentCount()), "✓", SUCCESS_COLOR, navigator::goToApartments));
+        row1.add(createStatCard("Tòa Nhà", String.valueOf(stats.getBuildingCount()), "🏢", PRIMARY_COLOR, navigator::goToBuildings));
+        row1.add(createStatCard("Tổng Căn Hộ", String.valueOf(stats.getApartmentCount()), "🏠", INFO_COLOR, navigator::goToApartments));
+        row1.add(createStatCard("Đang Trống", String.valueOf(stats.getAvailableApartmentCount()), "✓", SUCCESS_COLOR, navigator::goToApartments));
 
         JPanel row2 = new JPanel(new GridLayout(1, 3, 15, 0));
         row2.setBackground(new Color(245, 247, 250));
-        row2.add(createStatCard("Đã Cho Thuê", String.valueOf(getRentedApartmentCount()), "☑", WARNING_COLOR, navigator::goToContracts));
-        row2.add(createStatCard("Cư Dân", String.valueOf(getResidentCount()), "👥", PURPLE_COLOR, navigator::goToResidents));
-        row2.add(createStatCard("Hợp Đồng", String.valueOf(getActiveContractsCount()), "📋", PRIMARY_COLOR, navigator::goToContracts));
+        row2.add(createStatCard("Đã Cho Thuê", String.valueOf(stats.getRentedApartmentCount()), "☑", WARNING_COLOR, navigator::goToContracts));
+        row2.add(createStatCard("Cư Dân", String.valueOf(stats.getResidentCount()), "👥", PURPLE_COLOR, navigator::goToResidents));
+        row2.add(createStatCard("Hợp Đồng", String.valueOf(stats.getActiveContractCount()), "📋", PRIMARY_COLOR, navigator::goToContracts));
 
         JPanel row3 = new JPanel(new GridLayout(1, 2, 15, 0));
         row3.setBackground(new Color(245, 247, 250));
@@ -352,7 +281,7 @@ public class DashboardPanel extends JPanel {
         card.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         JLabel lblTitle = new JLabel("Tổng Doanh Thu");
         lblTitle.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        JLabel lblValue = new JLabel(formatCurrency(getTotalRevenue()));
+        JLabel lblValue = new JLabel(formatCurrency(stats.getTotalRevenue()));
         lblValue.setFont(new Font("Segoe UI", Font.BOLD, 32));
         lblValue.setForeground(SUCCESS_COLOR);
 
@@ -371,7 +300,7 @@ public class DashboardPanel extends JPanel {
         card.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         JLabel lblTitle = new JLabel("Hóa Đơn Chưa Thu");
         lblTitle.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        JLabel lblValue = new JLabel(String.valueOf(getUnpaidInvoicesCount()));
+        JLabel lblValue = new JLabel(String.valueOf(stats.getUnpaidInvoiceCount()));
         lblValue.setFont(new Font("Segoe UI", Font.BOLD, 32));
         lblValue.setForeground(DANGER_COLOR);
 
@@ -391,29 +320,14 @@ public class DashboardPanel extends JPanel {
         JLabel title = new JLabel("Doanh Thu 12 Tháng Gần Nhất");
         title.setFont(new Font("Segoe UI", Font.BOLD, 16));
 
-        Calendar cal = Calendar.getInstance();
         List<String> labels = new ArrayList<>();
         List<BigDecimal> values = new ArrayList<>();
 
-        for (int i = 11; i >= 0; i--) {
-            cal = Calendar.getInstance();
-            cal.add(Calendar.MONTH, -i);
-            int m = cal.get(Calendar.MONTH) + 1;
-            int y = cal.get(Calendar.YEAR);
-            labels.add(m + "/" + (y % 100));
-
-            // Logic chart (đã dùng selectedBuildingId trong getMonthlyRevenue)
-            if (selectedBuildingId != null) {
-                values.add(invoiceDAO.getMonthlyRevenue(m, y, selectedBuildingId));
-            } else if (currentUser.isAdmin()) {
-                values.add(invoiceDAO.getMonthlyRevenue(m, y));
-            } else {
-                BigDecimal monthlySum = BigDecimal.ZERO;
-                for (Long bid : currentUser.getBuildingIds()) {
-                    monthlySum = monthlySum.add(invoiceDAO.getMonthlyRevenue(m, y, bid));
-                }
-                values.add(monthlySum);
-            }
+        YearMonth current = YearMonth.now();
+        for (int i = DashboardStatsDAO.REVENUE_MONTHS - 1; i >= 0; i--) {
+            YearMonth ym = current.minusMonths(i);
+            labels.add(ym.getMonthValue() + "/" + (ym.getYear() % 100));
+            values.add(stats.getMonthlyRevenue(ym));
         }
 
         chartPanel.add(title, BorderLayout.NORTH);
@@ -428,27 +342,70 @@ public class DashboardPanel extends JPanel {
         JLabel title = new JLabel("Trạng Thái Hóa Đơn");
         title.setFont(new Font("Segoe UI", Font.BOLD, 16));
 
-        int paid = 0;
-        int unpaid = 0;
-
-        if (selectedBuildingId != null) {
-            paid = invoiceDAO.countPaidInvoicesByBuilding(selectedBuildingId);
-            unpaid = invoiceDAO.countUnpaidInvoicesByBuilding(selectedBuildingId);
-        } else if (currentUser.isAdmin()) {
-            paid = invoiceDAO.countPaidInvoicesByBuilding(null);
-            unpaid = invoiceDAO.countUnpaidInvoicesByBuilding(null);
-        } else {
-            for (Long id : currentUser.getBuildingIds()) {
-                paid += invoiceDAO.countPaidInvoicesByBuilding(id);
-                unpaid += invoiceDAO.countUnpaidInvoicesByBuilding(id);
-            }
-        }
+        int paid = stats.getPaidInvoiceCount();
+        int unpaid = stats.getUnpaidInvoiceCount();
 
         chartPanel.add(title, BorderLayout.NORTH);
         chartPanel.add(new PieChartPanel(paid, unpaid, SUCCESS_COLOR, DANGER_COLOR), BorderLayout.CENTER);
         return chartPanel;
     }
 
+    private JPanel createExpiringSection() {
+        JPanel card = new JPanel(new BorderLayout(0, 10));
+        card.setBackground(CARD_BG);
+        card.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        card.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        card.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                navigator.goToContracts();
+            }
+        });
+
+        JLabel title = new JLabel("⏰ Hợp Đồng Sắp Hết Hạn (" + ContractDAO.EXPIRING_DAYS + " ngày tới)");
+        title.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        card.add(title, BorderLayout.NORTH);
+
+        expiringList = new JPanel();
+        expiringList.setLayout(new BoxLayout(expiringList, BoxLayout.Y_AXIS));
+        expiringList.setBackground(CARD_BG);
+        expiringList.add(createExpiringLine("Đang tải...", Color.GRAY));
+        card.add(expiringList, BorderLayout.CENTER);
+        return card;
+    }
+
+    private void showExpiringContracts(List<Contract> contracts) {
+        expiringList.removeAll();
+        if (contracts.isEmpty()) {
+            expiringList.add(createExpiringLine("✓ Không có hợp đồng nào sắp hết hạn", SUCCESS_COLOR));
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+        for (int i = 0; i < Math.min(contracts.size(), EXPIRING_ROWS); i++) {
+            Contract c = contracts.get(i);
+            Long daysLeft = c.getDaysLeft();
+            String text = String.format("%s  •  %s  •  hết hạn %s (%s)",
+                    c.getContractNumber(),
+                    c.getTenantName() != null ? c.getTenantName() : "N/A",
+                    dateFormat.format(c.getEndDate()),
+                    daysLeft != null && daysLeft == 0 ? "hôm nay" : "còn " + daysLeft + " ngày");
+            expiringList.add(createExpiringLine(text, daysLeft != null && daysLeft <= 7 ? DANGER_COLOR : Color.DARK_GRAY));
+        }
+        if (contracts.size() > EXPIRING_ROWS) {
+            expiringList.add(createExpiringLine("... và " + (contracts.size() - EXPIRING_ROWS) + " hợp đồng khác", Color.GRAY));
+        }
+
+        expiringList.revalidate();
+        expiringList.repaint();
+    }
+
+    private JLabel createExpiringLine(String text, Color color) {
+        JLabel line = new JLabel(text);
+        line.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        line.setForeground(color);
+        line.setBorder(BorderFactory.createEmptyBorder(4, 0, 4, 0));
+        return line;
+    }
+
     private String formatCurrency(BigDecimal amount) {
         if (amount == null) {
             amount = BigDecimal.ZERO;
@@ -14,6 +14,13 @@ import java.util.function.Consumer;
 
 public class FloorCard extends JPanel {
 
+    private static final Font FONT_NAME = new Font("Segoe UI", Font.BOLD, 18);
+    private static final Font FONT_TOTAL = new Font("Segoe UI", Font.PLAIN, 13);
+    private static final Font FONT_BADGE = new Font("Segoe UI", Font.BOLD, 10);
+    private static final Font FONT_BAR = new Font("Segoe UI", Font.BOLD, 11);
+    private static final Color EDIT_COLOR = new Color(117, 117, 117);
+    private static final Color DELETE_COLOR = new Color(239, 83, 80);
+
     private Floor floor;
     private FloorStats stats;
     private boolean isBuildingMaintenance;
@@ -23,11 +30,25 @@ public class FloorCard extends JPanel {
     private Consumer<Floor> onEdit;
     private Consumer<Floor> onDelete;
 
+    // Component tạo 1 lần, bind() chỉ cập nhật nội dung
+    private JLabel lblName;
+    private StatusBadge badge;
+    private JLabel lblTotal;
+    private OccupancyBar progressBar;
+    private JButton btnEdit;
+    private JButton btnDelete;
+
     public FloorCard(Floor floor, FloorStats stats, boolean isBuildingMaintenance,
             Consumer<Floor> onSelect, Consumer<Floor> onEdit, Consumer<Floor> onDelete) {
-        this.floor = floor;
-        this.stats = stats;
-        this.isBuildingMaintenance = isBuildingMaintenance;
+        this(onSelect, onEdit, onDelete);
+        bind(floor, stats, isBuildingMaintenance);
+    }
+
+    /**
+     * Thẻ rỗng để tái sử dụng trong lưới ảo (VirtualCardGrid): gọi bind() để
+     * hiển thị tầng
+     */
+    public FloorCard(Consumer<Floor> onSelect, Consumer<Floor> onEdit, Consumer<Floor> onDelete) {
         this.onSelect = onSelect;
         this.onEdit = onEdit;
         this.onDelete = onDelete;
@@ -35,17 +56,10 @@ public class FloorCard extends JPanel {
         setOpaque(false);
         setPreferredSize(new Dimension(300, 160));
 
-        // Thiết lập sự kiện click
-        if (isBuildingMaintenance) {
-            this.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-        } else {
-            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        }
-
         this.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (isBuildingMaintenance) {
+                if (isBuildingMaintenance || floor == null) {
                     return;
                 }
                 if (onSelect != null) {
@@ -69,13 +83,70 @@ public class FloorCard extends JPanel {
         });
 
         initCardUI();
+    }
+
+    /**
+     * Gắn dữ liệu tầng vào thẻ (dùng lại thẻ thay vì tạo mới)
+     */
+    public void bind(Floor floor, FloorStats stats, boolean isBuildingMaintenance) {
+        this.floor = floor;
+        this.stats = stats;
+        this.isBuildingMaintenance = isBuildingMaintenance;
+        setBackground(null);
+
+        // Thiết lập sự kiện click
+        if (isBuildingMaintenance) {
+            this.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+        } else {
+            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        }
+
+        lblName.setText(floor.getName());
+        lblName.setForeground(isMaintenance(floor.getStatus()) ? Color.GRAY : new Color(33, 33, 33));
+
+        // Badge
+        String statusText = floor.getStatus();
+        if (statusText == null || statusText.isEmpty()) {
+            statusText = "Hoạt động";
+        }
+        if (isMaintenance(statusText)) {
+            badge.setStyle("Bảo trì", new Color(255, 243, 224), new Color(239, 108, 0));
+        } else {
+            badge.setStyle("Hoạt động", new Color(232, 245, 233), new Color(46, 125, 50));
+        }
+
+        lblTotal.setText("Tổng số căn: " + stats.totalApartments);
+        progressBar.setValues(
+                stats.rentedApartments + stats.ownedApartments,
+                stats.totalApartments,
+                stats.rentedApartments,
+                stats.ownedApartments
+        );
+
+        if (btnEdit != null) {
+            btnEdit.setEnabled(!isBuildingMaintenance);
+            btnEdit.setIcon(new CardIcon("EDIT", 20, isBuildingMaintenance ? Color.LIGHT_GRAY : EDIT_COLOR));
+        }
+        if (btnDelete != null) {
+            btnDelete.setEnabled(!isBuildingMaintenance);
+            btnDelete.setIcon(new CardIcon("DELETE", 20, isBuildingMaintenance ? Color.LIGHT_GRAY : DELETE_COLOR));
+        }
 
         // Tooltip
         if (isBuildingMaintenance) {
             setToolTipText("🔒 Tòa nhà đang bảo trì - Tạm thời bị khóa");
         } else if (isMaintenance(floor.getStatus())) {
             setToolTipText("⚠️ Tầng đang bảo trì - Click để quản lý căn hộ");
+        } else {
+            setToolTipText(null);
         }
+
+        revalidate();
+        repaint();
+    }
+
+    public Floor getFloor() {
+        return floor;
     }
 
     private boolean isMaintenance(String status) {
@@ -94,23 +165,11 @@ public class FloorCard extends JPanel {
         JPanel topPanel = new JPanel(new BorderLayout());
         topPanel.setOpaque(false);
 
-        JLabel lblName = new JLabel(floor.getName());
-        lblName.setFont(new Font("Segoe UI", Font.BOLD, 18));
-        lblName.setForeground(isMaintenance(floor.getStatus()) ? Color.GRAY : new Color(33, 33, 33));
+        lblName = new JLabel();
+        lblName.setFont(FONT_NAME);
         topPanel.add(lblName, BorderLayout.WEST);
 
-        // Badge
-        String statusText = floor.getStatus();
-        if (statusText == null || statusText.isEmpty()) {
-            statusText = "Hoạt động";
-        }
-
-        StatusBadge badge;
-        if (isMaintenance(statusText)) {
-            badge = new StatusBadge("Bảo trì", new Color(255, 243, 224), new Color(239, 108, 0));
-        } else {
-            badge = new StatusBadge("Hoạt động", new Color(232, 245, 233), new Color(46, 125, 50));
-        }
+        badge = new StatusBadge();
 
         JPanel badgePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
         badgePanel.setOpaque(false);
@@ -125,21 +184,15 @@ public class FloorCard extends JPanel {
         centerContent.setOpaque(false);
         centerContent.setBorder(new EmptyBorder(10, 0, 0, 0));
 
-        JLabel lblTotal = new JLabel("Tổng số căn: " + stats.totalApartments);
-        lblTotal.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        lblTotal = new JLabel();
+        lblTotal.setFont(FONT_TOTAL);
         lblTotal.setForeground(Color.GRAY);
         lblTotal.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         centerContent.add(lblTotal);
         centerContent.add(Box.createVerticalStrut(10));
 
-        int occupiedApartments = stats.rentedApartments + stats.ownedApartments;
-        OccupancyBar progressBar = new OccupancyBar(
-                occupiedApartments,
-                stats.totalApartments,
-                stats.rentedApartments,
-                stats.ownedApartments
-        );
+        progressBar = new OccupancyBar();
         progressBar.setAlignmentX(Component.LEFT_ALIGNMENT);
         centerContent.add(progressBar);
 
@@ -152,34 +205,34 @@ public class FloorCard extends JPanel {
 
         // --- LOGIC ẨN NÚT SỬA/XÓA ---
         if (onEdit != null) {
-            JButton btnEdit = createIconButton("EDIT", new Color(117, 117, 117));
-            if (isBuildingMaintenance) {
-                btnEdit.setEnabled(false);
-            } else {
-                btnEdit.addActionListener(e -> onEdit.accept(floor));
-                btnEdit.addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mousePressed(MouseEvent e) {
-                        e.consume();
-                    }
-                });
-            }
+            btnEdit = createIconButton();
+            btnEdit.addActionListener(e -> {
+                if (!isBuildingMaintenance) {
+                    onEdit.accept(floor);
+                }
+            });
+            btnEdit.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    e.consume();
+                }
+            });
             actionPanel.add(btnEdit);
         }
 
         if (onDelete != null) {
-            JButton btnDelete = createIconButton("DELETE", new Color(239, 83, 80));
-            if (isBuildingMaintenance) {
-                btnDelete.setEnabled(false);
-            } else {
-                btnDelete.addActionListener(e -> onDelete.accept(floor));
-                btnDelete.addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mousePressed(MouseEvent e) {
-                        e.consume();
-                    }
-                });
-            }
+            btnDelete = createIconButton();
+            btnDelete.addActionListener(e -> {
+                if (!isBuildingMaintenance) {
+                    onDelete.accept(floor);
+                }
+            });
+            btnDelete.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    e.consume();
+                }
+            });
             actionPanel.add(btnDelete);
         }
 
@@ -200,7 +253,7 @@ public class FloorCard extends JPanel {
         if (isBuildingMaintenance) {
             g2.setColor(new Color(245, 245, 245, 180));
             g2.fillRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 15, 15);
-        } else if (isMaintenance(floor.getStatus())) {
+        } else if (floor != null && isMaintenance(floor.getStatus())) {
             g2.setColor(new Color(255, 243, 224, 60));
             g2.fillRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 15, 15);
         }
@@ -209,9 +262,8 @@ public class FloorCard extends JPanel {
         super.paintComponent(g);
     }
 
-    private JButton createIconButton(String iconType, Color color) {
-        Color iconColor = isBuildingMaintenance ? Color.LIGHT_GRAY : color;
-        JButton btn = new JButton(new CardIcon(iconType, 20, iconColor));
+    private JButton createIconButton() {
+        JButton btn = new JButton();
         btn.setPreferredSize(new Dimension(30, 30));
         btn.setBorderPainted(false);
         btn.setContentAreaFilled(false);
@@ -223,15 +275,18 @@ public class FloorCard extends JPanel {
     // --- INNER CLASSES (Giữ nguyên từ file gốc) ---
     private static class StatusBadge extends JLabel {
 
-        private Color bgColor, textColor;
+        private Color bgColor = Color.WHITE;
 
-        public StatusBadge(String text, Color bg, Color txt) {
-            super(text);
-            setFont(new Font("Segoe UI", Font.BOLD, 10));
+        public StatusBadge() {
+            setFont(FONT_BADGE);
             setBorder(new EmptyBorder(2, 8, 2, 8));
+        }
+
+        void setStyle(String text, Color bg, Color txt) {
+            setText(text);
             this.bgColor = bg;
-            this.textColor = txt;
-            setForeground(textColor);
+            setForeground(txt);
+            repaint();
         }
 
         @Override
@@ -249,13 +304,17 @@ public class FloorCard extends JPanel {
 
         int occupied, total, rented, owned;
 
-        public OccupancyBar(int occupied, int total, int rented, int owned) {
+        public OccupancyBar() {
+            setPreferredSize(new Dimension(200, 26));
+            setOpaque(false);
+        }
+
+        void setValues(int occupied, int total, int rented, int owned) {
             this.occupied = occupied;
             this.total = total;
             this.rented = rented;
             this.owned = owned;
-            setPreferredSize(new Dimension(200, 26));
-            setOpaque(false);
+            repaint();
         }
 
         @Override
@@ -281,7 +340,7 @@ public class FloorCard extends JPanel {
                     }
                 }
             }
-            g2.setFont(new Font("Segoe UI", Font.BOLD, 11));
+            g2.setFont(FONT_BAR);
             FontMetrics fm = g2.getFontMetrics();
             String statusText;
             if (owned > 0 && rented > 0) {
@@ -1,11 +1,13 @@
 package view;
 
 import dao.BuildingDAO;
+import dao.DataVersion;
 import dao.FloorDAO;
 import model.Building;
 import model.Floor;
 import util.PermissionManager;
 import util.UIConstants;
+import util.VirtualCardGrid;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -16,11 +18,13 @@ import java.awt.geom.Path2D;
 import java.util.List;
 import java.util.function.Consumer;
 
-public class FloorManagementPanel extends JPanel {
+public class FloorManagementPanel extends JPanel implements RefreshablePanel {
 
     private FloorDAO floorDAO;
     private BuildingDAO buildingDAO;
-    private JPanel cardsContainer;
+    private VirtualCardGrid<dao.FloorDAO.FloorWithStats, FloorCard> cardsContainer;
+    // Tòa nhà của lần tải gần nhất đang bảo trì? (thẻ tầng bị khóa)
+    private boolean isBuildingMaintenance = false;
     private Building currentBuilding;
 
     private JComboBox<Building> cbbBuilding;
@@ -64,6 +68,16 @@ public class FloorManagementPanel extends JPanel {
         loadFloors();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.FLOOR, DataVersion.Domain.APARTMENT, DataVersion.Domain.BUILDING};
+    }
+
+    @Override
+    public void refreshData() {
+        loadFloors();
+    }
+
     private void initUI() {
         setLayout(new BorderLayout(20, 20));
         setBackground(UIConstants.BACKGROUND_COLOR);
@@ -157,14 +171,13 @@ public class FloorManagementPanel extends JPanel {
         add(headerPanel, BorderLayout.NORTH);
 
         // === CONTENT ===
-        JPanel wrapperPanel = new JPanel(new BorderLayout());
-        wrapperPanel.setBackground(UIConstants.BACKGROUND_COLOR);
-        cardsContainer = new JPanel(new GridLayout(0, 3, 20, 20));
+        // Lưới ảo: chỉ tạo thẻ cho vùng đang nhìn thấy, thẻ được dùng lại khi cuộn/đổi tòa nhà
+        cardsContainer = new VirtualCardGrid<>(3, 20, 20, 160, this::createFloorCard,
+                (card, item) -> card.bind(item.floor, item.stats, isBuildingMaintenance));
         cardsContainer.setBackground(UIConstants.BACKGROUND_COLOR);
         cardsContainer.setBorder(new EmptyBorder(10, 0, 10, 0));
-        wrapperPanel.add(cardsContainer, BorderLayout.NORTH);
 
-        JScrollPane scrollPane = new JScrollPane(wrapperPanel);
+        JScrollPane scrollPane = new JScrollPane(cardsContainer);
         scrollPane.setBorder(null);
         scrollPane.setBackground(UIConstants.BACKGROUND_COLOR);
         scrollPane.getViewport().setBackground(UIConstants.BACKGROUND_COLOR);
@@ -230,24 +243,17 @@ public class FloorManagementPanel extends JPanel {
             currentWorker.cancel(true);
         }
 
-        cardsContainer.removeAll();
-
         if (currentBuilding == null || currentBuilding.getId() == null) {
             showEmptyMessage("Vui lòng chọn một tòa nhà.", false);
             setButtonsEnabled(false);
-            cardsContainer.revalidate();
-            cardsContainer.repaint();
             return;
         }
 
-        boolean isBuildingMaintenance = "Đang bảo trì".equals(currentBuilding.getStatus())
+        boolean buildingMaintenance = "Đang bảo trì".equals(currentBuilding.getStatus())
                 || "MAINTENANCE".equalsIgnoreCase(currentBuilding.getStatus());
 
         boolean canAdd = permissionManager.canAdd(PermissionManager.MODULE_FLOORS);
-        setButtonsEnabled(!isBuildingMaintenance && canAdd);
-
-        boolean canEdit = permissionManager.canEdit(PermissionManager.MODULE_FLOORS);
-        boolean canDelete = permissionManager.canDelete(PermissionManager.MODULE_FLOORS);
+        setButtonsEnabled(!buildingMaintenance && canAdd);
 
         SwingWorker<List<dao.FloorDAO.FloorWithStats>, Void> worker = new SwingWorker<>() {
             @Override
@@ -269,35 +275,20 @@ public class FloorManagementPanel extends JPanel {
 
                 try {
                     List<dao.FloorDAO.FloorWithStats> data = get();
-                    cardsContainer.removeAll();
 
                     if (data.isEmpty()) {
                         showEmptyMessage("Tòa nhà này chưa có tầng nào.", false);
                     } else {
-                        for (dao.FloorDAO.FloorWithStats item : data) {
-                            FloorCard card = new FloorCard(
-                                    item.floor,
-                                    item.stats,
-                                    isBuildingMaintenance,
-                                    onFloorSelect,
-                                    canEdit ? FloorManagementPanel.this::editFloor : null,
-                                    canDelete ? FloorManagementPanel.this::deleteFloor : null
-                            );
-                            cardsContainer.add(card);
-                        }
+                        isBuildingMaintenance = buildingMaintenance;
+                        cardsContainer.setItems(data);
                     }
-                    cardsContainer.revalidate();
-                    cardsContainer.repaint();
 
                 } catch (Exception e) {
                     if (this != FloorManagementPanel.this.currentWorker) {
                         return;
                     }
                     e.printStackTrace();
-                    cardsContainer.removeAll();
                     showEmptyMessage("Lỗi khi tải dữ liệu tầng.", false);
-                    cardsContainer.revalidate();
-                    cardsContainer.repaint();
                 }
             }
         };
@@ -356,7 +347,17 @@ public class FloorManagementPanel extends JPanel {
         centerWrapper.setBackground(UIConstants.BACKGROUND_COLOR);
         centerWrapper.add(msgPanel);
 
-        cardsContainer.add(centerWrapper);
+        cardsContainer.showPlaceholder(centerWrapper);
+    }
+
+    private FloorCard createFloorCard() {
+        boolean canEdit = permissionManager.canEdit(PermissionManager.MODULE_FLOORS);
+        boolean canDelete = permissionManager.canDelete(PermissionManager.MODULE_FLOORS);
+        return new FloorCard(
+                onFloorSelect,
+                canEdit ? this::editFloor : null,
+                canDelete ? this::deleteFloor : null
+        );
     }
 
     private void showBatchAddDialog() {
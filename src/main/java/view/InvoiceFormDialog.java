@@ -1,5 +1,6 @@
 package view;
 
+import connection.UnitOfWork;
 import dao.*;
 import model.*;
 import util.UIConstants;
@@ -675,10 +676,22 @@ public class InvoiceFormDialog extends JDialog {
         List<Contract> contracts = contractDAO.getAllContracts();
         cmbContract.removeAllItems();
 
+        // Lấy căn hộ + cư dân của các HĐ đang ở (ACTIVE/EXPIRED chưa thanh lý) bằng 2 query IN (...)
+        List<Long> apartmentIds = new ArrayList<>();
+        List<Long> residentIds = new ArrayList<>();
         for (Contract contract : contracts) {
-            if ("ACTIVE".equals(contract.getStatus())) {
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                Resident res = residentDAO.getResidentById(contract.getResidentId());
+            if (contract.isOccupying()) {
+                apartmentIds.add(contract.getApartmentId());
+                residentIds.add(contract.getResidentId());
+            }
+        }
+        Map<Long, Apartment> apartmentById = apartmentDAO.getApartmentsByIds(apartmentIds);
+        Map<Long, Resident> residentById = residentDAO.getResidentsByIds(residentIds);
+
+        for (Contract contract : contracts) {
+            if (contract.isOccupying()) {
+                Apartment apt = apartmentById.get(contract.getApartmentId());
+                Resident res = residentById.get(contract.getResidentId());
 
                 String display = String.format("%s - %s - %s (%s)",
                         contract.getContractNumber(),
@@ -927,30 +940,38 @@ public class InvoiceFormDialog extends JDialog {
 
             invoice.setTotalAmount(BigDecimal.valueOf(total));
 
-            Long invoiceId;
-
-            if (isEditMode) {
-                boolean ok = invoiceDAO.updateInvoice(invoice);
-                if (!ok) {
-                    showError("Cập nhật hóa đơn thất bại!");
-                    return;
+            // Hóa đơn + chi tiết: 1 kết nối, 1 transaction (lỗi giữa chừng → không lưu gì)
+            try (UnitOfWork uow = UnitOfWork.begin()) {
+                Long invoiceId;
+
+                if (isEditMode) {
+                    boolean ok = invoiceDAO.updateInvoice(invoice);
+                    if (!ok) {
+                        uow.rollback(); // Trả khóa trước khi hiện hộp thoại
+                        showError("Cập nhật hóa đơn thất bại!");
+                        return;
+                    }
+                    invoiceId = invoice.getId();
+                } else {
+                    invoiceId = invoiceDAO.insertInvoiceAndReturnId(invoice);
+                    if (invoiceId == null) {
+                        uow.rollback();
+                        showError("Tạo hóa đơn thất bại!");
+                        return;
+                    }
                 }
-                invoiceId = invoice.getId();
-            } else {
-                invoiceId = invoiceDAO.insertInvoiceAndReturnId(invoice);
-                if (invoiceId == null) {
-                    showError("Tạo hóa đơn thất bại!");
+
+                // 👉 INSERT DETAILS
+                List<InvoiceDetail> details = buildInvoiceDetails(invoiceId);
+                boolean detailOk = invoiceDAO.insertInvoiceDetails(invoiceId, details);
+                if (!detailOk) {
+                    uow.rollback();
+                    showError("Lưu chi tiết hóa đơn thất bại!");
                     return;
                 }
-                invoice.setId(invoiceId);
-            }
 
-            // 👉 INSERT DETAILS
-            List<InvoiceDetail> details = buildInvoiceDetails(invoiceId);
-            boolean detailOk = invoiceDAO.insertInvoiceDetails(invoiceId, details);
-            if (!detailOk) {
-                showError("Lưu chi tiết hóa đơn thất bại!");
-                return;
+                uow.commit();
+                invoice.setId(invoiceId);
             }
 
             // ✅ THÀNH CÔNG
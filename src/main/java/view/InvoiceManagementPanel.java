@@ -2,12 +2,14 @@ package view;
 
 import dao.*;
 import model.*;
+import util.AsyncLoader;
+import util.KeysetTableModel;
+import util.PermissionManager;
 import util.UIConstants;
 import util.ModernButton;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
@@ -15,38 +17,43 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Calendar;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
-import javax.swing.table.TableRowSorter;
 
 /**
  * Invoice Management Panel - Cải tiến Tích hợp đầy đủ với InvoiceFormDialog và
  * InvoiceDetailDialog
  */
-public class InvoiceManagementPanel extends JPanel {
+public class InvoiceManagementPanel extends JPanel implements RefreshablePanel {
 
     // DAOs
     private InvoiceDAO invoiceDAO;
-    private ApartmentDAO apartmentDAO;
-    private ContractDAO contractDAO;
-    private ResidentDAO residentDAO;
+    private BuildingDAO buildingDAO;
     private JPanel mainContainer;
 
     // Tables
     private JTable invoiceTable;
-    private DefaultTableModel tableModel;
+    // Tải theo trang khi cuộn, lọc trên DB
+    private KeysetTableModel<InvoiceListViewModel> tableModel;
 
     // Filters
     private JComboBox<Integer> monthCombo;
     private JComboBox<Integer> yearCombo;
     private JComboBox<String> statusCombo;
+    private JComboBox<Building> buildingCombo;
     private JTextField txtSearch;
-    private TableRowSorter<DefaultTableModel> sorter;
+    private boolean isUpdatingFilters = false;
+    // Báo "không tìm thấy" cho lần lọc do user chọn (không báo khi làm mới)
+    private boolean notifyEmptyResult = false;
     // Selected data
     private Invoice selectedInvoice = null;
 
+    // Tải dữ liệu nền: bảng (có overlay) và thẻ thống kê
+    private final AsyncLoader loader = new AsyncLoader(this);
+    private final AsyncLoader statsLoader = new AsyncLoader(null);
+    private final AsyncLoader buildingLoader = new AsyncLoader(null);
+
     // Formatters
     private DecimalFormat moneyFormat = new DecimalFormat("#,##0");
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
@@ -96,15 +103,25 @@ public class InvoiceManagementPanel extends JPanel {
 
         add(mainContainer, BorderLayout.CENTER);
 
+        loadBuildings();
+        loadInvoices();
+        updateStatistics();
+    }
+
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.INVOICE, DataVersion.Domain.CONTRACT};
+    }
+
+    @Override
+    public void refreshData() {
         loadInvoices();
         updateStatistics();
     }
 
     private void initializeDAOs() {
         this.invoiceDAO = new InvoiceDAO();
-        this.apartmentDAO = new ApartmentDAO();
-        this.contractDAO = new ContractDAO();
-        this.residentDAO = new ResidentDAO();
+        this.buildingDAO = new BuildingDAO();
     }
 
     /**
@@ -152,6 +169,18 @@ public class InvoiceManagementPanel extends JPanel {
 
         panel.add(Box.createHorizontalStrut(10));
 
+        // Building filter (danh sách tòa tải nền - loadBuildings)
+        panel.add(new JLabel("Tòa nhà:"));
+        buildingCombo = new JComboBox<>();
+        buildingCombo.addItem(createAllBuildingsItem());
+        buildingCombo.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        buildingCombo.addActionListener(e -> {
+            if (!isUpdatingFilters) {
+                filterInvoices();
+            }
+        });
+        panel.add(buildingCombo);
+
         // Month filter
         panel.add(new JLabel("Tháng:"));
         monthCombo = new JComboBox<>();
@@ -307,25 +336,15 @@ public class InvoiceManagementPanel extends JPanel {
             "ID", "Số HĐ", "Căn hộ", "Cư dân",
             "Tháng/Năm", "Tổng tiền", "Trạng thái", "Ngày TT"
         };
-
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex == 0) {
-                    return Long.class;
-                }
-                if (columnIndex == 5) {
-                    return BigDecimal.class;
-                }
-                return String.class;
-            }
+        Class<?>[] columnClasses = {
+            Long.class, String.class, String.class, String.class,
+            String.class, BigDecimal.class, String.class, String.class
         };
 
+        // Thứ tự (năm, tháng, ngày tạo, id giảm dần) do DB sắp - không dùng RowSorter
+        tableModel = new KeysetTableModel<>(columns, columnClasses, this::getInvoiceCell);
+        tableModel.setPageListener(this::onInvoicePageLoaded);
+
         invoiceTable = new JTable(tableModel);
         invoiceTable.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         invoiceTable.setRowHeight(40);
@@ -335,13 +354,6 @@ public class InvoiceManagementPanel extends JPanel {
         invoiceTable.setShowGrid(true);
         invoiceTable.setGridColor(new Color(240, 240, 240));
 
-        // ===== SORTER (SORT THEO ID) =====
-        sorter = new TableRowSorter<>(tableModel);
-        sorter.setSortKeys(List.of(
-                new RowSorter.SortKey(0, SortOrder.DESCENDING)
-        ));
-        invoiceTable.setRowSorter(sorter);
-
         // ===== COLUMN MODEL =====
         TableColumnModel colModel = invoiceTable.getColumnModel();
 
@@ -429,6 +441,7 @@ public class InvoiceManagementPanel extends JPanel {
 
         JScrollPane scrollPane = new JScrollPane(invoiceTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(new Color(230, 230, 230)));
+        tableModel.attachTo(scrollPane);
         panel.add(scrollPane, BorderLayout.CENTER);
 
         return panel;
@@ -440,8 +453,11 @@ public class InvoiceManagementPanel extends JPanel {
             return;
         }
 
-        int modelRow = invoiceTable.convertRowIndexToModel(viewRow);
-        Long invoiceId = (Long) tableModel.getValueAt(modelRow, 0);
+        InvoiceListViewModel row = tableModel.getItem(invoiceTable.convertRowIndexToModel(viewRow));
+        if (row == null) {
+            return;
+        }
+        Long invoiceId = row.getInvoiceId();
 
         JFrame parent = (JFrame) SwingUtilities.getWindowAncestor(this);
         InvoiceDetailDialog dialog
@@ -477,6 +493,16 @@ public class InvoiceManagementPanel extends JPanel {
         panel.add(btnCreate);
         panel.add(Box.createVerticalStrut(10));
 
+        // Lập hóa đơn cả kỳ cho nhiều tòa
+        ModernButton btnBillingRun = new ModernButton("Lập HĐ Hàng Loạt", new Color(0, 137, 123));
+        btnBillingRun.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnBillingRun.setMaximumSize(new Dimension(190, 45));
+        btnBillingRun.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        btnBillingRun.setVisible(PermissionManager.getInstance().canAdd(PermissionManager.MODULE_INVOICES));
+        btnBillingRun.addActionListener(e -> openBillingRun());
+        panel.add(btnBillingRun);
+        panel.add(Box.createVerticalStrut(10));
+
         // View detail button
         btnView = new ModernButton("Xem Chi Tiết", new Color(76, 175, 80));
         btnView.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -525,161 +551,139 @@ public class InvoiceManagementPanel extends JPanel {
     /**
      * ===== DATA LOADING =====
      */
-    private void loadInvoices() {
-        tableModel.setRowCount(0);
-        List<Invoice> invoices = invoiceDAO.getAllInvoices();
-
-        for (Invoice invoice : invoices) {
-            addInvoiceToTable(invoice);
-        }
+    private void loadBuildings() {
+        buildingLoader.load(() -> buildingDAO.getAllBuildings(), buildings -> {
+            Building previous = (Building) buildingCombo.getSelectedItem();
+            Long previousId = previous != null ? previous.getId() : null;
+            isUpdatingFilters = true;
+            try {
+                buildingCombo.removeAllItems();
+                buildingCombo.addItem(createAllBuildingsItem());
+                for (Building building : buildings) {
+                    buildingCombo.addItem(building);
+                    if (building.getId().equals(previousId)) {
+                        buildingCombo.setSelectedItem(building);
+                    }
+                }
+            } finally {
+                isUpdatingFilters = false;
+            }
+        });
     }
 
-    private void addInvoiceToTable(Invoice invoice) {
-        Contract contract = contractDAO.getContractById(invoice.getContractId());
-
-        String contractNumber = "N/A";
-        String apartmentInfo = "N/A";
-        String residentInfo = "N/A";
-
-        if (contract != null) {
-            contractNumber = contract.getContractNumber() != null ? contract.getContractNumber() : "N/A";
+    private Building createAllBuildingsItem() {
+        return new Building(null, "Tất cả", null, null, null, null, false);
+    }
 
-            // Get apartment info
-            Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-            if (apt != null) {
-                apartmentInfo = apt.getRoomNumber();
-            }
+    /**
+     * Tải lại bảng từ trang đầu theo bộ lọc đang chọn (mọi điều kiện lọc
+     * chạy trong SQL, các trang sau tải khi cuộn xuống)
+     */
+    private void loadInvoices() {
+        Integer selectedMonth = (Integer) monthCombo.getSelectedItem();
+        final Integer month = selectedMonth == null || selectedMonth == 0 ? null : selectedMonth;
+        final Integer year = (Integer) yearCombo.getSelectedItem();
+        final String status = getStatusFilter();
+        final Long buildingId = getSelectedBuildingId();
+        final String keyword = txtSearch.getText().trim();
+
+        tableModel.reset((after, limit) -> invoiceDAO.getInvoiceListPage(
+                month, year, status, buildingId, keyword, after, limit));
+    }
 
-            // Get resident info
-            Resident res = residentDAO.getResidentById(contract.getResidentId());
-            if (res != null) {
-                residentInfo = res.getFullName();
+    private void onInvoicePageLoaded() {
+        if (notifyEmptyResult && !tableModel.isLoading()) {
+            notifyEmptyResult = false;
+            if (tableModel.getRowCount() == 0) {
+                JOptionPane.showMessageDialog(this,
+                        "Không tìm thấy hóa đơn nào!",
+                        "Thông báo",
+                        JOptionPane.INFORMATION_MESSAGE);
             }
         }
+    }
 
-        String monthYear = String.format("Tháng %d/%d", invoice.getMonth(), invoice.getYear());
-
-        String statusDisplay;
-        switch (invoice.getStatus()) {
-            case "PAID":
-                statusDisplay = "Đã thanh toán";
-                break;
-            case "CANCELED":
-                statusDisplay = "Đã hủy";
-                break;
+    private Object getInvoiceCell(InvoiceListViewModel invoice, int column) {
+        switch (column) {
+            case 0:
+                return invoice.getInvoiceId();
+            case 1:
+                return invoice.getContractNumber() != null ? invoice.getContractNumber() : "N/A";
+            case 2:
+                return invoice.getRoomNumber() != null ? invoice.getRoomNumber() : "N/A";
+            case 3:
+                return invoice.getResidentName() != null ? invoice.getResidentName() : "N/A";
+            case 4:
+                return String.format("Tháng %d/%d", invoice.getMonth(), invoice.getYear());
+            case 5:
+                return invoice.getTotalAmount();
+            case 6:
+                if ("PAID".equals(invoice.getStatus())) {
+                    return "Đã thanh toán";
+                }
+                if ("CANCELED".equals(invoice.getStatus())) {
+                    return "Đã hủy";
+                }
+                return "Chưa thanh toán";
+            case 7:
+                return invoice.getPaymentDate() != null ? dateFormat.format(invoice.getPaymentDate()) : "";
             default:
-                statusDisplay = "Chưa thanh toán";
+                return null;
         }
-
-        String paymentDate = "";
-        if (invoice.getPaymentDate() != null) {
-            paymentDate = dateFormat.format(invoice.getPaymentDate());
-        }
-
-        Object[] row = {
-            invoice.getId(),
-            contractNumber,
-            apartmentInfo,
-            residentInfo,
-            monthYear,
-            invoice.getTotalAmount(),
-            statusDisplay,
-            paymentDate
-        };
-
-        tableModel.addRow(row);
     }
 
-    private void filterInvoices() {
-        tableModel.setRowCount(0);
-
-        Integer selectedMonth = (Integer) monthCombo.getSelectedItem();
-        Integer selectedYear = (Integer) yearCombo.getSelectedItem();
+    private String getStatusFilter() {
         String selectedStatus = (String) statusCombo.getSelectedItem();
-        String searchText = txtSearch.getText().trim().toLowerCase();
-
-        List<Invoice> invoices;
-
-        // Filter by month/year
-        if (selectedMonth == 0) {
-            // All months of selected year
-            invoices = invoiceDAO.getAllInvoices();
-            invoices.removeIf(inv -> inv.getYear() != selectedYear);
-        } else {
-            invoices = invoiceDAO.getInvoicesByMonth(selectedMonth, selectedYear);
-        }
-
-        // Filter by status
-        if (!"Tất cả".equals(selectedStatus)) {
-            String statusFilter;
-            switch (selectedStatus) {
-                case "Đã thanh toán":
-                    statusFilter = "PAID";
-                    break;
-                case "Đã hủy":
-                    statusFilter = "CANCELED";
-                    break;
-                default:
-                    statusFilter = "UNPAID";
-            }
-            invoices.removeIf(inv -> !statusFilter.equals(inv.getStatus()));
-        }
-
-        // Filter by search text
-        if (!searchText.isEmpty()) {
-            invoices.removeIf(inv -> {
-                Contract contract = contractDAO.getContractById(inv.getContractId());
-                if (contract == null) {
-                    return true;
-                }
-
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                Resident res = residentDAO.getResidentById(contract.getResidentId());
-
-                String aptNumber = apt != null ? apt.getRoomNumber().toLowerCase() : "";
-                String resName = res != null ? res.getFullName().toLowerCase() : "";
-                String contractNum = contract.getContractNumber() != null
-                        ? contract.getContractNumber().toLowerCase() : "";
-
-                return !aptNumber.contains(searchText)
-                        && !resName.contains(searchText)
-                        && !contractNum.contains(searchText);
-            });
+        if (selectedStatus == null || "Tất cả".equals(selectedStatus)) {
+            return null;
         }
-
-        for (Invoice invoice : invoices) {
-            addInvoiceToTable(invoice);
+        switch (selectedStatus) {
+            case "Đã thanh toán":
+                return "PAID";
+            case "Đã hủy":
+                return "CANCELED";
+            default:
+                return "UNPAID";
         }
+    }
 
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this,
-                    "Không tìm thấy hóa đơn nào!",
-                    "Thông báo",
-                    JOptionPane.INFORMATION_MESSAGE);
-        }
+    private Long getSelectedBuildingId() {
+        Building selected = buildingCombo != null ? (Building) buildingCombo.getSelectedItem() : null;
+        return selected != null ? selected.getId() : null;
+    }
 
+    private void filterInvoices() {
+        notifyEmptyResult = true;
+        loadInvoices();
         updateStatistics();
     }
 
     private void updateStatistics() {
-        List<Invoice> allInvoices = invoiceDAO.getAllInvoices();
-
-        long totalCount = allInvoices.stream()
-                .filter(inv -> !"CANCELED".equals(inv.getStatus()))
-                .count();
+        final Long buildingId = getSelectedBuildingId();
+        statsLoader.load(() -> {
+            InvoiceDAO.InvoiceTotals totals = invoiceDAO.getInvoiceTotals(buildingId);
+            return new InvoiceSummary(totals.totalCount, totals.unpaidCount, totals.paidAmount);
+        }, summary -> {
+            lblTotalInvoices.setText(String.valueOf(summary.totalCount));
+            lblUnpaidInvoices.setText(String.valueOf(summary.unpaidCount));
+            lblTotalRevenue.setText(moneyFormat.format(summary.totalRevenue) + " VNĐ");
+        });
+    }
 
-        long unpaidCount = allInvoices.stream()
-                .filter(inv -> "UNPAID".equals(inv.getStatus()))
-                .count();
+    /**
+     * Số liệu thống kê (tính nền) cho các thẻ phía trên bảng
+     */
+    private static class InvoiceSummary {
 
-        BigDecimal totalRevenue = allInvoices.stream()
-                .filter(inv -> "PAID".equals(inv.getStatus()))
-                .map(Invoice::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        final long totalCount;
+        final long unpaidCount;
+        final BigDecimal totalRevenue;
 
-        lblTotalInvoices.setText(String.valueOf(totalCount));
-        lblUnpaidInvoices.setText(String.valueOf(unpaidCount));
-        lblTotalRevenue.setText(moneyFormat.format(totalRevenue) + " VNĐ");
+        InvoiceSummary(long totalCount, long unpaidCount, BigDecimal totalRevenue) {
+            this.totalCount = totalCount;
+            this.unpaidCount = unpaidCount;
+            this.totalRevenue = totalRevenue;
+        }
     }
 
     /**
@@ -695,8 +699,11 @@ public class InvoiceManagementPanel extends JPanel {
             return;
         }
 
-        int modelRow = invoiceTable.convertRowIndexToModel(viewRow);
-        Long invoiceId = (Long) tableModel.getValueAt(modelRow, 0);
+        InvoiceListViewModel row = tableModel.getItem(invoiceTable.convertRowIndexToModel(viewRow));
+        if (row == null) {
+            return;
+        }
+        Long invoiceId = row.getInvoiceId();
 
         selectedInvoice = invoiceDAO.getInvoiceById(invoiceId);
 
@@ -723,6 +730,23 @@ public class InvoiceManagementPanel extends JPanel {
         }
     }
 
+    private void openBillingRun() {
+        Calendar now = Calendar.getInstance();
+        Integer month = (Integer) monthCombo.getSelectedItem();
+        Integer year = (Integer) yearCombo.getSelectedItem();
+
+        JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
+        BillingRunDialog dialog = new BillingRunDialog(parentFrame,
+                month != null && month > 0 ? month : now.get(Calendar.MONTH) + 1, // 0 = tất cả tháng
+                year != null ? year : now.get(Calendar.YEAR));
+        dialog.setVisible(true);
+
+        if (dialog.isConfirmed()) {
+            loadInvoices();
+            updateStatistics();
+        }
+    }
+
     private void viewInvoiceDetail() {
         if (selectedInvoice == null) {
             JOptionPane.showMessageDialog(this,
@@ -1,5 +1,6 @@
 package view;
 
+import util.ContractLifecycleService;
 import util.UIConstants;
 import util.PermissionManager;
 import model.Building;
@@ -23,6 +24,21 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
     private JPanel contentPanel;
     private PermissionManager permissionManager;
 
+    // Màn hình nội dung: tạo 1 lần, giữ tối đa MAX_WARM_PANELS màn hình gần nhất
+    private static final int MAX_WARM_PANELS = 6;
+    private static final String PANEL_DASHBOARD = "dashboard";
+    private static final String PANEL_BUILDINGS = "buildings";
+    private static final String PANEL_FLOORS = "floors";
+    private static final String PANEL_APARTMENTS = "apartments";
+    private static final String PANEL_RESIDENTS = "residents";
+    private static final String PANEL_CONTRACTS = "contracts";
+    private static final String PANEL_SERVICES = "services";
+    private static final String PANEL_INVOICES = "invoices";
+    private static final String PANEL_REPORTS = "reports";
+    private static final String PANEL_USERS = "users";
+    private static final String PANEL_MY_STAFF = "myStaff";
+    private final PanelManager panelManager = new PanelManager(MAX_WARM_PANELS);
+
     // Menu buttons
     private SidebarButton btnDashboard;
     private SidebarButton btnBuildings;
@@ -53,6 +69,9 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
         // Mặc định chọn Dashboard
         showDashboardPanel();
+
+        // Chuyển hợp đồng quá hạn sang EXPIRED mỗi ngày (chạy nền)
+        ContractLifecycleService.getInstance().start();
     }
 
     private void initializeFrame() {
@@ -341,6 +360,9 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
     private void showPanel(JPanel panel, String title, SidebarButton menuButton) {
         setActiveMenuButton(menuButton);
+        if (contentPanel.getComponentCount() == 1 && contentPanel.getComponent(0) == panel) {
+            return; // Đang hiển thị sẵn
+        }
         contentPanel.removeAll();
         contentPanel.add(panel, BorderLayout.CENTER);
         contentPanel.revalidate();
@@ -349,12 +371,13 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
     private void showDashboardPanel() {
         // ✅ NEW: Không cần truyền buildingId từ MainDashboard nữa
-        showPanel(new DashboardPanel(this), "Dashboard", btnDashboard);
+        showPanel(panelManager.show(PANEL_DASHBOARD, () -> new DashboardPanel(this)), "Dashboard", btnDashboard);
     }
 
     public void showBuildingsPanel() {
         if (permissionManager.canAccess(PermissionManager.MODULE_BUILDINGS)) {
-            showPanel(new BuildingManagementPanel(this::showFloorsOfBuilding), "Quản Lý Tòa Nhà", btnBuildings);
+            showPanel(panelManager.show(PANEL_BUILDINGS, () -> new BuildingManagementPanel(this::showFloorsOfBuilding)),
+                    "Quản Lý Tòa Nhà", btnBuildings);
         } else {
             permissionManager.showAccessDeniedMessage(this, "truy cập Tòa Nhà");
         }
@@ -362,8 +385,11 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
     public void showFloorsOfBuilding(Building building) {
         if (permissionManager.canAccess(PermissionManager.MODULE_FLOORS)) {
-            FloorManagementPanel floorPanel = new FloorManagementPanel(this::showApartmentsOfFloor);
+            FloorManagementPanel floorPanel = panelManager.get(PANEL_FLOORS,
+                    () -> new FloorManagementPanel(this::showApartmentsOfFloor));
+            // Đổi tòa → setBuilding() đã tải lại dữ liệu
             floorPanel.setBuilding(building);
+            panelManager.markFresh(PANEL_FLOORS);
             showPanel(floorPanel, "Quản Lý Tầng", btnBuildings);
         } else {
             permissionManager.showAccessDeniedMessage(this, "truy cập Tầng");
@@ -372,8 +398,10 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
     public void showApartmentsOfFloor(Floor floor) {
         if (permissionManager.canAccess(PermissionManager.MODULE_APARTMENTS)) {
-            ApartmentManagementPanel aptPanel = new ApartmentManagementPanel();
+            ApartmentManagementPanel aptPanel = panelManager.get(PANEL_APARTMENTS, ApartmentManagementPanel::new);
+            // Đổi tầng → setFloor() đã tải lại dữ liệu
             aptPanel.setFloor(floor);
+            panelManager.markFresh(PANEL_APARTMENTS);
             showPanel(aptPanel, "Quản Lý Căn Hộ", btnBuildings);
         } else {
             permissionManager.showAccessDeniedMessage(this, "truy cập Căn Hộ");
@@ -382,40 +410,40 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
     private void showResidentsPanel() {
         if (permissionManager.canAccess(PermissionManager.MODULE_RESIDENTS)) {
-            showPanel(new ResidentManagementPanel(), "Quản Lý Cư Dân", btnResidents);
+            showPanel(panelManager.show(PANEL_RESIDENTS, ResidentManagementPanel::new), "Quản Lý Cư Dân", btnResidents);
         }
     }
 
     private void showContractsPanel() {
         if (permissionManager.canAccess(PermissionManager.MODULE_CONTRACTS)) {
-            showPanel(new ContractManagementPanel(), "Quản Lý Hợp Đồng", btnContracts);
+            showPanel(panelManager.show(PANEL_CONTRACTS, ContractManagementPanel::new), "Quản Lý Hợp Đồng", btnContracts);
         }
     }
 
     private void showServicesPanel() {
         if (permissionManager.canAccess(PermissionManager.MODULE_SERVICES)) {
-            showPanel(new ServiceManagementPanel(), "Quản Lý Dịch Vụ", btnServices);
+            showPanel(panelManager.show(PANEL_SERVICES, ServiceManagementPanel::new), "Quản Lý Dịch Vụ", btnServices);
         }
     }
 
     private void showInvoicesPanel() {
         if (permissionManager.canAccess(PermissionManager.MODULE_INVOICES)) {
-            showPanel(new InvoiceManagementPanel(), "Quản Lý Hóa Đơn", btnInvoices);
+            showPanel(panelManager.show(PANEL_INVOICES, InvoiceManagementPanel::new), "Quản Lý Hóa Đơn", btnInvoices);
         }
     }
 
     private void showReportsPanel() {
         if (permissionManager.canAccess(PermissionManager.MODULE_REPORTS)) {
-            showPanel(new ReportPanel(), "Báo Cáo", btnReports);
+            showPanel(panelManager.show(PANEL_REPORTS, ReportPanel::new), "Báo Cáo", btnReports);
         }
     }
 
     private void showUsersPanel() {
-        showPanel(new UserManagementPanel(), "Quản Lý Tài Khoản", btnUsers);
+        showPanel(panelManager.show(PANEL_USERS, UserManagementPanel::new), "Quản Lý Tài Khoản", btnUsers);
     }
 
     private void showMyStaffPanel() {
-        showPanel(new MyStaffPanel(), "Nhân Viên Thuộc Tòa", btnMyStaff);
+        showPanel(panelManager.show(PANEL_MY_STAFF, MyStaffPanel::new), "Nhân Viên Thuộc Tòa", btnMyStaff);
     }
 
     private void applyRoleBasedAccess() {
@@ -446,7 +474,9 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
 
     private void performLogout() {
         if (JOptionPane.showConfirmDialog(this, "Bạn có chắc chắn muốn đăng xuất?", "Đăng xuất", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+            ContractLifecycleService.getInstance().stop();
             SessionManager.getInstance().logout();
+            panelManager.clear();
             new LoginFrame();
             dispose();
         }
@@ -0,0 +1,253 @@
+package view;
+
+import dao.BuildingDAO;
+import model.Building;
+import util.MeterReadingImporter;
+import util.ModernButton;
+import util.UIConstants;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Calendar;
+
+/**
+ * Nhập chỉ số đồng hồ (điện, nước...) của 1 tòa nhà cho 1 kỳ từ file CSV
+ * (MeterReadingImporter). Hóa đơn lập hàng loạt dùng lượng tiêu thụ đã nhập.
+ */
+public class MeterReadingImportDialog extends JDialog {
+
+    private JComboBox<Building> buildingCombo;
+    private JComboBox<Integer> monthCombo;
+    private JComboBox<Integer> yearCombo;
+    private JTextField txtFile;
+    private JProgressBar progressBar;
+    private JTextArea txtLog;
+    private ModernButton btnImport;
+    private boolean running = false;
+
+    public MeterReadingImportDialog(JFrame parent) {
+        super(parent, "Nhập Chỉ Số Đồng Hồ", true);
+
+        setSize(720, 560);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                if (!running) {
+                    dispose();
+                }
+            }
+        });
+
+        JPanel mainPanel = new JPanel(new BorderLayout(0, 15));
+        mainPanel.setBackground(UIConstants.BACKGROUND_COLOR);
+        mainPanel.setBorder(new EmptyBorder(20, 25, 20, 25));
+        mainPanel.add(createFormPanel(), BorderLayout.NORTH);
+        mainPanel.add(createLogPanel(), BorderLayout.CENTER);
+        mainPanel.add(createFooter(), BorderLayout.SOUTH);
+        setContentPane(mainPanel);
+
+        setLocationRelativeTo(parent);
+    }
+
+    private JPanel createFormPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBackground(UIConstants.BACKGROUND_COLOR);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+
+        JLabel title = new JLabel("📥 Nhập Chỉ Số Đồng Hồ (CSV)");
+        title.setFont(new Font("Segoe UI", Font.BOLD, 20));
+        title.setForeground(UIConstants.TEXT_PRIMARY);
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.gridwidth = 4;
+        panel.add(title, gbc);
+
+        JLabel hint = new JLabel("Mỗi dòng: số phòng, tên dịch vụ, chỉ số mới[, chỉ số cũ] - "
+                + "bỏ trống chỉ số cũ để lấy chỉ số kỳ trước");
+        hint.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+        hint.setForeground(UIConstants.TEXT_SECONDARY);
+        gbc.gridy = 1;
+        panel.add(hint, gbc);
+
+        gbc.gridwidth = 1;
+        gbc.gridy = 2;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Tòa nhà:"), gbc);
+        buildingCombo = new JComboBox<>();
+        for (Building building : new BuildingDAO().getAllBuildings()) {
+            buildingCombo.addItem(building);
+        }
+        gbc.gridx = 1;
+        gbc.gridwidth = 3;
+        panel.add(buildingCombo, gbc);
+
+        Calendar now = Calendar.getInstance();
+        gbc.gridwidth = 1;
+        gbc.gridy = 3;
+        gbc.gridx = 0;
+        panel.add(new JLabel("Tháng:"), gbc);
+        monthCombo = new JComboBox<>();
+        for (int m = 1; m <= 12; m++) {
+            monthCombo.addItem(m);
+        }
+        monthCombo.setSelectedItem(now.get(Calendar.MONTH) + 1);
+        gbc.gridx = 1;
+        panel.add(monthCombo, gbc);
+
+        gbc.gridx = 2;
+        panel.add(new JLabel("Năm:"), gbc);
+        yearCombo = new JComboBox<>();
+        int currentYear = now.get(Calendar.YEAR);
+        for (int y = currentYear - 2; y <= currentYear + 1; y++) {
+            yearCombo.addItem(y);
+        }
+        yearCombo.setSelectedItem(currentYear);
+        gbc.gridx = 3;
+        panel.add(yearCombo, gbc);
+
+        gbc.gridy = 4;
+        gbc.gridx = 0;
+        panel.add(new JLabel("File CSV:"), gbc);
+        txtFile = new JTextField();
+        txtFile.setEditable(false);
+        gbc.gridx = 1;
+        gbc.gridwidth = 2;
+        gbc.weightx = 1;
+        panel.add(txtFile, gbc);
+        JButton btnBrowse = new JButton("Chọn file...");
+        btnBrowse.addActionListener(e -> chooseFile());
+        gbc.gridx = 3;
+        gbc.gridwidth = 1;
+        gbc.weightx = 0;
+        panel.add(btnBrowse, gbc);
+
+        return panel;
+    }
+
+    private JScrollPane createLogPanel() {
+        txtLog = new JTextArea();
+        txtLog.setEditable(false);
+        txtLog.setFont(new Font("Consolas", Font.PLAIN, 12));
+        JScrollPane scroll = new JScrollPane(txtLog);
+        scroll.setBorder(BorderFactory.createTitledBorder("Kết quả"));
+        return scroll;
+    }
+
+    private JPanel createFooter() {
+        JPanel panel = new JPanel(new BorderLayout(15, 0));
+        panel.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        panel.add(progressBar, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttons.setBackground(UIConstants.BACKGROUND_COLOR);
+        btnImport = new ModernButton("Nhập", UIConstants.SUCCESS_COLOR);
+        btnImport.addActionListener(e -> runImport());
+        ModernButton btnClose = new ModernButton("Đóng", new Color(158, 158, 158));
+        btnClose.addActionListener(e -> {
+            if (!running) {
+                dispose();
+            }
+        });
+        buttons.add(btnImport);
+        buttons.add(btnClose);
+        panel.add(buttons, BorderLayout.EAST);
+
+        return panel;
+    }
+
+    private void chooseFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV (*.csv)", "csv"));
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            txtFile.setText(chooser.getSelectedFile().getAbsolutePath());
+        }
+    }
+
+    private void runImport() {
+        Building building = (Building) buildingCombo.getSelectedItem();
+        if (building == null || txtFile.getText().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Vui lòng chọn tòa nhà và file CSV!",
+                    "Thiếu thông tin", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        final File file = new File(txtFile.getText());
+        final Long buildingId = building.getId();
+        final int month = (Integer) monthCombo.getSelectedItem();
+        final int year = (Integer) yearCombo.getSelectedItem();
+
+        setRunning(true);
+        txtLog.setText("");
+        progressBar.setIndeterminate(true);
+
+        SwingWorker<MeterReadingImporter.ImportResult, Void> worker
+                = new SwingWorker<MeterReadingImporter.ImportResult, Void>() {
+            @Override
+            protected MeterReadingImporter.ImportResult doInBackground() throws Exception {
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    return new MeterReadingImporter().importCsv(reader, buildingId, month, year,
+                            (rows, message) -> SwingUtilities.invokeLater(
+                                    () -> progressBar.setString(rows + " dòng - " + message)));
+                }
+            }
+
+            @Override
+            protected void done() {
+                setRunning(false);
+                progressBar.setIndeterminate(false);
+                try {
+                    showResult(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    progressBar.setString("");
+                    JOptionPane.showMessageDialog(MeterReadingImportDialog.this,
+                            "Không đọc được file: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showResult(MeterReadingImporter.ImportResult result) {
+        progressBar.setValue(100);
+        progressBar.setString(String.format("✅ %d chỉ số đã lưu - %d dòng lỗi - %.1f giây",
+                result.imported, result.rejected, result.elapsedMillis / 1000.0));
+
+        StringBuilder log = new StringBuilder();
+        log.append("Đã lưu: ").append(result.imported).append(" chỉ số\n");
+        log.append("Bỏ qua: ").append(result.rejected).append(" dòng\n");
+        if (!result.errors.isEmpty()) {
+            log.append("\n");
+            for (String error : result.errors) {
+                log.append(error).append("\n");
+            }
+            if (result.totalErrors > result.errors.size()) {
+                log.append("... và ").append(result.totalErrors - result.errors.size()).append(" lỗi khác\n");
+            }
+        }
+        txtLog.setText(log.toString());
+        txtLog.setCaretPosition(0);
+    }
+
+    private void setRunning(boolean running) {
+        this.running = running;
+        btnImport.setEnabled(!running);
+        buildingCombo.setEnabled(!running);
+        monthCombo.setEnabled(!running);
+        yearCombo.setEnabled(!running);
+        setCursor(running ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+}
@@ -1,5 +1,6 @@
 package view;
 
+import dao.DataVersion;
 import dao.UserDAO;
 import model.User;
 import util.SessionManager;
@@ -10,7 +11,7 @@ import javax.swing.border.*;
 import java.awt.*;
 import java.util.List;
 
-public class MyStaffPanel extends JPanel {
+public class MyStaffPanel extends JPanel implements RefreshablePanel {
 
     private final UserDAO userDAO = new UserDAO();
     private JPanel cardsPanel;
@@ -29,6 +30,16 @@ public class MyStaffPanel extends JPanel {
         loadStaff();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.USER};
+    }
+
+    @Override
+    public void refreshData() {
+        loadStaff();
+    }
+
     // ================= MODERN HEADER =================
     private JPanel createModernHeader() {
         JPanel headerContainer = new JPanel(new BorderLayout());
@@ -0,0 +1,140 @@
+package view;
+
+import dao.DataVersion;
+
+import javax.swing.JPanel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Quản lý vòng đời các màn hình nội dung của MainDashboard.
+ *
+ * - Màn hình chỉ được tạo lần đầu khi mở (lazy)
+ * - Giữ tối đa maxWarmPanels màn hình đã tạo (LRU), màn hình lâu không dùng
+ * bị loại và sẽ tạo lại khi mở lần sau
+ * - Mở lại màn hình đã có: chỉ gọi refreshData() nếu dữ liệu đã đổi kể từ lần
+ * tải trước (so sánh DataVersion.stamp), không dựng lại component
+ * - DataVersion chỉ đếm thay đổi trong tiến trình này: dữ liệu do máy khác ghi
+ * không làm đổi stamp, nên màn hình tải quá MAX_AGE_MS trước cũng được tải lại
+ */
+public class PanelManager {
+
+    // Tuổi tối đa của dữ liệu đã tải trước khi mở lại màn hình phải tải lại
+    private static final long MAX_AGE_MS = 60_000;
+
+    private final int maxWarmPanels;
+    private final LinkedHashMap<String, WarmPanel> panels;
+
+    private static class WarmPanel {
+
+        final JPanel panel;
+        // DataVersion.stamp tại lần tải gần nhất
+        long stamp;
+        // Thời điểm tải gần nhất (System.currentTimeMillis)
+        long loadedAt;
+
+        WarmPanel(JPanel panel) {
+            this.panel = panel;
+            this.stamp = currentStamp(panel);
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    public PanelManager(int maxWarmPanels) {
+        this.maxWarmPanels = Math.max(1, maxWarmPanels);
+        this.panels = new LinkedHashMap<String, WarmPanel>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WarmPanel> eldest) {
+                if (size() <= PanelManager.this.maxWarmPanels) {
+                    return false;
+                }
+                evicted(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Lấy màn hình theo key, tạo mới bằng factory nếu chưa có (hoặc đã bị loại).
+     * Không tự tải lại dữ liệu - xem show() / refreshIfStale().
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends JPanel> P get(String key, Supplier<P> factory) {
+        WarmPanel entry = panels.get(key);
+        if (entry == null) {
+            entry = new WarmPanel(factory.get());
+            panels.put(key, entry);
+        }
+        return (P) entry.panel;
+    }
+
+    /**
+     * get() + refreshIfStale(): dùng khi mở màn hình từ menu
+     */
+    public <P extends JPanel> P show(String key, Supplier<P> factory) {
+        P panel = get(key, factory);
+        refreshIfStale(key);
+        return panel;
+    }
+
+    /**
+     * Tải lại màn hình nếu dữ liệu đã đổi kể từ lần tải trước, hoặc lần tải
+     * trước đã quá MAX_AGE_MS (thay đổi từ máy khác)
+     *
+     * @return true nếu đã gọi refreshData()
+     */
+    public boolean refreshIfStale(String key) {
+        WarmPanel entry = panels.get(key);
+        if (entry == null || !(entry.panel instanceof RefreshablePanel)) {
+            return false;
+        }
+        long now = currentStamp(entry.panel);
+        long nowMs = System.currentTimeMillis();
+        if (now == entry.stamp && nowMs - entry.loadedAt < MAX_AGE_MS) {
+            return false;
+        }
+        entry.stamp = now;
+        entry.loadedAt = nowMs;
+        ((RefreshablePanel) entry.panel).refreshData();
+        return true;
+    }
+
+    /**
+     * Đánh dấu màn hình vừa tải xong dữ liệu mới nhất (vd: sau setBuilding())
+     */
+    public void markFresh(String key) {
+        WarmPanel entry = panels.get(key);
+        if (entry != null) {
+            entry.stamp = currentStamp(entry.panel);
+            entry.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Loại toàn bộ màn hình (vd: khi đăng xuất)
+     */
+    public void clear() {
+        for (WarmPanel entry : panels.values()) {
+            evicted(entry);
+        }
+        panels.clear();
+    }
+
+    public int size() {
+        return panels.size();
+    }
+
+    private static void evicted(WarmPanel entry) {
+        if (entry.panel instanceof RefreshablePanel) {
+            ((RefreshablePanel) entry.panel).onEvicted();
+        }
+    }
+
+    private static long currentStamp(JPanel panel) {
+        if (panel instanceof RefreshablePanel) {
+            return DataVersion.stamp(((RefreshablePanel) panel).getDataDomains());
+        }
+        return 0;
+    }
+}
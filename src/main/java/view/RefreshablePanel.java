@@ -0,0 +1,26 @@
+package view;
+
+import dao.DataVersion;
+
+/**
+ * Màn hình được PanelManager giữ lại giữa các lần chuyển tab: chỉ tải lại dữ
+ * liệu khi các nhóm dữ liệu nó hiển thị đã thay đổi (xem DataVersion)
+ */
+public interface RefreshablePanel {
+
+    /**
+     * Các nhóm dữ liệu màn hình đang hiển thị
+     */
+    DataVersion.Domain[] getDataDomains();
+
+    /**
+     * Tải lại dữ liệu, giữ nguyên component và bộ lọc đang chọn
+     */
+    void refreshData();
+
+    /**
+     * Gọi khi màn hình bị loại khỏi PanelManager (gỡ listener đã đăng ký...)
+     */
+    default void onEvicted() {
+    }
+}
@@ -32,14 +32,12 @@ import org.jfree.data.general.*;
  * - Building Filter (Manager Support)
  * - Export Excel/PDF (Restored)
  */
-public class ReportPanel extends JPanel {
+public class ReportPanel extends JPanel implements RefreshablePanel {
 
     // DAOs
-    private InvoiceDAO invoiceDAO;
     private ApartmentDAO apartmentDAO;
-    private ContractDAO contractDAO;
-    private ResidentDAO residentDAO;
     private BuildingDAO buildingDAO;
+    private ReportQueryDAO reportDAO;
     
     // Permissions
     private PermissionManager permissionManager;
@@ -80,12 +78,20 @@ public class ReportPanel extends JPanel {
         loadAllReports();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.INVOICE, DataVersion.Domain.CONTRACT, DataVersion.Domain.APARTMENT};
+    }
+
+    @Override
+    public void refreshData() {
+        loadAllReports();
+    }
+
     private void initializeDAOs() {
-        this.invoiceDAO = new InvoiceDAO();
         this.apartmentDAO = new ApartmentDAO();
-        this.contractDAO = new ContractDAO();
-        this.residentDAO = new ResidentDAO();
         this.buildingDAO = new BuildingDAO();
+        this.reportDAO = new ReportQueryDAO();
     }
 
     private void initializeFormatters() {
@@ -484,9 +490,8 @@ public class ReportPanel extends JPanel {
      * ===== DATA LOGIC & FILTERING =====
      */
     
-    // ✅ CORE LOGIC: Get list of filtered invoices based on Building Selection
-    private List<Invoice> getFilteredInvoices(int month, int year) {
-        // 1. Determine target buildings
+    // Tòa nhà đang được chọn (hoặc mọi tòa user được phép xem khi chọn "Tất cả")
+    private Set<Long> getTargetBuildingIds() {
         Set<Long> targetBuildingIds = new HashSet<>();
         BuildingItem selected = (BuildingItem) buildingCombo.getSelectedItem();
         
@@ -504,25 +509,15 @@ public class ReportPanel extends JPanel {
                 targetBuildingIds.addAll(allowedIds);
             }
         }
-        
-        // 2. Get valid Contract IDs for these buildings
-        Set<Long> validContractIds = new HashSet<>();
-        for (Long bid : targetBuildingIds) {
-            List<Contract> contracts = contractDAO.getContractsByBuilding(bid);
-            for (Contract c : contracts) validContractIds.add(c.getId());
-        }
-        
-        // 3. Get Invoices and Filter
-        List<Invoice> rawInvoices = invoiceDAO.getInvoicesByMonth(month, year);
-        List<Invoice> filtered = new ArrayList<>();
-        
-        for (Invoice inv : rawInvoices) {
-            if (validContractIds.contains(inv.getContractId())) {
-                filtered.add(inv);
-            }
-        }
-        
-        return filtered;
+        return targetBuildingIds;
+    }
+    
+    // ✅ CORE LOGIC: Bộ lọc báo cáo (tòa nhà + khoảng tháng) - lọc trên DB bằng ReportQueryDAO
+    private ReportFilter buildFilter() {
+        int year = (Integer) yearCombo.getSelectedItem();
+        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
+        int toMonth = (Integer) toMonthCombo.getSelectedItem();
+        return new ReportFilter(getTargetBuildingIds(), year, fromMonth, toMonth, null);
     }
     
     private void loadAllReports() {
@@ -551,15 +546,12 @@ public class ReportPanel extends JPanel {
         DefaultTableModel model = (DefaultTableModel) table.getModel();
         model.setRowCount(0);
 
+        // 1 query đọc 12 dòng từ bảng tổng hợp (revenue_monthly_rollup)
+        Map<Integer, MonthlyRevenueSummary> summaries = reportDAO.getMonthlySummary(buildFilter());
+
         for (int month = fromMonth; month <= toMonth; month++) {
-            // ✅ USE FILTERED DATA
-            List<Invoice> invoices = getFilteredInvoices(month, year);
-            
-            // Calculate revenue in Java (SUM)
-            BigDecimal revenue = invoices.stream()
-                    .filter(i -> "PAID".equals(i.getStatus()))
-                    .map(Invoice::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            MonthlyRevenueSummary summary = summaries.get(month);
+            BigDecimal revenue = summary.getPaidAmount();
 
             // Add to datasets
             lineDataset.addValue(revenue.doubleValue() / 1000000.0, "Doanh Thu", "T" + month);
@@ -575,8 +567,8 @@ public class ReportPanel extends JPanel {
             }
 
             // Table Row
-            int totalInv = invoices.size();
-            long paid = invoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
+            int totalInv = summary.getInvoiceCount();
+            int paid = summary.getPaidCount();
             
             model.addRow(new Object[]{
                 "Tháng " + month + "/" + year,
@@ -619,22 +611,20 @@ public class ReportPanel extends JPanel {
     }
     
     private void loadInvoiceDebtReport() {
-        int year = (Integer) yearCombo.getSelectedItem();
-        int from = (Integer) fromMonthCombo.getSelectedItem();
-        int to = (Integer) toMonthCombo.getSelectedItem();
+        ReportFilter filter = buildFilter();
         
-        List<Invoice> all = new ArrayList<>();
-        for (int m = from; m <= to; m++) all.addAll(getFilteredInvoices(m, year));
+        // Đếm theo trạng thái + công nợ theo hợp đồng: 2 query GROUP BY
+        Map<String, Integer> counts = reportDAO.getInvoiceStatusCounts(filter);
+        int total = counts.values().stream().mapToInt(Integer::intValue).sum();
+        int paid = counts.getOrDefault("PAID", 0);
+        int unpaid = counts.getOrDefault("UNPAID", 0);
         
-        long paid = all.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-        long unpaid = all.stream().filter(i -> "UNPAID".equals(i.getStatus())).count();
-        
-        updateStatCard("total_invoices", String.valueOf(all.size()));
+        updateStatCard("total_invoices", String.valueOf(total));
         updateStatCard("paid_invoices", String.valueOf(paid));
         updateStatCard("unpaid_invoices", String.valueOf(unpaid));
         updateStatCard("overdue_invoices", "0"); // Placeholder
         
-        updateDebtTable(all.stream().filter(i -> "UNPAID".equals(i.getStatus())).collect(Collectors.toList()));
+        updateDebtTable(reportDAO.getCustomerSummary(filter.withStatus("UNPAID")));
         
         // Update Pie Chart
         DefaultPieDataset dataset = new DefaultPieDataset();
@@ -647,47 +637,30 @@ public class ReportPanel extends JPanel {
         }
     }
 
-    private void updateDebtTable(List<Invoice> unpaidInvoices) {
+    private void updateDebtTable(List<CustomerSummaryRow> debts) {
         JTable table = findTableByName("debt_table");
         if (table == null) return;
         DefaultTableModel model = (DefaultTableModel) table.getModel();
         model.setRowCount(0);
         
-        // Group by contract
-        Map<Long, List<Invoice>> map = unpaidInvoices.stream().collect(Collectors.groupingBy(Invoice::getContractId));
-        
-        for (Map.Entry<Long, List<Invoice>> entry : map.entrySet()) {
-            Contract c = contractDAO.getContractById(entry.getKey());
-            if (c == null) continue;
-            Apartment a = apartmentDAO.getApartmentById(c.getApartmentId());
-            Resident r = residentDAO.getResidentById(c.getResidentId());
-            
-            BigDecimal debt = entry.getValue().stream().map(Invoice::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
-            
+        for (CustomerSummaryRow row : debts) {
             model.addRow(new Object[]{
-                a != null ? a.getRoomNumber() : "?",
-                r != null ? r.getFullName() : "?",
-                formatMoney(debt),
-                entry.getValue().size()
+                row.getRoomNumber() != null ? row.getRoomNumber() : "?",
+                row.getResidentName() != null ? row.getResidentName() : "?",
+                formatMoney(row.getTotalAmount()),
+                row.getInvoiceCount()
             });
         }
     }
     
     private void loadServiceReport() {
-        int year = (Integer) yearCombo.getSelectedItem();
-        // This is harder to filter because InvoiceDAO.getInvoiceDetails doesn't take filtering.
-        // We must iterate filtered invoices.
-        List<Invoice> allInvoices = new ArrayList<>();
-        for (int m=1; m<=12; m++) allInvoices.addAll(getFilteredInvoices(m, year));
+        // Doanh thu dịch vụ cả năm của hóa đơn đã thanh toán: 1 query GROUP BY service_name
+        List<ServiceRevenueRow> services = reportDAO.getServiceBreakdown(
+                buildFilter().withMonths(1, 12).withStatus("PAID"));
         
-        Map<String, BigDecimal> serviceMap = new HashMap<>();
-        for (Invoice inv : allInvoices) {
-            if ("PAID".equals(inv.getStatus())) {
-                List<InvoiceDetail> details = invoiceDAO.getInvoiceDetails(inv.getId());
-                for (InvoiceDetail d : details) {
-                    serviceMap.merge(d.getServiceName(), d.getAmount(), BigDecimal::add);
-                }
-            }
+        Map<String, BigDecimal> serviceMap = new LinkedHashMap<>();
+        for (ServiceRevenueRow row : services) {
+            serviceMap.put(row.getServiceName(), row.getTotalAmount());
         }
         
         // Update Chart & Table
@@ -864,24 +837,31 @@ public class ReportPanel extends JPanel {
             // Show progress
             JDialog progressDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this),
                     "Đang xuất Excel...", true);
-            JProgressBar progressBar = new JProgressBar();
-            progressBar.setIndeterminate(true);
+            JProgressBar progressBar = new JProgressBar(0, 100);
+            progressBar.setStringPainted(true);
+            progressBar.setString("Đang chuẩn bị...");
             progressDialog.add(progressBar);
-            progressDialog.setSize(300, 100);
+            progressDialog.setSize(360, 100);
             progressDialog.setLocationRelativeTo(this);
 
+            // Đọc bộ lọc trên EDT trước khi chuyển sang thread nền
+            final int year = (Integer) yearCombo.getSelectedItem();
+            final int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
+            final int toMonth = (Integer) toMonthCombo.getSelectedItem();
+            final Set<Long> buildingIds = getTargetBuildingIds();
+
             // Export in background thread
             final String finalPath = filepath;
             SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
                 @Override
                 protected Boolean doInBackground() throws Exception {
-                    int year = (Integer) yearCombo.getSelectedItem();
-                    int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-                    int toMonth = (Integer) toMonthCombo.getSelectedItem();
-
-                    // Lưu ý: ReportExportService có thể cần cập nhật để hỗ trợ building filter nếu muốn
+                    // Xuất streaming: bộ nhớ không phụ thuộc số hóa đơn
                     ReportExportService exportService = new ReportExportService();
-                    return exportService.exportToExcel(finalPath, year, fromMonth, toMonth);
+                    return exportService.exportToExcelStreaming(finalPath, year, fromMonth, toMonth, buildingIds,
+                            (percent, message) -> SwingUtilities.invokeLater(() -> {
+                                progressBar.setValue(percent);
+                                progressBar.setString(percent + "% - " + message);
+                            }));
                 }
 
                 @Override
@@ -962,17 +942,19 @@ public class ReportPanel extends JPanel {
             progressDialog.setSize(300, 100);
             progressDialog.setLocationRelativeTo(this);
 
+            // Đọc bộ lọc trên EDT trước khi chuyển sang thread nền
+            final int year = (Integer) yearCombo.getSelectedItem();
+            final int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
+            final int toMonth = (Integer) toMonthCombo.getSelectedItem();
+            final Set<Long> buildingIds = getTargetBuildingIds();
+
             // Export in background thread
             final String finalPath = filepath;
             SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
                 @Override
                 protected Boolean doInBackground() throws Exception {
-                    int year = (Integer) yearCombo.getSelectedItem();
-                    int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-                    int toMonth = (Integer) toMonthCombo.getSelectedItem();
-
                     ReportExportService exportService = new ReportExportService();
-                    return exportService.exportToPDF(finalPath, year, fromMonth, toMonth);
+                    return exportService.exportToPDF(finalPath, year, fromMonth, toMonth, buildingIds);
                 }
 
                 @Override
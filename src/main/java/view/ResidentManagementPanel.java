@@ -4,34 +4,42 @@ import dao.ContractHouseholdViewDAO;
 import dao.FloorDAO;
 import dao.ApartmentDAO;
 import dao.BuildingDAO;
+import dao.DataVersion;
 
 import model.ContractHouseholdViewModel;
 import model.Building;
 import model.Floor;
 import model.Apartment;
 import model.Resident;
+import util.AsyncLoader;
 import util.BuildingContext;
+import util.FilteredTableModel;
 import util.PermissionManager;
+import util.TextNormalizer;
 import util.UIConstants;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * Resident Management Panel Fixed: Filter logic and Initial Load
  */
 public class ResidentManagementPanel extends JPanel
-        implements BuildingContext.ContextChangeListener {
+        implements BuildingContext.ContextChangeListener, RefreshablePanel {
 
     private ContractHouseholdViewDAO contractHouseholdDAO;
     private FloorDAO floorDAO;
@@ -44,7 +52,8 @@ public class ResidentManagementPanel extends JPanel
     private JLabel contextLabel;
     private JLabel countLabel;
     private JTable contractTable;
-    private DefaultTableModel tableModel;
+    // Chỉ hiển thị tập con (theo bộ lọc) của danh sách hộ đã tải
+    private FilteredTableModel<ContractHouseholdViewModel> tableModel;
     private JTextField searchField;
 
     // Filter components
@@ -62,13 +71,34 @@ public class ResidentManagementPanel extends JPanel
     private ButtonGroup statusButtonGroup;
 
     // Cache data
-    private List<ContractHouseholdViewModel> allContracts;
+    private HouseholdIndex index;
     private List<Floor> floors;
-    private List<Apartment> apartments;
+    private List<Apartment> apartments; // toàn bộ căn hộ của tòa đang chọn
 
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
     private boolean isUpdatingCombos = false;
 
+    // Tải dữ liệu nền (ngoài EDT)
+    private final AsyncLoader loader = new AsyncLoader(this);
+
+    // Dữ liệu đã tải theo tòa: quay lại tòa vừa xem mà dữ liệu chưa đổi
+    // (DataVersion) thì không query lại
+    private static final int MAX_BUILDING_SNAPSHOTS = 4;
+    private final Map<Long, ResidentLoadResult> snapshots = new LinkedHashMap<Long, ResidentLoadResult>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ResidentLoadResult> eldest) {
+            return size() > MAX_BUILDING_SNAPSHOTS;
+        }
+    };
+
+    // Lọc: phím gõ liên tiếp được gộp (debounce), lọc chạy nền, lần lọc cũ bị bỏ
+    private static final int FILTER_DEBOUNCE_MS = 250;
+    private static final String SEARCH_PLACEHOLDER = "Tìm theo tên, SĐT, căn hộ...";
+    private final Timer filterTimer = new Timer(FILTER_DEBOUNCE_MS, e -> applyFilters());
+    private final AsyncLoader filterLoader = new AsyncLoader(null);
+    private FilterCriteria lastCriteria;
+    private BitSet lastResult;
+
     public ResidentManagementPanel() {
         this.contractHouseholdDAO = new ContractHouseholdViewDAO();
         this.floorDAO = new FloorDAO();
@@ -77,6 +107,7 @@ public class ResidentManagementPanel extends JPanel
         this.permissionManager = PermissionManager.getInstance();
 
         this.buildingContext = BuildingContext.getInstance();
+        filterTimer.setRepeats(false);
 
         setLayout(new BorderLayout());
         setBackground(UIConstants.BACKGROUND_COLOR);
@@ -88,6 +119,26 @@ public class ResidentManagementPanel extends JPanel
         checkContextAndLoad();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{
+            DataVersion.Domain.RESIDENT, DataVersion.Domain.CONTRACT, DataVersion.Domain.APARTMENT, DataVersion.Domain.FLOOR
+        };
+    }
+
+    @Override
+    public void refreshData() {
+        loadInitialData();
+    }
+
+    @Override
+    public void onEvicted() {
+        loader.cancel();
+        filterTimer.stop();
+        filterLoader.cancel();
+        buildingContext.removeContextChangeListener(this);
+    }
+
     private void createUI() {
         createNoContextPanel();
         createContentPanel();
@@ -257,7 +308,7 @@ public class ResidentManagementPanel extends JPanel
                 new EmptyBorder(10, 15, 10, 15)
         ));
 
-        final String PLACEHOLDER = "Tìm theo tên, SĐT, căn hộ...";
+        final String PLACEHOLDER = SEARCH_PLACEHOLDER;
         final Color PLACEHOLDER_COLOR = new Color(158, 158, 158);
         final Color TEXT_COLOR = new Color(33, 33, 33);
 
@@ -280,6 +331,19 @@ public class ResidentManagementPanel extends JPanel
         });
 
         searchField.addActionListener(e -> applyFilters());
+        // Lọc theo từng phím gõ (gộp các phím liên tiếp)
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+            }
+        });
 
         JButton searchBtn = createModernButton("Tìm", new Color(33, 150, 243));
         searchBtn.setPreferredSize(new Dimension(100, 42));
@@ -450,7 +514,7 @@ public class ResidentManagementPanel extends JPanel
         tablePanel.setBorder(BorderFactory.createLineBorder(UIConstants.BORDER_COLOR, 1, true));
 
         String[] columns = {"Căn hộ", "Tầng", "Chủ hộ", "SĐT", "CCCD", "Tổng số người", "Trạng thái", "Thao tác"};
-        tableModel = new DefaultTableModel(columns, 0) {
+        tableModel = new FilteredTableModel<ContractHouseholdViewModel>(columns, this::getHouseholdCell) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return column == 7;
@@ -664,9 +728,19 @@ public class ResidentManagementPanel extends JPanel
     }
 
     private void loadInitialData() {
+        loadInitialData(false);
+    }
+
+    /**
+     * @param forceReload true = luôn query lại (nút Làm mới), false = dùng
+     * lại dữ liệu đã tải của tòa nếu chưa có thay đổi
+     */
+    private void loadInitialData(boolean forceReload) {
         BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
         if (selected == null) {
-            tableModel.setRowCount(0);
+            loader.cancel();
+            index = null;
+            tableModel.clear();
             countLabel.setText("📋 Vui lòng chọn tòa nhà");
             contextLabel.setText("");
             return;
@@ -675,11 +749,36 @@ public class ResidentManagementPanel extends JPanel
         Long buildingId = selected.building.getId();
         contextLabel.setText("📍 " + selected.building.getName());
 
+        final long stamp = DataVersion.stamp(getDataDomains());
+        ResidentLoadResult snapshot = snapshots.get(buildingId);
+        if (!forceReload && snapshot != null && snapshot.stamp == stamp) {
+            loader.cancel();
+            applyLoadedData(snapshot);
+            return;
+        }
+
+        // Query + dựng chỉ mục lọc chạy nền; đổi tòa nhanh thì kết quả của tòa cũ bị bỏ qua
+        loader.load(() -> {
+            ResidentLoadResult result = new ResidentLoadResult();
+            result.stamp = stamp;
+            result.contracts = contractHouseholdDAO.getContractsByBuilding(buildingId);
+            result.floors = floorDAO.getFloorsByBuildingId(buildingId);
+            result.apartments = apartmentDAO.getApartmentsByBuildingId(buildingId);
+            result.index = new HouseholdIndex(result.contracts, result.apartments);
+            return result;
+        }, result -> {
+            snapshots.put(buildingId, result);
+            applyLoadedData(result);
+        });
+    }
+
+    private void applyLoadedData(ResidentLoadResult result) {
         isUpdatingCombos = true;
 
         try {
-            allContracts = contractHouseholdDAO.getContractsByBuilding(buildingId);
-            floors = floorDAO.getFloorsByBuildingId(buildingId);
+            index = result.index;
+            floors = result.floors;
+            apartments = result.apartments;
 
             floorFilterCombo.removeAllItems();
             floorFilterCombo.addItem("Tất cả");
@@ -688,14 +787,29 @@ public class ResidentManagementPanel extends JPanel
                 floorFilterCombo.addItem(floorName);
             }
 
-            loadApartmentsForFloor(null);
+            fillApartmentCombo(result.apartments);
 
         } finally {
             isUpdatingCombos = false;
         }
 
-        // ✅ FIX: Gọi applyFilters thay vì hiển thị tất cả
-        applyFilters();
+        // ✅ FIX: Lọc ngay theo bộ lọc hiện tại thay vì hiển thị tất cả
+        filterTimer.stop();
+        filterLoader.cancel();
+        FilterCriteria criteria = readCriteria();
+        showFilterResult(criteria, index.filter(criteria, null, null), true);
+    }
+
+    /**
+     * Kết quả tải nền của loadInitialData
+     */
+    private static class ResidentLoadResult {
+
+        long stamp;
+        List<ContractHouseholdViewModel> contracts;
+        List<Floor> floors;
+        List<Apartment> apartments;
+        HouseholdIndex index;
     }
 
     private void loadBuildingsFilter() {
@@ -731,7 +845,8 @@ public class ResidentManagementPanel extends JPanel
             }
 
             if (buildingFilterCombo.getItemCount() == 0) {
-                tableModel.setRowCount(0);
+                index = null;
+                tableModel.clear();
                 countLabel.setText("Không có tòa nhà nào");
                 contextLabel.setText("");
             }
@@ -766,7 +881,7 @@ public class ResidentManagementPanel extends JPanel
 
         buildingContext.setCurrentBuilding(selected.building);
 
-        searchField.setText("Tìm theo tên, SĐT, căn hộ...");
+        searchField.setText(SEARCH_PLACEHOLDER);
         searchField.setForeground(new Color(158, 158, 158));
 
         isUpdatingCombos = true;
@@ -805,27 +920,32 @@ public class ResidentManagementPanel extends JPanel
         applyFilters();
     }
 
+    /**
+     * Căn hộ của tầng lấy từ danh sách căn hộ của tòa đã tải (không query lại)
+     */
     private void loadApartmentsForFloor(Long floorId) {
+        if (apartments == null) {
+            fillApartmentCombo(new ArrayList<>());
+            return;
+        }
+
+        if (floorId == null) {
+            fillApartmentCombo(apartments);
+        } else {
+            fillApartmentCombo(apartments.stream()
+                    .filter(a -> floorId.equals(a.getFloorId()))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private void fillApartmentCombo(List<Apartment> list) {
         isUpdatingCombos = true;
 
         try {
             apartmentFilterCombo.removeAllItems();
             apartmentFilterCombo.addItem("Tất cả");
 
-            BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-            if (selected == null) {
-                return;
-            }
-
-            Long buildingId = selected.building.getId();
-
-            if (floorId == null) {
-                apartments = apartmentDAO.getApartmentsByBuildingId(buildingId);
-            } else {
-                apartments = apartmentDAO.getApartmentsByFloorId(floorId);
-            }
-
-            for (Apartment apt : apartments) {
+            for (Apartment apt : list) {
                 apartmentFilterCombo.addItem(apt.getRoomNumber());
             }
         } finally {
@@ -833,96 +953,102 @@ public class ResidentManagementPanel extends JPanel
         }
     }
 
-    private void applyFilters() {
-        if (allContracts == null) {
-            return;
-        }
+    /**
+     * Đọc bộ lọc hiện tại trên UI (EDT)
+     */
+    private FilterCriteria readCriteria() {
+        FilterCriteria criteria = new FilterCriteria();
 
-        String searchText = searchField.getText().trim().toLowerCase();
-        final String keyword = searchText.equals("tìm theo tên, sđt, căn hộ...") ? "" : searchText;
-
-        final String selectedFloor = (String) floorFilterCombo.getSelectedItem();
-        final String selectedApartment = (String) apartmentFilterCombo.getSelectedItem();
-
-        List<ContractHouseholdViewModel> filtered = allContracts.stream()
-                .filter(c -> {
-                    String residencyStatus = c.getResidencyStatus();
-
-                    if (rbShowAll.isSelected()) {
-                    } else if (rbShowLiving.isSelected()) {
-                        if (!"Đang ở".equals(residencyStatus)) {
-                            return false;
-                        }
-                    } else if (rbShowMoved.isSelected()) {
-                        if (!"Đã chuyển đi".equals(residencyStatus)) {
-                            return false;
-                        }
-                    }
+        String searchText = searchField.getText().trim();
+        criteria.keyword = searchText.equalsIgnoreCase(SEARCH_PLACEHOLDER) ? "" : TextNormalizer.fold(searchText);
 
-                    if (!keyword.isEmpty()) {
-                        String residentName = c.getResidentFullName() != null ? c.getResidentFullName().toLowerCase() : "";
-                        String phone = c.getResidentPhone() != null ? c.getResidentPhone().toLowerCase() : "";
-                        String apartment = c.getApartmentNumber() != null ? c.getApartmentNumber().toLowerCase() : "";
+        if (rbShowLiving.isSelected()) {
+            criteria.residencyStatus = "Đang ở";
+        } else if (rbShowMoved.isSelected()) {
+            criteria.residencyStatus = "Đã chuyển đi";
+        }
 
-                        if (!residentName.contains(keyword) && !phone.contains(keyword) && !apartment.contains(keyword)) {
-                            return false;
-                        }
-                    }
+        // ✅ FIX: Lọc tầng theo ID tầng của căn hộ (không so sánh chuỗi tên tầng - có thể NULL)
+        String selectedFloor = (String) floorFilterCombo.getSelectedItem();
+        if (selectedFloor != null && !"Tất cả".equals(selectedFloor) && floors != null) {
+            floors.stream()
+                    .filter(f -> selectedFloor.equals(getFloorDisplayName(f)))
+                    .findFirst()
+                    .ifPresent(f -> criteria.floorId = f.getId());
+        }
 
-                    // ✅ FIX: Lọc tầng an toàn hơn (dựa vào danh sách apartments đã load)
-                    if (!"Tất cả".equals(selectedFloor)) {
-                        // Thay vì so sánh chuỗi tên tầng (có thể lỗi nếu DB tên tầng NULL)
-                        // Ta kiểm tra xem căn hộ của hợp đồng này có nằm trong danh sách căn hộ của tầng đang chọn không
-                        if (apartments != null) {
-                            boolean apartmentInFloor = apartments.stream()
-                                    .anyMatch(a -> a.getRoomNumber().equals(c.getApartmentNumber()));
-                            if (!apartmentInFloor) {
-                                return false;
-                            }
-                        }
-                    }
+        String selectedApartment = (String) apartmentFilterCombo.getSelectedItem();
+        if (selectedApartment != null && !"Tất cả".equals(selectedApartment)) {
+            criteria.apartmentNumber = selectedApartment;
+        }
+        return criteria;
+    }
 
-                    if (!"Tất cả".equals(selectedApartment)) {
-                        if (!selectedApartment.equals(c.getApartmentNumber())) {
-                            return false;
-                        }
-                    }
+    /**
+     * Lọc nền trên chỉ mục của tòa; lần lọc mới hủy lần lọc cũ chưa xong
+     */
+    private void applyFilters() {
+        filterTimer.stop();
+        if (index == null) {
+            return;
+        }
 
-                    return true;
-                })
-                .collect(Collectors.toList());
+        final HouseholdIndex currentIndex = index;
+        final FilterCriteria criteria = readCriteria();
+        final FilterCriteria previousCriteria = lastCriteria;
+        final BitSet previousResult = lastResult;
 
-        displayContracts(filtered);
+        filterLoader.load(() -> currentIndex.filter(criteria, previousCriteria, previousResult), rows -> {
+            if (currentIndex == index) { // Chưa đổi tòa trong lúc lọc
+                showFilterResult(criteria, rows, false);
+            }
+        });
     }
 
-    private void displayContracts(List<ContractHouseholdViewModel> contracts) {
-        tableModel.setRowCount(0);
-
-        for (ContractHouseholdViewModel contract : contracts) {
-            String totalPeopleDisplay = contract.getTotalPeopleDisplay();
-
-            Object[] row = {
-                contract.getApartmentNumber(),
-                contract.getFloorName() != null ? contract.getFloorName() : "",
-                contract.getResidentFullName(),
-                contract.getResidentPhone() != null ? contract.getResidentPhone() : "",
-                contract.getResidentIdentityCard() != null ? contract.getResidentIdentityCard() : "",
-                totalPeopleDisplay,
-                contract.getResidencyStatus(),
-                "👁️ Chi tiết"
-            };
-            tableModel.addRow(row);
+    private void showFilterResult(FilterCriteria criteria, BitSet rows, boolean newSource) {
+        lastCriteria = criteria;
+        lastResult = rows;
+
+        if (newSource) {
+            tableModel.setSource(index.rows, rows);
+        } else {
+            tableModel.setVisibleRows(rows);
         }
 
-        if (contracts.size() == allContracts.size()) {
-            countLabel.setText("📋 Tổng số: " + contracts.size() + " hộ gia đình");
+        int shown = tableModel.getRowCount();
+        int total = tableModel.getSourceSize();
+        if (shown == total) {
+            countLabel.setText("📋 Tổng số: " + shown + " hộ gia đình");
         } else {
-            countLabel.setText("🔍 Hiển thị: " + contracts.size() + "/" + allContracts.size() + " hộ gia đình");
+            countLabel.setText("🔍 Hiển thị: " + shown + "/" + total + " hộ gia đình");
+        }
+    }
+
+    private Object getHouseholdCell(ContractHouseholdViewModel contract, int column) {
+        switch (column) {
+            case 0:
+                return contract.getApartmentNumber();
+            case 1:
+                return contract.getFloorName() != null ? contract.getFloorName() : "";
+            case 2:
+                return contract.getResidentFullName();
+            case 3:
+                return contract.getResidentPhone() != null ? contract.getResidentPhone() : "";
+            case 4:
+                return contract.getResidentIdentityCard() != null ? contract.getResidentIdentityCard() : "";
+            case 5:
+                return contract.getTotalPeopleDisplay();
+            case 6:
+                return contract.getResidencyStatus();
+            case 7:
+                return "👁️ Chi tiết";
+            default:
+                return null;
         }
     }
 
     private void resetFilters() {
-        searchField.setText("Tìm theo tên, SĐT, căn hộ...");
+        searchField.setText(SEARCH_PLACEHOLDER);
         searchField.setForeground(new Color(158, 158, 158));
 
         isUpdatingCombos = true;
@@ -934,74 +1060,22 @@ public class ResidentManagementPanel extends JPanel
             isUpdatingCombos = false;
         }
 
-        loadInitialData();
+        loadInitialData(true);
     }
 
     private void showHouseholdDetail(int row) {
-        List<ContractHouseholdViewModel> filteredContracts = getFilteredContracts();
-        if (row < 0 || filteredContracts == null || row >= filteredContracts.size()) {
+        ContractHouseholdViewModel household = tableModel.getItem(row);
+        if (household == null) {
             return;
         }
 
-        ContractHouseholdViewModel household = filteredContracts.get(row);
         JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
         HouseholdDetailDialog dialog = new HouseholdDetailDialog(parentFrame, household);
         dialog.setVisible(true);
     }
 
-    private List<ContractHouseholdViewModel> getFilteredContracts() {
-        if (allContracts == null) {
-            return null;
-        }
-
-        String searchText = searchField.getText().trim().toLowerCase();
-        final String keyword = searchText.equals("tìm theo tên, sđt, căn hộ...") ? "" : searchText;
-        final String selectedFloor = (String) floorFilterCombo.getSelectedItem();
-        final String selectedApartment = (String) apartmentFilterCombo.getSelectedItem();
-
-        return allContracts.stream()
-                .filter(c -> {
-                    String residencyStatus = c.getResidencyStatus();
-                    if (rbShowAll.isSelected()) {
-                    } else if (rbShowLiving.isSelected()) {
-                        if (!"Đang ở".equals(residencyStatus)) {
-                            return false;
-                        }
-                    } else if (rbShowMoved.isSelected()) {
-                        if (!"Đã chuyển đi".equals(residencyStatus)) {
-                            return false;
-                        }
-                    }
-                    if (!keyword.isEmpty()) {
-                        String residentName = c.getResidentFullName() != null ? c.getResidentFullName().toLowerCase() : "";
-                        String phone = c.getResidentPhone() != null ? c.getResidentPhone().toLowerCase() : "";
-                        String apartment = c.getApartmentNumber() != null ? c.getApartmentNumber().toLowerCase() : "";
-                        if (!residentName.contains(keyword) && !phone.contains(keyword) && !apartment.contains(keyword)) {
-                            return false;
-                        }
-                    }
-                    // ✅ FIX: Logic lọc tầng tương tự
-                    if (!"Tất cả".equals(selectedFloor)) {
-                        if (apartments != null) {
-                            boolean apartmentInFloor = apartments.stream()
-                                    .anyMatch(a -> a.getRoomNumber().equals(c.getApartmentNumber()));
-                            if (!apartmentInFloor) {
-                                return false;
-                            }
-                        }
-                    }
-                    if (!"Tất cả".equals(selectedApartment)) {
-                        if (!selectedApartment.equals(c.getApartmentNumber())) {
-                            return false;
-                        }
-                    }
-                    return true;
-                })
-                .collect(Collectors.toList());
-    }
-
     private void showStatistics() {
-        if (buildingFilterCombo.getSelectedItem() == null) {
+        if (buildingFilterCombo.getSelectedItem() == null || index == null) {
             return;
         }
 
@@ -1010,7 +1084,7 @@ public class ResidentManagementPanel extends JPanel
         int movedCount = 0;
         int totalPeople = 0;
 
-        for (ContractHouseholdViewModel contract : allContracts) {
+        for (ContractHouseholdViewModel contract : index.rows) {
             if ("Đang ở".equals(contract.getResidencyStatus())) {
                 livingCount++;
             } else {
@@ -1065,4 +1139,98 @@ public class ResidentManagementPanel extends JPanel
     public void onContextChanged(BuildingContext context) {
         checkContextAndLoad();
     }
-}
\ No newline at end of file
+
+    /**
+     * Bộ lọc của 1 lần lọc (null / rỗng = không lọc theo tiêu chí đó)
+     */
+    private static final class FilterCriteria {
+
+        String residencyStatus;
+        Long floorId;
+        String apartmentNumber;
+        String keyword = ""; // đã bỏ dấu (TextNormalizer)
+
+        boolean sameExceptKeyword(FilterCriteria other) {
+            return java.util.Objects.equals(residencyStatus, other.residencyStatus)
+                    && java.util.Objects.equals(floorId, other.floorId)
+                    && java.util.Objects.equals(apartmentNumber, other.apartmentNumber);
+        }
+    }
+
+    /**
+     * Chỉ mục lọc dựng 1 lần (ngoài EDT) cho danh sách hộ của 1 tòa: tập dòng
+     * theo trạng thái / tầng / căn hộ (BitSet, giao nhau bằng and()) và chuỗi
+     * tìm kiếm đã bỏ dấu của từng dòng. Chỉ đọc sau khi dựng xong → dùng được
+     * từ thread lọc nền.
+     */
+    private static final class HouseholdIndex {
+
+        final List<ContractHouseholdViewModel> rows;
+        private final String[] searchText;
+        private final Map<String, BitSet> byStatus = new HashMap<>();
+        private final Map<Long, BitSet> byFloor = new HashMap<>();
+        private final Map<String, BitSet> byApartment = new HashMap<>();
+
+        HouseholdIndex(List<ContractHouseholdViewModel> rows, List<Apartment> apartments) {
+            this.rows = rows;
+            this.searchText = new String[rows.size()];
+
+            Map<Long, Long> floorByApartment = new HashMap<>();
+            for (Apartment apartment : apartments) {
+                floorByApartment.put(apartment.getId(), apartment.getFloorId());
+            }
+
+            for (int i = 0; i < rows.size(); i++) {
+                ContractHouseholdViewModel c = rows.get(i);
+                // Ngăn cách bằng \n: từ khóa (không chứa \n) không khớp vắt qua 2 trường
+                searchText[i] = TextNormalizer.fold(c.getResidentFullName()) + "\n"
+                        + TextNormalizer.fold(c.getResidentPhone()) + "\n"
+                        + TextNormalizer.fold(c.getApartmentNumber());
+                byStatus.computeIfAbsent(c.getResidencyStatus(), k -> new BitSet()).set(i);
+                Long floorId = floorByApartment.get(c.getApartmentId());
+                if (floorId != null) {
+                    byFloor.computeIfAbsent(floorId, k -> new BitSet()).set(i);
+                }
+                byApartment.computeIfAbsent(c.getApartmentNumber(), k -> new BitSet()).set(i);
+            }
+        }
+
+        /**
+         * Gõ thêm ký tự (từ khóa mới bắt đầu bằng từ khóa cũ, các bộ lọc khác
+         * giữ nguyên) → chỉ kiểm tra lại các dòng của kết quả trước
+         *
+         * @return chỉ số các dòng khớp
+         */
+        BitSet filter(FilterCriteria criteria, FilterCriteria previous, BitSet previousResult) {
+            BitSet result;
+            if (previous != null && previousResult != null && criteria.sameExceptKeyword(previous)
+                    && criteria.keyword.startsWith(previous.keyword)) {
+                result = (BitSet) previousResult.clone();
+                if (criteria.keyword.equals(previous.keyword)) {
+                    return result;
+                }
+            } else {
+                result = new BitSet(rows.size());
+                result.set(0, rows.size());
+                if (criteria.residencyStatus != null) {
+                    result.and(byStatus.getOrDefault(criteria.residencyStatus, new BitSet()));
+                }
+                if (criteria.floorId != null) {
+                    result.and(byFloor.getOrDefault(criteria.floorId, new BitSet()));
+                }
+                if (criteria.apartmentNumber != null) {
+                    result.and(byApartment.getOrDefault(criteria.apartmentNumber, new BitSet()));
+                }
+            }
+
+            if (!criteria.keyword.isEmpty()) {
+                for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+                    if (!searchText[i].contains(criteria.keyword)) {
+                        result.clear(i);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
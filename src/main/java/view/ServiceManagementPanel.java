@@ -1,5 +1,6 @@
 package view;
 
+import dao.DataVersion;
 import dao.ServiceDAO;
 import model.Service;
 import util.UIConstants;
@@ -18,7 +19,7 @@ import java.util.List;
  * Service Management Panel - IMPROVED UI Added statistics cards, better
  * spacing, modern design All original functionality preserved
  */
-public class ServiceManagementPanel extends JPanel {
+public class ServiceManagementPanel extends JPanel implements RefreshablePanel {
 
     private ServiceDAO serviceDAO;
     private JTable serviceTable;
@@ -54,6 +55,16 @@ public class ServiceManagementPanel extends JPanel {
         updateStatistics();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.SERVICE};
+    }
+
+    @Override
+    public void refreshData() {
+        loadServices();
+    }
+
     private JPanel createHeader() {
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setBackground(UIConstants.BACKGROUND_COLOR);
@@ -349,13 +360,23 @@ public class ServiceManagementPanel extends JPanel {
         deleteButton.setPreferredSize(new Dimension(120, 45));
         deleteButton.addActionListener(e -> deleteService());
 
+        ModernButton importButton = new ModernButton("Nhập Chỉ Số (CSV)", UIConstants.INFO_COLOR);
+        importButton.setPreferredSize(new Dimension(180, 45));
+        importButton.addActionListener(e -> importMeterReadings());
+
         actionPanel.add(addButton);
         actionPanel.add(editButton);
         actionPanel.add(deleteButton);
+        actionPanel.add(importButton);
 
         return actionPanel;
     }
 
+    private void importMeterReadings() {
+        JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
+        new MeterReadingImportDialog(parentFrame).setVisible(true);
+    }
+
     // ===== ALL ORIGINAL METHODS BELOW - UNCHANGED =====
     private void loadServices() {
         tableModel.setRowCount(0);
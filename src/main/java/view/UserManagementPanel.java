@@ -1,5 +1,6 @@
 package view;
 
+import dao.DataVersion;
 import dao.UserDAO;
 import model.User;
 import util.UIConstants;
@@ -19,7 +20,7 @@ import java.util.List;
 /**
  * Modern User Management Panel with improved UI Only accessible by ADMIN
  */
-public class UserManagementPanel extends JPanel {
+public class UserManagementPanel extends JPanel implements RefreshablePanel {
 
     private UserDAO userDAO;
     private JTable userTable;
@@ -49,6 +50,16 @@ public class UserManagementPanel extends JPanel {
         loadUsers();
     }
 
+    @Override
+    public DataVersion.Domain[] getDataDomains() {
+        return new DataVersion.Domain[]{DataVersion.Domain.USER, DataVersion.Domain.BUILDING};
+    }
+
+    @Override
+    public void refreshData() {
+        loadUsers();
+    }
+
     /**
      * Create modern header with gradient background
      */